@@ -0,0 +1,68 @@
+package com.pontualiot.demo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.pontualiot.demo.service.AttendanceView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialização JSON de List<AttendanceView>, como retornada pelo
+ * AttendanceController (registro com ID e nome do funcionário).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AttendanceJsonBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<AttendanceView> attendances;
+
+    @Setup
+    public void setUp() {
+        // Mesma configuração que o JacksonAutoConfiguration aplica ao mapper dos controllers
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        LocalDate date = LocalDate.of(2024, 1, 15);
+        attendances = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            attendances.add(new AttendanceView(
+                    (long) i,
+                    (long) i,
+                    "Funcionário " + i,
+                    date.atTime(8, i % 60),
+                    i % 4 == 0 ? null : date.atTime(17, i % 60),
+                    date,
+                    LocalDateTime.of(2024, 1, 15, 8, i % 60)));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeAttendanceList() throws Exception {
+        return objectMapper.writeValueAsBytes(attendances);
+    }
+}
@@ -0,0 +1,126 @@
+package com.pontualiot.demo.benchmark;
+
+import com.pontualiot.demo.entity.Attendance;
+import com.pontualiot.demo.entity.Employee;
+import com.pontualiot.demo.repository.AttendanceRepository;
+import com.pontualiot.demo.repository.EmployeeRepository;
+import com.pontualiot.demo.service.AttendanceView;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leitura de 100 mil registros de ponto: entidades com Employee carregado
+ * (comportamento do antigo FetchType.EAGER) vs projeção AttendanceView
+ * (um JOIN, só ID e nome do funcionário, fora do contexto de persistência).
+ *
+ * O resultado é em registros por segundo.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AttendanceProjectionBenchmark {
+
+    private static final int ROWS = 100_000;
+    private static final int EMPLOYEES = 1_000;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+
+    @Param({"H2", "POSTGRES"})
+    private BenchmarkDatabase database;
+
+    private BenchmarkContexts.Running running;
+    private AttendanceRepository attendanceRepository;
+    private EntityManagerFactory entityManagerFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        running = BenchmarkContexts.start(database);
+        attendanceRepository = running.bean(AttendanceRepository.class);
+        entityManagerFactory = running.bean(EntityManagerFactory.class);
+
+        List<Employee> employees = new ArrayList<>(EMPLOYEES);
+        for (int i = 0; i < EMPLOYEES; i++) {
+            employees.add(Employee.builder().name("Funcionário " + i).email("funcionario" + i + "@bench.local")
+                    .rfidTag("PROJ_%05d".formatted(i)).build());
+        }
+        employees = running.bean(EmployeeRepository.class).saveAll(employees);
+
+        // JDBC em lote: 100 mil saves via JPA (IDENTITY, sem batch) dominariam o setup
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            LocalDate day = FIRST_DAY.plusDays(i / EMPLOYEES);
+            rows.add(new Object[]{
+                    employees.get(i % EMPLOYEES).getId(),
+                    Timestamp.valueOf(day.atTime(8, i % 60)),
+                    Timestamp.valueOf(day.atTime(17, i % 60)),
+                    Date.valueOf(day),
+                    Timestamp.valueOf(day.atTime(8, i % 60))});
+        }
+        running.bean(JdbcTemplate.class).batchUpdate(
+                "INSERT INTO attendances (employee_id, check_in, check_out, date, created_at) VALUES (?, ?, ?, ?, ?)",
+                rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        running.close();
+    }
+
+    /**
+     * Antes: entidades gerenciadas e um SELECT por funcionário distinto
+     * para hidratar Employee, como o FetchType.EAGER fazia.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void entitiesWithEmployee(Blackhole blackhole) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            List<Attendance> attendances = entityManager
+                    .createQuery("SELECT a FROM Attendance a ORDER BY a.date, a.id", Attendance.class)
+                    .getResultList();
+            for (Attendance attendance : attendances) {
+                blackhole.consume(attendance.getEmployee().getName());
+            }
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Depois: projeção usada pelas listagens e relatórios.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void projection(Blackhole blackhole) {
+        for (AttendanceView attendance : attendanceRepository.findPage(Limit.of(ROWS))) {
+            blackhole.consume(attendance.employee().name());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.pontualiot.demo.benchmark;
+
+import com.pontualiot.demo.DemoApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sobe o contexto completo da api-core para benchmarks de ponta a ponta.
+ *
+ * Sem servidor web e com logs reduzidos: o objetivo é medir serviço,
+ * JPA e banco, não o console.
+ */
+final class BenchmarkContexts {
+
+    private BenchmarkContexts() {
+    }
+
+    static Running start(BenchmarkDatabase database) throws IOException {
+        BenchmarkDatabase.Instance instance = database.start();
+
+        Map<String, String> properties = new HashMap<>(instance.properties());
+        properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("spring.sql.init.mode", "never");
+        properties.put("pontualiot.mqtt.inbound.enabled", "false"); // Sem broker: mensagens entram pelo MqttListener
+        properties.put("pontualiot.mqtt.spool.enabled", "false"); // Mede a ingestão, não o msync do disco
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.pontualiot", "WARN");
+        properties.put("logging.level.org.hibernate.SQL", "WARN");
+        properties.put("logging.level.org.springframework.security", "WARN");
+
+        SpringApplication application = new SpringApplication(DemoApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        // Passadas como argumentos para prevalecer sobre o application.yml
+        String[] args = properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+        return new Running(application.run(args), instance);
+    }
+
+    /**
+     * Contexto em execução junto com o banco que o atende.
+     */
+    record Running(ConfigurableApplicationContext context, BenchmarkDatabase.Instance database) {
+
+        <T> T bean(Class<T> type) {
+            return context.getBean(type);
+        }
+
+        void close() throws IOException {
+            context.close();
+            database.resource().close();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.pontualiot.demo.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Bancos suportados pelos benchmarks que sobem o contexto da aplicação.
+ *
+ * - H2: banco em memória, mede o custo da aplicação sem I/O real
+ * - POSTGRES: PostgreSQL embarcado (binários do zonky, processo local),
+ *   substituto do PostgreSQL de produção sem depender de Docker.
+ *   O PostgreSQL se recusa a rodar como root.
+ */
+public enum BenchmarkDatabase {
+
+    H2 {
+        @Override
+        Instance start() {
+            return new Instance(Map.of(
+                "spring.datasource.url", "jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1;NON_KEYWORDS=DATE,USER",
+                "spring.datasource.driver-class-name", "org.h2.Driver",
+                "spring.datasource.username", "sa",
+                "spring.datasource.password", "",
+                "spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect"
+            ), () -> { });
+        }
+    },
+
+    POSTGRES {
+        @Override
+        Instance start() throws IOException {
+            EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+            return new Instance(Map.of(
+                "spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"),
+                "spring.datasource.driver-class-name", "org.postgresql.Driver",
+                "spring.datasource.username", "postgres",
+                "spring.datasource.password", ""
+            ), postgres);
+        }
+    };
+
+    abstract Instance start() throws IOException;
+
+    /**
+     * Banco em execução: propriedades de conexão e recurso a fechar no teardown.
+     */
+    record Instance(Map<String, String> properties, Closeable resource) {
+    }
+}
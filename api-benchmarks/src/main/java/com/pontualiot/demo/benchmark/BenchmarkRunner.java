@@ -0,0 +1,48 @@
+package com.pontualiot.demo.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Ponto de entrada do benchmarks.jar.
+ *
+ * Aceita os mesmos argumentos do org.openjdk.jmh.Main e, se nenhum
+ * arquivo de resultado for informado (-rff), grava o resultado em JSON
+ * em target/jmh-results/{versão}-{data-hora}.json para comparação entre
+ * releases. O diretório pode ser trocado com -Djmh.results.dir=...
+ */
+public final class BenchmarkRunner {
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResult().hasValue()) {
+            Path directory = Path.of(System.getProperty("jmh.results.dir", "target/jmh-results"));
+            Files.createDirectories(directory);
+            String version = BenchmarkRunner.class.getPackage().getImplementationVersion();
+            String fileName = (version != null ? version : "dev") + "-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".json";
+            options.resultFormat(ResultFormatType.JSON)
+                   .result(directory.resolve(fileName).toString());
+        }
+        new Runner(options.build()).run();
+    }
+}
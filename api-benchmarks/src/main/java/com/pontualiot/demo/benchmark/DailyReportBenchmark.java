@@ -0,0 +1,91 @@
+package com.pontualiot.demo.benchmark;
+
+import com.pontualiot.demo.controller.AttendanceReportController;
+import com.pontualiot.demo.entity.Attendance;
+import com.pontualiot.demo.entity.Employee;
+import com.pontualiot.demo.repository.AttendanceRepository;
+import com.pontualiot.demo.repository.EmployeeRepository;
+import com.pontualiot.demo.service.AttendancePage;
+import com.pontualiot.demo.service.DailyAttendanceSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AttendanceReportController sobre um dia com N registros: resumo lido do
+ * agregado diário e primeira página dos registros do dia.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DailyReportBenchmark {
+
+    private static final LocalDate REPORT_DATE = LocalDate.of(2024, 1, 15);
+
+    @Param({"H2", "POSTGRES"})
+    private BenchmarkDatabase database;
+
+    @Param({"100", "1000"})
+    private int attendances;
+
+    private BenchmarkContexts.Running running;
+    private AttendanceReportController controller;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        running = BenchmarkContexts.start(database);
+        controller = running.bean(AttendanceReportController.class);
+
+        List<Employee> employees = new ArrayList<>(attendances);
+        for (int i = 0; i < attendances; i++) {
+            employees.add(Employee.builder().name("Funcionário " + i).email("funcionario" + i + "@bench.local")
+                    .rfidTag("REPORT_%05d".formatted(i)).build());
+        }
+        employees = running.bean(EmployeeRepository.class).saveAll(employees);
+
+        List<Attendance> rows = new ArrayList<>(attendances);
+        for (int i = 0; i < attendances; i++) {
+            rows.add(Attendance.builder()
+                    .employee(employees.get(i))
+                    .date(REPORT_DATE)
+                    .checkIn(REPORT_DATE.atTime(8, i % 60))
+                    .checkOut(i % 4 == 0 ? null : REPORT_DATE.atTime(17, i % 60)) // 1/4 ainda trabalhando
+                    .build());
+        }
+        running.bean(AttendanceRepository.class).saveAll(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        running.close();
+    }
+
+    @Benchmark
+    public DailyAttendanceSummary getDailyReport() {
+        return controller.getDailyReport(REPORT_DATE);
+    }
+
+    @Benchmark
+    public AttendancePage getDailyAttendancesFirstPage() {
+        return controller.getDailyAttendances(REPORT_DATE, null, null);
+    }
+}
@@ -0,0 +1,70 @@
+package com.pontualiot.demo.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Cópia do caminho de parsing anterior ao MqttPayloadParser, mantida
+ * apenas como referência de comparação nos benchmarks.
+ *
+ * - listener: ObjectMapper novo por mensagem + readTree
+ * - validator: readTree em isValidMessage e novamente em validateAndParse
+ */
+final class LegacyTreeParsing {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Caminho do MqttListener.onAttendanceMessage antigo.
+     *
+     * @return eventType extraído (evita eliminação de código morto)
+     */
+    String listener(String payload) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode json = mapper.readTree(payload);
+        String deviceId = json.get("deviceId").asText();
+        String rfidTag = json.get("rfidTag").asText();
+        String eventType = json.get("eventType").asText();
+        return deviceId.length() + rfidTag.length() > 0 ? eventType : null;
+    }
+
+    /**
+     * Caminho do MqttMessageValidator antigo: isValidMessage + validateAndParse.
+     *
+     * @return Timestamp parseado
+     */
+    LocalDateTime validator(String payload) throws Exception {
+        JsonNode check = objectMapper.readTree(payload);
+        if (!(has(check, "deviceId") && has(check, "rfidTag") && has(check, "eventType") && has(check, "timestamp"))) {
+            throw new IllegalArgumentException("Mensagem inválida");
+        }
+
+        JsonNode json = objectMapper.readTree(payload);
+        text(json, "deviceId");
+        text(json, "rfidTag");
+        String eventType = text(json, "eventType");
+        if (!"CHECK_IN".equals(eventType) && !"CHECK_OUT".equals(eventType)) {
+            throw new IllegalArgumentException("Tipo de evento deve ser CHECK_IN ou CHECK_OUT");
+        }
+        LocalDateTime timestamp = LocalDateTime.parse(text(json, "timestamp"), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        if (json.has("metadata")) {
+            json.get("metadata").asText();
+        }
+        return timestamp;
+    }
+
+    private static boolean has(JsonNode json, String field) {
+        return json.has(field) && !json.get(field).isNull();
+    }
+
+    private static String text(JsonNode json, String field) {
+        JsonNode node = json.get(field);
+        if (node == null || node.isNull() || node.asText().trim().isEmpty()) {
+            throw new IllegalArgumentException(field + " é obrigatório");
+        }
+        return node.asText().trim();
+    }
+}
@@ -0,0 +1,95 @@
+package com.pontualiot.demo.benchmark;
+
+import com.pontualiot.demo.entity.Attendance;
+import com.pontualiot.demo.entity.Employee;
+import com.pontualiot.demo.mqtt.MqttAttendanceService;
+import com.pontualiot.demo.repository.EmployeeRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MqttAttendanceService.processMqttMessage de ponta a ponta
+ * (validação, cache de funcionários, índice de jornadas, JPA e banco).
+ *
+ * Cada operação é um check-in ou check-out de um funcionário do pool,
+ * em rodízio; quando o pool se esgota a data avança um dia, de modo que
+ * toda mensagem é aceita pelas regras de negócio.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MqttAttendanceServiceBenchmark {
+
+    private static final String PAYLOAD = """
+        {"deviceId": "BENCH_DEVICE", "rfidTag": "%s", "eventType": "%s", "timestamp": "%sT%s"}""";
+
+    @Param({"H2", "POSTGRES"})
+    private BenchmarkDatabase database;
+
+    @Param({"500"})
+    private int employees;
+
+    private BenchmarkContexts.Running running;
+    private MqttAttendanceService service;
+    private List<String> rfidTags;
+
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        running = BenchmarkContexts.start(database);
+        service = running.bean(MqttAttendanceService.class);
+
+        EmployeeRepository employeeRepository = running.bean(EmployeeRepository.class);
+        rfidTags = new ArrayList<>(employees);
+        List<Employee> batch = new ArrayList<>(employees);
+        for (int i = 0; i < employees; i++) {
+            String tag = "BENCH_%05d".formatted(i);
+            rfidTags.add(tag);
+            batch.add(Employee.builder().name("Funcionário " + i).email(tag.toLowerCase() + "@bench.local")
+                    .rfidTag(tag).build());
+        }
+        employeeRepository.saveAll(batch);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        running.close();
+    }
+
+    @Benchmark
+    public Attendance processMqttMessage() {
+        long n = sequence++;
+        long round = n / employees;              // Cada rodada: check-in de todos, depois check-out de todos
+        int employee = (int) (n % employees);
+        long day = round / 2;
+        boolean checkIn = round % 2 == 0;
+
+        String payload = PAYLOAD.formatted(
+                rfidTags.get(employee),
+                checkIn ? "CHECK_IN" : "CHECK_OUT",
+                LocalDate.of(2024, 1, 1).plusDays(day),
+                checkIn ? "08:00:00" : "17:00:00");
+        return service.processMqttMessage("devices/BENCH_DEVICE/events", payload);
+    }
+}
@@ -0,0 +1,78 @@
+package com.pontualiot.demo.benchmark;
+
+import com.pontualiot.demo.mqtt.MqttMessageValidator;
+import com.pontualiot.demo.mqtt.MqttPayloadParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MqttMessageValidator.validateAndParse com payloads válidos e inválidos.
+ *
+ * Payloads inválidos exercitam o caminho de exceção (mensagem de erro
+ * montada + stack trace), que em produção vem de dispositivos com
+ * firmware desatualizado.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MqttMessageValidatorBenchmark {
+
+    @Param({"valid", "malformedJson", "missingField", "invalidEventType", "invalidTimestamp"})
+    private String payloadKind;
+
+    private AnnotationConfigApplicationContext context;
+    private MqttMessageValidator validator;
+    private String payload;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(MqttPayloadParser.class, MqttMessageValidator.class);
+        validator = context.getBean(MqttMessageValidator.class);
+        payload = switch (payloadKind) {
+            case "valid" -> """
+                {"deviceId": "ESP32_001", "rfidTag": "RFID_0042", "eventType": "CHECK_IN",
+                 "timestamp": "2024-01-15T08:30:00", "metadata": "battery=87"}""";
+            case "malformedJson" -> """
+                {"deviceId": "ESP32_001" "rfidTag": "RFID_0042", "eventType": "CHECK_IN\"""";
+            case "missingField" -> """
+                {"deviceId": "ESP32_001", "eventType": "CHECK_IN", "timestamp": "2024-01-15T08:30:00"}""";
+            case "invalidEventType" -> """
+                {"deviceId": "ESP32_001", "rfidTag": "RFID_0042", "eventType": "ENTRADA",
+                 "timestamp": "2024-01-15T08:30:00"}""";
+            case "invalidTimestamp" -> """
+                {"deviceId": "ESP32_001", "rfidTag": "RFID_0042", "eventType": "CHECK_IN",
+                 "timestamp": "15/01/2024 08:30"}""";
+            default -> throw new IllegalArgumentException(payloadKind);
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object validateAndParse() {
+        try {
+            return validator.validateAndParse(payload);
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+}
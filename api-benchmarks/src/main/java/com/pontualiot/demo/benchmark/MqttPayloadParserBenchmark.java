@@ -0,0 +1,67 @@
+package com.pontualiot.demo.benchmark;
+
+import com.pontualiot.demo.mqtt.MqttAttendanceMessage;
+import com.pontualiot.demo.mqtt.MqttPayloadParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parser de streaming (MqttPayloadParser) contra o caminho antigo baseado
+ * em ObjectMapper.readTree.
+ *
+ * O caminho antigo recebia o payload como String; o novo lê o byte[] do
+ * broker. Rode com -prof gc para comparar também a alocação por operação.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MqttPayloadParserBenchmark {
+
+    private static final String PAYLOAD = """
+        {"deviceId": "ESP32_001", "rfidTag": "RFID_0042", "eventType": "CHECK_IN",
+         "timestamp": "2024-01-15T08:30:00", "metadata": "battery=87;rssi=-61"}
+        """;
+
+    private final MqttPayloadParser parser = new MqttPayloadParser();
+    private final LegacyTreeParsing legacy = new LegacyTreeParsing();
+    private final MqttAttendanceMessage reusable = new MqttAttendanceMessage();
+
+    private String payloadText;
+    private byte[] payloadBytes;
+
+    @Setup
+    public void setUp() {
+        payloadText = PAYLOAD;
+        payloadBytes = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String legacyListener() throws Exception {
+        return legacy.listener(payloadText);
+    }
+
+    @Benchmark
+    public LocalDateTime legacyValidator() throws Exception {
+        return legacy.validator(payloadText);
+    }
+
+    @Benchmark
+    public MqttAttendanceMessage streaming() {
+        return parser.parse(payloadBytes, reusable);
+    }
+}
@@ -0,0 +1,96 @@
+package com.pontualiot.demo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.ConfigurableTomcatWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.channel.ExecutorChannel;
+import org.springframework.messaging.MessageChannel;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Modo de execução do processamento MQTT.
+ *
+ * pontualiot.execution.mqtt escolhe entre platform (mensagem processada na
+ * thread do cliente MQTT, como sempre foi) e virtual (uma virtual thread do
+ * Java 21 por mensagem). O listener só faz parse, deduplicação e
+ * enfileiramento; o acesso ao banco fica nas raias do
+ * AttendanceIngestionQueue, que já limitam a concorrência e bloqueiam o
+ * envio com a raia cheia (backpressure).
+ *
+ * Requisições HTTP usam o suporte nativo do Spring Boot:
+ * spring.threads.virtual.enabled=true.
+ *
+ * Métricas (mesmos executor_* nos dois modos virtuais, para comparar a
+ * capacidade de HTTP e MQTT):
+ * - executor_* (name=mqtt) no executor de virtual threads do MQTT
+ * - executor_* (name=tomcat) no executor de virtual threads do Tomcat
+ * - tomcat_threads_*: pool de platform threads do Tomcat, só no modo
+ *   platform (server.tomcat.mbeanregistry.enabled)
+ */
+@Configuration
+public class ExecutionConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionConfig.class);
+
+    /**
+     * Canal de entrada do MqttListener.
+     *
+     * Modo platform: DirectChannel, mensagem processada na própria thread
+     * do cliente MQTT. Modo virtual: ExecutorChannel, cada mensagem em sua
+     * própria virtual thread.
+     */
+    @Bean
+    public MessageChannel mqttInputChannel(@Qualifier("mqttExecutor") ObjectProvider<ExecutorService> mqttExecutor) {
+        ExecutorService executor = mqttExecutor.getIfAvailable();
+        return executor != null ? new ExecutorChannel(executor) : new DirectChannel();
+    }
+
+    /**
+     * Executor de uma virtual thread por mensagem. close() no desligamento
+     * aguarda as mensagens em andamento.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "pontualiot.execution.mqtt", havingValue = "virtual")
+    public ExecutorService mqttExecutor(MeterRegistry meterRegistry) {
+        logger.info("[EXECUCAO] MQTT em virtual threads");
+        return ExecutorServiceMetrics.monitor(meterRegistry,
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("mqtt-vt-", 0).factory()),
+                "mqtt", Tags.of("threads", "virtual"));
+    }
+
+    /**
+     * Métricas do executor de virtual threads do Tomcat.
+     *
+     * O Spring Boot troca o executor do Tomcat por um VirtualThreadExecutor
+     * (ordem 1) e esse executor não expõe métricas; este customizer roda
+     * depois dele e envolve o executor com ExecutorServiceMetrics.
+     */
+    @Bean
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+    public WebServerFactoryCustomizer<ConfigurableTomcatWebServerFactory> tomcatExecutorMetrics(MeterRegistry meterRegistry) {
+        logger.info("[EXECUCAO] HTTP em virtual threads");
+        return factory -> factory.addProtocolHandlerCustomizers(protocolHandler -> {
+            Executor executor = protocolHandler.getExecutor();
+            if (executor != null) {
+                protocolHandler.setExecutor(ExecutorServiceMetrics.monitor(meterRegistry, executor,
+                        "tomcat", Tags.of("threads", "virtual")));
+            }
+        });
+    }
+}
@@ -1,18 +1,19 @@
 package com.pontualiot.demo.config;
 
+import com.pontualiot.demo.mqtt.AttendanceIngestionQueue;
+import com.pontualiot.demo.service.DeviceRegistry;
+import com.pontualiot.demo.service.OpenShiftIndex;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.atomic.AtomicInteger;
-
 @Configuration
 public class MetricsConfig {
 
-    private final AtomicInteger activeDevices = new AtomicInteger(0);
-
     @Bean
     public Counter attendanceRecordsCounter(MeterRegistry meterRegistry) {
         return Counter.builder("attendance_records_total")
@@ -21,17 +22,38 @@ public class MetricsConfig {
     }
 
     @Bean
-    public Gauge activeDevicesGauge(MeterRegistry meterRegistry) {
-        return Gauge.builder("iot_devices_active", activeDevices, AtomicInteger::get)
-                .description("Number of active IoT devices")
+    public Gauge activeDevicesGauge(MeterRegistry meterRegistry, DeviceRegistry deviceRegistry) {
+        return Gauge.builder("iot_devices_active", deviceRegistry, DeviceRegistry::activeCount)
+                .description("IoT devices that sent a message within the silence window")
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public Timer ingestionFlushTimer(MeterRegistry meterRegistry) {
+        return Timer.builder("mqtt_ingestion_flush_seconds")
+                .description("Time to persist one batch of MQTT attendance events")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public DistributionSummary ingestionBatchSizeSummary(MeterRegistry meterRegistry) {
+        return DistributionSummary.builder("mqtt_ingestion_batch_size")
+                .description("Number of MQTT attendance events per persisted batch")
                 .register(meterRegistry);
     }
 
-    public void incrementActiveDevices() {
-        activeDevices.incrementAndGet();
+    @Bean
+    public Gauge ingestionQueueDepthGauge(MeterRegistry meterRegistry, AttendanceIngestionQueue ingestionQueue) {
+        return Gauge.builder("mqtt_ingestion_queue_depth", ingestionQueue, AttendanceIngestionQueue::depth)
+                .description("MQTT attendance events waiting to be persisted")
+                .register(meterRegistry);
     }
 
-    public void decrementActiveDevices() {
-        activeDevices.decrementAndGet();
+    @Bean
+    public Gauge openShiftsGauge(MeterRegistry meterRegistry, OpenShiftIndex openShiftIndex) {
+        return Gauge.builder("attendance_open_shifts", openShiftIndex, OpenShiftIndex::size)
+                .description("Employees currently checked in without check-out")
+                .register(meterRegistry);
     }
 }
\ No newline at end of file
@@ -4,16 +4,23 @@ package com.pontualiot.demo.controller;
 // IMPORTAÇÕES SPRING MVC E MÉTRICAS
 // ========================================
 import com.pontualiot.demo.config.MetricsConfig; // Configuração de métricas Prometheus
-import com.pontualiot.demo.entity.Attendance;    // Entidade de registro de ponto
 import com.pontualiot.demo.repository.AttendanceRepository; // Repositório de dados
+import com.pontualiot.demo.service.AttendanceCursor;        // Posição no histórico (date, id)
+import com.pontualiot.demo.service.AttendanceHistoryService; // Paginação keyset e streaming
+import com.pontualiot.demo.service.AttendancePage;          // Página + cursor da próxima
+import com.pontualiot.demo.service.AttendanceQueryCache;    // Cache das consultas por data
+import com.pontualiot.demo.service.AttendanceView;          // Projeção somente leitura do registro
 import io.micrometer.core.instrument.Counter;     // Contador de métricas
 import io.swagger.v3.oas.annotations.Operation;   // Documentação OpenAPI
 import io.swagger.v3.oas.annotations.tags.Tag;    // Agrupamento de endpoints
+import jakarta.servlet.http.HttpServletResponse;  // Corpo escrito em streaming
 import org.springframework.beans.factory.annotation.Autowired; // Injeção de dependência
 import org.springframework.format.annotation.DateTimeFormat;   // Formatação de data
+import org.springframework.http.MediaType;         // Content-Type do streaming
 import org.springframework.http.ResponseEntity;    // Wrapper para respostas HTTP
 import org.springframework.web.bind.annotation.*;  // Anotações REST
 
+import java.io.IOException; // Escrita do corpo em streaming
 import java.time.LocalDate; // Data sem horário
 import java.util.List;      // Lista de resultados
 
@@ -30,7 +37,8 @@ import java.util.List;      // Lista de resultados
  * - Registrar métricas de uso
  * 
  * ENDPOINTS EXPOSTOS:
- * - GET /api/attendances -> Lista todos os registros
+ * - GET /api/attendances -> Lista registros paginados (keyset em date, id)
+ * - GET /api/attendances/stream -> Histórico completo em streaming
  * - GET /api/attendances/{id} -> Busca por ID específico
  * - GET /api/attendances/employee/{employeeId} -> Registros de um funcionário
  * - GET /api/attendances/date/{date} -> Registros de uma data
@@ -39,9 +47,9 @@ import java.util.List;      // Lista de resultados
  * 1. Cliente faz GET /api/attendances/employee/1
  * 2. Spring MVC roteia para getAttendancesByEmployee(1)
  * 3. Método valida parâmetros
- * 4. Chama attendanceRepository.findByEmployeeId(1)
- * 5. JPA executa SQL no PostgreSQL
- * 6. Resultados são mapeados para List<Attendance>
+ * 4. Chama attendanceRepository.findViewsByEmployeeId(1)
+ * 5. JPA executa SQL no PostgreSQL (um JOIN, só ID e nome do funcionário)
+ * 6. Resultados são mapeados para List<AttendanceView>, fora do contexto de persistência
  * 7. Jackson serializa para JSON
  * 8. ResponseEntity retorna 200 OK com dados
  * 
@@ -78,31 +86,98 @@ public class AttendanceController {
     private Counter attendanceRecordsCounter;
 
     /**
-     * ENDPOINT: LISTAR TODOS OS REGISTROS
+     * INJEÇÃO DE DEPENDÊNCIA - HISTÓRICO
      * 
-     * GET /api/attendances
+     * Paginação keyset e streaming do histórico completo.
+     */
+    @Autowired
+    private AttendanceHistoryService attendanceHistoryService;
+
+    /**
+     * INJEÇÃO DE DEPENDÊNCIA - CACHE DE CONSULTAS
+     * 
+     * Datas encerradas ficam em cache até uma escrita nelas; hoje expira
+     * em pontualiot.cache.attendances.open-ttl.
+     */
+    @Autowired
+    private AttendanceQueryCache attendanceQueryCache;
+
+    /**
+     * ENDPOINT: LISTAR REGISTROS (PAGINADO)
+     * 
+     * GET /api/attendances?cursor=2024-10-30_42&size=100
      * 
      * CASOS DE USO:
      * - Dashboard administrativo geral
      * - Relatórios completos
      * - Debugging e monitoramento
      * 
-     * ATENÇÃO: Pode retornar muitos dados!
-     * Em produção, considerar paginação.
+     * PAGINAÇÃO KEYSET:
+     * - Registros ordenados por (date, id)
+     * - Sem cursor: primeira página
+     * - nextCursor da resposta busca a próxima página; null na última
+     * - size limitado por pontualiot.attendances.max-page-size
      * 
      * RESPOSTA:
-     * 200 OK + JSON array com todos os registros
+     * 200 OK + {"items": [...], "nextCursor": "2024-10-30_142"}
+     * 400 Bad Request se o cursor for inválido
      * 
-     * @return List<Attendance> todos os registros do sistema
+     * @param cursor Cursor da página anterior (opcional)
+     * @param size Tamanho da página (opcional)
+     * @return AttendancePage registros da página e cursor da próxima
      */
     @GetMapping // Mapeia GET /attendances
-    @Operation(summary = "List all attendance records") // Documentação OpenAPI
-    public List<Attendance> getAllAttendances() {
+    @Operation(summary = "List attendance records, keyset-paginated by (date, id)") // Documentação OpenAPI
+    public ResponseEntity<AttendancePage> getAllAttendances(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         // Incrementa contador de métricas
         attendanceRecordsCounter.increment();
-        
-        // Busca todos os registros (pode ser lento!)
-        return attendanceRepository.findAll();
+
+        AttendanceCursor after;
+        try {
+            after = cursor != null ? AttendanceCursor.parse(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            System.err.println("[ATTENDANCE] ❌ " + e.getMessage());
+            return ResponseEntity.badRequest().build(); // 400 Bad Request
+        }
+        return ResponseEntity.ok(attendanceHistoryService.findPage(after, size));
+    }
+
+    /**
+     * ENDPOINT: HISTÓRICO COMPLETO EM STREAMING
+     * 
+     * GET /api/attendances/stream[?cursor=2024-10-30_42]
+     * 
+     * Escreve um array JSON linha a linha a partir de um cursor JDBC:
+     * o uso de memória é constante, independente do tamanho do histórico.
+     * 
+     * CASOS DE USO:
+     * - Exportação completa
+     * - Integração com sistemas de folha de pagamento
+     * 
+     * @param cursor Continua após este registro (opcional)
+     * @param response Resposta HTTP escrita diretamente
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE) // Mapeia GET /attendances/stream
+    @Operation(summary = "Stream all attendance records as a JSON array") // Documentação OpenAPI
+    public void streamAttendances(@RequestParam(required = false) String cursor,
+                                  HttpServletResponse response) throws IOException {
+        attendanceRecordsCounter.increment();
+
+        AttendanceCursor after;
+        try {
+            after = cursor != null ? AttendanceCursor.parse(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            System.err.println("[ATTENDANCE] ❌ " + e.getMessage());
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        long written = attendanceHistoryService.stream(after, response.getOutputStream());
+        System.out.println("[ATTENDANCE] ✅ Streaming concluído - " + written + " registros");
     }
 
     /**
@@ -118,17 +193,17 @@ public class AttendanceController {
      * FLUXO:
      * 1. Spring extrai {id} da URL
      * 2. Converte String para Long automaticamente
-     * 3. Chama attendanceRepository.findById(id)
+     * 3. Chama attendanceRepository.findViewById(id)
      * 4. Se encontrado: retorna 200 OK + dados
      * 5. Se não encontrado: retorna 404 Not Found
      * 
      * @param id ID do registro de ponto
-     * @return ResponseEntity<Attendance> 200 OK ou 404 Not Found
+     * @return ResponseEntity<AttendanceView> 200 OK ou 404 Not Found
      */
     @GetMapping("/{id}") // Mapeia GET /attendances/123
     @Operation(summary = "Get attendance by ID") // Documentação OpenAPI
-    public ResponseEntity<Attendance> getAttendanceById(@PathVariable Long id) {
-        return attendanceRepository.findById(id)
+    public ResponseEntity<AttendanceView> getAttendanceById(@PathVariable Long id) {
+        return attendanceRepository.findViewById(id)
                 .map(ResponseEntity::ok)           // Se presente: 200 OK
                 .orElse(ResponseEntity.notFound().build()); // Se ausente: 404
     }
@@ -155,9 +230,9 @@ public class AttendanceController {
      * 1. Cliente: GET /api/attendances/employee/1
      * 2. Spring: extrai employeeId = 1
      * 3. Validação: employeeId != null
-     * 4. Repository: findByEmployeeId(1)
-     * 5. SQL: SELECT * FROM attendances WHERE employee_id = 1
-     * 6. JPA: mapeia resultados para List<Attendance>
+     * 4. Repository: findViewsByEmployeeId(1)
+     * 5. SQL: SELECT a.*, e.id, e.name FROM attendances a JOIN employees e ... WHERE a.employee_id = 1
+     * 6. JPA: mapeia resultados para List<AttendanceView>
      * 7. Jackson: serializa para JSON
      * 8. HTTP: 200 OK + JSON response
      * 
@@ -166,11 +241,11 @@ public class AttendanceController {
      * - [ATTENDANCE] ✅ Encontrados 5 registros
      * 
      * @param employeeId ID do funcionário
-     * @return ResponseEntity<List<Attendance>> 200 OK com registros ou 400/500 em erro
+     * @return ResponseEntity<List<AttendanceView>> 200 OK com registros ou 400/500 em erro
      */
     @GetMapping("/employee/{employeeId}") // Mapeia GET /attendances/employee/123
     @Operation(summary = "Get attendances by employee ID") // Documentação OpenAPI
-    public ResponseEntity<List<Attendance>> getAttendancesByEmployee(@PathVariable Long employeeId) {
+    public ResponseEntity<List<AttendanceView>> getAttendancesByEmployee(@PathVariable Long employeeId) {
         // Log da requisição recebida
         System.out.println("[ATTENDANCE] GET /attendances/employee/" + employeeId);
         
@@ -182,7 +257,7 @@ public class AttendanceController {
         
         try {
             // Busca registros no banco de dados
-            List<Attendance> attendances = attendanceRepository.findByEmployeeId(employeeId);
+            List<AttendanceView> attendances = attendanceRepository.findViewsByEmployeeId(employeeId);
             
             // Log do resultado
             System.out.println("[ATTENDANCE] ✅ Encontrados " + attendances.size() + " registros");
@@ -222,7 +297,7 @@ public class AttendanceController {
      * [
      *   {
      *     "id": 1,
-     *     "employee": {"id": 1, "name": "João"},
+     *     "employee": {"id": 1, "name": "João"},  // Somente ID e nome
      *     "checkIn": "2024-10-30T08:00:00",
      *     "checkOut": "2024-10-30T17:00:00",
      *     "date": "2024-10-30"
@@ -230,14 +305,14 @@ public class AttendanceController {
      * ]
      * 
      * @param date Data no formato ISO (2024-10-30)
-     * @return List<Attendance> registros da data especificada
+     * @return List<AttendanceView> registros da data especificada
      */
     @GetMapping("/date/{date}") // Mapeia GET /attendances/date/2024-10-30
     @Operation(summary = "Get attendances by date") // Documentação OpenAPI
-    public List<Attendance> getAttendancesByDate(
+    public List<AttendanceView> getAttendancesByDate(
             @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
         
-        // Busca registros da data específica
-        return attendanceRepository.findByDate(date);
+        // Busca registros da data específica (cache em duas camadas)
+        return attendanceQueryCache.byDate(date);
     }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.pontualiot.demo.controller;
+
+import com.pontualiot.demo.mqtt.IngestionEvent;        // Batida no formato da ingestão
+import com.pontualiot.demo.mqtt.MqttAttendanceMessage; // Mensagem validada
+import com.pontualiot.demo.mqtt.MqttPayloadParser;     // Mesmo parser usado no MQTT
+import com.pontualiot.demo.service.AttendanceEventStore; // Log append-only de batidas
+import com.pontualiot.demo.service.BulkAttendanceImporter; // Importação em lote (NDJSON/CSV)
+import com.pontualiot.demo.service.BulkImportResult;     // Contagens da importação
+import com.pontualiot.demo.service.DeviceRegistry;       // Liveness dos dispositivos
+import com.pontualiot.demo.service.EventOrigin;          // Origem da batida
+import io.swagger.v3.oas.annotations.Operation;       // Documentação OpenAPI
+import io.swagger.v3.oas.annotations.tags.Tag;        // Agrupamento de endpoints
+import org.springframework.beans.factory.annotation.Autowired; // Injeção de dependência
+import org.springframework.http.MediaType;             // Content-Type aceito
+import org.springframework.http.ResponseEntity;        // Wrapper para respostas HTTP
+import org.springframework.web.bind.annotation.*;      // Anotações REST
+
+import java.io.InputStream; // Corpo lido em streaming
+import java.util.List; // Lote de um evento
+import java.util.Map;  // Corpo de erro
+
+/**
+ * Recebe batidas de ponto via HTTP (dispositivos sem MQTT).
+ *
+ * O payload tem o mesmo formato da mensagem MQTT e passa pelas mesmas
+ * validações. A batida é gravada no log attendance_events e o registro
+ * em attendances é derivado de forma assíncrona, por isso a resposta é
+ * 202 Accepted.
+ *
+ * Dispositivos que voltam de um período offline enviam o backlog de uma
+ * vez em /attendance-events/bulk (NDJSON ou CSV), lido em streaming.
+ */
+@RestController // Spring: combina @Controller + @ResponseBody
+@RequestMapping("/attendance-events") // Base path: /api/attendance-events
+@Tag(name = "Attendance Events", description = "Raw attendance event ingestion") // OpenAPI
+public class AttendanceEventController {
+
+    private static final String NDJSON = "application/x-ndjson"; // Um objeto JSON por linha
+
+    @Autowired
+    private MqttPayloadParser payloadParser;
+
+    @Autowired
+    private AttendanceEventStore eventStore;
+
+    @Autowired
+    private BulkAttendanceImporter bulkImporter;
+
+    @Autowired
+    private DeviceRegistry deviceRegistry;
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE) // Mapeia POST /attendance-events
+    @Operation(summary = "Append one attendance event to the event log") // Documentação OpenAPI
+    public ResponseEntity<Map<String, String>> appendEvent(@RequestBody byte[] payload) {
+        MqttAttendanceMessage message;
+        try {
+            message = payloadParser.parse(payload);
+        } catch (IllegalArgumentException e) {
+            System.out.println("[EVENT] ⚠️ Batida HTTP rejeitada: " + e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        deviceRegistry.recordMessage(message.getDeviceId());
+        eventStore.append(List.of(IngestionEvent.of(
+                message.getRfidTag(), message.getEventType(), message.getDeviceId(), message.getTimestamp())),
+                EventOrigin.HTTP);
+
+        // 202: attendances é atualizado pela projeção do log
+        return ResponseEntity.accepted().body(Map.of("status", "accepted"));
+    }
+
+    @PostMapping(path = "/bulk", consumes = NDJSON) // Mapeia POST /attendance-events/bulk (NDJSON)
+    @Operation(summary = "Bulk import attendance events, one JSON object per line") // Documentação OpenAPI
+    public ResponseEntity<BulkImportResult> importNdjson(InputStream body) {
+        return accepted(bulkImporter.importNdjson(body));
+    }
+
+    @PostMapping(path = "/bulk", consumes = "text/csv") // Mapeia POST /attendance-events/bulk (CSV)
+    @Operation(summary = "Bulk import attendance events from CSV") // Documentação OpenAPI
+    public ResponseEntity<BulkImportResult> importCsv(InputStream body) {
+        return accepted(bulkImporter.importCsv(body));
+    }
+
+    private ResponseEntity<BulkImportResult> accepted(BulkImportResult result) {
+        System.out.println("[EVENT] 📦 Importação em lote - aceitas: " + result.accepted()
+                + ", rejeitadas: " + result.rejected());
+        return ResponseEntity.accepted().body(result);
+    }
+}
@@ -1,7 +1,14 @@
 package com.pontualiot.demo.controller;
 
-import com.pontualiot.demo.entity.Attendance;
-import com.pontualiot.demo.repository.AttendanceRepository;
+import com.pontualiot.demo.service.AttendanceHistoryService;
+import com.pontualiot.demo.service.AttendancePage;
+import com.pontualiot.demo.service.AttendanceQueryCache;
+import com.pontualiot.demo.service.AttendanceRollups;
+import com.pontualiot.demo.service.AttendanceView;
+import com.pontualiot.demo.service.DailyEmployeeRollup;
+import com.pontualiot.demo.service.DailyAttendanceAggregates;
+import com.pontualiot.demo.service.DailyAttendanceSummary;
+import com.pontualiot.demo.service.HourlyDeviceRollup;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,9 +16,8 @@ import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/reports")
@@ -19,40 +25,64 @@ import java.util.stream.Collectors;
 public class AttendanceReportController {
 
     @Autowired
-    private AttendanceRepository attendanceRepository;
+    private DailyAttendanceAggregates dailyAggregates;
+
+    @Autowired
+    private AttendanceHistoryService attendanceHistoryService;
+
+    @Autowired
+    private AttendanceRollups attendanceRollups;
+
+    @Autowired
+    private AttendanceQueryCache attendanceQueryCache;
 
     @GetMapping("/daily/{date}")
-    @Operation(summary = "Get daily attendance report")
-    public Map<String, Object> getDailyReport(
+    @Operation(summary = "Get daily attendance summary")
+    public DailyAttendanceSummary getDailyReport(
             @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
         
-        List<Attendance> attendances = attendanceRepository.findByDate(date);
-        
-        long totalEmployees = attendances.size();
-        long checkedIn = attendances.stream()
-                .filter(a -> a.getCheckIn() != null)
-                .count();
-        long checkedOut = attendances.stream()
-                .filter(a -> a.getCheckOut() != null)
-                .count();
+        // Lido do agregado mantido a cada escrita, sem carregar os registros
+        return dailyAggregates.summary(date);
+    }
+
+    @GetMapping("/daily/{date}/attendances")
+    @Operation(summary = "List the attendance records of one day, paginated by ID")
+    public AttendancePage getDailyAttendances(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer size) {
         
-        return Map.of(
-            "date", date,
-            "totalEmployees", totalEmployees,
-            "checkedIn", checkedIn,
-            "checkedOut", checkedOut,
-            "stillWorking", checkedIn - checkedOut,
-            "attendances", attendances
-        );
+        return attendanceHistoryService.findDayPage(date, cursor, size);
     }
 
     @GetMapping("/employee/{employeeId}/period")
     @Operation(summary = "Get employee attendance for period")
-    public List<Attendance> getEmployeePeriodReport(
+    public List<AttendanceView> getEmployeePeriodReport(
             @PathVariable Long employeeId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
         
-        return attendanceRepository.findByEmployeeIdAndDateBetween(employeeId, startDate, endDate);
+        // Períodos encerrados ficam em cache até uma escrita do funcionário neles
+        return attendanceQueryCache.employeePeriod(employeeId, startDate, endDate);
+    }
+
+    @GetMapping("/rollups/hourly-by-device")
+    @Operation(summary = "Attendance events per device and hour (continuous aggregate on TimescaleDB)")
+    public List<HourlyDeviceRollup> getHourlyByDevice(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String deviceId) {
+        
+        return attendanceRollups.hourlyByDevice(from, to, deviceId);
+    }
+
+    @GetMapping("/rollups/daily-by-employee")
+    @Operation(summary = "Attendance events per employee and day (continuous aggregate on TimescaleDB)")
+    public List<DailyEmployeeRollup> getDailyByEmployee(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long employeeId) {
+        
+        return attendanceRollups.dailyByEmployee(from, to, employeeId);
     }
-}
\ No newline at end of file
+}
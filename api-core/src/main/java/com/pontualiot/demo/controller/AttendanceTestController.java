@@ -7,6 +7,7 @@ import com.pontualiot.demo.entity.Attendance;         // Entidade de registro de
 import com.pontualiot.demo.entity.Employee;           // Entidade de funcionário
 import com.pontualiot.demo.repository.AttendanceRepository; // Repositório de registros
 import com.pontualiot.demo.repository.EmployeeRepository;   // Repositório de funcionários
+import com.pontualiot.demo.service.AttendanceView;           // Resposta: registro + ID e nome do funcionário
 import io.swagger.v3.oas.annotations.Operation;       // Documentação OpenAPI
 import io.swagger.v3.oas.annotations.tags.Tag;        // Agrupamento de endpoints
 import org.springframework.beans.factory.annotation.Autowired; // Injeção de dependência
@@ -121,10 +122,7 @@ public class AttendanceTestController {
      *   "id": 123,
      *   "employee": {
      *     "id": 1,
-     *     "name": "João Silva",
-     *     "email": "joao@empresa.com",
-     *     "rfidTag": "RFID001",
-     *     "active": true
+     *     "name": "João Silva"
      *   },
      *   "checkIn": "2024-10-30T08:00:00",
      *   "checkOut": null,
@@ -133,12 +131,12 @@ public class AttendanceTestController {
      * }
      * 
      * @param employeeId ID do funcionário (extraido da URL)
-     * @return ResponseEntity<Attendance> 200 OK + registro criado
+     * @return ResponseEntity<AttendanceView> 200 OK + registro criado
      * @throws RuntimeException se Employee não encontrado
      */
     @PostMapping("/check-in/{employeeId}") // Mapeia POST /api/test-attendance/check-in/123
     @Operation(summary = "Create test check-in for employee") // Documentação OpenAPI
-    public ResponseEntity<Attendance> createCheckIn(@PathVariable Long employeeId) {
+    public ResponseEntity<AttendanceView> createCheckIn(@PathVariable Long employeeId) {
         // ETAPA 1: Busca e valida Employee
         Employee employee = employeeRepository.findById(employeeId)
                 .orElseThrow(() -> new RuntimeException("Employee not found"));
@@ -152,7 +150,7 @@ public class AttendanceTestController {
                 .build(); // checkOut fica null automaticamente
 
         // ETAPA 3: Persiste no banco e retorna
-        return ResponseEntity.ok(attendanceRepository.save(attendance));
+        return ResponseEntity.ok(AttendanceView.of(attendanceRepository.save(attendance), employee));
     }
 
     /**
@@ -201,12 +199,12 @@ public class AttendanceTestController {
      * }
      * 
      * @param employeeId ID do funcionário (extraido da URL)
-     * @return ResponseEntity<Attendance> 200 OK + registro atualizado
+     * @return ResponseEntity<AttendanceView> 200 OK + registro atualizado
      * @throws RuntimeException se Employee ou check-in não encontrado
      */
     @PostMapping("/check-out/{employeeId}") // Mapeia POST /api/test-attendance/check-out/123
     @Operation(summary = "Create test check-out for employee") // Documentação OpenAPI
-    public ResponseEntity<Attendance> createCheckOut(@PathVariable Long employeeId) {
+    public ResponseEntity<AttendanceView> createCheckOut(@PathVariable Long employeeId) {
         // ETAPA 1: Busca e valida Employee
         Employee employee = employeeRepository.findById(employeeId)
                 .orElseThrow(() -> new RuntimeException("Employee not found"));
@@ -223,6 +221,7 @@ public class AttendanceTestController {
         attendance.setCheckOut(LocalDateTime.now()); // Timestamp do servidor
 
         // ETAPA 4: Persiste alteração e retorna
-        return ResponseEntity.ok(attendanceRepository.save(attendance));
+        // (Employee do merge é um proxy LAZY: a resposta usa o já carregado)
+        return ResponseEntity.ok(AttendanceView.of(attendanceRepository.save(attendance), employee));
     }
 }
\ No newline at end of file
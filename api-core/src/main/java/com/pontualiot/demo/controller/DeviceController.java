@@ -0,0 +1,38 @@
+package com.pontualiot.demo.controller;
+
+import com.pontualiot.demo.service.DeviceRegistry;
+import com.pontualiot.demo.service.DeviceRegistry.DeviceStats;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Dispositivos ativos (mensagem dentro da janela de silêncio), lidos do
+ * DeviceRegistry em memória.
+ */
+@RestController
+@RequestMapping("/devices") // Base path: /api/devices
+@Tag(name = "Devices", description = "Active IoT device liveness")
+public class DeviceController {
+
+    @Autowired
+    private DeviceRegistry deviceRegistry;
+
+    @GetMapping
+    @Operation(summary = "List active devices with last-seen time, message rate and last error")
+    public List<DeviceStats> getActiveDevices() {
+        return deviceRegistry.list();
+    }
+
+    @GetMapping("/{deviceId}")
+    @Operation(summary = "Get liveness stats of one active device")
+    public ResponseEntity<DeviceStats> getDevice(@PathVariable String deviceId) {
+        return deviceRegistry.find(deviceId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -5,13 +5,16 @@ package com.pontualiot.demo.controller;
 // ========================================
 import com.pontualiot.demo.entity.Employee;           // Entidade de funcionário
 import com.pontualiot.demo.repository.EmployeeRepository; // Repositório de dados
+import com.pontualiot.demo.service.AttendanceQueryCache;  // Cache das listagens de ponto (nome do funcionário)
+import com.pontualiot.demo.service.EmployeeLookupCache;   // Cache RFID usado pela ingestão MQTT
 import io.swagger.v3.oas.annotations.Operation;       // Documentação OpenAPI
 import io.swagger.v3.oas.annotations.tags.Tag;        // Agrupamento de endpoints
 import org.springframework.beans.factory.annotation.Autowired; // Injeção de dependência
 import org.springframework.http.ResponseEntity;        // Wrapper para respostas HTTP
 import org.springframework.web.bind.annotation.*;      // Anotações REST
 
-import java.util.List; // Lista de resultados
+import java.util.List;    // Lista de resultados
+import java.util.Objects; // Comparação null-safe
 
 /**
  * ========================================
@@ -67,6 +70,23 @@ public class EmployeeController {
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    /**
+     * CACHE RFID -> FUNCIONÁRIO
+     * 
+     * Invalidado a cada criação, atualização ou remoção para que a
+     * ingestão MQTT enxergue a nova tag ou o novo status ativo.
+     */
+    @Autowired
+    private EmployeeLookupCache employeeLookupCache;
+
+    /**
+     * CACHE DE CONSULTAS DE PONTO
+     * 
+     * As listagens guardam o nome do funcionário: invalidado quando ele muda.
+     */
+    @Autowired
+    private AttendanceQueryCache attendanceQueryCache;
+
     /**
      * ENDPOINT: LISTAR TODOS OS FUNCIONÁRIOS
      * 
@@ -197,6 +217,7 @@ public class EmployeeController {
             // PERSISTÊNCIA NO BANCO
             // save() executa INSERT SQL com validação de constraints
             Employee saved = employeeRepository.save(employee);
+            employeeLookupCache.invalidate(saved.getRfidTag());
             
             // Log de sucesso
             System.out.println("[EMPLOYEE] ✅ Salvo com sucesso: " + saved);
@@ -256,6 +277,9 @@ public class EmployeeController {
     public ResponseEntity<Employee> updateEmployee(@PathVariable Long id, @RequestBody Employee employee) {
         return employeeRepository.findById(id)
                 .map(existing -> {
+                    String previousTag = existing.getRfidTag();
+                    String previousName = existing.getName();
+                    
                     // Atualiza campos específicos (preserva ID e createdAt)
                     existing.setName(employee.getName());
                     existing.setEmail(employee.getEmail());
@@ -263,8 +287,17 @@ public class EmployeeController {
                     existing.setActive(employee.isActive());
                     // updatedAt é atualizado automaticamente por @PreUpdate
                     
-                    // Salva alterações e retorna 200 OK
-                    return ResponseEntity.ok(employeeRepository.save(existing));
+                    Employee saved = employeeRepository.save(existing);
+                    
+                    // Tag antiga e nova saem do cache (troca de tag ou status)
+                    employeeLookupCache.invalidate(previousTag);
+                    employeeLookupCache.invalidate(saved.getRfidTag());
+                    if (!Objects.equals(previousName, saved.getName())) {
+                        attendanceQueryCache.invalidateEmployee(saved.getId());
+                    }
+                    
+                    // Retorna 200 OK com alterações salvas
+                    return ResponseEntity.ok(saved);
                 })
                 .orElse(ResponseEntity.notFound().build()); // 404 se não encontrado
     }
@@ -293,7 +326,7 @@ public class EmployeeController {
      * FLUXO:
      * 1. Cliente: DELETE /api/employees/1
      * 2. Controller: verifica se funcionário existe
-     * 3. Se existe: executa DELETE SQL
+     * 3. Se existe: executa DELETE SQL e invalida a tag no cache
      * 4. Se não existe: retorna 404 Not Found
      * 5. Se FK constraint: retorna 409 Conflict
      * 6. Se sucesso: retorna 200 OK (sem body)
@@ -305,15 +338,15 @@ public class EmployeeController {
     @Operation(summary = "Delete employee") // Documentação OpenAPI
     public ResponseEntity<Void> deleteEmployee(@PathVariable Long id) {
         // Verifica se funcionário existe antes de tentar deletar
-        if (employeeRepository.existsById(id)) {
-            // Executa DELETE SQL
-            employeeRepository.deleteById(id);
-            
-            // Retorna 200 OK sem body
-            return ResponseEntity.ok().build();
-        }
-        
-        // Retorna 404 Not Found se funcionário não existe
-        return ResponseEntity.notFound().build();
+        return employeeRepository.findById(id)
+                .map(existing -> {
+                    // Executa DELETE SQL e remove a tag do cache
+                    employeeRepository.deleteById(id);
+                    employeeLookupCache.invalidate(existing.getRfidTag());
+                    
+                    // Retorna 200 OK sem body
+                    return ResponseEntity.ok().<Void>build();
+                })
+                .orElse(ResponseEntity.notFound().build()); // 404 se não existe
     }
 }
\ No newline at end of file
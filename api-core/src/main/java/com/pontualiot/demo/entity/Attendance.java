@@ -3,11 +3,14 @@ package com.pontualiot.demo.entity;
 // ========================================
 // IMPORTAÇÕES JPA E LOMBOK
 // ========================================
+import com.pontualiot.demo.service.OpenShiftEntityListener; // Mantém índice de jornadas em aberto
 import jakarta.persistence.*; // Anotações JPA para mapeamento objeto-relacional
 import lombok.AllArgsConstructor; // Gera construtor com todos os parâmetros
 import lombok.Builder;           // Gera padrão Builder para criação fluente
 import lombok.Data;              // Gera getters, setters, toString, equals, hashCode
+import lombok.EqualsAndHashCode; // Exclusão de campos do equals/hashCode
 import lombok.NoArgsConstructor; // Gera construtor vazio (obrigatório para JPA)
+import lombok.ToString;          // Exclusão de campos do toString
 
 import java.time.LocalDate;     // Data sem horário (2024-10-30)
 import java.time.LocalDateTime; // Data com horário (2024-10-30T14:30:00)
@@ -41,9 +44,9 @@ import java.time.LocalDateTime; // Data com horário (2024-10-30T14:30:00)
  * FLUXO DE CONSULTA:
  * 1. GET /api/attendances/employee/{id}
  * 2. AttendanceController.getAttendancesByEmployee()
- * 3. AttendanceRepository.findByEmployeeId()
- * 4. JPA executa: SELECT * FROM attendances WHERE employee_id = ?
- * 5. Retorna List<Attendance> com Employee carregado (EAGER)
+ * 3. AttendanceRepository.findViewsByEmployeeId()
+ * 4. JPA executa: SELECT a.*, e.id, e.name FROM attendances a JOIN employees e ... WHERE a.employee_id = ?
+ * 5. Retorna List<AttendanceView> (projeção, fora do contexto de persistência)
  * 
  * VALIDAÇÕES IMPLEMENTADAS:
  * - employee_id obrigatório (constraint FK)
@@ -52,7 +55,12 @@ import java.time.LocalDateTime; // Data com horário (2024-10-30T14:30:00)
  * - check_out opcional (permite jornada em aberto)
  */
 @Entity // JPA: marca como entidade persistente
-@Table(name = "attendances") // JPA: define nome da tabela no banco
+@Table(name = "attendances", // JPA: define nome da tabela no banco
+       indexes = {
+           @Index(name = "idx_attendances_date_id", columnList = "date, id"), // Paginação por (date, id)
+           @Index(name = "idx_attendances_employee_date", columnList = "employee_id, date") // Histórico por funcionário
+       })
+@EntityListeners(OpenShiftEntityListener.class) // JPA: atualiza OpenShiftIndex a cada escrita
 @Data // Lombok: gera getters, setters, toString, equals, hashCode automaticamente
 @Builder // Lombok: permite Attendance.builder().checkIn(now).build()
 @NoArgsConstructor // Lombok: construtor vazio (JPA precisa para instanciar)
@@ -76,14 +84,18 @@ public class Attendance {
      * - Muitos registros de ponto (Attendance)
      * - Para um funcionário (Employee)
      * 
-     * FETCH EAGER: Employee é carregado junto com Attendance
-     * Evita LazyInitializationException na serialização JSON.
+     * FETCH LAZY: Employee só é carregado quando acessado.
+     * Listagens e relatórios não serializam a entidade: usam a projeção
+     * AttendanceView (ID e nome do funcionário em um único JOIN). Os
+     * caminhos de escrita que precisam do Employee usam @EntityGraph.
      * 
      * CHAVE ESTRANGEIRA: employee_id na tabela attendances
      * CONSTRAINT: NOT NULL (todo registro deve ter funcionário)
      */
-    @ManyToOne(fetch = FetchType.EAGER) // JPA: carregamento imediato
+    @ManyToOne(fetch = FetchType.LAZY) // JPA: carregamento sob demanda
     @JoinColumn(name = "employee_id", nullable = false) // FK obrigatória
+    @ToString.Exclude // Lombok: toString não inicializa o proxy fora da sessão
+    @EqualsAndHashCode.Exclude // Lombok: equals/hashCode também não
     private Employee employee;
 
     /**
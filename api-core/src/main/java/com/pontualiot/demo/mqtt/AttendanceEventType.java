@@ -0,0 +1,45 @@
+package com.pontualiot.demo.mqtt;
+
+/**
+ * Tipos de evento de ponto aceitos nas mensagens MQTT.
+ */
+public enum AttendanceEventType {
+
+    /** Entrada do funcionário */
+    CHECK_IN,
+
+    /** Saída do funcionário */
+    CHECK_OUT;
+
+    private static final AttendanceEventType[] VALUES = values();
+
+    /**
+     * Resolve o tipo a partir de um trecho de caracteres, sem criar String.
+     *
+     * @param chars Buffer de caracteres (ex: JsonParser.getTextCharacters())
+     * @param offset Início do valor no buffer
+     * @param length Tamanho do valor
+     * @return Tipo correspondente ou null se não reconhecido
+     */
+    public static AttendanceEventType fromChars(char[] chars, int offset, int length) {
+        for (AttendanceEventType type : VALUES) {
+            if (type.matches(chars, offset, length)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private boolean matches(char[] chars, int offset, int length) {
+        String name = name();
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (chars[offset + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,380 @@
+package com.pontualiot.demo.mqtt;
+
+import com.pontualiot.demo.service.AttendanceEventStore;
+import com.pontualiot.demo.service.EventOrigin;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ========================================
+ * FILA DE INGESTÃO MQTT - WRITE-BEHIND EM LOTES
+ * ========================================
+ *
+ * RESPONSABILIDADES:
+ * - Desacoplar o canal MQTT da escrita no banco
+ * - Particionar eventos em N raias pelo hash do rfidTag
+ * - Agrupar eventos em micro-lotes (tamanho máximo ou tempo máximo de espera)
+ * - Gravar cada lote no log append-only attendance_events (AttendanceEventStore)
+ *
+ * FLUXO:
+ * 1. MqttListener extrai o evento e chama submit()
+ * 2. Evento vai para a raia do seu rfidTag (fila limitada, bloqueia
+ *    quando cheia = backpressure)
+ * 3. Thread drenadora da raia junta até batch-size eventos ou espera linger-ms
+ * 4. Lote é gravado com um único INSERT de múltiplas linhas (sem UPDATE)
+ * 5. Se o lote falhar, os eventos são regravados um a um
+ *    para que um evento problemático não descarte os demais
+ * 6. AttendanceEventProjector deriva attendances do log, em ordem de gravação
+ *
+ * ACK MANUAL (pontualiot.mqtt.inbound.manual-ack):
+ * - A mensagem só é confirmada ao broker depois que o evento está no log
+ * - Cada mensagem sem ack ocupa uma vaga do Receive Maximum: evento que
+ *   falhou na gravação é regravado na própria raia, com espera crescente,
+ *   até entrar no log (a raia para e a fila cheia segura o canal)
+ * - Erro de integridade não se resolve com nova tentativa: o evento é
+ *   descartado com log de erro e confirmado para liberar a vaga
+ * - No encerramento a raia desiste da regravação; a desconexão faz o
+ *   broker reentregar as mensagens sem ack (sessão persistente)
+ * - Com o spool local (MqttIngestionSpool) a confirmação é o commit do
+ *   registro no spool; falha na gravação estaciona o registro para o
+ *   MqttSpoolReplayer (reject)
+ *
+ * ORDENAÇÃO:
+ * - Cada raia tem uma única thread: eventos de um mesmo funcionário
+ *   (mesmo rfidTag) são gravados no log estritamente na ordem de chegada
+ * - Raias diferentes gravam em paralelo; o log só recebe INSERTs, então
+ *   não há disputa de lock entre elas
+ *
+ * CONFIGURAÇÃO (application.yml):
+ * - pontualiot.mqtt.ingestion.lanes
+ * - pontualiot.mqtt.ingestion.queue-capacity (total, dividido entre as raias)
+ * - pontualiot.mqtt.ingestion.batch-size
+ * - pontualiot.mqtt.ingestion.linger-ms
+ * - pontualiot.mqtt.ingestion.retry-backoff-ms
+ *
+ * MÉTRICAS:
+ * - mqtt_ingestion_queue_depth: eventos aguardando gravação (todas as raias)
+ * - mqtt_ingestion_batch_size: tamanho dos lotes gravados
+ * - mqtt_ingestion_flush_seconds: latência de gravação de cada lote no log
+ * - mqtt_ingestion_lane_depth{lane}: eventos aguardando em cada raia
+ * - mqtt_ingestion_lane_latency_seconds{lane}: recebimento -> gravação no log por raia
+ */
+@Component
+public class AttendanceIngestionQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttendanceIngestionQueue.class);
+
+    private static final long MAX_RETRY_BACKOFF_MS = TimeUnit.SECONDS.toMillis(30);
+
+    @Autowired
+    private AttendanceEventStore eventStore;
+
+    @Autowired
+    private Timer ingestionFlushTimer;
+
+    @Autowired
+    private DistributionSummary ingestionBatchSizeSummary;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${pontualiot.mqtt.ingestion.lanes:4}")
+    private int laneCount;
+
+    @Value("${pontualiot.mqtt.ingestion.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${pontualiot.mqtt.ingestion.batch-size:200}")
+    private int batchSize;
+
+    @Value("${pontualiot.mqtt.ingestion.linger-ms:50}")
+    private long lingerMs;
+
+    @Value("${pontualiot.mqtt.ingestion.retry-backoff-ms:500}")
+    private long retryBackoffMs;
+
+    private Lane[] lanes;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        int lanesToStart = Math.max(1, laneCount);
+        int laneCapacity = Math.max(1, (queueCapacity + lanesToStart - 1) / lanesToStart);
+
+        running = true;
+        lanes = new Lane[lanesToStart];
+        for (int i = 0; i < lanesToStart; i++) {
+            lanes[i] = new Lane(i, laneCapacity);
+            lanes[i].drainer.start();
+        }
+        logger.info("[INGESTAO] Fila iniciada - raias: {}, capacidade por raia: {}, lote: {}, linger: {}ms",
+                lanesToStart, laneCapacity, batchSize, lingerMs);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false; // Drenadoras esvaziam a própria raia e saem
+        for (Lane lane : lanes) {
+            while (!lane.drainer.join(Duration.ofSeconds(10))) {
+                logger.warn("[INGESTAO] Aguardando raia {} terminar de gravar ({} eventos na fila)",
+                        lane.index, lane.queue.size());
+            }
+        }
+
+        // Grava o que chegou entre a saída da drenadora e o fim do join
+        for (Lane lane : lanes) {
+            List<IngestionEvent> remaining = new ArrayList<>();
+            lane.queue.drainTo(remaining);
+            for (int i = 0; i < remaining.size(); i += batchSize) {
+                lane.flush(remaining.subList(i, Math.min(i + batchSize, remaining.size())));
+            }
+        }
+    }
+
+    /**
+     * Enfileira um evento para gravação em lote na raia do seu rfidTag.
+     *
+     * Bloqueia a thread do canal MQTT enquanto a raia estiver cheia,
+     * propagando a pressão até o broker em vez de descartar eventos.
+     *
+     * @param event Evento extraído do payload MQTT
+     */
+    public void submit(IngestionEvent event) {
+        Lane lane = laneFor(event.rfidTag());
+        if (!running) {
+            lane.flush(List.of(event)); // Encerrando: grava direto
+            return;
+        }
+        try {
+            if (!lane.queue.offer(event)) {
+                logger.warn("[INGESTAO] Raia {} cheia ({} eventos), aguardando espaço", lane.index, lane.queue.size());
+                lane.queue.put(event);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido ao enfileirar evento MQTT", e);
+        }
+    }
+
+    /**
+     * Variante sem bloqueio de submit(), para eventos que já estão no
+     * spool: com a raia cheia o chamador estaciona o registro em vez de
+     * segurar o canal MQTT.
+     *
+     * @param event Evento extraído do payload MQTT
+     * @return false se a raia do evento estiver cheia
+     */
+    public boolean offer(IngestionEvent event) {
+        Lane lane = laneFor(event.rfidTag());
+        if (!running) {
+            lane.flush(List.of(event)); // Encerrando: grava direto
+            return true;
+        }
+        return lane.queue.offer(event);
+    }
+
+    /**
+     * @return Número de eventos aguardando gravação em todas as raias
+     */
+    public int depth() {
+        if (lanes == null) {
+            return 0;
+        }
+        int depth = 0;
+        for (Lane lane : lanes) {
+            depth += lane.queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * @return Número de raias de gravação
+     */
+    public int laneCount() {
+        return lanes == null ? 0 : lanes.length;
+    }
+
+    /**
+     * @param rfidTag Tag RFID do evento
+     * @return Índice da raia responsável pela tag
+     */
+    int laneIndex(String rfidTag) {
+        int hash = rfidTag == null ? 0 : rfidTag.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.length); // Espalha bits altos, como o HashMap
+    }
+
+    private Lane laneFor(String rfidTag) {
+        return lanes[laneIndex(rfidTag)];
+    }
+
+    /**
+     * Raia de gravação: fila própria, uma thread drenadora e métricas
+     * identificadas pelo índice.
+     */
+    private final class Lane {
+
+        private final int index;
+        private final BlockingQueue<IngestionEvent> queue;
+        private final Thread drainer;
+        private final Timer latency;
+
+        private Lane(int index, int capacity) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.drainer = new Thread(this::drainLoop, "mqtt-ingestion-lane-" + index);
+            this.drainer.setDaemon(true);
+
+            String lane = String.valueOf(index);
+            Gauge.builder("mqtt_ingestion_lane_depth", queue, BlockingQueue::size)
+                    .description("MQTT attendance events waiting in one ingestion lane")
+                    .tag("lane", lane)
+                    .register(meterRegistry);
+            this.latency = Timer.builder("mqtt_ingestion_lane_latency_seconds")
+                    .description("Time from MQTT receipt to persistence, per ingestion lane")
+                    .tag("lane", lane)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+        }
+
+        private void drainLoop() {
+            List<IngestionEvent> batch = new ArrayList<>(batchSize);
+            while (running || !queue.isEmpty()) { // No encerramento só sai com a raia vazia
+                try {
+                    IngestionEvent first = queue.poll(lingerMs, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                    while (batch.size() < batchSize) {
+                        queue.drainTo(batch, batchSize - batch.size());
+                        long remaining = deadline - System.nanoTime();
+                        if (batch.size() >= batchSize || remaining <= 0) {
+                            break;
+                        }
+                        IngestionEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+
+                    flush(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        private void flush(List<IngestionEvent> batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            ingestionBatchSizeSummary.record(batch.size());
+            Timer.Sample sample = Timer.start();
+            try {
+                eventStore.append(batch, EventOrigin.MQTT);
+                batch.forEach(this::acknowledge);
+            } catch (Exception e) {
+                logger.error("[INGESTAO] ❌ Falha ao gravar lote de {} eventos na raia {}, regravando individualmente: {}",
+                        batch.size(), index, e.getMessage());
+                retryIndividually(batch);
+            } finally {
+                sample.stop(ingestionFlushTimer);
+            }
+
+            long now = System.nanoTime();
+            for (IngestionEvent event : batch) {
+                latency.record(now - event.receivedAtNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void retryIndividually(List<IngestionEvent> batch) {
+            for (IngestionEvent event : batch) {
+                try {
+                    eventStore.append(List.of(event), EventOrigin.MQTT);
+                } catch (Exception e) {
+                    logger.error("[INGESTAO] ❌ Evento não gravado - RFID: {}, Dispositivo: {}, Erro: {}",
+                            event.rfidTag(), event.deviceId(), e.getMessage());
+                    if (event.retainedOnReject()) {
+                        event.fail(); // Spool: conta a falha e estaciona para o MqttSpoolReplayer
+                        continue;
+                    }
+                    if (!retryUntilSettled(event, e)) {
+                        continue; // Encerrando: sem ack, o broker reentrega após a desconexão
+                    }
+                }
+                acknowledge(event);
+            }
+        }
+
+        /**
+         * Regrava um evento sem spool até entrar no log. Sem isso a mensagem
+         * ficaria sem ack e seguraria uma vaga do Receive Maximum até a
+         * próxima reconexão.
+         *
+         * @param event Evento que falhou na gravação
+         * @param failure Erro da última tentativa
+         * @return true se o evento pode ser confirmado (gravado ou descartado
+         *         por erro permanente); false se a fila está encerrando
+         */
+        private boolean retryUntilSettled(IngestionEvent event, Exception failure) {
+            long backoffMs = Math.max(1, retryBackoffMs);
+            while (!(failure instanceof DataIntegrityViolationException)) {
+                if (!running) {
+                    return false;
+                }
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                backoffMs = Math.min(backoffMs * 2, MAX_RETRY_BACKOFF_MS);
+                try {
+                    eventStore.append(List.of(event), EventOrigin.MQTT);
+                    logger.info("[INGESTAO] Evento regravado - RFID: {}, Dispositivo: {}", event.rfidTag(), event.deviceId());
+                    return true;
+                } catch (Exception e) {
+                    failure = e;
+                    logger.warn("[INGESTAO] Nova falha ao regravar evento na raia {}, tentando em {}ms: {}",
+                            index, backoffMs, e.getMessage());
+                }
+            }
+            // Reentrega falharia da mesma forma: confirma para liberar a vaga
+            logger.error("[INGESTAO] ❌ Evento descartado (rejeitado pelo banco) - RFID: {}, Dispositivo: {}, Erro: {}",
+                    event.rfidTag(), event.deviceId(), failure.getMessage());
+            return true;
+        }
+
+        private void acknowledge(IngestionEvent event) {
+            try {
+                event.acknowledge();
+            } catch (Exception e) {
+                // Conexão caiu: o broker reentrega; a duplicata é gravada de novo no log
+                logger.warn("[INGESTAO] Falha no ack MQTT - Dispositivo: {}, Erro: {}", event.deviceId(), e.getMessage());
+            }
+        }
+    }
+}
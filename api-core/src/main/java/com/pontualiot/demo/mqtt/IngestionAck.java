@@ -0,0 +1,39 @@
+package com.pontualiot.demo.mqtt;
+
+/**
+ * Confirmação de um evento de ingestão, chamada pela fila depois da
+ * gravação no log.
+ *
+ * Implementações: ack manual do broker MQTT ou commit do registro no
+ * spool local (MqttIngestionSpool).
+ */
+@FunctionalInterface
+public interface IngestionAck {
+
+    /**
+     * Evento gravado no log attendance_events.
+     */
+    void acknowledge();
+
+    /**
+     * Evento não gravado. Padrão: nada (broker reentrega a mensagem sem ack).
+     */
+    default void reject() {
+    }
+
+    /**
+     * Gravação do evento no log falhou. Padrão: reject(). Diferente de
+     * reject() (evento nem chegou à fila), conta como tentativa no spool.
+     */
+    default void fail() {
+        reject();
+    }
+
+    /**
+     * @return true se reject() guarda o evento para nova tentativa (spool);
+     *         false se o evento só volta por reentrega do broker
+     */
+    default boolean retainedOnReject() {
+        return false;
+    }
+}
@@ -0,0 +1,388 @@
+package com.pontualiot.demo.mqtt;
+
+import com.pontualiot.demo.service.AttendanceEventStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Descarta batidas MQTT repetidas antes de qualquer acesso ao banco.
+ *
+ * CHAVES (impressão digital de 64 bits):
+ * - Conteúdo: (deviceId, rfidTag, eventType, timestamp) - sempre
+ * - Mensagem: (deviceId, messageId) - quando o dispositivo informa messageId
+ * - Duplicata = qualquer uma das chaves já vista na janela
+ *
+ * JANELA: buckets de tempo de chegada (window / buckets cada), numa tabela
+ * circular. Cada bucket é uma tabela hash de long com endereçamento aberto
+ * e inserção por CAS (sem lock); o bucket mais antigo é substituído por um
+ * vazio quando o tempo avança. Bucket cheio (max-entries / buckets) não
+ * descarta nada: a batida passa e é contada em mqtt_dedup_overflow_total.
+ *
+ * CICLO DE UMA CHAVE:
+ * - claim(): registrada ao aceitar a batida
+ * - Evento rejeitado (não gravado no log): chave liberada, para que a
+ *   reentrega do broker ou o replay do spool sejam aceitos
+ * - Na partida a janela é reconstruída a partir de attendance_events
+ *   (received_at), cobrindo o replay do spool após uma queda
+ *
+ * MÉTRICAS:
+ * - mqtt_dedup_checks_total{result=unique|duplicate}: taxa de duplicatas
+ * - mqtt_dedup_entries: chaves na janela
+ */
+@Component
+public class IngestionDeduplicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionDeduplicator.class);
+
+    private static final long EMPTY = 0;
+    private static final long REMOVED = -1;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Chaves registradas por uma batida aceita.
+     */
+    public record Claim(long contentKey, long messageKey) {
+    }
+
+    private static final Claim UNTRACKED = new Claim(EMPTY, EMPTY);
+
+    @Autowired
+    private AttendanceEventStore eventStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${pontualiot.mqtt.dedup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${pontualiot.mqtt.dedup.window:10m}")
+    private Duration window;
+
+    @Value("${pontualiot.mqtt.dedup.buckets:10}")
+    private int bucketCount;
+
+    @Value("${pontualiot.mqtt.dedup.max-entries:200000}")
+    private int maxEntries;
+
+    private Clock clock = Clock.systemDefaultZone();
+
+    private AtomicReferenceArray<Bucket> buckets;
+    private long bucketMillis;
+    private int bucketCapacity;
+    private Counter unique;
+    private Counter duplicates;
+    private Counter overflow;
+
+    @PostConstruct
+    void init() {
+        bucketCount = Math.max(2, bucketCount);
+        buckets = new AtomicReferenceArray<>(bucketCount);
+        bucketMillis = Math.max(1, window.toMillis() / bucketCount);
+        // Fator de carga 0,5: sondagem linear curta
+        bucketCapacity = Integer.highestOneBit(Math.max(16, maxEntries / bucketCount) * 4 - 1);
+
+        unique = Counter.builder("mqtt_dedup_checks_total")
+                .description("MQTT attendance messages checked against the deduplication window")
+                .tag("result", "unique")
+                .register(meterRegistry);
+        duplicates = Counter.builder("mqtt_dedup_checks_total")
+                .description("MQTT attendance messages checked against the deduplication window")
+                .tag("result", "duplicate")
+                .register(meterRegistry);
+        overflow = Counter.builder("mqtt_dedup_overflow_total")
+                .description("MQTT attendance messages not tracked because the dedup bucket was full")
+                .register(meterRegistry);
+        Gauge.builder("mqtt_dedup_entries", this, IngestionDeduplicator::size)
+                .description("Keys held in the MQTT deduplication window")
+                .register(meterRegistry);
+
+        if (enabled) {
+            warmUp();
+        }
+    }
+
+    /**
+     * Registra a batida se ela ainda não foi vista na janela.
+     *
+     * @param message Mensagem já validada
+     * @return Chaves registradas, ou null se a batida é duplicata
+     */
+    public Claim claim(MqttAttendanceMessage message) {
+        if (!enabled) {
+            return UNTRACKED;
+        }
+        long contentKey = contentKey(message.getDeviceId(), message.getRfidTag(), message.getEventType(),
+                message.getTimestamp());
+        long messageKey = message.getMessageId() != null ? messageKey(message.getDeviceId(), message.getMessageId()) : EMPTY;
+
+        long epoch = clock.millis() / bucketMillis;
+        if (seenBefore(contentKey, epoch) || (messageKey != EMPTY && seenBefore(messageKey, epoch))) {
+            duplicates.increment();
+            return null;
+        }
+        Bucket current = bucket(epoch);
+        int added = current.add(contentKey);
+        if (added == Bucket.PRESENT) {
+            duplicates.increment(); // Outra thread registrou a mesma batida agora
+            return null;
+        }
+        if (messageKey != EMPTY && added == Bucket.ADDED && current.add(messageKey) == Bucket.PRESENT) {
+            current.remove(contentKey);
+            duplicates.increment();
+            return null;
+        }
+        if (added == Bucket.FULL) {
+            overflow.increment();
+        }
+        unique.increment();
+        return new Claim(contentKey, messageKey);
+    }
+
+    /**
+     * Libera as chaves de uma batida que não foi gravada.
+     */
+    public void release(Claim claim) {
+        if (claim == UNTRACKED) {
+            return;
+        }
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null) {
+                bucket.remove(claim.contentKey());
+                if (claim.messageKey() != EMPTY) {
+                    bucket.remove(claim.messageKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * @param claim Chaves da batida
+     * @param ack Confirmação original (pode ser null)
+     * @return Confirmação que também libera as chaves no reject
+     */
+    public IngestionAck releaseOnReject(Claim claim, IngestionAck ack) {
+        return new IngestionAck() {
+            @Override
+            public void acknowledge() {
+                if (ack != null) {
+                    ack.acknowledge();
+                }
+            }
+
+            @Override
+            public void reject() {
+                release(claim);
+                if (ack != null) {
+                    ack.reject();
+                }
+            }
+
+            @Override
+            public void fail() {
+                release(claim);
+                if (ack != null) {
+                    ack.fail();
+                }
+            }
+
+            @Override
+            public boolean retainedOnReject() {
+                return ack != null && ack.retainedOnReject();
+            }
+        };
+    }
+
+    /**
+     * @return Chaves nos buckets ainda dentro da janela
+     */
+    public int size() {
+        if (buckets == null) {
+            return 0;
+        }
+        long oldest = clock.millis() / bucketMillis - bucketCount + 1;
+        int size = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket.epoch >= oldest) {
+                size += bucket.size.get();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Reconstrói a janela com as batidas MQTT gravadas recentemente.
+     */
+    void warmUp() {
+        long now = clock.millis();
+        LocalDateTime since = LocalDateTime.ofInstant(clock.instant().minus(window), clock.getZone());
+        int[] loaded = {0};
+        try {
+            eventStore.forEachReceivedSince(since, event -> {
+                long epoch = event.receivedAt().atZone(clock.getZone()).toInstant().toEpochMilli() / bucketMillis;
+                if (epoch > now / bucketMillis - bucketCount) {
+                    bucket(Math.min(epoch, now / bucketMillis))
+                            .add(contentKey(event.deviceId(), event.rfidTag(), event.eventType(), event.eventTime()));
+                    loaded[0]++;
+                }
+            });
+            logger.info("[DEDUP] Janela de {} reconstruída com {} batidas do log", window, loaded[0]);
+        } catch (Exception e) {
+            logger.warn("[DEDUP] Janela iniciada vazia, falha ao ler o log: {}", e.getMessage());
+        }
+    }
+
+    private boolean seenBefore(long key, long epoch) {
+        long oldest = epoch - bucketCount + 1;
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket.epoch >= oldest && bucket.epoch <= epoch && bucket.contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Bucket do intervalo informado, substituindo o que expirou na mesma posição
+     */
+    private Bucket bucket(long epoch) {
+        int slot = (int) Math.floorMod(epoch, (long) bucketCount);
+        while (true) {
+            Bucket bucket = buckets.get(slot);
+            if (bucket != null && bucket.epoch >= epoch) {
+                return bucket;
+            }
+            Bucket fresh = new Bucket(epoch, bucketCapacity);
+            if (buckets.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    static long contentKey(String deviceId, String rfidTag, AttendanceEventType eventType, LocalDateTime timestamp) {
+        long hash = hash(FNV_OFFSET, deviceId);
+        hash = hash(hash, rfidTag);
+        hash = (hash ^ eventType.ordinal()) * FNV_PRIME;
+        hash = (hash ^ timestamp.toEpochSecond(ZoneOffset.UTC)) * FNV_PRIME;
+        hash = (hash ^ timestamp.getNano()) * FNV_PRIME;
+        return finish(hash);
+    }
+
+    static long messageKey(String deviceId, String messageId) {
+        return finish(hash(hash(FNV_OFFSET ^ 0x5bd1e995L, deviceId), messageId));
+    }
+
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return (hash ^ 0xff) * FNV_PRIME; // Separador: ("ab","c") != ("a","bc")
+    }
+
+    /**
+     * Espalha os bits (fmix64 do MurmurHash3) e reserva EMPTY/REMOVED.
+     */
+    private static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == EMPTY || hash == REMOVED ? 1 : hash;
+    }
+
+    /**
+     * Tabela hash de long de um intervalo da janela, com endereçamento
+     * aberto e sondagem linear. Removidos viram REMOVED e não são
+     * reaproveitados: o bucket inteiro é descartado ao expirar.
+     */
+    private static final class Bucket {
+
+        static final int ADDED = 0;
+        static final int PRESENT = 1;
+        static final int FULL = 2;
+
+        private final long epoch;
+        private final AtomicLongArray slots;
+        private final int mask;
+        private final int limit;
+        private final AtomicInteger size = new AtomicInteger();
+
+        private Bucket(long epoch, int capacity) {
+            this.epoch = epoch;
+            this.slots = new AtomicLongArray(capacity);
+            this.mask = capacity - 1;
+            this.limit = capacity / 2;
+        }
+
+        private boolean contains(long key) {
+            int index = (int) key & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                long current = slots.get(index);
+                if (current == key) {
+                    return true;
+                }
+                if (current == EMPTY) {
+                    return false;
+                }
+                index = (index + 1) & mask;
+            }
+            return false;
+        }
+
+        private int add(long key) {
+            int index = (int) key & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                long current = slots.get(index);
+                if (current == key) {
+                    return PRESENT;
+                }
+                if (current == EMPTY) {
+                    if (size.get() >= limit) {
+                        return FULL;
+                    }
+                    if (slots.compareAndSet(index, EMPTY, key)) {
+                        size.incrementAndGet();
+                        return ADDED;
+                    }
+                    continue; // Outra thread ocupou a posição: relê a mesma
+                }
+                index = (index + 1) & mask;
+            }
+            return FULL;
+        }
+
+        private void remove(long key) {
+            int index = (int) key & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                long current = slots.get(index);
+                if (current == EMPTY) {
+                    return;
+                }
+                if (current == key && slots.compareAndSet(index, key, REMOVED)) {
+                    size.decrementAndGet();
+                    return;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.pontualiot.demo.mqtt;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento de ponto já extraído do payload MQTT, aguardando persistência
+ * na fila de ingestão.
+ *
+ * @param rfidTag Tag RFID lida pelo dispositivo
+ * @param eventType Tipo do evento (CHECK_IN ou CHECK_OUT)
+ * @param deviceId ID do dispositivo que publicou a mensagem
+ * @param occurredAt Horário da batida (timestamp do dispositivo ou do recebimento)
+ * @param receivedAtNanos Instante de recebimento (System.nanoTime) usado nas métricas de latência
+ * @param acknowledgment Confirmação enviada depois da gravação no log: ack manual MQTT ou commit no spool (null = nenhuma)
+ */
+public record IngestionEvent(String rfidTag, AttendanceEventType eventType, String deviceId,
+                             LocalDateTime occurredAt, long receivedAtNanos,
+                             IngestionAck acknowledgment) {
+
+    public IngestionEvent(String rfidTag, AttendanceEventType eventType, String deviceId,
+                          LocalDateTime occurredAt, long receivedAtNanos) {
+        this(rfidTag, eventType, deviceId, occurredAt, receivedAtNanos, null);
+    }
+
+    /**
+     * Evento sem horário informado: usa o horário do servidor.
+     */
+    public static IngestionEvent of(String rfidTag, AttendanceEventType eventType, String deviceId) {
+        return of(rfidTag, eventType, deviceId, LocalDateTime.now());
+    }
+
+    public static IngestionEvent of(String rfidTag, AttendanceEventType eventType, String deviceId,
+                                    LocalDateTime occurredAt) {
+        return new IngestionEvent(rfidTag, eventType, deviceId, occurredAt, System.nanoTime());
+    }
+
+    /**
+     * Confirma o evento (broker ou spool). Sem confirmação não faz nada.
+     */
+    public void acknowledge() {
+        if (acknowledgment != null) {
+            acknowledgment.acknowledge();
+        }
+    }
+
+    /**
+     * @return true se reject() devolve o evento ao spool para nova tentativa
+     */
+    public boolean retainedOnReject() {
+        return acknowledgment != null && acknowledgment.retainedOnReject();
+    }
+
+    /**
+     * Sinaliza que o evento não foi gravado (spool reagenda a tentativa).
+     */
+    public void reject() {
+        if (acknowledgment != null) {
+            acknowledgment.reject();
+        }
+    }
+
+    /**
+     * Sinaliza que a gravação do evento falhou (spool conta a tentativa).
+     */
+    public void fail() {
+        if (acknowledgment != null) {
+            acknowledgment.fail();
+        }
+    }
+}
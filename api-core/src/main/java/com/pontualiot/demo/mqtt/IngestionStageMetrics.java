@@ -0,0 +1,181 @@
+package com.pontualiot.demo.mqtt;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latência de cada etapa de uma batida MQTT, por resultado, e contagem
+ * por dispositivo.
+ *
+ * ETAPAS (mqtt_ingestion_stage_seconds{stage, outcome}):
+ * - receive: thread do broker, da entrega ao enfileiramento (inclui parse e backpressure)
+ * - parse: parse + validação do payload
+ * - employee_lookup: resolução das tags RFID do lote
+ * - open_shift_lookup: leitura dos registros do dia dos funcionários do lote
+ * - save: INSERT/UPDATE em lote na tabela attendances
+ * - commit: commit da transação da projeção
+ *
+ * As etapas do lote são registradas uma vez por evento, com a duração do
+ * lote inteiro: é o tempo que cada batida esperou naquela etapa.
+ *
+ * POR DISPOSITIVO (mqtt_ingestion_device_events_total{stage, device_id,
+ * outcome}): só contador, uma série por combinação.
+ *
+ * FIM A FIM (attendance_end_to_end_lag_seconds{outcome}): timestamp
+ * informado pelo dispositivo até o commit em attendances. Relógio do
+ * dispositivo adiantado gera atraso negativo, que não é registrado e sim
+ * contado em attendance_device_clock_skew_total{device_id}.
+ *
+ * CARDINALIDADE: histogramas (uma série por bucket) só nos timers sem
+ * device_id; percentis saem de histogram_quantile no Prometheus. A tag
+ * device_id, só nos contadores, é limitada a max-device-tags dispositivos
+ * distintos; os demais são agrupados em "other".
+ */
+@Component
+public class IngestionStageMetrics {
+
+    public static final String ACCEPTED = "accepted";
+    public static final String REJECTED = "rejected";
+    public static final String INVALID = "invalid";
+    public static final String DUPLICATE = "duplicate";
+    public static final String FILTERED = "filtered";
+    public static final String ERROR = "error";
+    public static final String ROLLED_BACK = "rolled_back";
+
+    static final String UNKNOWN_DEVICE = "unknown";
+    static final String OTHER_DEVICES = "other";
+
+    /**
+     * Etapas instrumentadas, com o valor da tag stage.
+     */
+    public enum Stage {
+        RECEIVE("receive"),
+        PARSE("parse"),
+        EMPLOYEE_LOOKUP("employee_lookup"),
+        OPEN_SHIFT_LOOKUP("open_shift_lookup"),
+        SAVE("save"),
+        COMMIT("commit");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${pontualiot.metrics.ingestion.max-device-tags:500}")
+    private int maxDeviceTags;
+
+    // Builder + registro a cada evento alocam demais no hot path
+    private final Map<StageKey, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<DeviceKey, Counter> deviceCounters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> lagTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> skewCounters = new ConcurrentHashMap<>();
+    private final Set<String> knownDevices = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param stage Etapa
+     * @param deviceId Dispositivo da batida (null = desconhecido)
+     * @param outcome Resultado da batida (ACCEPTED, REJECTED, INVALID, ERROR...)
+     * @param nanos Duração da etapa
+     */
+    public void record(Stage stage, String deviceId, String outcome, long nanos) {
+        stageTimers.computeIfAbsent(new StageKey(stage, outcome), this::stageTimer)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        deviceCounters.computeIfAbsent(new DeviceKey(stage, deviceTag(deviceId), outcome), this::deviceCounter)
+                .increment();
+    }
+
+    /**
+     * Registra o atraso do timestamp do dispositivo até agora (commit).
+     *
+     * @param deviceId Dispositivo da batida
+     * @param outcome Resultado da batida
+     * @param deviceTimestamp Horário informado pelo dispositivo
+     */
+    public void recordLag(String deviceId, String outcome, LocalDateTime deviceTimestamp) {
+        Duration lag = Duration.between(deviceTimestamp, LocalDateTime.now());
+        if (lag.isNegative()) {
+            skewCounters.computeIfAbsent(deviceTag(deviceId), this::skewCounter).increment();
+            return;
+        }
+        lagTimers.computeIfAbsent(outcome, this::lagTimer).record(lag);
+    }
+
+    String deviceTag(String deviceId) {
+        if (deviceId == null || deviceId.isBlank()) {
+            return UNKNOWN_DEVICE;
+        }
+        if (knownDevices.contains(deviceId)) {
+            return deviceId;
+        }
+        synchronized (knownDevices) {
+            if (knownDevices.size() < maxDeviceTags) {
+                knownDevices.add(deviceId);
+                return deviceId;
+            }
+        }
+        return OTHER_DEVICES;
+    }
+
+    private Timer stageTimer(StageKey key) {
+        return Timer.builder("mqtt_ingestion_stage_seconds")
+                .description("Time an attendance event spent in one ingestion stage")
+                .tag("stage", key.stage().tag())
+                .tag("outcome", key.outcome())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+    }
+
+    private Counter deviceCounter(DeviceKey key) {
+        return Counter.builder("mqtt_ingestion_device_events_total")
+                .description("Attendance events that went through one ingestion stage, per device")
+                .tag("stage", key.stage().tag())
+                .tag("device_id", key.device())
+                .tag("outcome", key.outcome())
+                .register(meterRegistry);
+    }
+
+    private Timer lagTimer(String outcome) {
+        return Timer.builder("attendance_end_to_end_lag_seconds")
+                .description("Time from the device timestamp to the committed attendance")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(10))
+                .maximumExpectedValue(Duration.ofHours(1)) // Backlog offline cai no último bucket
+                .register(meterRegistry);
+    }
+
+    private Counter skewCounter(String device) {
+        return Counter.builder("attendance_device_clock_skew_total")
+                .description("Attendance events whose device timestamp is ahead of the server clock")
+                .tag("device_id", device)
+                .register(meterRegistry);
+    }
+
+    private record StageKey(Stage stage, String outcome) {
+    }
+
+    private record DeviceKey(Stage stage, String device, String outcome) {
+    }
+}
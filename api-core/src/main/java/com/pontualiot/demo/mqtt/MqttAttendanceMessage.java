@@ -34,9 +34,9 @@ public class MqttAttendanceMessage {
 
     /**
      * Tipo do evento de ponto
-     * Valores válidos: "CHECK_IN" (entrada) ou "CHECK_OUT" (saída)
+     * Valores válidos: CHECK_IN (entrada) ou CHECK_OUT (saída)
      */
-    private String eventType;
+    private AttendanceEventType eventType;
 
     /**
      * Timestamp do evento no formato ISO 8601
@@ -50,12 +50,18 @@ public class MqttAttendanceMessage {
      */
     private String metadata;
 
+    /**
+     * ID da mensagem gerado pelo dispositivo (opcional)
+     * Repetido quando o dispositivo reenvia a mesma batida; usado na deduplicação
+     */
+    private String messageId;
+
     /**
      * Verifica se a mensagem representa um evento de entrada
      * @return true se for CHECK_IN, false caso contrário
      */
     public boolean isCheckIn() {
-        return "CHECK_IN".equals(eventType); // Compara com valor esperado
+        return eventType == AttendanceEventType.CHECK_IN; // Compara com valor esperado
     }
 
     /**
@@ -63,7 +69,7 @@ public class MqttAttendanceMessage {
      * @return true se for CHECK_OUT, false caso contrário
      */
     public boolean isCheckOut() {
-        return "CHECK_OUT".equals(eventType); // Compara com valor esperado
+        return eventType == AttendanceEventType.CHECK_OUT; // Compara com valor esperado
     }
 
     /**
@@ -73,8 +79,20 @@ public class MqttAttendanceMessage {
     public boolean isValid() {
         return deviceId != null && !deviceId.trim().isEmpty() &&    // Device ID obrigatório
                rfidTag != null && !rfidTag.trim().isEmpty() &&      // RFID obrigatório
-               eventType != null && !eventType.trim().isEmpty() &&  // Tipo de evento obrigatório
-               timestamp != null &&                                  // Timestamp obrigatório
-               (isCheckIn() || isCheckOut());                        // Tipo deve ser válido
+               eventType != null &&                                  // Tipo de evento obrigatório
+               timestamp != null;                                    // Timestamp obrigatório
+    }
+
+    /**
+     * Limpa todos os campos para reutilizar a instância
+     * (usado pelo MqttPayloadParser)
+     */
+    public void clear() {
+        deviceId = null;
+        rfidTag = null;
+        eventType = null;
+        timestamp = null;
+        metadata = null;
+        messageId = null;
     }
-}
\ No newline at end of file
+}
@@ -7,13 +7,14 @@ import com.pontualiot.demo.entity.Attendance; // Entidade de registro de ponto
 import com.pontualiot.demo.entity.Employee;   // Entidade de funcionário
 import com.pontualiot.demo.repository.AttendanceRepository; // Acesso a dados de ponto
 import com.pontualiot.demo.repository.EmployeeRepository;   // Acesso a dados de funcionários
+import com.pontualiot.demo.service.EmployeeLookupCache;    // Cache RFID -> funcionário
+import com.pontualiot.demo.service.OpenShift;              // Jornada em aberto
+import com.pontualiot.demo.service.OpenShiftIndex;         // Índice de jornadas em aberto
 import org.springframework.beans.factory.annotation.Autowired; // Injeção de dependência
 import org.springframework.stereotype.Service; // Marca como serviço Spring
 
 import java.time.LocalDate;     // Data sem horário
 import java.time.LocalDateTime; // Data com horário
-import java.util.List;          // Lista de resultados
-import java.util.Optional;      // Container para valores opcionais
 
 /**
  * ========================================
@@ -82,12 +83,21 @@ public class MqttAttendanceService {
      * REPOSITÓRIO DE FUNCIONÁRIOS
      * 
      * Usado para:
-     * - Buscar Employee por RFID tag
-     * - Validar existência e status ativo
+     * - Obter referência (proxy) do Employee para associar ao Attendance
      */
     @Autowired
     private EmployeeRepository employeeRepository;
     
+    /**
+     * CACHE RFID -> FUNCIONÁRIO
+     * 
+     * Usado para:
+     * - Buscar funcionário por RFID tag sem ir ao banco
+     * - Validar existência e status ativo
+     */
+    @Autowired
+    private EmployeeLookupCache employeeLookupCache;
+    
     /**
      * REPOSITÓRIO DE REGISTROS DE PONTO
      * 
@@ -99,6 +109,16 @@ public class MqttAttendanceService {
     @Autowired
     private AttendanceRepository attendanceRepository;
     
+    /**
+     * ÍNDICE DE JORNADAS EM ABERTO
+     * 
+     * Usado para:
+     * - Decidir check-in/check-out sem consultar o banco
+     * - Localizar o registro "em aberto" pelo ID
+     */
+    @Autowired
+    private OpenShiftIndex openShiftIndex;
+    
     /**
      * VALIDADOR DE MENSAGENS MQTT
      * 
@@ -140,14 +160,17 @@ public class MqttAttendanceService {
         // ETAPA 1: Validação e parsing da mensagem
         MqttAttendanceMessage message = messageValidator.validateAndParse(payload);
         
-        // ETAPA 2: Busca funcionário pelo RFID
-        Employee employee = findEmployeeByRfid(message.getRfidTag());
+        // ETAPA 2: Busca funcionário pelo RFID (cache)
+        EmployeeLookupCache.CachedEmployee cached = findEmployeeByRfid(message.getRfidTag());
         
         // ETAPA 3: Validação de status ativo
-        if (!employee.isActive()) {
-            throw new IllegalArgumentException("Funcionário inativo: " + employee.getName());
+        if (!cached.active()) {
+            throw new IllegalArgumentException("Funcionário inativo: " + cached.name());
         }
         
+        // Referência sem SELECT: basta o ID para a chave estrangeira
+        Employee employee = employeeRepository.getReferenceById(cached.id());
+        
         // ETAPA 4: Roteamento baseado no tipo de evento
         if (message.isCheckIn()) {
             return processCheckIn(employee, message); // Processa entrada
@@ -171,11 +194,11 @@ public class MqttAttendanceService {
      * 
      * FLUXO:
      * 1. Extrai data do timestamp da mensagem
-     * 2. Busca registros existentes do funcionário na data
-     * 3. Verifica se há registro "em aberto" (checkIn != null && checkOut == null)
+     * 2. Consulta OpenShiftIndex (sem SELECT)
+     * 3. Verifica se há registro "em aberto" na data (checkIn != null && checkOut == null)
      * 4. Se há: lança exceção
      * 5. Se não: cria novo registro
-     * 6. Persiste no banco
+     * 6. Persiste no banco (OpenShiftEntityListener atualiza o índice)
      * 
      * EXEMPLO DE REGISTRO CRIADO:
      * {
@@ -195,14 +218,9 @@ public class MqttAttendanceService {
         // Extrai data do timestamp da mensagem (não do servidor!)
         LocalDate eventDate = message.getTimestamp().toLocalDate();
         
-        // Busca registros existentes do funcionário na data
-        List<Attendance> todayAttendances = attendanceRepository.findByEmployeeAndDate(employee, eventDate);
-        
-        // Verifica se há registro "em aberto" (entrada sem saída)
-        for (Attendance attendance : todayAttendances) {
-            if (attendance.getCheckIn() != null && attendance.getCheckOut() == null) {
-                throw new IllegalArgumentException("Funcionário já registrou entrada hoje");
-            }
+        // Verifica se há registro "em aberto" (entrada sem saída) na data
+        if (openShiftIndex.find(employee.getId(), eventDate).isPresent()) {
+            throw new IllegalArgumentException("Funcionário já registrou entrada hoje");
         }
         
         // Cria novo registro de entrada usando Builder pattern
@@ -230,11 +248,11 @@ public class MqttAttendanceService {
      * 
      * FLUXO:
      * 1. Extrai data do timestamp da mensagem
-     * 2. Busca registros do funcionário na data
-     * 3. Procura registro "em aberto"
-     * 4. Se não encontra: lança exceção
-     * 5. Se encontra: atualiza checkOut
-     * 6. Persiste alteração
+     * 2. Consulta OpenShiftIndex pelo registro "em aberto" na data
+     * 3. Se não encontra: lança exceção
+     * 4. Se encontra: carrega o registro pela chave primária
+     * 5. Atualiza checkOut
+     * 6. Persiste alteração (OpenShiftEntityListener fecha a jornada no índice)
      * 
      * EXEMPLO DE REGISTRO ATUALIZADO:
      * ANTES: {"checkIn": "08:00:00", "checkOut": null}
@@ -249,22 +267,13 @@ public class MqttAttendanceService {
         // Extrai data do timestamp da mensagem
         LocalDate eventDate = message.getTimestamp().toLocalDate();
         
-        // Busca todos os registros do funcionário na data
-        List<Attendance> todayAttendances = attendanceRepository.findByEmployeeAndDate(employee, eventDate);
+        // Procura registro "em aberto" (entrada sem saída) no índice
+        OpenShift openShift = openShiftIndex.find(employee.getId(), eventDate)
+                .orElseThrow(() -> new IllegalArgumentException("Nenhum registro de entrada encontrado para hoje"));
         
-        // Procura registro "em aberto" (entrada sem saída)
-        Attendance openAttendance = null;
-        for (Attendance attendance : todayAttendances) {
-            if (attendance.getCheckIn() != null && attendance.getCheckOut() == null) {
-                openAttendance = attendance; // Encontrou registro em aberto
-                break; // Para na primeira ocorrência
-            }
-        }
-        
-        // Valida se existe entrada prévia para fazer saída
-        if (openAttendance == null) {
-            throw new IllegalArgumentException("Nenhum registro de entrada encontrado para hoje");
-        }
+        // Carrega o registro pela chave primária
+        Attendance openAttendance = attendanceRepository.findById(openShift.attendanceId())
+                .orElseThrow(() -> new IllegalArgumentException("Nenhum registro de entrada encontrado para hoje"));
         
         // Atualiza registro existente com horário de saída
         openAttendance.setCheckOut(message.getTimestamp());
@@ -280,9 +289,9 @@ public class MqttAttendanceService {
      * na tag RFID lida pelo dispositivo IoT.
      * 
      * FLUXO:
-     * 1. Chama employeeRepository.findByRfidTag()
-     * 2. SQL: SELECT * FROM employees WHERE rfid_tag = ?
-     * 3. Se encontrado: retorna Employee
+     * 1. Consulta EmployeeLookupCache
+     * 2. Se ausente no cache: SELECT * FROM employees WHERE rfid_tag = ?
+     * 3. Se encontrado: retorna dados cacheados do funcionário
      * 4. Se não encontrado: lança exceção
      * 
      * SEGURANÇA:
@@ -291,19 +300,12 @@ public class MqttAttendanceService {
      * - Falha rápida com mensagem clara
      * 
      * @param rfidTag Tag RFID lida pelo dispositivo (ex: "RFID001")
-     * @return Employee funcionário encontrado
+     * @return CachedEmployee funcionário encontrado
      * @throws IllegalArgumentException se RFID não cadastrado
      */
-    private Employee findEmployeeByRfid(String rfidTag) {
-        // Busca no repositório usando query method
-        Optional<Employee> employeeOpt = employeeRepository.findByRfidTag(rfidTag);
-        
-        // Verifica se funcionário foi encontrado
-        if (employeeOpt.isEmpty()) {
-            throw new IllegalArgumentException("Funcionário não encontrado com RFID: " + rfidTag);
-        }
-        
-        // Retorna funcionário encontrado (Optional.get() é seguro aqui)
-        return employeeOpt.get();
+    private EmployeeLookupCache.CachedEmployee findEmployeeByRfid(String rfidTag) {
+        // Busca no cache (read-through: consulta o banco apenas em miss)
+        return employeeLookupCache.find(rfidTag)
+                .orElseThrow(() -> new IllegalArgumentException("Funcionário não encontrado com RFID: " + rfidTag));
     }
 }
\ No newline at end of file
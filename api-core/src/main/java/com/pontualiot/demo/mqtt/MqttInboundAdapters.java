@@ -0,0 +1,228 @@
+package com.pontualiot.demo.mqtt;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.eclipse.paho.mqttv5.client.MqttConnectionOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.integration.mqtt.event.MqttConnectionFailedEvent;
+import org.springframework.integration.mqtt.event.MqttSubscribedEvent;
+import org.springframework.integration.mqtt.inbound.Mqttv5PahoMessageDrivenChannelAdapter;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Conexões MQTT 5 de entrada que alimentam o mqttInputChannel.
+ *
+ * ESCALA:
+ * - consumers: N conexões paralelas por instância, cada uma com seu
+ *   client-id ({client-id}-{n}) e sua thread de callback do Paho
+ * - shared-group: assina $share/{grupo}/{tópico}; o broker distribui as
+ *   mensagens entre todas as conexões do grupo, de todas as instâncias
+ * - Sem shared-group cada conexão receberia todas as mensagens, por isso
+ *   consumers é reduzido a 1
+ *
+ * ENTREGA:
+ * - qos: QoS das assinaturas (1 = pelo menos uma vez)
+ * - max-in-flight: Receive Maximum do MQTT 5, mensagens sem ack que o
+ *   broker entrega por conexão antes de esperar
+ * - manual-ack: ack só após a gravação no log (AttendanceIngestionQueue);
+ *   com clean-start=false e session-expiry a sessão sobrevive a
+ *   reconexões e mensagens sem ack são reentregues
+ *
+ * Com assinatura compartilhada a ordem entre conexões não é garantida:
+ * batidas de um mesmo dispositivo podem chegar ao log fora de ordem.
+ */
+@Component
+@ConditionalOnProperty(name = "pontualiot.mqtt.inbound.enabled", havingValue = "true")
+public class MqttInboundAdapters implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(MqttInboundAdapters.class);
+
+    @Autowired
+    @Qualifier("mqttInputChannel")
+    private MessageChannel mqttInputChannel;
+
+    @Autowired
+    private BeanFactory beanFactory;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${pontualiot.mqtt.inbound.urls:tcp://localhost:1883}")
+    private String[] urls;
+
+    @Value("${pontualiot.mqtt.inbound.client-id:api-core}")
+    private String clientId;
+
+    @Value("${pontualiot.mqtt.inbound.username:}")
+    private String username;
+
+    @Value("${pontualiot.mqtt.inbound.password:}")
+    private String password;
+
+    @Value("${pontualiot.mqtt.inbound.topics:attendance/+/+}")
+    private String[] topics;
+
+    @Value("${pontualiot.mqtt.inbound.shared-group:}")
+    private String sharedGroup;
+
+    @Value("${pontualiot.mqtt.inbound.consumers:1}")
+    private int consumers;
+
+    @Value("${pontualiot.mqtt.inbound.qos:1}")
+    private int qos;
+
+    @Value("${pontualiot.mqtt.inbound.max-in-flight:100}")
+    private int maxInFlight;
+
+    @Value("${pontualiot.mqtt.inbound.manual-ack:true}")
+    private boolean manualAck;
+
+    @Value("${pontualiot.mqtt.inbound.clean-start:false}")
+    private boolean cleanStart;
+
+    @Value("${pontualiot.mqtt.inbound.session-expiry:3600}")
+    private long sessionExpirySeconds;
+
+    @Value("${pontualiot.mqtt.inbound.completion-timeout:30000}")
+    private long completionTimeout;
+
+    private final List<Mqttv5PahoMessageDrivenChannelAdapter> adapters = new ArrayList<>();
+    private final Set<String> subscribed = ConcurrentHashMap.newKeySet();
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        String[] subscriptions = subscriptions();
+        int connections = connections();
+        for (int i = 0; i < connections; i++) {
+            Mqttv5PahoMessageDrivenChannelAdapter adapter =
+                    new Mqttv5PahoMessageDrivenChannelAdapter(connectionOptions(), clientId + "-" + i, subscriptions);
+            int[] qosPerTopic = new int[subscriptions.length];
+            Arrays.fill(qosPerTopic, qos);
+            adapter.setQos(qosPerTopic);
+            adapter.setManualAcks(manualAck);
+            adapter.setCompletionTimeout(completionTimeout);
+            adapter.setPayloadType(byte[].class);
+            adapter.setOutputChannel(mqttInputChannel);
+            adapter.setBeanFactory(beanFactory);
+            adapter.setApplicationEventPublisher(eventPublisher);
+            adapter.setBeanName("mqttInboundAdapter" + i);
+            adapter.afterPropertiesSet();
+            adapter.start();
+            adapters.add(adapter);
+        }
+
+        Gauge.builder("mqtt_inbound_subscribed_connections", subscribed, Set::size)
+                .description("MQTT inbound connections currently subscribed")
+                .register(meterRegistry);
+
+        running = true;
+        logger.info("[MQTT] Entrada iniciada - conexões: {}, assinaturas: {}, QoS: {}, in-flight: {}, ack manual: {}",
+                connections, Arrays.toString(subscriptions), qos, maxInFlight, manualAck);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (Mqttv5PahoMessageDrivenChannelAdapter adapter : adapters) {
+            try {
+                adapter.stop();
+                adapter.destroy();
+            } catch (Exception e) {
+                logger.warn("[MQTT] Falha ao encerrar conexão {}: {}", adapter.getComponentName(), e.getMessage());
+            }
+        }
+        adapters.clear();
+        subscribed.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Para de consumir antes dos demais componentes (fila de ingestão
+     * ainda aceita o que já chegou) e inicia depois deles.
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 1;
+    }
+
+    @EventListener
+    void onSubscribed(MqttSubscribedEvent event) {
+        if (event.getSource() instanceof Mqttv5PahoMessageDrivenChannelAdapter adapter && adapters.contains(adapter)) {
+            subscribed.add(adapter.getComponentName());
+            logger.info("[MQTT] ✅ {}", event.getMessage());
+        }
+    }
+
+    @EventListener
+    void onConnectionFailed(MqttConnectionFailedEvent event) {
+        if (event.getSource() instanceof Mqttv5PahoMessageDrivenChannelAdapter adapter && adapters.contains(adapter)) {
+            subscribed.remove(adapter.getComponentName());
+            logger.warn("[MQTT] ⚠️ Conexão {} perdida, reconectando: {}", adapter.getComponentName(),
+                    event.getCause() != null ? event.getCause().getMessage() : "-");
+        }
+    }
+
+    /**
+     * @return Tópicos com o prefixo $share/{grupo}/ quando há grupo
+     */
+    String[] subscriptions() {
+        if (sharedGroup == null || sharedGroup.isBlank()) {
+            return topics.clone();
+        }
+        return Arrays.stream(topics)
+                .map(topic -> "$share/" + sharedGroup + "/" + topic)
+                .toArray(String[]::new);
+    }
+
+    /**
+     * @return Número de conexões: mais de uma só com assinatura compartilhada
+     */
+    int connections() {
+        int requested = Math.max(1, consumers);
+        if (requested > 1 && (sharedGroup == null || sharedGroup.isBlank())) {
+            logger.warn("[MQTT] consumers={} exige shared-group (cada conexão receberia todas as mensagens) - usando 1",
+                    requested);
+            return 1;
+        }
+        return requested;
+    }
+
+    MqttConnectionOptions connectionOptions() {
+        MqttConnectionOptions options = new MqttConnectionOptions();
+        options.setServerURIs(urls);
+        if (!username.isBlank()) {
+            options.setUserName(username);
+            options.setPassword(password.getBytes(StandardCharsets.UTF_8));
+        }
+        options.setCleanStart(cleanStart);
+        options.setSessionExpiryInterval(sessionExpirySeconds);
+        options.setReceiveMaximum(maxInFlight);
+        options.setAutomaticReconnect(true);
+        return options;
+    }
+}
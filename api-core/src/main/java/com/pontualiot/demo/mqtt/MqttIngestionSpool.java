@@ -0,0 +1,276 @@
+package com.pontualiot.demo.mqtt;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spool local (write-ahead) das mensagens MQTT de attendance.
+ *
+ * Toda mensagem recebida é gravada num SegmentSpool em disco antes de
+ * qualquer processamento; o ack ao broker só é enviado depois disso.
+ * Se o banco estiver fora, a mensagem continua no spool e o
+ * MqttSpoolReplayer a reenvia quando o banco voltar.
+ *
+ * CICLO DE UM REGISTRO:
+ * - append(): gravado (e sincronizado com force=true), pendente "na fila"
+ * - ackFor().acknowledge(): evento gravado no log attendance_events -> commit
+ * - ackFor().fail(): gravação falhou -> conta a falha e estaciona até retry-after
+ * - ackFor().reject() ou park(): não chegou à gravação (ex: fila cheia) ->
+ *   estacionado sem contar falha
+ * - deadLetter(): mais de max-replays falhas -> copiado para o spool
+ *   {dir}/dead-letter e removido deste
+ * - checkpoint agendado: apaga os segmentos sem registros pendentes
+ *
+ * DEAD LETTER: SegmentSpool separado, no mesmo formato, nunca compactado.
+ * Os arquivos ficam para inspeção e reprocessamento manual.
+ *
+ * REGISTRO: [short tamanho do tópico][tópico UTF-8][payload]
+ *
+ * ENTREGA: pelo menos uma vez. Após uma queda, registros já gravados no
+ * log mas ainda sem commit no spool são reenviados (duplicatas).
+ *
+ * MÉTRICAS:
+ * - mqtt_spool_depth: registros pendentes (na fila + estacionados)
+ * - mqtt_spool_parked: registros aguardando o replayer
+ * - mqtt_spool_segments: segmentos em disco
+ * - mqtt_spool_append_seconds: latência da gravação (inclui msync)
+ * - mqtt_spool_dead_letters: registros no spool dead-letter
+ * - mqtt_spool_replayed_total / mqtt_spool_dead_lettered_total: MqttSpoolReplayer
+ */
+@Component
+@ConditionalOnProperty(name = "pontualiot.mqtt.spool.enabled", havingValue = "true")
+public class MqttIngestionSpool {
+
+    private static final Logger logger = LoggerFactory.getLogger(MqttIngestionSpool.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Value("${pontualiot.mqtt.spool.dir:data/mqtt-spool}")
+    private Path directory;
+
+    @Value("${pontualiot.mqtt.spool.segment-size:64MB}")
+    private DataSize segmentSize;
+
+    @Value("${pontualiot.mqtt.spool.force:true}")
+    private boolean force;
+
+    private SegmentSpool spool;
+    private SegmentSpool deadLetters;
+    private Timer appendTimer;
+    private Counter replayed;
+    private Counter deadLettered;
+
+    @PostConstruct
+    void open() throws IOException {
+        if (segmentSize.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalStateException("pontualiot.mqtt.spool.segment-size deve ser menor que 2GB");
+        }
+        spool = new SegmentSpool(directory, (int) segmentSize.toBytes(), force);
+        deadLetters = new SegmentSpool(directory.resolve("dead-letter"), (int) segmentSize.toBytes(), true);
+
+        // A fila grava (e confirma) o que sobrou no encerramento: precisa parar antes do spool
+        beanFactory.registerDependentBean("mqttIngestionSpool", "attendanceIngestionQueue");
+
+        Gauge.builder("mqtt_spool_depth", spool, SegmentSpool::pendingCount)
+                .description("MQTT messages in the local spool not yet persisted to the event log")
+                .register(meterRegistry);
+        Gauge.builder("mqtt_spool_parked", spool, SegmentSpool::parkedCount)
+                .description("Spooled MQTT messages waiting for the replayer")
+                .register(meterRegistry);
+        Gauge.builder("mqtt_spool_segments", spool, SegmentSpool::segmentCount)
+                .description("Memory-mapped spool segment files on disk")
+                .register(meterRegistry);
+        Gauge.builder("mqtt_spool_dead_letters", deadLetters, SegmentSpool::pendingCount)
+                .description("Spooled MQTT messages moved to the dead-letter spool")
+                .register(meterRegistry);
+        appendTimer = Timer.builder("mqtt_spool_append_seconds")
+                .description("Time to append and sync one MQTT message to the local spool")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        replayed = Counter.builder("mqtt_spool_replayed_total")
+                .description("Spooled MQTT messages handed back to the ingestion queue")
+                .register(meterRegistry);
+        deadLettered = Counter.builder("mqtt_spool_dead_lettered_total")
+                .description("Spooled MQTT messages moved to the dead-letter spool after max-replays failures")
+                .register(meterRegistry);
+
+        logger.info("[SPOOL] Spool aberto em {} - segmento: {}, force: {}, pendentes recuperados: {}, "
+                        + "corrompidos pulados: {}, dead letters: {}",
+                directory.toAbsolutePath(), segmentSize, force, spool.pendingCount(), spool.corruptCount(),
+                deadLetters.pendingCount());
+    }
+
+    @PreDestroy
+    void close() {
+        try {
+            spool.checkpoint();
+            spool.close();
+            deadLetters.close();
+        } catch (IOException e) {
+            logger.warn("[SPOOL] Falha ao fechar spool: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Grava a mensagem no spool.
+     *
+     * @param topic Tópico MQTT original
+     * @param payload Payload bruto
+     * @return Sequência do registro, ou null se a gravação falhou
+     */
+    public Long append(String topic, byte[] payload) {
+        byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(Short.BYTES + topicBytes.length + payload.length);
+        record.putShort((short) topicBytes.length).put(topicBytes).put(payload);
+        long start = System.nanoTime();
+        try {
+            return spool.append(record.array());
+        } catch (IOException | RuntimeException e) {
+            logger.error("[SPOOL] ❌ Falha ao gravar mensagem no spool - Tópico: {}, Erro: {}", topic, e.getMessage());
+            return null;
+        } finally {
+            appendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @param sequence Sequência do registro
+     * @return Confirmação do evento: commit no acknowledge, estaciona no reject
+     */
+    public IngestionAck ackFor(long sequence) {
+        return new IngestionAck() {
+            @Override
+            public void acknowledge() {
+                spool.commit(sequence);
+            }
+
+            @Override
+            public void reject() {
+                park(sequence);
+            }
+
+            @Override
+            public void fail() {
+                spool.fail(sequence, System.currentTimeMillis());
+            }
+
+            @Override
+            public boolean retainedOnReject() {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Estaciona o registro para o replayer.
+     */
+    public void park(long sequence) {
+        spool.park(sequence, System.currentTimeMillis());
+    }
+
+    /**
+     * Remove o registro sem reenviar (payload inválido ou já processado).
+     */
+    public void commit(long sequence) {
+        spool.commit(sequence);
+    }
+
+    /**
+     * Move o registro para o spool dead-letter. Se a cópia falhar, o
+     * registro continua estacionado aqui.
+     *
+     * @return true se o registro foi movido
+     */
+    boolean deadLetter(long sequence) {
+        try {
+            deadLetters.append(spool.read(sequence));
+        } catch (IOException | RuntimeException e) {
+            logger.error("[SPOOL] ❌ Falha ao mover registro {} para o dead-letter: {}", sequence, e.getMessage());
+            park(sequence);
+            return false;
+        }
+        spool.commit(sequence);
+        deadLettered.increment();
+        return true;
+    }
+
+    /**
+     * @param cutoff Só registros estacionados antes deste instante (ms)
+     * @param limit Número máximo de registros
+     * @return Sequências estacionadas, em ordem de gravação
+     */
+    List<Long> parkedBefore(long cutoff, int limit) {
+        return spool.parkedBefore(cutoff, limit);
+    }
+
+    /**
+     * Devolve o registro à fila de processamento.
+     *
+     * @return Falhas de gravação do registro até agora
+     */
+    int markQueued(long sequence) {
+        return spool.markQueued(sequence);
+    }
+
+    /**
+     * @return Registro decodificado
+     */
+    SpooledMessage read(long sequence) {
+        ByteBuffer record = ByteBuffer.wrap(spool.read(sequence));
+        byte[] topic = new byte[record.getShort()];
+        record.get(topic);
+        byte[] payload = new byte[record.remaining()];
+        record.get(payload);
+        return new SpooledMessage(new String(topic, StandardCharsets.UTF_8), payload);
+    }
+
+    void countReplayed() {
+        replayed.increment();
+    }
+
+    /**
+     * @return Registros pendentes
+     */
+    public int depth() {
+        return spool.pendingCount();
+    }
+
+    @Scheduled(fixedDelayString = "${pontualiot.mqtt.spool.checkpoint-interval:PT1S}")
+    void checkpoint() {
+        try {
+            spool.checkpoint();
+        } catch (IOException e) {
+            logger.error("[SPOOL] ❌ Falha no checkpoint: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Mensagem lida do spool.
+     */
+    record SpooledMessage(String topic, byte[] payload) {
+    }
+}
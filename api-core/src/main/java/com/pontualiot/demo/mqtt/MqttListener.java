@@ -3,14 +3,18 @@ package com.pontualiot.demo.mqtt;
 // ========================================
 // IMPORTAÇÕES MQTT E SPRING INTEGRATION
 // ========================================
-import com.pontualiot.demo.service.MqttAttendanceProcessor; // Processador de eventos
 import org.slf4j.Logger;                    // Interface de logging SLF4J
 import org.slf4j.LoggerFactory;             // Factory para criar loggers
+import com.pontualiot.demo.service.DeviceRegistry; // Liveness dos dispositivos
 import org.springframework.beans.factory.annotation.Autowired; // Injeção de dependência
+import org.springframework.integration.IntegrationMessageHeaderAccessor; // Header do ack manual
+import org.springframework.integration.acks.SimpleAcknowledgment; // Ack manual MQTT
 import org.springframework.integration.annotation.ServiceActivator; // Ativador de serviço
 import org.springframework.messaging.Message;            // Interface de mensagem Spring
 import org.springframework.stereotype.Component;         // Componente Spring
 
+import java.nio.charset.StandardCharsets; // Conversão de payload String para bytes
+
 /**
  * ========================================
  * MQTT LISTENER - RECEPTOR DE MENSAGENS IOT
@@ -32,14 +36,15 @@ import org.springframework.stereotype.Component;         // Componente Spring
  * 
  * 2. PUBLICAÇÃO MQTT:
  *    - Tópico: "attendance/device001/check-in"
- *    - Payload: {"rfidTag": "RFID001", "deviceId": "device001", "eventType": "check-in"}
+ *    - Payload: {"rfidTag": "RFID001", "deviceId": "device001", "eventType": "CHECK_IN", "timestamp": "2024-10-30T08:00:00"}
  * 
  * 3. MQTT BROKER:
  *    - Eclipse Mosquitto recebe mensagem
  *    - Distribui para subscribers
  * 
  * 4. SPRING INTEGRATION:
- *    - MqttPahoMessageDrivenChannelAdapter recebe
+ *    - Adaptadores MQTT 5 do MqttInboundAdapters recebem
+ *      (N conexões, assinatura compartilhada $share/{grupo}/...)
  *    - Converte para Spring Message
  *    - Envia para mqttInputChannel
  * 
@@ -50,9 +55,10 @@ import org.springframework.stereotype.Component;         // Componente Spring
  *    - Roteia para processador
  * 
  * 6. PROCESSAMENTO:
- *    - MqttAttendanceProcessor.processAttendanceEvent()
- *    - Valida RFID, cria/atualiza Attendance
- *    - Persiste no PostgreSQL
+ *    - AttendanceIngestionQueue.submit() enfileira o evento
+ *    - Thread drenadora agrupa eventos em micro-lotes
+ *    - AttendanceEventStore grava o lote no log attendance_events (append-only)
+ *    - AttendanceEventProjector deriva attendances do log (assíncrono)
  * 
  * 7. RESPOSTA:
  *    - Log de sucesso/erro
@@ -63,6 +69,28 @@ import org.springframework.stereotype.Component;         // Componente Spring
  * - attendance/device002/check-out
  * - attendance/{deviceId}/{eventType}
  * 
+ * SPOOL LOCAL (pontualiot.mqtt.spool.enabled):
+ * - Mensagem gravada no MqttIngestionSpool antes do parse
+ * - Ack ao broker assim que a gravação é durável
+ * - Fila cheia, banco fora ou erro inesperado: registro fica estacionado
+ *   no spool e o MqttSpoolReplayer reenvia depois
+ * - Falha ao gravar no spool: segue o fluxo de ack manual abaixo
+ * 
+ * DEDUPLICAÇÃO (IngestionDeduplicator):
+ * - Batida já vista na janela: descartada e confirmada (ack/commit)
+ *   antes da fila, sem acesso ao banco
+ * - Leitura repetida da mesma tag dentro da janela de debounce, ou tipo
+ *   oposto antes do intervalo de anti-passback (SwipeDebouncer): idem
+ * 
+ * RECIBOS (pontualiot.mqtt.receipts.enabled):
+ * - Mensagem com messageId gravada no log: MqttReceiptPublisher publica
+ *   um recibo em receipts/attendance/{deviceId} (latência de ponta a ponta)
+ * 
+ * ACK MANUAL (sem spool):
+ * - Mensagem válida: ack enviado pela fila após gravação no log
+ * - Tópico ignorado ou payload inválido: ack imediato (reentrega não ajudaria)
+ * - Erro inesperado: sem ack, o broker reentrega após reconexão
+ * 
  * TRATAMENTO DE ERROS:
  * - Erros de validação: log WARNING (não crítico)
  * - Erros inesperados: log ERROR (investigação necessária)
@@ -99,15 +127,85 @@ public class MqttListener {
     private MqttAttendanceService attendanceService;
     
     /**
-     * PROCESSADOR DE EVENTOS DE ATTENDANCE
+     * FILA DE INGESTÃO EM LOTES
      * 
-     * Camada adicional de processamento:
-     * - Orquestração de serviços
-     * - Lógica de negócio complexa
-     * - Integrações externas
+     * Desacopla o canal MQTT do banco:
+     * - Listener apenas enfileira o evento
+     * - Gravação acontece em lotes numa thread dedicada
+     * - Fila cheia bloqueia o canal (backpressure)
      */
     @Autowired
-    private MqttAttendanceProcessor attendanceProcessor;
+    private AttendanceIngestionQueue ingestionQueue;
+    
+    /**
+     * PARSER DE PAYLOAD EM STREAMING
+     * 
+     * Substitui o ObjectMapper criado por mensagem:
+     * - Passada única sobre os bytes, sem JsonNode
+     * - Validação junto com o parsing
+     */
+    @Autowired
+    private MqttPayloadParser payloadParser;
+    
+    /**
+     * MENSAGEM REUTILIZÁVEL POR THREAD
+     * 
+     * O parser preenche a mesma instância a cada mensagem;
+     * os campos são copiados para o IngestionEvent antes da próxima.
+     */
+    private final ThreadLocal<MqttAttendanceMessage> reusableMessage =
+            ThreadLocal.withInitial(MqttAttendanceMessage::new);
+    
+    /**
+     * LATÊNCIA POR ETAPA
+     * 
+     * Etapas receive e parse, por dispositivo e resultado.
+     */
+    @Autowired
+    private IngestionStageMetrics stageMetrics;
+    
+    /**
+     * REGISTRO DE DISPOSITIVOS ATIVOS
+     * 
+     * Último contato, taxa e último erro por dispositivo.
+     * Payload inválido também conta como contato.
+     */
+    @Autowired
+    private DeviceRegistry deviceRegistry;
+    
+    /**
+     * SPOOL LOCAL (WRITE-AHEAD)
+     * 
+     * Ausente quando pontualiot.mqtt.spool.enabled=false.
+     */
+    @Autowired(required = false)
+    private MqttIngestionSpool spool;
+    
+    /**
+     * DEDUPLICAÇÃO EM MEMÓRIA
+     * 
+     * Reentregas QoS 1 e reenvios do dispositivo são descartados
+     * aqui, antes da fila e de qualquer acesso ao banco.
+     */
+    @Autowired
+    private IngestionDeduplicator deduplicator;
+    
+    /**
+     * DEBOUNCE E ANTI-PASSBACK
+     * 
+     * Leituras repetidas da mesma tag (funcionário parado no leitor)
+     * viram uma única batida; saída logo após a entrada é rejeitada.
+     */
+    @Autowired
+    private SwipeDebouncer debouncer;
+    
+    /**
+     * RECIBOS DE GRAVAÇÃO
+     * 
+     * Ausente quando pontualiot.mqtt.receipts.enabled=false.
+     */
+    @Autowired(required = false)
+    private MqttReceiptPublisher receiptPublisher;
 
     /**
      * MÉTODO PRINCIPAL - PROCESSA MENSAGENS MQTT
@@ -145,18 +243,28 @@ public class MqttListener {
         try {
             // ETAPA 1: Extração de metadados da mensagem
             String topic = (String) message.getHeaders().get("mqtt_receivedTopic");
-            String payload = message.getPayload().toString();
+            Object payload = message.getPayload();
+            SimpleAcknowledgment acknowledgment = message.getHeaders()
+                    .get(IntegrationMessageHeaderAccessor.ACKNOWLEDGMENT_CALLBACK, SimpleAcknowledgment.class);
             
-            // ETAPA 2: Log de auditoria (todas as mensagens)
-            logger.info("[MQTT] Mensagem recebida - Tópico: {}, Payload: {}", topic, payload);
+            // ETAPA 2: Log de auditoria (payload só é convertido se DEBUG ativo)
+            if (logger.isDebugEnabled()) {
+                logger.debug("[MQTT] Mensagem recebida - Tópico: {}, Payload: {}", topic,
+                        payload instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : payload);
+            }
             
             // ETAPA 3: Filtro por tópico
             if (isAttendanceTopic(topic)) {
-                // Roteia para processador de attendance
-                onAttendanceMessage(topic, payload);
+                // Roteia para processador de attendance (bytes brutos, sem String)
+                onAttendanceMessage(topic, payload instanceof byte[] bytes
+                        ? bytes
+                        : payload.toString().getBytes(StandardCharsets.UTF_8), acknowledgment);
             } else {
                 // Log de tópico ignorado (não é erro)
                 logger.debug("[MQTT] Tópico ignorado (não é attendance): {}", topic);
+                if (acknowledgment != null) {
+                    acknowledgment.acknowledge();
+                }
             }
             
         } catch (Exception e) {
@@ -176,21 +284,20 @@ public class MqttListener {
      * {
      *   "deviceId": "device001",
      *   "rfidTag": "RFID001",
-     *   "eventType": "check-in",
+     *   "eventType": "CHECK_IN",
      *   "timestamp": "2024-10-30T08:00:00"
      * }
      * 
      * FLUXO DE PROCESSAMENTO:
-     * 1. Parse do JSON payload
-     * 2. Extração de campos obrigatórios
-     * 3. Chamada do processador de eventos
-     * 4. Log de resultado (sucesso/erro)
+     * 1. Parse + validação em passada única (MqttPayloadParser)
+     * 2. Enfileiramento para gravação em lote
+     * 3. Log de resultado (sucesso/erro)
      * 
      * VALIDAÇÕES REALIZADAS:
      * - JSON válido
-     * - Campos obrigatórios presentes
-     * - RFID cadastrado no sistema
-     * - Evento válido (check-in/check-out)
+     * - Campos obrigatórios presentes (deviceId, rfidTag, eventType, timestamp)
+     * - Tipo de evento CHECK_IN ou CHECK_OUT
+     * - RFID é validado na gravação do lote
      * 
      * TIPOS DE ERRO:
      * - IllegalArgumentException: erro de validação (WARNING)
@@ -200,37 +307,145 @@ public class MqttListener {
      * @param payload JSON com dados do evento
      */
     public void onAttendanceMessage(String topic, String payload) {
+        onAttendanceMessage(topic, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Variante de onAttendanceMessage para o payload bruto do broker.
+     * 
+     * @param topic Tópico MQTT original
+     * @param payload JSON em UTF-8 com dados do evento
+     */
+    public void onAttendanceMessage(String topic, byte[] payload) {
+        onAttendanceMessage(topic, payload, null);
+    }
+
+    /**
+     * Variante com ack manual: com spool o ack é enviado após a gravação
+     * no spool; sem spool a confirmação segue com o evento até a gravação
+     * no log.
+     * 
+     * @param topic Tópico MQTT original
+     * @param payload JSON em UTF-8 com dados do evento
+     * @param acknowledgment Ack manual da mensagem (null = sem ack manual)
+     */
+    public void onAttendanceMessage(String topic, byte[] payload, SimpleAcknowledgment acknowledgment) {
+        long receivedAt = System.nanoTime();
+        String deviceId = deviceIdFromTopic(topic); // Payload inválido ainda é atribuído ao dispositivo
+        
+        // ETAPA 0: Gravação no spool antes de qualquer processamento
+        Long sequence = spool != null ? spool.append(topic, payload) : null;
+        IngestionAck ack;
+        if (sequence != null) {
+            acknowledgeBroker(acknowledgment); // Mensagem já durável no disco local
+            ack = spool.ackFor(sequence);
+        } else {
+            ack = acknowledgment != null ? acknowledgment::acknowledge : null;
+        }
+        
         try {
             // Log do início do processamento
             logger.debug("[MQTT] Processando attendance - Tópico: {}", topic);
             
-            // ETAPA 1: Parse do JSON payload
-            com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-            com.fasterxml.jackson.databind.JsonNode json = mapper.readTree(payload);
+            // ETAPA 1: Parse + validação em passada única
+            MqttAttendanceMessage message;
+            try {
+                message = payloadParser.parse(payload, reusableMessage.get());
+            } catch (IllegalArgumentException e) {
+                stageMetrics.record(IngestionStageMetrics.Stage.PARSE, deviceId, IngestionStageMetrics.INVALID,
+                        System.nanoTime() - receivedAt);
+                deviceRegistry.recordMessage(deviceId);
+                deviceRegistry.recordError(deviceId, e.getMessage());
+                throw e;
+            }
+            deviceId = message.getDeviceId();
+            deviceRegistry.recordMessage(deviceId);
+            stageMetrics.record(IngestionStageMetrics.Stage.PARSE, deviceId, IngestionStageMetrics.ACCEPTED,
+                    System.nanoTime() - receivedAt);
+            
+            // ETAPA 1.1: Descarte de duplicatas (janela em memória)
+            IngestionDeduplicator.Claim claim = deduplicator.claim(message);
+            if (claim == null) {
+                stageMetrics.record(IngestionStageMetrics.Stage.RECEIVE, deviceId, IngestionStageMetrics.DUPLICATE,
+                        System.nanoTime() - receivedAt);
+                logger.debug("[MQTT] Batida duplicada descartada - RFID: {}, Dispositivo: {}",
+                        message.getRfidTag(), deviceId);
+                if (ack != null) {
+                    ack.acknowledge(); // A original já foi aceita
+                }
+                return;
+            }
+            ack = deduplicator.releaseOnReject(claim, ack); // Não gravada: reentrega volta a ser aceita
             
-            // ETAPA 2: Extração de campos obrigatórios
-            String deviceId = json.get("deviceId").asText();   // ID do dispositivo
-            String rfidTag = json.get("rfidTag").asText();     // Tag RFID lida
-            String eventType = json.get("eventType").asText(); // check-in ou check-out
+            // ETAPA 1.2: Debounce e anti-passback por tag (em memória)
+            SwipeDebouncer.Admission admission = debouncer.admit(message);
+            if (admission == null) {
+                stageMetrics.record(IngestionStageMetrics.Stage.RECEIVE, deviceId, IngestionStageMetrics.FILTERED,
+                        System.nanoTime() - receivedAt);
+                logger.debug("[MQTT] Leitura repetida filtrada - RFID: {}, Evento: {}, Dispositivo: {}",
+                        message.getRfidTag(), message.getEventType(), deviceId);
+                ack.acknowledge();
+                return;
+            }
+            ack = debouncer.releaseOnReject(admission, ack);
+            if (receiptPublisher != null) {
+                ack = receiptPublisher.onPersisted(message, ack); // Recibo após a gravação no log
+            }
             
-            // ETAPA 3: Processamento do evento
-            var attendance = attendanceProcessor.processAttendanceEvent(rfidTag, eventType, deviceId);
+            // ETAPA 2: Enfileiramento do evento (append no log de eventos)
+            IngestionEvent event = new IngestionEvent(message.getRfidTag(), message.getEventType(),
+                    deviceId, message.getTimestamp(), receivedAt, ack);
+            if (sequence == null) {
+                ingestionQueue.submit(event); // Bloqueia com a raia cheia (backpressure no broker)
+            } else if (!ingestionQueue.offer(event)) {
+                event.reject(); // Já no spool: estacionada, replayer reenvia quando houver espaço
+                logger.warn("[MQTT] Fila de ingestão cheia, mensagem estacionada no spool - Dispositivo: {}", deviceId);
+            }
+            stageMetrics.record(IngestionStageMetrics.Stage.RECEIVE, deviceId, IngestionStageMetrics.ACCEPTED,
+                    System.nanoTime() - receivedAt);
             
-            // ETAPA 4: Log de sucesso com detalhes
-            logger.info("[MQTT] ✅ Ponto processado - ID: {}, Funcionário: {}, Evento: {}", 
-                       attendance.getId(), 
-                       attendance.getEmployee().getName(),
-                       eventType);
+            // ETAPA 3: Log de recebimento
+            logger.debug("[MQTT] ✅ Ponto enfileirado - RFID: {}, Evento: {}, Dispositivo: {}", 
+                       message.getRfidTag(), message.getEventType(), deviceId);
             
         } catch (IllegalArgumentException e) {
             // ERRO DE VALIDAÇÃO (não crítico)
-            // Exemplos: RFID não encontrado, evento inválido
+            // Exemplos: JSON malformado, campo ausente, evento inválido
+            stageMetrics.record(IngestionStageMetrics.Stage.RECEIVE, deviceId, IngestionStageMetrics.INVALID,
+                    System.nanoTime() - receivedAt);
             logger.warn("[MQTT] ⚠️ Validação falhou: {}", e.getMessage());
+            if (ack != null) {
+                ack.acknowledge(); // Payload inválido nunca será aceito
+            }
             
         } catch (Exception e) {
             // ERRO INESPERADO (requer investigação)
-            // Exemplos: erro de banco, JSON malformado
+            // Exemplos: fila interrompida
+            stageMetrics.record(IngestionStageMetrics.Stage.RECEIVE, deviceId, IngestionStageMetrics.ERROR,
+                    System.nanoTime() - receivedAt);
             logger.error("[MQTT] ❌ Erro inesperado: {}", e.getMessage(), e);
+            if (ack != null) {
+                ack.reject(); // Com spool: estaciona para o replayer
+            }
+        }
+    }
+
+    /**
+     * ACK AO BROKER
+     * 
+     * Falha no ack não impede o processamento: a mensagem já está no
+     * spool e uma eventual reentrega vira duplicata.
+     * 
+     * @param acknowledgment Ack manual da mensagem (null = sem ack manual)
+     */
+    private void acknowledgeBroker(SimpleAcknowledgment acknowledgment) {
+        if (acknowledgment == null) {
+            return;
+        }
+        try {
+            acknowledgment.acknowledge();
+        } catch (Exception e) {
+            logger.warn("[MQTT] Falha no ack MQTT: {}", e.getMessage());
         }
     }
 
@@ -262,4 +477,21 @@ public class MqttListener {
         // Validação simples: começa com "attendance/"
         return topic != null && topic.startsWith("attendance/");
     }
+
+    /**
+     * EXTRAI O DISPOSITIVO DO TÓPICO
+     * 
+     * attendance/{deviceId}/{eventType} -> deviceId
+     * 
+     * @param topic Tópico MQTT original
+     * @return ID do dispositivo, ou null se o tópico não segue o padrão
+     */
+    private String deviceIdFromTopic(String topic) {
+        if (topic == null) {
+            return null;
+        }
+        int start = topic.indexOf('/') + 1;
+        int end = topic.indexOf('/', start);
+        return start > 0 && end > start ? topic.substring(start, end) : null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,344 @@
+package com.pontualiot.demo.mqtt;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Parser de payload MQTT em passada única sobre o JsonParser de streaming.
+ *
+ * Lê o byte[] recebido do broker diretamente para um MqttAttendanceMessage
+ * reutilizável, sem montar JsonNode e sem converter o payload em String.
+ * O tipo de evento é resolvido para AttendanceEventType a partir do buffer
+ * de caracteres do parser e as validações do MqttMessageValidator são
+ * aplicadas na mesma passada, com as mesmas mensagens de erro.
+ *
+ * Thread-safe: o JsonFactory é compartilhado e cada chamada cria seu
+ * próprio JsonParser (que reaproveita buffers internos do Jackson).
+ */
+@Component
+public class MqttPayloadParser {
+
+    private static final int DEVICE_ID = 1;
+    private static final int RFID_TAG = 1 << 1;
+    private static final int EVENT_TYPE = 1 << 2;
+    private static final int TIMESTAMP = 1 << 3;
+    private static final int MESSAGE_ID = 1 << 4; // Opcional
+    private static final int REQUIRED = DEVICE_ID | RFID_TAG | EVENT_TYPE | TIMESTAMP;
+
+    private static final String DEVICE_ID_REQUIRED = "Device ID é obrigatório";
+    private static final String RFID_TAG_REQUIRED = "RFID tag é obrigatório";
+    private static final String EVENT_TYPE_REQUIRED = "Tipo de evento é obrigatório";
+    private static final String TIMESTAMP_REQUIRED = "Timestamp é obrigatório";
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * Faz parsing e validação completos, criando uma nova mensagem.
+     *
+     * @param payload Payload MQTT em UTF-8
+     * @return Mensagem validada
+     * @throws IllegalArgumentException se a mensagem for inválida
+     */
+    public MqttAttendanceMessage parse(byte[] payload) {
+        return parse(payload, new MqttAttendanceMessage());
+    }
+
+    /**
+     * Faz parsing e validação completos reaproveitando a mensagem informada.
+     *
+     * @param payload Payload MQTT em UTF-8
+     * @param target Mensagem a ser preenchida (campos anteriores são descartados)
+     * @return A própria mensagem target, preenchida e validada
+     * @throws IllegalArgumentException se a mensagem for inválida
+     */
+    public MqttAttendanceMessage parse(byte[] payload, MqttAttendanceMessage target) {
+        target.clear();
+        Scan scan = new Scan(target);
+        try {
+            scan(payload, scan);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Payload JSON malformado: " + e.getMessage());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Erro inesperado no parsing: " + e.getMessage());
+        }
+        return validate(scan);
+    }
+
+    /**
+     * Aplica as mesmas regras e mensagens de parse() a campos já separados
+     * (ex: uma linha CSV). Campo null = coluna ausente.
+     *
+     * @param target Mensagem a ser preenchida (campos anteriores são descartados)
+     * @return A própria mensagem target, preenchida e validada
+     * @throws IllegalArgumentException se a mensagem for inválida
+     */
+    public MqttAttendanceMessage parseFields(String deviceId, String rfidTag, String eventType, String timestamp,
+                                             MqttAttendanceMessage target) {
+        target.clear();
+        Scan scan = new Scan(target);
+        if (readField(deviceId, scan, DEVICE_ID)) {
+            target.setDeviceId(new String(scan.chars, scan.offset, scan.length));
+        }
+        if (readField(rfidTag, scan, RFID_TAG)) {
+            target.setRfidTag(new String(scan.chars, scan.offset, scan.length));
+        }
+        if (readField(eventType, scan, EVENT_TYPE)) {
+            target.setEventType(AttendanceEventType.fromChars(scan.chars, scan.offset, scan.length));
+        }
+        if (readField(timestamp, scan, TIMESTAMP)) {
+            target.setTimestamp(IsoTimestamps.parse(scan.chars, scan.offset, scan.length));
+            if (target.getTimestamp() == null) {
+                scan.timestampText = new String(scan.chars, scan.offset, scan.length);
+            }
+        }
+        return validate(scan);
+    }
+
+    private MqttAttendanceMessage validate(Scan scan) {
+        MqttAttendanceMessage target = scan.target;
+
+        // Mesma ordem de validação do MqttMessageValidator
+        requireText(scan, DEVICE_ID, DEVICE_ID_REQUIRED);
+        requireText(scan, RFID_TAG, RFID_TAG_REQUIRED);
+        requireText(scan, EVENT_TYPE, EVENT_TYPE_REQUIRED);
+        if (target.getEventType() == null) {
+            throw new IllegalArgumentException("Tipo de evento deve ser CHECK_IN ou CHECK_OUT");
+        }
+        requireText(scan, TIMESTAMP, TIMESTAMP_REQUIRED);
+        if (target.getTimestamp() == null) {
+            throw new IllegalArgumentException(
+                "Timestamp deve estar no formato ISO 8601 (ex: 2024-01-15T08:30:00): " + scan.timestampText
+            );
+        }
+        return target;
+    }
+
+    /**
+     * Verifica presença dos campos obrigatórios (não nulos), sem validar
+     * conteúdo. Equivalente ao antigo isValidMessage baseado em JsonNode.
+     *
+     * @param payload Payload MQTT em UTF-8
+     * @return true se JSON é válido e os quatro campos obrigatórios existem
+     */
+    public boolean hasRequiredFields(byte[] payload) {
+        Scan scan = new Scan(new MqttAttendanceMessage());
+        try {
+            scan(payload, scan);
+        } catch (IOException e) {
+            return false;
+        }
+        return (scan.present & ~scan.nulls & REQUIRED) == REQUIRED;
+    }
+
+    private void scan(byte[] payload, Scan scan) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return; // Raiz não é objeto: todos os campos ausentes
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName(); // Nomes são canonicalizados (interned) pelo Jackson
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "deviceId" -> scan.target.setDeviceId(readText(parser, value, scan, DEVICE_ID));
+                    case "rfidTag" -> scan.target.setRfidTag(readText(parser, value, scan, RFID_TAG));
+                    case "eventType" -> readEventType(parser, value, scan);
+                    case "timestamp" -> readTimestamp(parser, value, scan);
+                    case "metadata" -> scan.target.setMetadata(readMetadata(parser, value));
+                    case "messageId" -> scan.target.setMessageId(readText(parser, value, scan, MESSAGE_ID));
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private String readText(JsonParser parser, JsonToken value, Scan scan, int field) throws IOException {
+        return readTrimmedRange(parser, value, scan, field)
+                ? new String(scan.chars, scan.offset, scan.length)
+                : null;
+    }
+
+    private void readEventType(JsonParser parser, JsonToken value, Scan scan) throws IOException {
+        scan.target.setEventType(readTrimmedRange(parser, value, scan, EVENT_TYPE)
+                ? AttendanceEventType.fromChars(scan.chars, scan.offset, scan.length)
+                : null);
+    }
+
+    private void readTimestamp(JsonParser parser, JsonToken value, Scan scan) throws IOException {
+        LocalDateTime timestamp = null;
+        if (readTrimmedRange(parser, value, scan, TIMESTAMP)) {
+            timestamp = IsoTimestamps.parse(scan.chars, scan.offset, scan.length);
+            if (timestamp == null) {
+                scan.timestampText = new String(scan.chars, scan.offset, scan.length); // Só para a mensagem de erro
+            }
+        }
+        scan.target.setTimestamp(timestamp);
+    }
+
+    /**
+     * Posiciona scan.chars/offset/length no valor aparado (trim), sem criar
+     * String, e registra se o campo veio nulo ou vazio.
+     *
+     * @return true se há um valor não vazio no buffer
+     */
+    private boolean readTrimmedRange(JsonParser parser, JsonToken value, Scan scan, int field) throws IOException {
+        scan.present |= field;
+        scan.nulls &= ~field;
+        scan.empties &= ~field;
+        if (value == JsonToken.VALUE_NULL) {
+            scan.nulls |= field;
+            return false;
+        }
+        if (!value.isScalarValue()) {
+            parser.skipChildren();
+            scan.empties |= field; // JsonNode.asText() de objeto/array é vazio
+            return false;
+        }
+        char[] chars = parser.getTextCharacters();
+        int start = parser.getTextOffset();
+        int end = start + parser.getTextLength();
+        while (start < end && chars[start] <= ' ') start++;
+        while (end > start && chars[end - 1] <= ' ') end--;
+        if (start == end) {
+            scan.empties |= field;
+            return false;
+        }
+        scan.chars = chars;
+        scan.offset = start;
+        scan.length = end - start;
+        return true;
+    }
+
+    private boolean readField(String value, Scan scan, int field) {
+        if (value == null) {
+            return false;
+        }
+        scan.present |= field;
+        char[] chars = value.toCharArray();
+        int start = 0;
+        int end = chars.length;
+        while (start < end && chars[start] <= ' ') start++;
+        while (end > start && chars[end - 1] <= ' ') end--;
+        if (start == end) {
+            scan.empties |= field;
+            return false;
+        }
+        scan.chars = chars;
+        scan.offset = start;
+        scan.length = end - start;
+        return true;
+    }
+
+    private String readMetadata(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return "null"; // JsonNode.asText() de NullNode
+        }
+        if (!value.isScalarValue()) {
+            parser.skipChildren();
+            return "";
+        }
+        return parser.getText();
+    }
+
+    private void requireText(Scan scan, int field, String errorMessage) {
+        if ((scan.present & field) == 0) {
+            throw new IllegalArgumentException(errorMessage + " (campo não encontrado)");
+        }
+        if ((scan.nulls & field) != 0) {
+            throw new IllegalArgumentException(errorMessage + " (campo é nulo)");
+        }
+        if ((scan.empties & field) != 0) {
+            throw new IllegalArgumentException(errorMessage + " (campo vazio)");
+        }
+    }
+
+    /**
+     * Estado de uma passada de parsing.
+     */
+    private static final class Scan {
+        private final MqttAttendanceMessage target;
+        private int present;
+        private int nulls;
+        private int empties;
+        private String timestampText;
+        private char[] chars;
+        private int offset;
+        private int length;
+
+        private Scan(MqttAttendanceMessage target) {
+            this.target = target;
+        }
+    }
+
+    /**
+     * Parsing de LocalDateTime ISO 8601 direto do buffer de caracteres.
+     *
+     * Caminho rápido para yyyy-MM-ddTHH:mm[:ss[.fffffffff]]; formatos fora
+     * disso caem no DateTimeFormatter.ISO_LOCAL_DATE_TIME.
+     */
+    static final class IsoTimestamps {
+
+        private IsoTimestamps() {
+        }
+
+        static LocalDateTime parse(char[] c, int off, int len) {
+            try {
+                if (len >= 16 && c[off + 4] == '-' && c[off + 7] == '-' && c[off + 10] == 'T' && c[off + 13] == ':') {
+                    int year = digits(c, off, 4);
+                    int month = digits(c, off + 5, 2);
+                    int day = digits(c, off + 8, 2);
+                    int hour = digits(c, off + 11, 2);
+                    int minute = digits(c, off + 14, 2);
+                    int second = 0;
+                    int nanos = 0;
+                    if (len >= 19 && c[off + 16] == ':') {
+                        second = digits(c, off + 17, 2);
+                        if (len > 19) {
+                            int fraction = len - 20;
+                            if (c[off + 19] != '.' || fraction < 1 || fraction > 9) {
+                                return fallback(c, off, len);
+                            }
+                            nanos = digits(c, off + 20, fraction);
+                            for (int i = fraction; nanos >= 0 && i < 9; i++) {
+                                nanos *= 10;
+                            }
+                        }
+                    } else if (len != 16) {
+                        return fallback(c, off, len);
+                    }
+                    // Dígito inválido vira -1 e LocalDateTime.of rejeita
+                    return LocalDateTime.of(year, month, day, hour, minute, second, nanos);
+                }
+                return fallback(c, off, len);
+            } catch (DateTimeException e) {
+                return null;
+            }
+        }
+
+        private static LocalDateTime fallback(char[] c, int off, int len) {
+            return LocalDateTime.parse(new String(c, off, len), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        }
+
+        /**
+         * @return Valor numérico ou -1 se houver caractere não numérico
+         */
+        private static int digits(char[] c, int off, int len) {
+            int value = 0;
+            for (int i = 0; i < len; i++) {
+                char ch = c[off + i];
+                if (ch < '0' || ch > '9') {
+                    return -1;
+                }
+                value = value * 10 + (ch - '0');
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.pontualiot.demo.mqtt;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.eclipse.paho.mqttv5.client.MqttConnectionOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.integration.mqtt.outbound.Mqttv5PahoMessageHandler;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Publica um recibo MQTT quando a batida é gravada no log attendance_events.
+ *
+ * Fecha o ciclo para medições de ponta a ponta (simulador em modo de
+ * carga): o dispositivo publica com messageId e assina
+ * {topic-prefix}/{deviceId}; o recibo chega quando a confirmação da
+ * ingestão é disparada, isto é, depois do INSERT no log.
+ *
+ * RECIBO: {"messageId", "deviceId", "rfidTag", "persistedAt"}
+ *
+ * Só mensagens com messageId geram recibo. Batidas descartadas como
+ * duplicata ou filtradas pelo debounce não geram recibo (a original já
+ * gerou, ou foi filtrada de propósito). Publicação assíncrona com QoS 1 e
+ * sem garantia: falha conta em mqtt_receipts_failed_total, a batida
+ * segue gravada.
+ *
+ * O prefixo não pode casar com as assinaturas de entrada (attendance/+/+).
+ */
+@Component
+@ConditionalOnProperty(name = "pontualiot.mqtt.receipts.enabled", havingValue = "true")
+public class MqttReceiptPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(MqttReceiptPublisher.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Value("${pontualiot.mqtt.inbound.urls:tcp://localhost:1883}")
+    private String[] urls;
+
+    @Value("${pontualiot.mqtt.inbound.client-id:api-core}")
+    private String clientId;
+
+    @Value("${pontualiot.mqtt.inbound.username:}")
+    private String username;
+
+    @Value("${pontualiot.mqtt.inbound.password:}")
+    private String password;
+
+    @Value("${pontualiot.mqtt.receipts.topic-prefix:receipts/attendance}")
+    private String topicPrefix;
+
+    private MessageHandler handler;
+    private Counter published;
+    private Counter failed;
+
+    @PostConstruct
+    void start() {
+        // A fila confirma (e publica recibos) do que sobrou no encerramento: precisa parar antes
+        beanFactory.registerDependentBean("mqttReceiptPublisher", "attendanceIngestionQueue");
+
+        published = Counter.builder("mqtt_receipts_published_total")
+                .description("Persistence receipts published back to devices")
+                .register(meterRegistry);
+        failed = Counter.builder("mqtt_receipts_failed_total")
+                .description("Persistence receipts that could not be published")
+                .register(meterRegistry);
+
+        if (handler == null) {
+            MqttConnectionOptions options = new MqttConnectionOptions();
+            options.setServerURIs(urls);
+            if (!username.isBlank()) {
+                options.setUserName(username);
+                options.setPassword(password.getBytes(StandardCharsets.UTF_8));
+            }
+            options.setCleanStart(true);
+            options.setAutomaticReconnect(true);
+
+            Mqttv5PahoMessageHandler outbound = new Mqttv5PahoMessageHandler(options, clientId + "-receipts");
+            outbound.setAsync(true);
+            outbound.setDefaultQos(1);
+            outbound.setBeanFactory(beanFactory);
+            outbound.afterPropertiesSet();
+            outbound.start();
+            handler = outbound;
+        }
+        logger.info("[RECEIPT] Recibos de gravação em {}/{{deviceId}}", topicPrefix);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (handler instanceof Mqttv5PahoMessageHandler outbound) {
+            outbound.stop();
+            outbound.destroy();
+        }
+    }
+
+    /**
+     * @param message Mensagem aceita (os campos são copiados: a instância é reutilizada)
+     * @param ack Confirmação original (pode ser null)
+     * @return Confirmação que também publica o recibo, ou ack se não há messageId
+     */
+    public IngestionAck onPersisted(MqttAttendanceMessage message, IngestionAck ack) {
+        String messageId = message.getMessageId();
+        if (messageId == null) {
+            return ack;
+        }
+        String deviceId = message.getDeviceId();
+        String rfidTag = message.getRfidTag();
+        return new IngestionAck() {
+            @Override
+            public void acknowledge() {
+                if (ack != null) {
+                    ack.acknowledge();
+                }
+                publish(messageId, deviceId, rfidTag);
+            }
+
+            @Override
+            public void reject() {
+                if (ack != null) {
+                    ack.reject();
+                }
+            }
+
+            @Override
+            public void fail() {
+                if (ack != null) {
+                    ack.fail();
+                }
+            }
+
+            @Override
+            public boolean retainedOnReject() {
+                return ack != null && ack.retainedOnReject();
+            }
+        };
+    }
+
+    void publish(String messageId, String deviceId, String rfidTag) {
+        Map<String, String> receipt = new LinkedHashMap<>();
+        receipt.put("messageId", messageId);
+        receipt.put("deviceId", deviceId);
+        receipt.put("rfidTag", rfidTag);
+        receipt.put("persistedAt", Instant.now().toString());
+        try {
+            handler.handleMessage(MessageBuilder.withPayload(objectMapper.writeValueAsBytes(receipt))
+                    .setHeader(MqttHeaders.TOPIC, topicPrefix + "/" + deviceId)
+                    .build());
+            published.increment();
+        } catch (JsonProcessingException | RuntimeException e) {
+            failed.increment();
+            logger.debug("[RECEIPT] Falha ao publicar recibo - Mensagem: {}, Erro: {}", messageId, e.getMessage());
+        }
+    }
+}
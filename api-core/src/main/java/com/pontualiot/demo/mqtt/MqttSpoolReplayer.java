@@ -0,0 +1,150 @@
+package com.pontualiot.demo.mqtt;
+
+import com.pontualiot.demo.mqtt.MqttIngestionSpool.SpooledMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Reenvia à fila de ingestão os registros estacionados no spool.
+ *
+ * A cada replay-interval:
+ * 1. Seleciona até replay-batch registros estacionados há mais de
+ *    retry-after (recuperados após reinício entram de imediato)
+ * 2. Verifica o banco (SELECT 1); fora do ar, tenta no próximo ciclo
+ * 3. Reenvia em ordem de gravação com AttendanceIngestionQueue.offer();
+ *    raia cheia devolve o registro sem contar falha e encerra o ciclo sem
+ *    bloquear
+ *
+ * Só falhas de gravação no log contam. Registros com mais de max-replays
+ * falhas vão para o spool dead-letter (mqtt_spool_dead_lettered_total)
+ * para não travar a compactação do spool.
+ *
+ * Cada registro passa pelo IngestionDeduplicator e pelo SwipeDebouncer:
+ * após uma queda, o que já estava no log (janela reconstruída na partida)
+ * é descartado.
+ */
+@Component
+@ConditionalOnProperty(name = "pontualiot.mqtt.spool.enabled", havingValue = "true")
+public class MqttSpoolReplayer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MqttSpoolReplayer.class);
+
+    @Autowired
+    private MqttIngestionSpool spool;
+
+    @Autowired
+    private AttendanceIngestionQueue ingestionQueue;
+
+    @Autowired
+    private MqttPayloadParser payloadParser;
+
+    @Autowired
+    private IngestionDeduplicator deduplicator;
+
+    @Autowired
+    private SwipeDebouncer debouncer;
+
+    @Autowired(required = false)
+    private MqttReceiptPublisher receiptPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${pontualiot.mqtt.spool.retry-after:30s}")
+    private Duration retryAfter;
+
+    @Value("${pontualiot.mqtt.spool.replay-batch:1000}")
+    private int replayBatch;
+
+    @Value("${pontualiot.mqtt.spool.max-replays:10}")
+    private int maxReplays;
+
+    @Scheduled(fixedDelayString = "${pontualiot.mqtt.spool.replay-interval:PT5S}")
+    void scheduledReplay() {
+        try {
+            replay();
+        } catch (Exception e) {
+            logger.error("[SPOOL] ❌ Falha no replay: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return Registros devolvidos à fila neste ciclo
+     */
+    int replay() {
+        List<Long> due = spool.parkedBefore(System.currentTimeMillis() - retryAfter.toMillis(), replayBatch);
+        if (due.isEmpty() || !databaseHealthy()) {
+            return 0;
+        }
+
+        MqttAttendanceMessage message = new MqttAttendanceMessage();
+        int replayed = 0;
+        for (long sequence : due) {
+            SpooledMessage spooled = spool.read(sequence);
+            try {
+                payloadParser.parse(spooled.payload(), message);
+            } catch (IllegalArgumentException e) {
+                spool.commit(sequence); // Inválido não fica válido num reenvio
+                continue;
+            }
+
+            int failures = spool.markQueued(sequence);
+            if (failures > maxReplays) {
+                if (spool.deadLetter(sequence)) {
+                    logger.error("[SPOOL] ❌ Mensagem movida para o dead-letter após {} falhas - Tópico: {}, RFID: {}",
+                            failures, spooled.topic(), message.getRfidTag());
+                }
+                continue;
+            }
+
+            IngestionDeduplicator.Claim claim = deduplicator.claim(message);
+            if (claim == null) {
+                spool.commit(sequence); // Já gravada no log ou aceita por outra entrega
+                continue;
+            }
+
+            SwipeDebouncer.Admission admission = debouncer.admit(message);
+            if (admission == null) {
+                spool.commit(sequence); // Leitura repetida: a batida aceita já está na fila ou no log
+                continue;
+            }
+
+            IngestionAck ack = debouncer.releaseOnReject(admission,
+                    deduplicator.releaseOnReject(claim, spool.ackFor(sequence)));
+            if (receiptPublisher != null) {
+                ack = receiptPublisher.onPersisted(message, ack);
+            }
+            IngestionEvent event = new IngestionEvent(message.getRfidTag(), message.getEventType(),
+                    message.getDeviceId(), message.getTimestamp(), System.nanoTime(), ack);
+            if (!ingestionQueue.offer(event)) {
+                event.reject(); // Fila cheia não é falha de gravação: retoma no próximo ciclo
+                break;
+            }
+            spool.countReplayed();
+            replayed++;
+        }
+        if (replayed > 0) {
+            logger.info("[SPOOL] {} mensagens reenviadas à fila de ingestão ({} pendentes)", replayed, spool.depth());
+        }
+        return replayed;
+    }
+
+    private boolean databaseHealthy() {
+        try {
+            jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+            return true;
+        } catch (Exception e) {
+            logger.warn("[SPOOL] Banco indisponível, replay adiado: {}", e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.pontualiot.demo.mqtt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Log append-only em disco, em segmentos de tamanho fixo mapeados em
+ * memória (MappedByteBuffer).
+ *
+ * FORMATO:
+ * - Arquivos segment-{índice}.spool de segmentSize bytes
+ * - Registro: [int tamanho][int CRC32C][bytes]; tamanho 0 = fim dos dados
+ * - Sequência de um registro = índice * segmentSize + posição no segmento
+ *
+ * PENDÊNCIAS:
+ * - Todo registro gravado fica pendente até commit()
+ * - Pendente "na fila" (em processamento) ou "estacionado" (aguardando
+ *   nova tentativa, com o instante em que estacionou)
+ * - Só fail() conta uma falha de gravação; park() devolve sem contar
+ * - checkpoint() grava a menor sequência pendente (marca d'água) e apaga
+ *   os segmentos inteiramente abaixo dela
+ *
+ * RECUPERAÇÃO: registros a partir da marca d'água com CRC válido voltam
+ * como estacionados. Registro com CRC inválido e tamanho dentro do
+ * segmento é pulado (contado em corruptCount()) e a varredura continua no
+ * seguinte; tamanho 0 ou fora do segmento encerra o segmento (escrita
+ * interrompida antes do tamanho). A escrita recomeça sempre num segmento
+ * novo, sem sobrescrever restos de um registro incompleto.
+ */
+public class SegmentSpool implements Closeable {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.spool");
+    private static final int HEADER = 8;
+    private static final long QUEUED = -1;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean force;
+
+    private final Map<Long, Segment> segments = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Pending> pending = new ConcurrentSkipListMap<>();
+    private final FileChannel checkpointChannel;
+
+    private Segment head;
+    private int headPosition;
+    private volatile long watermark;
+    private int corrupt;
+
+    /**
+     * Abre (ou cria) o spool e recupera os registros pendentes.
+     *
+     * @param directory Diretório dos segmentos
+     * @param segmentSize Tamanho de cada segmento em bytes
+     * @param force true = msync de cada registro antes de append() retornar
+     */
+    public SegmentSpool(Path directory, int segmentSize, boolean force) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.force = force;
+        Files.createDirectories(directory);
+
+        checkpointChannel = FileChannel.open(directory.resolve("checkpoint"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer stored = ByteBuffer.allocate(Long.BYTES);
+        watermark = checkpointChannel.read(stored, 0) == Long.BYTES ? stored.flip().getLong() : 0;
+
+        long lastIndex = recover();
+        head = openSegment(Math.max(lastIndex + 1, watermark / segmentSize));
+        headPosition = 0;
+    }
+
+    /**
+     * Grava um registro. Com force, retorna só depois do msync.
+     *
+     * @param record Conteúdo do registro
+     * @return Sequência do registro, já pendente "na fila"
+     */
+    public long append(byte[] record) throws IOException {
+        if (record.length + HEADER > segmentSize) {
+            throw new IllegalArgumentException("Registro de " + record.length + " bytes maior que o segmento");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(record);
+
+        MappedByteBuffer buffer;
+        int position;
+        long sequence;
+        synchronized (this) {
+            if (headPosition + HEADER + record.length > segmentSize) {
+                head = openSegment(head.index + 1);
+                headPosition = 0;
+            }
+            buffer = head.buffer;
+            position = headPosition;
+            sequence = head.index * segmentSize + position;
+            buffer.put(position + HEADER, record);
+            buffer.putInt(position + 4, (int) crc.getValue());
+            buffer.putInt(position, record.length); // Tamanho por último: registro só fica visível completo
+            headPosition = position + HEADER + record.length;
+            pending.put(sequence, new Pending(QUEUED));
+        }
+        if (force) {
+            buffer.force(position, HEADER + record.length); // Fora do lock: msyncs em paralelo
+        }
+        return sequence;
+    }
+
+    /**
+     * @param sequence Sequência de um registro ainda não removido
+     * @return Conteúdo do registro
+     */
+    public byte[] read(long sequence) {
+        Segment segment = segments.get(sequence / segmentSize);
+        if (segment == null) {
+            throw new IllegalArgumentException("Segmento do registro " + sequence + " não existe mais");
+        }
+        int position = (int) (sequence % segmentSize);
+        byte[] record = new byte[segment.buffer.getInt(position)];
+        segment.buffer.get(position + HEADER, record);
+        return record;
+    }
+
+    /**
+     * Registro processado: deixa de ser pendente.
+     */
+    public void commit(long sequence) {
+        pending.remove(sequence);
+    }
+
+    /**
+     * Registro voltou para a fila de processamento.
+     *
+     * @return Falhas de gravação do registro até agora
+     */
+    public int markQueued(long sequence) {
+        Pending state = pending.get(sequence);
+        if (state == null) {
+            return 0;
+        }
+        state.parkedAt = QUEUED;
+        return state.failures;
+    }
+
+    /**
+     * Registro não processado (ex: fila cheia): aguarda nova tentativa
+     * sem contar falha.
+     *
+     * @param now Instante atual (ms)
+     */
+    public void park(long sequence, long now) {
+        Pending state = pending.get(sequence);
+        if (state != null) {
+            state.parkedAt = now;
+        }
+    }
+
+    /**
+     * Gravação do registro falhou: conta a falha e aguarda nova tentativa.
+     *
+     * @param now Instante atual (ms)
+     */
+    public void fail(long sequence, long now) {
+        Pending state = pending.get(sequence);
+        if (state != null) {
+            state.failures++;
+            state.parkedAt = now;
+        }
+    }
+
+    /**
+     * @param cutoff Só registros estacionados antes deste instante (ms)
+     * @param limit Número máximo de sequências
+     * @return Sequências estacionadas, em ordem de gravação
+     */
+    public List<Long> parkedBefore(long cutoff, int limit) {
+        List<Long> due = new ArrayList<>();
+        for (Map.Entry<Long, Pending> entry : pending.entrySet()) {
+            long parkedAt = entry.getValue().parkedAt;
+            if (parkedAt != QUEUED && parkedAt < cutoff) {
+                due.add(entry.getKey());
+                if (due.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Grava a marca d'água e apaga os segmentos abaixo dela.
+     *
+     * @return Marca d'água: menor sequência pendente ou a próxima a ser gravada
+     */
+    public long checkpoint() throws IOException {
+        long current;
+        long headIndex;
+        synchronized (this) {
+            Map.Entry<Long, Pending> first = pending.firstEntry();
+            current = first != null ? first.getKey() : head.index * segmentSize + headPosition;
+            headIndex = head.index;
+        }
+        if (current != watermark) {
+            checkpointChannel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, current), 0);
+            checkpointChannel.force(false);
+            watermark = current;
+        }
+        for (Segment segment : List.copyOf(segments.values())) {
+            if (segment.index < headIndex && (segment.index + 1) * segmentSize <= current) {
+                segments.remove(segment.index);
+                segment.channel.close();
+                Files.deleteIfExists(segment.path);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return Registros pendentes (na fila ou estacionados)
+     */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return Registros estacionados aguardando nova tentativa
+     */
+    public int parkedCount() {
+        int parked = 0;
+        for (Pending state : pending.values()) {
+            if (state.parkedAt != QUEUED) {
+                parked++;
+            }
+        }
+        return parked;
+    }
+
+    /**
+     * @return Segmentos em disco
+     */
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * @return Registros com CRC inválido pulados na recuperação
+     */
+    public int corruptCount() {
+        return corrupt;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments.values()) {
+            segment.channel.close();
+        }
+        segments.clear();
+        checkpointChannel.close();
+    }
+
+    /**
+     * Mapeia os segmentos existentes e devolve os registros a partir da
+     * marca d'água como estacionados.
+     *
+     * @return Maior índice de segmento encontrado (-1 se nenhum)
+     */
+    private long recover() throws IOException {
+        List<Long> indexes = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    indexes.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        indexes.sort(null);
+
+        long lastIndex = -1;
+        for (long index : indexes) {
+            lastIndex = index;
+            if ((index + 1) * segmentSize <= watermark) {
+                Files.deleteIfExists(segmentPath(index));
+                continue;
+            }
+            Segment segment = openSegment(index);
+            int position = 0;
+            while (position + HEADER <= segmentSize) {
+                int length = segment.buffer.getInt(position);
+                if (length <= 0 || position + HEADER + length > segmentSize) {
+                    break;
+                }
+                byte[] record = new byte[length];
+                segment.buffer.get(position + HEADER, record);
+                CRC32C crc = new CRC32C();
+                crc.update(record);
+                long sequence = index * segmentSize + position;
+                if ((int) crc.getValue() != segment.buffer.getInt(position + 4)) {
+                    if (sequence >= watermark) {
+                        corrupt++; // Conteúdo danificado: o tamanho ainda indica o próximo registro
+                    }
+                } else if (sequence >= watermark) {
+                    pending.put(sequence, new Pending(0));
+                }
+                position += HEADER + length;
+            }
+        }
+        return lastIndex;
+    }
+
+    private Segment openSegment(long index) throws IOException {
+        Path path = segmentPath(index);
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(index, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        segments.put(index, segment);
+        return segment;
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve("segment-%020d.spool".formatted(index));
+    }
+
+    private record Segment(long index, Path path, FileChannel channel, MappedByteBuffer buffer) {
+    }
+
+    /**
+     * Estado de um registro pendente.
+     */
+    private static final class Pending {
+        private volatile long parkedAt;
+        private volatile int failures;
+
+        private Pending(long parkedAt) {
+            this.parkedAt = parkedAt;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.pontualiot.demo.mqtt;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Filtra leituras RFID repetidas antes da fila de ingestão, só em memória.
+ *
+ * REGRAS (comparadas com a última batida aceita da mesma tag, pelo
+ * timestamp do dispositivo):
+ * - Debounce: mesmo tipo de evento dentro da janela do dispositivo =
+ *   mesma batida (funcionário parado no leitor); a primeira vale
+ * - Anti-passback: tipo oposto antes de anti-passback.min-interval =
+ *   rejeitada (ex: saída 10s depois da entrada)
+ *
+ * JANELA POR DISPOSITIVO OU SITE: overrides "prefixo=janela", escolhido o
+ * prefixo mais longo do deviceId (ex: SITE_A_=10s vale para todos os
+ * leitores SITE_A_*, DEVICE_007=2s só para um).
+ *
+ * CONCORRÊNCIA: estado imutável por tag num AtomicReference, trocado por
+ * CAS; leituras simultâneas da mesma tag nunca bloqueiam. Batida aceita
+ * que não chega ao log é desfeita (releaseOnReject) para que a reentrega
+ * não seja filtrada.
+ *
+ * MÉTRICAS:
+ * - mqtt_swipe_filtered_total{reason=debounce|anti_passback}
+ * - mqtt_debounce_tags: tags com estado em memória
+ */
+@Component
+public class SwipeDebouncer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SwipeDebouncer.class);
+
+    private static final TagState EXPIRED = new TagState(null, Long.MIN_VALUE);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${pontualiot.mqtt.debounce.enabled:true}")
+    private boolean enabled;
+
+    @Value("${pontualiot.mqtt.debounce.window:5s}")
+    private Duration window;
+
+    @Value("${pontualiot.mqtt.debounce.overrides:}")
+    private String[] overrides;
+
+    @Value("${pontualiot.mqtt.debounce.anti-passback.min-interval:1m}")
+    private Duration minInterval;
+
+    private Clock clock = Clock.systemDefaultZone();
+
+    private final Map<String, AtomicReference<TagState>> tags = new ConcurrentHashMap<>();
+    private final Map<String, Long> windowByDevice = new ConcurrentHashMap<>();
+    private final TreeMap<String, Long> windowByPrefix = new TreeMap<>();
+    private long longestWindowMillis;
+    private Counter debounced;
+    private Counter antiPassback;
+
+    @PostConstruct
+    void init() {
+        for (String override : overrides) {
+            int separator = override.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalStateException("pontualiot.mqtt.debounce.overrides inválido: " + override);
+            }
+            windowByPrefix.put(override.substring(0, separator).trim(),
+                    DurationStyle.detectAndParse(override.substring(separator + 1).trim()).toMillis());
+        }
+        longestWindowMillis = Math.max(minInterval.toMillis(), windowByPrefix.values().stream()
+                .reduce(window.toMillis(), Math::max));
+
+        debounced = Counter.builder("mqtt_swipe_filtered_total")
+                .description("Repeated RFID reads dropped before ingestion")
+                .tag("reason", "debounce")
+                .register(meterRegistry);
+        antiPassback = Counter.builder("mqtt_swipe_filtered_total")
+                .description("Repeated RFID reads dropped before ingestion")
+                .tag("reason", "anti_passback")
+                .register(meterRegistry);
+        Gauge.builder("mqtt_debounce_tags", tags, Map::size)
+                .description("RFID tags with debounce state in memory")
+                .register(meterRegistry);
+
+        logger.info("[DEBOUNCE] Janela: {}, overrides: {}, anti-passback: {}",
+                window, windowByPrefix, minInterval.isZero() ? "desligado" : minInterval);
+    }
+
+    /**
+     * Aceita a batida se ela não repete nem contradiz a última aceita da tag.
+     *
+     * @param message Mensagem já validada
+     * @return Admissão (para desfazer se a gravação falhar), ou null se filtrada
+     */
+    public Admission admit(MqttAttendanceMessage message) {
+        if (!enabled) {
+            return Admission.UNTRACKED;
+        }
+        long at = message.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
+        TagState next = new TagState(message.getEventType(), at);
+        long debounceMillis = windowFor(message.getDeviceId());
+
+        while (true) {
+            AtomicReference<TagState> holder = tags.computeIfAbsent(message.getRfidTag(), tag -> new AtomicReference<>());
+            TagState last = holder.get();
+            if (last == EXPIRED) {
+                tags.remove(message.getRfidTag(), holder); // Removido pela limpeza: recomeça com estado novo
+                continue;
+            }
+            if (last != null) {
+                long elapsed = Math.abs(at - last.at());
+                if (last.eventType() == next.eventType() && elapsed < debounceMillis) {
+                    debounced.increment();
+                    return null;
+                }
+                if (last.eventType() != next.eventType() && elapsed < minInterval.toMillis()) {
+                    antiPassback.increment();
+                    logger.debug("[DEBOUNCE] Anti-passback - RFID: {}, {} {}ms após {}",
+                            message.getRfidTag(), next.eventType(), elapsed, last.eventType());
+                    return null;
+                }
+            }
+            if (holder.compareAndSet(last, next)) {
+                return new Admission(holder, last, next);
+            }
+        }
+    }
+
+    /**
+     * @param admission Admissão da batida
+     * @param ack Confirmação original (pode ser null)
+     * @return Confirmação que também desfaz a admissão no reject
+     */
+    public IngestionAck releaseOnReject(Admission admission, IngestionAck ack) {
+        return new IngestionAck() {
+            @Override
+            public void acknowledge() {
+                if (ack != null) {
+                    ack.acknowledge();
+                }
+            }
+
+            @Override
+            public void reject() {
+                admission.undo();
+                if (ack != null) {
+                    ack.reject();
+                }
+            }
+
+            @Override
+            public void fail() {
+                admission.undo();
+                if (ack != null) {
+                    ack.fail();
+                }
+            }
+
+            @Override
+            public boolean retainedOnReject() {
+                return ack != null && ack.retainedOnReject();
+            }
+        };
+    }
+
+    /**
+     * @return Tags com estado em memória
+     */
+    public int size() {
+        return tags.size();
+    }
+
+    /**
+     * Remove o estado de tags sem batida aceita há mais que a maior
+     * janela configurada (pelo relógio do servidor).
+     *
+     * @return Número de tags removidas
+     */
+    @Scheduled(fixedDelayString = "${pontualiot.mqtt.debounce.cleanup-interval:PT1M}")
+    int expireIdle() {
+        long cutoff = LocalDateTime.now(clock).toInstant(ZoneOffset.UTC).toEpochMilli() - longestWindowMillis;
+        int expired = 0;
+        for (Map.Entry<String, AtomicReference<TagState>> entry : tags.entrySet()) {
+            AtomicReference<TagState> holder = entry.getValue();
+            TagState last = holder.get();
+            // CAS para EXPIRED: uma batida concorrente na mesma tag não é perdida
+            if (last != null && last != EXPIRED && last.at() < cutoff && holder.compareAndSet(last, EXPIRED)) {
+                tags.remove(entry.getKey(), holder);
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * @return Janela de debounce do dispositivo (override de prefixo mais longo)
+     */
+    long windowFor(String deviceId) {
+        return windowByDevice.computeIfAbsent(deviceId, id -> {
+            for (Map.Entry<String, Long> entry : windowByPrefix.descendingMap().entrySet()) {
+                if (id.startsWith(entry.getKey())) {
+                    return entry.getValue(); // Ordem decrescente: prefixo mais longo antes dos seus prefixos
+                }
+            }
+            return window.toMillis();
+        });
+    }
+
+    /**
+     * Última batida aceita de uma tag (timestamp do dispositivo em ms).
+     */
+    private record TagState(AttendanceEventType eventType, long at) {
+    }
+
+    /**
+     * Batida aceita; undo() restaura o estado anterior se ninguém o
+     * alterou depois.
+     */
+    public static final class Admission {
+
+        private static final Admission UNTRACKED = new Admission(null, null, null);
+
+        private final AtomicReference<TagState> holder;
+        private final TagState previous;
+        private final TagState accepted;
+
+        private Admission(AtomicReference<TagState> holder, TagState previous, TagState accepted) {
+            this.holder = holder;
+            this.previous = previous;
+            this.accepted = accepted;
+        }
+
+        private void undo() {
+            if (holder != null) {
+                holder.compareAndSet(accepted, previous);
+            }
+        }
+    }
+}
@@ -5,11 +5,19 @@ package com.pontualiot.demo.repository;
 // ========================================
 import com.pontualiot.demo.entity.Attendance; // Entidade Attendance mapeada
 import com.pontualiot.demo.entity.Employee;   // Entidade Employee para relacionamento
+import com.pontualiot.demo.service.AttendanceTimes; // Projeção de horários (agregado diário)
+import com.pontualiot.demo.service.AttendanceView;  // Projeção para listagens e relatórios
+import com.pontualiot.demo.service.OpenShift; // Projeção de jornada em aberto
+import org.springframework.data.domain.Limit;                  // Tamanho da página (keyset)
+import org.springframework.data.jpa.repository.EntityGraph;   // Carrega Employee junto (associação LAZY)
 import org.springframework.data.jpa.repository.JpaRepository; // Interface base com CRUD
+import org.springframework.data.jpa.repository.Query;         // Consulta JPQL explícita
 import org.springframework.stereotype.Repository; // Anotação de componente
 
 import java.time.LocalDate; // Data sem horário (2024-10-30)
+import java.util.Collection; // Conjunto de IDs para IN (...)
 import java.util.List;      // Lista de resultados
+import java.util.Optional;  // Resultado opcional
 
 /**
  * ========================================
@@ -24,9 +32,14 @@ import java.util.List;      // Lista de resultados
  * 
  * CONSULTAS SQL GERADAS AUTOMATICAMENTE:
  * - findByEmployeeAndDate -> WHERE employee_id = ? AND date = ?
- * - findByEmployeeId -> WHERE employee_id = ?
- * - findByDate -> WHERE date = ?
- * - findByEmployeeIdAndDateBetween -> WHERE employee_id = ? AND date BETWEEN ? AND ?
+ * 
+ * PROJEÇÕES PARA LISTAGENS E RELATÓRIOS (AttendanceView):
+ * - findViewById, findViewsByEmployeeId, findViewsByDate,
+ *   findViewsByEmployeeIdAndDateBetween
+ * - findPage / findPageAfter -> paginação keyset em (date, id), sem OFFSET
+ * - findDayPage -> registros de um dia, keyset em id
+ * Todas com um único JOIN em employees (somente ID e nome), sem
+ * entidades no contexto de persistência.
  * 
  * FLUXO TÍPICO DE REGISTRO DE PONTO:
  * 1. MQTT recebe: {"rfidTag": "RFID001", "action": "check-in"}
@@ -40,16 +53,23 @@ import java.util.List;      // Lista de resultados
  * FLUXO DE CONSULTA WEB:
  * 1. GET /api/attendances/employee/1
  * 2. AttendanceController.getAttendancesByEmployee(1)
- * 3. attendanceRepository.findByEmployeeId(1)
- * 4. Retorna List<Attendance> com Employee carregado (EAGER)
+ * 3. attendanceRepository.findViewsByEmployeeId(1)
+ * 4. Retorna List<AttendanceView> (registro + ID e nome do funcionário)
  * 
  * OTIMIZAÇÕES IMPLEMENTADAS:
  * - Índice em (employee_id, date) para consultas rápidas
- * - FETCH EAGER em Employee evita N+1 queries
+ * - Projeções com JOIN único evitam N+1 queries e hidratação de Employee
  * - LocalDate separado otimiza consultas por período
  */
 @Repository // Spring: marca como componente de acesso a dados
 public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
+
+    /**
+     * Expressão de construtor das projeções AttendanceView
+     * (alias "a" para Attendance e "e" para o JOIN em Employee).
+     */
+    String VIEW = "new com.pontualiot.demo.service.AttendanceView("
+            + "a.id, e.id, e.name, a.checkIn, a.checkOut, a.date, a.createdAt)";
     
     /**
      * BUSCA REGISTROS DE UM FUNCIONÁRIO EM DATA ESPECÍFICA
@@ -73,7 +93,34 @@ public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
      * @param date Data específica (ex: 2024-10-30)
      * @return List<Attendance> - geralmente 0 ou 1 registro por dia
      */
+    @EntityGraph(attributePaths = "employee") // Registro é devolvido pelos endpoints de escrita
     List<Attendance> findByEmployeeAndDate(Employee employee, LocalDate date);
+
+    /**
+     * BUSCA REGISTRO POR ID (ENTIDADE)
+     * 
+     * Sobrescreve o findById do JpaRepository para carregar Employee no
+     * mesmo SELECT: usado pelos caminhos de escrita (check-out).
+     * 
+     * @param id ID do registro
+     * @return Optional<Attendance> com Employee inicializado
+     */
+    @Override
+    @EntityGraph(attributePaths = "employee")
+    Optional<Attendance> findById(Long id);
+
+    /**
+     * BUSCA REGISTRO POR ID (PROJEÇÃO)
+     * 
+     * SQL GERADO:
+     * SELECT a.id, e.id, e.name, a.check_in, a.check_out, a.date, a.created_at
+     * FROM attendances a JOIN employees e ON a.employee_id = e.id WHERE a.id = ?
+     * 
+     * @param id ID do registro
+     * @return Optional<AttendanceView> registro com ID e nome do funcionário
+     */
+    @Query("SELECT " + VIEW + " FROM Attendance a JOIN a.employee e WHERE a.id = :id")
+    Optional<AttendanceView> findViewById(Long id);
     
     /**
      * BUSCA REGISTROS POR PERÍODO
@@ -84,10 +131,10 @@ public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
      * - Análise de padrões de ponto
      * 
      * SQL GERADO:
-     * SELECT a.*, e.* FROM attendances a 
-     * JOIN employees e ON a.employee_id = e.id 
+     * SELECT a.id, e.id, e.name, a.check_in, a.check_out, a.date, a.created_at
+     * FROM attendances a JOIN employees e ON a.employee_id = e.id 
      * WHERE a.employee_id = ? AND a.date BETWEEN ? AND ?
-     * ORDER BY a.date DESC
+     * ORDER BY a.date, a.id
      * 
      * PERFORMANCE:
      * - Índice em (employee_id, date) otimiza esta consulta
@@ -96,9 +143,11 @@ public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
      * @param employeeId ID do funcionário
      * @param startDate Data inicial (inclusiva)
      * @param endDate Data final (inclusiva)
-     * @return List<Attendance> ordenada por data
+     * @return List<AttendanceView> ordenada por data
      */
-    List<Attendance> findByEmployeeIdAndDateBetween(Long employeeId, LocalDate startDate, LocalDate endDate);
+    @Query("SELECT " + VIEW + " FROM Attendance a JOIN a.employee e "
+            + "WHERE e.id = :employeeId AND a.date BETWEEN :startDate AND :endDate ORDER BY a.date, a.id")
+    List<AttendanceView> findViewsByEmployeeIdAndDateBetween(Long employeeId, LocalDate startDate, LocalDate endDate);
     
     /**
      * BUSCA TODOS OS REGISTROS DE UM FUNCIONÁRIO
@@ -109,19 +158,20 @@ public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
      * - Análise de comportamento
      * 
      * SQL GERADO:
-     * SELECT a.*, e.* FROM attendances a 
-     * JOIN employees e ON a.employee_id = e.id 
+     * SELECT a.id, e.id, e.name, a.check_in, a.check_out, a.date, a.created_at
+     * FROM attendances a JOIN employees e ON a.employee_id = e.id 
      * WHERE a.employee_id = ?
-     * ORDER BY a.date DESC, a.check_in DESC
+     * ORDER BY a.date, a.id
      * 
      * ATENÇÃO:
      * - Pode retornar muitos registros
      * - Considerar paginação para funcionários antigos
      * 
      * @param employeeId ID do funcionário
-     * @return List<Attendance> todos os registros do funcionário
+     * @return List<AttendanceView> todos os registros do funcionário
      */
-    List<Attendance> findByEmployeeId(Long employeeId);
+    @Query("SELECT " + VIEW + " FROM Attendance a JOIN a.employee e WHERE e.id = :employeeId ORDER BY a.date, a.id")
+    List<AttendanceView> findViewsByEmployeeId(Long employeeId);
     
     /**
      * BUSCA REGISTROS POR DATA (TODOS OS FUNCIONÁRIOS)
@@ -132,10 +182,10 @@ public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
      * - Monitoramento em tempo real
      * 
      * SQL GERADO:
-     * SELECT a.*, e.* FROM attendances a 
-     * JOIN employees e ON a.employee_id = e.id 
+     * SELECT a.id, e.id, e.name, a.check_in, a.check_out, a.date, a.created_at
+     * FROM attendances a JOIN employees e ON a.employee_id = e.id 
      * WHERE a.date = ?
-     * ORDER BY e.name
+     * ORDER BY e.name, a.id
      * 
      * CASOS DE USO:
      * - "Quem está presente hoje?"
@@ -143,7 +193,115 @@ public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
      * - Dashboards administrativos
      * 
      * @param date Data específica (ex: 2024-10-30)
-     * @return List<Attendance> todos os registros da data
+     * @return List<AttendanceView> todos os registros da data
+     */
+    @Query("SELECT " + VIEW + " FROM Attendance a JOIN a.employee e WHERE a.date = :date ORDER BY e.name, a.id")
+    List<AttendanceView> findViewsByDate(LocalDate date);
+
+    /**
+     * BUSCA TODAS AS JORNADAS EM ABERTO
+     * 
+     * Usado pelo OpenShiftIndex para aquecer o índice na inicialização
+     * e na reconciliação periódica. Uma única consulta para todos os
+     * funcionários, sem carregar Employee.
+     * 
+     * SQL GERADO:
+     * SELECT a.employee_id, a.id, a.check_in, a.date FROM attendances a
+     * WHERE a.check_out IS NULL ORDER BY a.id
+     * 
+     * ORDENAÇÃO:
+     * - Por ID crescente: se houver mais de um registro aberto para o
+     *   mesmo funcionário, o último da lista (mais recente) prevalece
+     * 
+     * @return List<OpenShift> jornadas sem check-out
+     */
+    @Query("SELECT new com.pontualiot.demo.service.OpenShift(a.employee.id, a.id, a.checkIn, a.date) "
+            + "FROM Attendance a WHERE a.checkOut IS NULL ORDER BY a.id")
+    List<OpenShift> findOpenShifts();
+
+    /**
+     * BUSCA AS JORNADAS EM ABERTO DE ALGUNS FUNCIONÁRIOS
+     * 
+     * Usado pelo OpenShiftIndex para atualizar só os funcionários com
+     * escritas feitas por outras instâncias (AttendanceChangeFeed).
+     * Mesma ordenação de findOpenShifts().
+     * 
+     * @param employeeIds IDs dos funcionários
+     * @return List<OpenShift> jornadas sem check-out desses funcionários
+     */
+    @Query("SELECT new com.pontualiot.demo.service.OpenShift(a.employee.id, a.id, a.checkIn, a.date) "
+            + "FROM Attendance a WHERE a.checkOut IS NULL AND a.employee.id IN :employeeIds ORDER BY a.id")
+    List<OpenShift> findOpenShiftsByEmployeeIds(Collection<Long> employeeIds);
+
+    /**
+     * PRIMEIRA PÁGINA DO HISTÓRICO (KEYSET)
+     * 
+     * SQL GERADO:
+     * SELECT a.id, e.id, e.name, a.check_in, a.check_out, a.date, a.created_at
+     * FROM attendances a JOIN employees e ON a.employee_id = e.id
+     * ORDER BY a.date, a.id LIMIT ?
+     * 
+     * @param limit Tamanho da página
+     * @return List<AttendanceView> registros mais antigos
+     */
+    @Query("SELECT " + VIEW + " FROM Attendance a JOIN a.employee e ORDER BY a.date, a.id")
+    List<AttendanceView> findPage(Limit limit);
+
+    /**
+     * PRÓXIMA PÁGINA DO HISTÓRICO (KEYSET)
+     * 
+     * Continua a partir do último registro devolvido, sem OFFSET:
+     * o custo é o mesmo na primeira e na milésima página.
+     * 
+     * SQL GERADO:
+     * SELECT a.id, e.id, e.name, a.check_in, a.check_out, a.date, a.created_at
+     * FROM attendances a JOIN employees e ON a.employee_id = e.id
+     * WHERE a.date >= ? AND (a.date > ? OR a.id > ?)
+     * ORDER BY a.date, a.id LIMIT ?
+     * 
+     * PERFORMANCE:
+     * - Índice em (date, id) atende filtro e ordenação
+     * - "a.date >= ?" é redundante, mas faz o índice começar no cursor
+     *   em vez de filtrar desde a primeira linha
+     * 
+     * @param date Data do último registro da página anterior
+     * @param id ID do último registro da página anterior
+     * @param limit Tamanho da página
+     * @return List<AttendanceView> registros seguintes
+     */
+    @Query("SELECT " + VIEW + " FROM Attendance a JOIN a.employee e "
+            + "WHERE a.date >= :date AND (a.date > :date OR a.id > :id) ORDER BY a.date, a.id")
+    List<AttendanceView> findPageAfter(LocalDate date, Long id, Limit limit);
+
+    /**
+     * HORÁRIOS DOS REGISTROS DE UM DIA
+     * 
+     * Usado pelo DailyAttendanceAggregates para carregar um dia uma única
+     * vez; as contagens seguintes são mantidas a cada escrita.
+     * 
+     * SQL GERADO:
+     * SELECT a.id, a.check_in, a.check_out FROM attendances a WHERE a.date = ?
+     * 
+     * @param date Data específica (ex: 2024-10-30)
+     * @return List<AttendanceTimes> horários dos registros, sem Employee
+     */
+    @Query("SELECT new com.pontualiot.demo.service.AttendanceTimes(a.id, a.checkIn, a.checkOut) "
+            + "FROM Attendance a WHERE a.date = :date")
+    List<AttendanceTimes> findTimesByDate(LocalDate date);
+
+    /**
+     * PÁGINA DOS REGISTROS DE UM DIA (KEYSET)
+     * 
+     * SQL GERADO:
+     * SELECT a.id, e.id, e.name, a.check_in, a.check_out, a.date, a.created_at
+     * FROM attendances a JOIN employees e ON a.employee_id = e.id
+     * WHERE a.date = ? AND a.id > ? ORDER BY a.id LIMIT ?
+     * 
+     * @param date Data específica (ex: 2024-10-30)
+     * @param afterId ID do último registro da página anterior (0 na primeira)
+     * @param limit Tamanho da página
+     * @return List<AttendanceView> registros seguintes
      */
-    List<Attendance> findByDate(LocalDate date);
-}
\ No newline at end of file
+    @Query("SELECT " + VIEW + " FROM Attendance a JOIN a.employee e WHERE a.date = :date AND a.id > :afterId ORDER BY a.id")
+    List<AttendanceView> findDayPage(LocalDate date, Long afterId, Limit limit);
+}
@@ -7,6 +7,8 @@ import com.pontualiot.demo.entity.Employee; // Entidade Employee mapeada
 import org.springframework.data.jpa.repository.JpaRepository; // Interface base com CRUD
 import org.springframework.stereotype.Repository; // Anotação de componente
 
+import java.util.Collection; // Conjunto de tags para consultas em lote
+import java.util.List;       // Lista de resultados
 import java.util.Optional; // Container para valores que podem ser null
 
 /**
@@ -74,7 +76,21 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
      * @return Optional<Employee> - presente se encontrado, vazio se não
      */
     Optional<Employee> findByRfidTag(String rfidTag);
-    
+
+    /**
+     * BUSCA FUNCIONÁRIOS POR UM CONJUNTO DE TAGS RFID
+     *
+     * Usado pela ingestão em lote: resolve todos os funcionários
+     * de um micro-lote MQTT com uma única consulta.
+     *
+     * SQL GERADO:
+     * SELECT * FROM employees WHERE rfid_tag IN (?, ?, ...)
+     *
+     * @param rfidTags Tags RFID do lote
+     * @return List<Employee> funcionários encontrados (tags desconhecidas são omitidas)
+     */
+    List<Employee> findByRfidTagIn(Collection<String> rfidTags);
+
     /**
      * BUSCA FUNCIONÁRIO POR EMAIL
      * 
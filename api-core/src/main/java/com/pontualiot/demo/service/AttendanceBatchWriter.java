@@ -0,0 +1,372 @@
+package com.pontualiot.demo.service;
+
+import com.pontualiot.demo.mqtt.AttendanceEventType;
+import com.pontualiot.demo.mqtt.IngestionEvent;
+import com.pontualiot.demo.mqtt.IngestionStageMetrics;
+import com.pontualiot.demo.mqtt.IngestionStageMetrics.Stage;
+import com.pontualiot.demo.service.EmployeeLookupCache.CachedEmployee;
+import io.micrometer.core.instrument.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Persiste um micro-lote de eventos MQTT em uma única transação.
+ *
+ * Registro do dia é criado no check-in e atualizado no check-out;
+ * funcionários e registros do dia são resolvidos com uma consulta por lote
+ * e gravados com JDBC batch.
+ *
+ * Horário e dia de cada registro vêm da própria batida (occurredAt),
+ * já que a projeção do log pode aplicar o evento depois de recebido.
+ * Importações em lote e replays do spool chegam ao log depois de batidas
+ * mais novas, então a ordem de aplicação não é a ordem dos fatos: o
+ * registro guarda a entrada mais cedo e a saída mais tarde do dia, e uma
+ * batida antiga nunca sobrescreve uma mais recente.
+ *
+ * Check-out sem registro do dia (entrada ainda presa num leitor offline)
+ * não cria registro, mas continua no log attendance_events: quando a
+ * entrada chega e cria o registro, a saída mais tarde do dia já gravada no
+ * log é aplicada junto.
+ *
+ * Cada batida registra as etapas employee_lookup, open_shift_lookup e save
+ * com o resultado dela (aceita/rejeitada); commit e o atraso fim a fim são
+ * registrados quando a transação que envolve o lote termina.
+ */
+@Service
+public class AttendanceBatchWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttendanceBatchWriter.class);
+
+    private static final String SELECT_DAY_ROWS =
+            "SELECT id, employee_id, check_in, check_out FROM attendances "
+            + "WHERE date = :date AND employee_id IN (:employeeIds) ORDER BY id";
+
+    private static final String INSERT_ROW =
+            "INSERT INTO attendances (employee_id, check_in, check_out, date, created_at) "
+            + "VALUES (:employeeId, :checkIn, :checkOut, :date, :createdAt)";
+
+    private static final String SELECT_LOGGED_CHECK_OUTS =
+            "SELECT employee_id, MAX(event_time) AS check_out FROM attendance_events "
+            + "WHERE employee_id IN (:employeeIds) AND event_type = 'CHECK_OUT' "
+            + "AND event_time >= :dayStart AND event_time < :dayEnd GROUP BY employee_id";
+
+    private static final String UPDATE_ROW =
+            "UPDATE attendances SET check_in = ?, check_out = ? WHERE id = ?";
+
+    private static final int[] UPDATE_TYPES = {Types.TIMESTAMP, Types.TIMESTAMP, Types.BIGINT};
+
+    @Autowired
+    private EmployeeLookupCache employeeLookupCache;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private Counter attendanceRecordsCounter;
+
+    @Autowired
+    private DeviceRegistry deviceRegistry;
+
+    @Autowired
+    private OpenShiftIndex openShiftIndex;
+
+    @Autowired
+    private DailyAttendanceAggregates dailyAggregates;
+
+    @Autowired
+    private AttendanceQueryCache queryCache;
+
+    @Autowired
+    private IngestionStageMetrics stageMetrics;
+
+    @Transactional
+    public BatchResult writeBatch(List<IngestionEvent> events) {
+        // Cada batida vale para o dia em que ocorreu; dias em ordem cronológica
+        Map<LocalDate, List<IngestionEvent>> byDate = new TreeMap<>();
+        for (IngestionEvent event : events) {
+            byDate.computeIfAbsent(event.occurredAt().toLocalDate(), date -> new ArrayList<>()).add(event);
+        }
+
+        int accepted = 0;
+        int rejected = 0;
+        List<IngestionEvent> ordered = new ArrayList<>(events.size());
+        List<String> outcomes = new ArrayList<>(events.size());
+        for (Map.Entry<LocalDate, List<IngestionEvent>> day : byDate.entrySet()) {
+            BatchResult result = writeDay(day.getKey(), day.getValue(), outcomes);
+            ordered.addAll(day.getValue());
+            accepted += result.accepted();
+            rejected += result.rejected();
+        }
+        attendanceRecordsCounter.increment(accepted);
+        observeCommit(ordered, outcomes);
+        return new BatchResult(accepted, rejected);
+    }
+
+    /**
+     * @param outcomes Recebe o resultado de cada evento, na ordem de events
+     */
+    private BatchResult writeDay(LocalDate date, List<IngestionEvent> events, List<String> outcomes) {
+        long started = System.nanoTime();
+        Set<String> rfidTags = events.stream()
+                .map(IngestionEvent::rfidTag)
+                .collect(Collectors.toSet());
+        Map<String, CachedEmployee> employees = employeeLookupCache.findAll(rfidTags);
+        long lookedUp = System.nanoTime();
+
+        Map<Long, RowState> rows = loadDayRows(employees.values(), date);
+        List<RowState> created = new ArrayList<>();
+        long loaded = System.nanoTime();
+
+        int accepted = 0;
+        int rejected = 0;
+        String[] eventOutcomes = new String[events.size()];
+        Arrays.fill(eventOutcomes, IngestionStageMetrics.REJECTED);
+        for (int i = 0; i < events.size(); i++) {
+            IngestionEvent event = events.get(i);
+            CachedEmployee employee = employees.get(event.rfidTag());
+            if (employee == null) {
+                logger.warn("[INGESTAO] Funcionário não encontrado para RFID: {}", event.rfidTag());
+                deviceRegistry.recordError(event.deviceId(), "Funcionário não encontrado para RFID: " + event.rfidTag());
+                rejected++;
+                continue;
+            }
+            if (!employee.active()) {
+                logger.warn("[INGESTAO] Funcionário inativo: {} (RFID: {})", employee.name(), event.rfidTag());
+                deviceRegistry.recordError(event.deviceId(), "Funcionário inativo: " + employee.name());
+                rejected++;
+                continue;
+            }
+
+            RowState row = rows.get(employee.id());
+            if (event.eventType() == AttendanceEventType.CHECK_IN) {
+                if (row == null) {
+                    row = new RowState(null, employee.id());
+                    rows.put(employee.id(), row);
+                    created.add(row);
+                }
+                if (row.checkIn == null || event.occurredAt().isBefore(row.checkIn)) {
+                    row.checkIn = event.occurredAt();
+                    row.dirty = true;
+                }
+            } else if (event.eventType() == AttendanceEventType.CHECK_OUT) {
+                if (row == null) {
+                    // Fica no log: aplicado quando a entrada do dia chegar
+                    logger.warn("[INGESTAO] Check-out sem entrada em {} para RFID: {}", date, event.rfidTag());
+                    deviceRegistry.recordError(event.deviceId(), "Check-out sem entrada em " + date + " para RFID: " + event.rfidTag());
+                    rejected++;
+                    continue;
+                }
+                if (row.checkOut == null || event.occurredAt().isAfter(row.checkOut)) {
+                    row.checkOut = event.occurredAt();
+                    row.dirty = true;
+                }
+            } else {
+                logger.warn("[INGESTAO] Tipo de evento inválido: {}", event.eventType());
+                rejected++;
+                continue;
+            }
+
+            accepted++; // Batida fora de ordem que não muda o registro também é aceita
+            eventOutcomes[i] = IngestionStageMetrics.ACCEPTED;
+        }
+
+        if (!created.isEmpty()) {
+            applyLoggedCheckOuts(created, date);
+        }
+
+        boolean saved = false;
+        try {
+            flushRows(rows.values(), created, date);
+            saved = true;
+        } finally {
+            long flushed = System.nanoTime();
+            for (int i = 0; i < events.size(); i++) {
+                String deviceId = events.get(i).deviceId();
+                String outcome = saved ? eventOutcomes[i] : IngestionStageMetrics.ERROR;
+                stageMetrics.record(Stage.EMPLOYEE_LOOKUP, deviceId, outcome, lookedUp - started);
+                stageMetrics.record(Stage.OPEN_SHIFT_LOOKUP, deviceId, outcome, loaded - lookedUp);
+                stageMetrics.record(Stage.SAVE, deviceId, outcome, flushed - loaded);
+            }
+        }
+        outcomes.addAll(Arrays.asList(eventOutcomes));
+
+        logger.debug("[INGESTAO] Lote gravado ({}) - aceitos: {}, rejeitados: {}, novos: {}",
+                date, accepted, rejected, created.size());
+        return new BatchResult(accepted, rejected);
+    }
+
+    private Map<Long, RowState> loadDayRows(Iterable<CachedEmployee> employees, LocalDate date) {
+        List<Long> employeeIds = new ArrayList<>();
+        employees.forEach(e -> employeeIds.add(e.id()));
+
+        Map<Long, RowState> rows = new HashMap<>();
+        if (employeeIds.isEmpty()) {
+            return rows;
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("date", date)
+                .addValue("employeeIds", employeeIds);
+        jdbcTemplate.query(SELECT_DAY_ROWS, params, rs -> {
+            long employeeId = rs.getLong("employee_id");
+            // Primeiro registro do dia, como em findByEmployeeAndDate
+            if (!rows.containsKey(employeeId)) {
+                RowState row = new RowState(rs.getLong("id"), employeeId);
+                row.checkIn = rs.getObject("check_in", LocalDateTime.class);
+                row.checkOut = rs.getObject("check_out", LocalDateTime.class);
+                rows.put(employeeId, row);
+            }
+        });
+        return rows;
+    }
+
+    /**
+     * Aplica aos registros recém-criados a saída mais tarde do dia que já
+     * está no log (check-out gravado antes da entrada atrasada).
+     */
+    private void applyLoggedCheckOuts(List<RowState> created, LocalDate date) {
+        Map<Long, RowState> byEmployee = new HashMap<>();
+        created.forEach(row -> byEmployee.put(row.employeeId, row));
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("employeeIds", byEmployee.keySet())
+                .addValue("dayStart", date.atStartOfDay())
+                .addValue("dayEnd", date.plusDays(1).atStartOfDay());
+        jdbcTemplate.query(SELECT_LOGGED_CHECK_OUTS, params, rs -> {
+            RowState row = byEmployee.get(rs.getLong("employee_id"));
+            LocalDateTime checkOut = rs.getObject("check_out", LocalDateTime.class);
+            if (checkOut.isAfter(row.checkIn) && (row.checkOut == null || checkOut.isAfter(row.checkOut))) {
+                row.checkOut = checkOut;
+            }
+        });
+    }
+
+    private void flushRows(Iterable<RowState> rows, List<RowState> created, LocalDate date) {
+        LocalDateTime now = LocalDateTime.now();
+
+        SqlParameterSource[] inserts = new SqlParameterSource[created.size()];
+        for (int i = 0; i < inserts.length; i++) {
+            RowState row = created.get(i);
+            inserts[i] = new MapSqlParameterSource()
+                    .addValue("employeeId", row.employeeId, Types.BIGINT)
+                    .addValue("checkIn", row.checkIn, Types.TIMESTAMP)
+                    .addValue("checkOut", row.checkOut, Types.TIMESTAMP)
+                    .addValue("date", date, Types.DATE)
+                    .addValue("createdAt", now, Types.TIMESTAMP);
+        }
+
+        List<Object[]> updates = new ArrayList<>();
+        for (RowState row : rows) {
+            if (row.id != null && row.dirty) {
+                updates.add(new Object[]{row.checkIn, row.checkOut, row.id});
+            }
+        }
+
+        if (inserts.length > 0) {
+            KeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(INSERT_ROW, inserts, keys, new String[]{"id"});
+            List<Map<String, Object>> keyList = keys.getKeyList();
+            for (int i = 0; i < created.size(); i++) {
+                created.get(i).id = ((Number) keyList.get(i).get("id")).longValue();
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.getJdbcOperations().batchUpdate(UPDATE_ROW, updates, UPDATE_TYPES);
+        }
+
+        // Escritas JDBC não passam pelo listener JPA: atualiza índice, agregado e cache aqui
+        for (RowState row : rows) {
+            if (row.dirty) {
+                openShiftIndex.recordWrite(row.employeeId, row.id, row.checkIn, row.checkOut, date);
+                dailyAggregates.recordWrite(row.id, row.checkIn, row.checkOut, date);
+                queryCache.recordWrite(row.employeeId, date);
+            }
+        }
+    }
+
+    /**
+     * Registra a etapa commit e o atraso fim a fim (timestamp do dispositivo
+     * até o commit) quando a transação corrente terminar.
+     */
+    private void observeCommit(List<IngestionEvent> events, List<String> outcomes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Sem transação gerenciada: o lote já está gravado
+            for (int i = 0; i < events.size(); i++) {
+                stageMetrics.recordLag(events.get(i).deviceId(), outcomes.get(i), events.get(i).occurredAt());
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long commitStarted;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitStarted = System.nanoTime();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (commitStarted == 0) {
+                    return; // Rollback antes de tentar o commit
+                }
+                long commitNanos = System.nanoTime() - commitStarted;
+                boolean committed = status == STATUS_COMMITTED;
+                for (int i = 0; i < events.size(); i++) {
+                    IngestionEvent event = events.get(i);
+                    String outcome = committed ? outcomes.get(i) : IngestionStageMetrics.ROLLED_BACK;
+                    stageMetrics.record(Stage.COMMIT, event.deviceId(), outcome, commitNanos);
+                    if (committed) {
+                        stageMetrics.recordLag(event.deviceId(), outcome, event.occurredAt());
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Estado em memória de um registro do dia durante o processamento do lote.
+     */
+    private static final class RowState {
+        private Long id;
+        private final long employeeId;
+        private LocalDateTime checkIn;
+        private LocalDateTime checkOut;
+        private boolean dirty;
+
+        private RowState(Long id, long employeeId) {
+            this.id = id;
+            this.employeeId = employeeId;
+        }
+    }
+
+    /**
+     * Resultado da gravação de um lote.
+     *
+     * @param accepted Eventos aplicados
+     * @param rejected Eventos descartados por regra de negócio
+     */
+    public record BatchResult(int accepted, int rejected) {
+    }
+}
@@ -0,0 +1,117 @@
+package com.pontualiot.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Leva a cada instância as escritas em attendances feitas por outras.
+ *
+ * AttendanceQueryCache, DailyAttendanceAggregates e OpenShiftIndex são
+ * atualizados pelas escritas da própria instância; a projeção do log roda
+ * na instância que pega a trava da posição. Esta rotina acompanha a
+ * posição gravada em attendance_event_projections e, quando ela avança,
+ * lê funcionário e data dos eventos aplicados desde a última leitura:
+ * - AttendanceQueryCache: invalida a data e os períodos do funcionário
+ * - DailyAttendanceAggregates: recarrega as datas que estão em memória
+ * - OpenShiftIndex: relê a jornada em aberto dos funcionários
+ *
+ * A instância que projetou recebe as próprias escritas de novo; é só uma
+ * invalidação (ou releitura) a mais. Eventos aplicados abaixo da posição
+ * (faixas puladas) e edições via JPA em outra instância não passam por
+ * aqui: ficam com closed-ttl do cache e as reconciliações agendadas.
+ */
+@Component
+@DependsOn("attendanceEventProjector") // Cria a linha da posição em attendance_event_projections
+public class AttendanceChangeFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttendanceChangeFeed.class);
+
+    private static final String SELECT_POSITION =
+            "SELECT last_event_id FROM attendance_event_projections WHERE name = ?";
+
+    private static final String SELECT_CHANGES =
+            "SELECT DISTINCT employee_id, CAST(event_time AS DATE) AS event_date FROM attendance_events "
+            + "WHERE id > ? AND id <= ? AND employee_id IS NOT NULL";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AttendanceQueryCache queryCache;
+
+    @Autowired
+    private DailyAttendanceAggregates dailyAggregates;
+
+    @Autowired
+    private OpenShiftIndex openShiftIndex;
+
+    private volatile long position;
+
+    @PostConstruct
+    void init() {
+        // Os caches começam vazios (ou aquecidos do banco): só interessa o que vier depois
+        position = projectionPosition();
+    }
+
+    @Scheduled(fixedDelayString = "${pontualiot.event-store.change-feed-interval:PT5S}",
+               initialDelayString = "${pontualiot.event-store.change-feed-interval:PT5S}")
+    void scheduledPoll() {
+        try {
+            poll();
+        } catch (Exception e) {
+            logger.error("[CHANGE-FEED] ❌ Falha ao ler escritas de outras instâncias: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Propaga os eventos aplicados desde a última leitura.
+     *
+     * @return Número de pares (funcionário, data) propagados
+     */
+    public int poll() {
+        long current = projectionPosition();
+        if (current <= position) {
+            return 0;
+        }
+
+        Set<Long> employeeIds = new HashSet<>();
+        Set<LocalDate> dates = new HashSet<>();
+        int[] changes = new int[1];
+        jdbcTemplate.query(SELECT_CHANGES, (RowCallbackHandler) rs -> {
+            Long employeeId = rs.getLong("employee_id");
+            LocalDate date = rs.getDate("event_date").toLocalDate();
+            queryCache.recordWrite(employeeId, date);
+            employeeIds.add(employeeId);
+            dates.add(date);
+            changes[0]++;
+        }, position, current);
+
+        dailyAggregates.refresh(dates);
+        openShiftIndex.refresh(employeeIds);
+        position = current;
+        logger.debug("[CHANGE-FEED] Posição {} - {} funcionários, {} datas", current, employeeIds.size(), dates.size());
+        return changes[0];
+    }
+
+    /**
+     * @return Última posição da projeção propagada
+     */
+    public long position() {
+        return position;
+    }
+
+    private long projectionPosition() {
+        return jdbcTemplate.queryForObject(SELECT_POSITION, Long.class, AttendanceEventProjector.PROJECTION);
+    }
+}
@@ -0,0 +1,38 @@
+package com.pontualiot.demo.service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Posição no histórico de registros de ponto, ordenado por (date, id).
+ *
+ * Formato textual: {date}_{id}, ex: 2024-01-15_42.
+ *
+ * @param date Data do último registro lido
+ * @param id ID do último registro lido
+ */
+public record AttendanceCursor(LocalDate date, long id) {
+
+    /**
+     * @param value Cursor no formato {date}_{id}
+     * @return Cursor correspondente
+     * @throws IllegalArgumentException se o formato for inválido
+     */
+    public static AttendanceCursor parse(String value) {
+        int separator = value.indexOf('_');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Cursor inválido: " + value);
+        }
+        try {
+            return new AttendanceCursor(LocalDate.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return date + "_" + id;
+    }
+}
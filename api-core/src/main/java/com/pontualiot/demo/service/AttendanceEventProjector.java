@@ -0,0 +1,283 @@
+package com.pontualiot.demo.service;
+
+import com.pontualiot.demo.mqtt.IngestionEvent;
+import com.pontualiot.demo.service.AttendanceEventStore.StoredEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deriva a tabela attendances do log attendance_events.
+ *
+ * Lê os eventos em ordem de ID a partir da última posição aplicada e os
+ * entrega ao AttendanceBatchWriter; a nova posição é gravada na mesma
+ * transação, então cada evento é aplicado exatamente uma vez. A linha de
+ * posição é travada (FOR UPDATE), serializando projetores de instâncias
+ * diferentes.
+ *
+ * IDs são atribuídos no INSERT mas ficam visíveis no COMMIT: um ID faltando
+ * pode ser um lote ainda em andamento. A projeção para no buraco e só o
+ * pula depois de gap-timeout; a faixa pulada é guardada em
+ * attendance_event_gaps e relida a cada gap-recheck-interval. Eventos que
+ * aparecem nela (transação que commitou depois do timeout) são aplicados
+ * com atraso; faixas vazias por mais de gap-retention são IDs perdidos
+ * por rollback e são esquecidas.
+ */
+@Component
+public class AttendanceEventProjector {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttendanceEventProjector.class);
+
+    static final String PROJECTION = "attendances";
+
+    @Autowired
+    private AttendanceEventStore eventStore;
+
+    @Autowired
+    private AttendanceBatchWriter batchWriter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${pontualiot.event-store.projection-batch-size:500}")
+    private int batchSize;
+
+    @Value("${pontualiot.event-store.gap-timeout:10s}")
+    private Duration gapTimeout;
+
+    @Value("${pontualiot.event-store.gap-retention:24h}")
+    private Duration gapRetention;
+
+    private TransactionTemplate transactionTemplate;
+    private Counter projectedCounter;
+    private Counter lateCounter;
+    private Timer projectionTimer;
+    private volatile long position;
+
+    // Buraco de IDs observado e desde quando (System.nanoTime)
+    private long gapId = -1;
+    private long gapSince;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            jdbcTemplate.update("INSERT INTO attendance_event_projections (name, last_event_id) "
+                    + "SELECT ?, 0 WHERE NOT EXISTS (SELECT 1 FROM attendance_event_projections WHERE name = ?)",
+                    PROJECTION, PROJECTION);
+        } catch (DuplicateKeyException e) {
+            // Outra instância criou a linha ao mesmo tempo
+        }
+
+        projectedCounter = Counter.builder("attendance_events_projected_total")
+                .description("Attendance events applied to the attendances table")
+                .register(meterRegistry);
+        lateCounter = Counter.builder("attendance_events_projected_late_total")
+                .description("Attendance events applied from ID ranges the projection had skipped")
+                .register(meterRegistry);
+        projectionTimer = Timer.builder("attendance_projection_seconds")
+                .description("Time to apply one batch of events from the event log")
+                .register(meterRegistry);
+        Gauge.builder("attendance_projection_position", this, AttendanceEventProjector::position)
+                .description("Last attendance event ID applied to the attendances table")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${pontualiot.event-store.projection-interval:200}")
+    void scheduledProject() {
+        try {
+            int applied;
+            do {
+                applied = projectBatch();
+            } while (applied == batchSize);
+        } catch (Exception e) {
+            logger.error("[EVENT-LOG] ❌ Falha na projeção de attendances: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Aplica o próximo lote de eventos do log.
+     *
+     * @return Número de eventos aplicados
+     */
+    public int projectBatch() {
+        Integer applied = transactionTemplate.execute(status -> {
+            long current = lockPosition();
+
+            List<StoredEvent> ready = contiguous(eventStore.readAfter(current, batchSize), current);
+            if (ready.isEmpty()) {
+                position = current;
+                return 0;
+            }
+
+            Timer.Sample sample = Timer.start();
+            List<IngestionEvent> events = new ArrayList<>(ready.size());
+            ready.forEach(event -> events.add(event.toIngestionEvent()));
+            batchWriter.writeBatch(events);
+
+            long last = ready.get(ready.size() - 1).id();
+            jdbcTemplate.update("UPDATE attendance_event_projections SET last_event_id = ? WHERE name = ?",
+                    last, PROJECTION);
+            sample.stop(projectionTimer);
+
+            position = last;
+            return ready.size();
+        });
+        projectedCounter.increment(applied);
+        return applied;
+    }
+
+    @Scheduled(fixedDelayString = "${pontualiot.event-store.gap-recheck-interval:PT5S}")
+    void scheduledRecoverGaps() {
+        try {
+            recoverGaps();
+        } catch (Exception e) {
+            logger.error("[EVENT-LOG] ❌ Falha ao reler IDs pulados pela projeção: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Relê as faixas de IDs puladas pela projeção e aplica os eventos que
+     * apareceram nelas. O que continua vazio segue pendente até
+     * gap-retention.
+     *
+     * @return Número de eventos aplicados
+     */
+    public int recoverGaps() {
+        Integer applied = transactionTemplate.execute(status -> {
+            lockPosition(); // Serializa com projectBatch e com outras instâncias
+
+            LocalDateTime now = LocalDateTime.now();
+            int expired = jdbcTemplate.update("DELETE FROM attendance_event_gaps WHERE projection = ? AND skipped_at < ?",
+                    PROJECTION, Timestamp.valueOf(now.minus(gapRetention)));
+            if (expired > 0) {
+                logger.info("[EVENT-LOG] {} faixa(s) de IDs sem eventos há mais de {} descartada(s)", expired, gapRetention);
+            }
+
+            List<StoredEvent> late = new ArrayList<>();
+            List<Gap> gaps = jdbcTemplate.query(
+                    "SELECT first_id, last_id, skipped_at FROM attendance_event_gaps WHERE projection = ? ORDER BY first_id",
+                    (rs, rowNum) -> new Gap(rs.getLong("first_id"), rs.getLong("last_id"), rs.getTimestamp("skipped_at")),
+                    PROJECTION);
+            for (Gap gap : gaps) {
+                List<StoredEvent> found = eventStore.readBetween(gap.firstId(), gap.lastId());
+                if (found.isEmpty()) {
+                    continue;
+                }
+                late.addAll(found);
+                jdbcTemplate.update("DELETE FROM attendance_event_gaps WHERE projection = ? AND first_id = ?",
+                        PROJECTION, gap.firstId());
+                // IDs da faixa que continuam sem evento permanecem pendentes
+                long expected = gap.firstId();
+                for (StoredEvent event : found) {
+                    if (event.id() > expected) {
+                        insertGap(expected, event.id() - 1, gap.skippedAt());
+                    }
+                    expected = event.id() + 1;
+                }
+                if (expected <= gap.lastId()) {
+                    insertGap(expected, gap.lastId(), gap.skippedAt());
+                }
+            }
+            if (late.isEmpty()) {
+                return 0;
+            }
+
+            logger.warn("[EVENT-LOG] {} evento(s) commitados depois de gap-timeout aplicados com atraso", late.size());
+            List<IngestionEvent> events = new ArrayList<>(late.size());
+            late.forEach(event -> events.add(event.toIngestionEvent()));
+            batchWriter.writeBatch(events);
+            return late.size();
+        });
+        projectedCounter.increment(applied);
+        lateCounter.increment(applied);
+        return applied;
+    }
+
+    /**
+     * @return Último ID de evento aplicado
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * @return Posição gravada da projeção, com a linha travada até o fim da transação
+     */
+    private long lockPosition() {
+        return jdbcTemplate.queryForObject(
+                "SELECT last_event_id FROM attendance_event_projections WHERE name = ? FOR UPDATE",
+                Long.class, PROJECTION);
+    }
+
+    /**
+     * Mantém apenas o prefixo sem buracos de IDs, salvo buracos mais
+     * antigos que gap-timeout; esses são guardados para releitura.
+     */
+    private List<StoredEvent> contiguous(List<StoredEvent> events, long current) {
+        List<StoredEvent> ready = new ArrayList<>(events.size());
+        long expected = current + 1;
+        for (StoredEvent event : events) {
+            if (event.id() != expected) {
+                if (!gapExpired(expected)) {
+                    break;
+                }
+                insertGap(expected, event.id() - 1, Timestamp.valueOf(LocalDateTime.now()));
+            }
+            ready.add(event);
+            expected = event.id() + 1;
+        }
+        return ready;
+    }
+
+    private void insertGap(long firstId, long lastId, Timestamp skippedAt) {
+        jdbcTemplate.update("INSERT INTO attendance_event_gaps (projection, first_id, last_id, skipped_at) VALUES (?, ?, ?, ?)",
+                PROJECTION, firstId, lastId, skippedAt);
+    }
+
+    private boolean gapExpired(long expected) {
+        long now = System.nanoTime();
+        if (gapId != expected) {
+            gapId = expected;
+            gapSince = now;
+            return false;
+        }
+        if (now - gapSince < gapTimeout.toNanos()) {
+            return false;
+        }
+        logger.warn("[EVENT-LOG] IDs a partir de {} ausentes há mais de {} - seguindo adiante e relendo depois",
+                expected, gapTimeout);
+        gapId = -1;
+        return true;
+    }
+
+    /**
+     * Faixa de IDs pulada pela projeção.
+     */
+    private record Gap(long firstId, long lastId, Timestamp skippedAt) {
+    }
+}
@@ -0,0 +1,223 @@
+package com.pontualiot.demo.service;
+
+import com.pontualiot.demo.mqtt.AttendanceEventType;
+import com.pontualiot.demo.mqtt.IngestionEvent;
+import com.pontualiot.demo.service.EmployeeLookupCache.CachedEmployee;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Log append-only de batidas de ponto (tabela attendance_events).
+ *
+ * Toda batida MQTT ou HTTP é gravada aqui com INSERT de múltiplas linhas,
+ * sem UPDATE e sem disputa de lock com outras batidas. A tabela
+ * attendances é derivada do log de forma assíncrona pelo
+ * AttendanceEventProjector.
+ *
+ * O esquema é criado na inicialização (db/attendance-events.sql); com a
+ * extensão TimescaleDB disponível a tabela é convertida em hypertable
+ * particionada por event_time.
+ */
+@Component
+public class AttendanceEventStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttendanceEventStore.class);
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO attendance_events "
+            + "(employee_id, rfid_tag, device_id, event_type, event_time, origin, received_at) VALUES ";
+
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?)";
+    private static final int COLUMNS = 7;
+
+    // Linhas por INSERT: mantém o número de parâmetros bem abaixo do limite do driver
+    private static final int MAX_ROWS_PER_INSERT = 500;
+
+    private static final String SELECT_AFTER =
+            "SELECT id, rfid_tag, device_id, event_type, event_time FROM attendance_events "
+            + "WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String SELECT_BETWEEN =
+            "SELECT id, rfid_tag, device_id, event_type, event_time FROM attendance_events "
+            + "WHERE id BETWEEN ? AND ? ORDER BY id";
+
+    private static final String SELECT_RECEIVED_SINCE =
+            "SELECT rfid_tag, device_id, event_type, event_time, received_at FROM attendance_events "
+            + "WHERE received_at >= ? AND origin = 'MQTT'";
+
+    private static final RowMapper<StoredEvent> STORED_EVENT = (rs, rowNum) -> new StoredEvent(
+            rs.getLong("id"),
+            rs.getString("rfid_tag"),
+            rs.getString("device_id"),
+            AttendanceEventType.valueOf(rs.getString("event_type")),
+            rs.getTimestamp("event_time").toLocalDateTime());
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EmployeeLookupCache employeeLookupCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter appendedCounter;
+    private boolean hypertable;
+
+    @PostConstruct
+    void init() throws SQLException {
+        new ResourceDatabasePopulator(new ClassPathResource("db/attendance-events.sql")).execute(dataSource);
+        createHypertableIfAvailable();
+
+        appendedCounter = Counter.builder("attendance_events_appended_total")
+                .description("Attendance events appended to the event log")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Grava um lote de batidas com INSERT de múltiplas linhas.
+     *
+     * O funcionário é resolvido pelo cache apenas para preencher employee_id
+     * (índice por funcionário); tags desconhecidas são gravadas mesmo assim
+     * e rejeitadas na projeção.
+     *
+     * @param events Batidas na ordem de chegada
+     * @param origin Origem das batidas
+     */
+    public void append(List<IngestionEvent> events, EventOrigin origin) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Set<String> rfidTags = events.stream().map(IngestionEvent::rfidTag).collect(Collectors.toSet());
+        Map<String, CachedEmployee> employees = employeeLookupCache.findAll(rfidTags);
+        Timestamp receivedAt = Timestamp.valueOf(LocalDateTime.now());
+
+        for (int from = 0; from < events.size(); from += MAX_ROWS_PER_INSERT) {
+            List<IngestionEvent> chunk = events.subList(from, Math.min(from + MAX_ROWS_PER_INSERT, events.size()));
+
+            StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + chunk.size() * (ROW_PLACEHOLDERS.length() + 2));
+            sql.append(INSERT_PREFIX);
+            Object[] params = new Object[chunk.size() * COLUMNS];
+            int p = 0;
+            for (int i = 0; i < chunk.size(); i++) {
+                IngestionEvent event = chunk.get(i);
+                CachedEmployee employee = employees.get(event.rfidTag());
+                sql.append(i == 0 ? "" : ", ").append(ROW_PLACEHOLDERS);
+                params[p++] = employee != null ? employee.id() : null;
+                params[p++] = event.rfidTag();
+                params[p++] = event.deviceId();
+                params[p++] = event.eventType().name();
+                params[p++] = Timestamp.valueOf(event.occurredAt());
+                params[p++] = origin.name();
+                params[p++] = receivedAt;
+            }
+            jdbcTemplate.update(sql.toString(), params);
+        }
+        appendedCounter.increment(events.size());
+    }
+
+    /**
+     * @param afterId Último ID já consumido
+     * @param limit Número máximo de eventos
+     * @return Eventos com ID maior que afterId, em ordem de ID
+     */
+    public List<StoredEvent> readAfter(long afterId, int limit) {
+        return jdbcTemplate.query(SELECT_AFTER, STORED_EVENT, afterId, limit);
+    }
+
+    /**
+     * @param firstId Primeiro ID da faixa
+     * @param lastId Último ID da faixa (inclusivo)
+     * @return Eventos já visíveis na faixa, em ordem de ID
+     */
+    public List<StoredEvent> readBetween(long firstId, long lastId) {
+        return jdbcTemplate.query(SELECT_BETWEEN, STORED_EVENT, firstId, lastId);
+    }
+
+    /**
+     * Percorre as batidas MQTT gravadas a partir de um instante, sem montar
+     * lista (usado para reconstruir a janela de deduplicação na partida).
+     *
+     * @param since Início da janela (received_at)
+     * @param consumer Recebe cada batida; o ID não é preenchido
+     */
+    public void forEachReceivedSince(LocalDateTime since, Consumer<ReceivedEvent> consumer) {
+        jdbcTemplate.query(SELECT_RECEIVED_SINCE, (RowCallbackHandler) rs -> consumer.accept(new ReceivedEvent(
+                rs.getString("rfid_tag"),
+                rs.getString("device_id"),
+                AttendanceEventType.valueOf(rs.getString("event_type")),
+                rs.getTimestamp("event_time").toLocalDateTime(),
+                rs.getTimestamp("received_at").toLocalDateTime()
+        )), Timestamp.valueOf(since));
+    }
+
+    private void createHypertableIfAvailable() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+                return;
+            }
+        }
+        Integer timescale = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_extension WHERE extname = 'timescaledb'", Integer.class);
+        if (timescale == null || timescale == 0) {
+            logger.info("[EVENT-LOG] TimescaleDB indisponível - attendance_events como tabela comum");
+            return;
+        }
+        jdbcTemplate.execute("SELECT create_hypertable('attendance_events', 'event_time', "
+                + "if_not_exists => TRUE, migrate_data => TRUE)");
+        hypertable = true;
+        logger.info("[EVENT-LOG] attendance_events configurada como hypertable");
+    }
+
+    /**
+     * @return true se attendance_events é uma hypertable TimescaleDB
+     */
+    public boolean isHypertable() {
+        return hypertable;
+    }
+
+    /**
+     * Batida MQTT lida do log com o instante de gravação.
+     */
+    public record ReceivedEvent(String rfidTag, String deviceId, AttendanceEventType eventType,
+                                LocalDateTime eventTime, LocalDateTime receivedAt) {
+    }
+
+    /**
+     * Batida lida do log.
+     */
+    public record StoredEvent(long id, String rfidTag, String deviceId, AttendanceEventType eventType,
+                              LocalDateTime eventTime) {
+
+        /**
+         * @return Evento no formato consumido pelo AttendanceBatchWriter
+         */
+        public IngestionEvent toIngestionEvent() {
+            return IngestionEvent.of(rfidTag, eventType, deviceId, eventTime);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.pontualiot.demo.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pontualiot.demo.repository.AttendanceRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Leitura do histórico completo de registros de ponto sem carregá-lo
+ * inteiro em memória.
+ *
+ * Duas formas de acesso, ambas ordenadas por (date, id):
+ * - findPage(): paginação keyset, continua do cursor da página anterior
+ * - stream(): percorre um cursor JDBC e escreve cada linha direto na
+ *   resposta com um JsonGenerator (memória constante)
+ *
+ * As duas produzem o formato de AttendanceView: registro + ID e nome do
+ * funcionário, lidos com um único JOIN.
+ */
+@Service
+public class AttendanceHistoryService {
+
+    private static final String STREAM_SELECT =
+            "SELECT a.id, a.check_in, a.check_out, a.date, a.created_at, e.id AS employee_id, e.name "
+            + "FROM attendances a JOIN employees e ON e.id = a.employee_id ";
+
+    private static final String STREAM_ALL = STREAM_SELECT + "ORDER BY a.date, a.id";
+
+    private static final String STREAM_AFTER = STREAM_SELECT
+            + "WHERE a.date >= ? AND (a.date > ? OR a.id > ?) ORDER BY a.date, a.id";
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${pontualiot.attendances.page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${pontualiot.attendances.max-page-size:1000}")
+    private int maxPageSize;
+
+    @Value("${pontualiot.attendances.stream-fetch-size:500}")
+    private int streamFetchSize;
+
+    private JdbcTemplate streamingJdbcTemplate;
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void init() {
+        // fetchSize só vira cursor no PostgreSQL com autocommit desligado (transação)
+        streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        streamingJdbcTemplate.setFetchSize(streamFetchSize);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * @param cursor Cursor da página anterior; null para a primeira página
+     * @param size Tamanho da página; null para o padrão configurado
+     * @return Página de registros e cursor da próxima
+     */
+    public AttendancePage findPage(AttendanceCursor cursor, Integer size) {
+        int pageSize = pageSize(size);
+        Limit limit = Limit.of(pageSize + 1); // Um a mais para saber se há próxima página
+
+        List<AttendanceView> rows = cursor == null
+                ? attendanceRepository.findPage(limit)
+                : attendanceRepository.findPageAfter(cursor.date(), cursor.id(), limit);
+
+        if (rows.size() <= pageSize) {
+            return new AttendancePage(rows, null);
+        }
+        List<AttendanceView> items = rows.subList(0, pageSize);
+        AttendanceView last = items.get(pageSize - 1);
+        return new AttendancePage(items, new AttendanceCursor(last.date(), last.id()).toString());
+    }
+
+    /**
+     * Registros de um único dia, paginados por ID.
+     *
+     * @param date Data dos registros
+     * @param afterId ID do último registro da página anterior; null para a primeira
+     * @param size Tamanho da página; null para o padrão configurado
+     * @return Página de registros; o cursor da próxima é o último ID
+     */
+    public AttendancePage findDayPage(LocalDate date, Long afterId, Integer size) {
+        int pageSize = pageSize(size);
+        List<AttendanceView> rows = attendanceRepository.findDayPage(date, afterId != null ? afterId : 0L,
+                Limit.of(pageSize + 1));
+
+        if (rows.size() <= pageSize) {
+            return new AttendancePage(rows, null);
+        }
+        List<AttendanceView> items = rows.subList(0, pageSize);
+        return new AttendancePage(items, String.valueOf(items.get(pageSize - 1).id()));
+    }
+
+    private int pageSize(Integer size) {
+        return Math.max(1, Math.min(size != null ? size : defaultPageSize, maxPageSize));
+    }
+
+    /**
+     * Escreve o histórico como um array JSON, linha a linha.
+     *
+     * @param cursor Continua após este registro; null para o histórico completo
+     * @param out Destino (corpo da resposta); não é fechado
+     * @return Número de registros escritos
+     */
+    public long stream(AttendanceCursor cursor, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            long written = readOnlyTransaction.execute(status -> {
+                long[] count = {0};
+                if (cursor == null) {
+                    streamingJdbcTemplate.query(STREAM_ALL, rs -> {
+                        writeRow(generator, rs);
+                        count[0]++;
+                    });
+                } else {
+                    streamingJdbcTemplate.query(STREAM_AFTER, rs -> {
+                        writeRow(generator, rs);
+                        count[0]++;
+                    }, cursor.date(), cursor.date(), cursor.id());
+                }
+                return count[0];
+            });
+            generator.writeEndArray();
+            return written;
+        }
+    }
+
+    private void writeRow(JsonGenerator generator, ResultSet rs) throws SQLException {
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("id", rs.getLong("id"));
+
+            generator.writeObjectFieldStart("employee");
+            generator.writeNumberField("id", rs.getLong("employee_id"));
+            generator.writeStringField("name", rs.getString("name"));
+            generator.writeEndObject();
+
+            writeTimestamp(generator, "checkIn", rs.getTimestamp("check_in"));
+            writeTimestamp(generator, "checkOut", rs.getTimestamp("check_out"));
+            generator.writeObjectField("date", rs.getDate("date").toLocalDate());
+            writeTimestamp(generator, "createdAt", rs.getTimestamp("created_at"));
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Cliente desconectou: aborta a consulta
+        }
+    }
+
+    // Mesmo serializer do ObjectMapper da aplicação (JSR-310)
+    private void writeTimestamp(JsonGenerator generator, String field, Timestamp value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(field);
+        } else {
+            generator.writeObjectField(field, value.toLocalDateTime());
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.pontualiot.demo.service;
+
+import java.util.List;
+
+/**
+ * Página do histórico de registros de ponto.
+ *
+ * @param items Registros da página, ordenados por (date, id)
+ * @param nextCursor Cursor da próxima página; null na última
+ */
+public record AttendancePage(List<AttendanceView> items, String nextCursor) {
+}
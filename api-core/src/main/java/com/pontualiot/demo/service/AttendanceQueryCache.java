@@ -0,0 +1,414 @@
+package com.pontualiot.demo.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.pontualiot.demo.repository.AttendanceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Cache em duas camadas das consultas de registros de ponto usadas pelo
+ * web-admin (registros de um dia e período de um funcionário).
+ *
+ * - Camada 1: Caffeine no heap, limitada por número de entradas. Períodos
+ *   já encerrados (último dia antes de hoje) expiram após closed-ttl;
+ *   períodos que incluem hoje expiram após open-ttl.
+ * - Camada 2 (opcional): OffHeapByteStore com o JSON dos períodos
+ *   encerrados, limitada em bytes e também com closed-ttl. Recebe cada
+ *   período encerrado lido do banco e devolve para a camada 1 o que ela já
+ *   removeu.
+ *
+ * Invalidação: cada escrita de Attendance (listener JPA e
+ * AttendanceBatchWriter, que grava o que chega do MQTT) remove, após o
+ * commit, as entradas da data e do funcionário escritos, em ambas as
+ * camadas. Isso inclui datas encerradas (importação de backlog offline).
+ * Escritas de outras instâncias chegam pelo AttendanceChangeFeed; as que
+ * não passam pelo log de eventos ficam visíveis no máximo após closed-ttl.
+ * Uma consulta concorrente com uma escrita não é mantida no cache.
+ *
+ * A data identifica sua única entrada; os períodos ficam indexados por
+ * funcionário, então uma escrita não percorre as chaves do cache.
+ */
+@Component
+public class AttendanceQueryCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttendanceQueryCache.class);
+
+    private static final TypeReference<List<AttendanceView>> VIEW_LIST = new TypeReference<>() {
+    };
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${pontualiot.cache.attendances.maximum-size:2000}")
+    private long maximumSize;
+
+    @Value("${pontualiot.cache.attendances.open-ttl:30s}")
+    private Duration openTtl;
+
+    @Value("${pontualiot.cache.attendances.closed-ttl:10m}")
+    private Duration closedTtl;
+
+    @Value("${pontualiot.cache.attendances.off-heap.enabled:false}")
+    private boolean offHeapEnabled;
+
+    @Value("${pontualiot.cache.attendances.off-heap.max-size:64MB}")
+    private DataSize offHeapMaxSize;
+
+    // Relógio lógico das escritas: consulta iniciada antes da última escrita não é cacheada.
+    // Escritas mais antigas que open-ttl são esquecidas por expireWrites()
+    private final AtomicLong writeClock = new AtomicLong();
+    private final Map<LocalDate, WriteStamp> lastWriteByDate = new ConcurrentHashMap<>();
+    private final Map<Long, WriteStamp> lastWriteByEmployee = new ConcurrentHashMap<>();
+    private volatile long lastEmployeeChange;
+
+    // Períodos em qualquer camada, por funcionário (pode conter chaves já removidas)
+    private final Map<Long, Set<PeriodKey>> periodsByEmployee = new ConcurrentHashMap<>();
+
+    private Cache<Key, List<AttendanceView>> cache;
+    private OffHeapByteStore<Key> offHeap; // null = camada 2 desligada
+    private Counter offHeapHits;
+    private Counter offHeapMisses;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ClosedPeriodExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "attendance_queries");
+
+        if (offHeapEnabled) {
+            offHeap = new OffHeapByteStore<>(offHeapMaxSize.toBytes(), closedTtl);
+            Gauge.builder("attendance_query_cache_off_heap_bytes", offHeap, OffHeapByteStore::usedBytes)
+                    .description("Bytes used by the off-heap attendance query cache")
+                    .register(meterRegistry);
+            Gauge.builder("attendance_query_cache_off_heap_entries", offHeap, OffHeapByteStore::size)
+                    .description("Entries in the off-heap attendance query cache")
+                    .register(meterRegistry);
+            offHeapHits = offHeapCounter("hit");
+            offHeapMisses = offHeapCounter("miss");
+            logger.info("[QUERY-CACHE] Camada off-heap ativa - limite: {}", offHeapMaxSize);
+        }
+    }
+
+    private Counter offHeapCounter(String result) {
+        return Counter.builder("attendance_query_cache_off_heap_requests_total")
+                .description("Off-heap attendance query cache lookups")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param date Data dos registros
+     * @return Registros da data (mesma ordem de findViewsByDate)
+     */
+    public List<AttendanceView> byDate(LocalDate date) {
+        return get(new DateKey(date), () -> attendanceRepository.findViewsByDate(date));
+    }
+
+    /**
+     * @param employeeId Funcionário
+     * @param startDate Data inicial (inclusiva)
+     * @param endDate Data final (inclusiva)
+     * @return Registros do período (mesma ordem de findViewsByEmployeeIdAndDateBetween)
+     */
+    public List<AttendanceView> employeePeriod(Long employeeId, LocalDate startDate, LocalDate endDate) {
+        return get(new PeriodKey(employeeId, startDate, endDate),
+                () -> attendanceRepository.findViewsByEmployeeIdAndDateBetween(employeeId, startDate, endDate));
+    }
+
+    /**
+     * Invalida as entradas afetadas por uma escrita de registro de ponto.
+     * Dentro de uma transação, só é aplicado no commit.
+     *
+     * @param employeeId Funcionário do registro
+     * @param date Data do registro
+     */
+    public void recordWrite(Long employeeId, LocalDate date) {
+        if (employeeId == null || date == null) {
+            return;
+        }
+        afterCommit(new Write(employeeId, date));
+    }
+
+    /**
+     * Invalida as entradas que contêm o funcionário (ex: nome alterado).
+     *
+     * @param employeeId Funcionário alterado
+     */
+    public void invalidateEmployee(Long employeeId) {
+        long stamp = writeClock.incrementAndGet();
+        lastWriteByEmployee.put(employeeId, new WriteStamp(stamp, System.nanoTime()));
+        lastEmployeeChange = stamp;
+        invalidatePeriods(employeeId, period -> true);
+        // Alteração de cadastro é rara: o nome aparece em todas as datas
+        cache.invalidateAll(cache.asMap().keySet().stream().filter(DateKey.class::isInstance).toList());
+        if (offHeap != null) {
+            offHeap.removeIf(DateKey.class::isInstance);
+        }
+    }
+
+    /**
+     * @return Número de entradas na camada 1
+     */
+    public long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Esquece as escritas mais antigas que open-ttl e remove do índice os
+     * períodos que já saíram das duas camadas.
+     */
+    @Scheduled(fixedDelayString = "${pontualiot.cache.attendances.cleanup-interval:PT1M}")
+    void expireWrites() {
+        long now = System.nanoTime();
+        long ttl = openTtl.toNanos();
+        // remove(chave, valor) por baixo: escrita nova na mesma chave é mantida
+        lastWriteByDate.values().removeIf(write -> now - write.writtenAt() >= ttl);
+        lastWriteByEmployee.values().removeIf(write -> now - write.writtenAt() >= ttl);
+
+        cache.cleanUp();
+        for (Long employeeId : periodsByEmployee.keySet()) {
+            periodsByEmployee.computeIfPresent(employeeId, (id, periods) -> {
+                periods.removeIf(period -> !cache.asMap().containsKey(period)
+                        && (offHeap == null || !offHeap.contains(period)));
+                return periods.isEmpty() ? null : periods;
+            });
+        }
+    }
+
+    private List<AttendanceView> get(Key key, Supplier<List<AttendanceView>> query) {
+        List<AttendanceView> rows = cache.getIfPresent(key);
+        if (rows != null) {
+            return rows;
+        }
+
+        long startedAt = writeClock.get();
+        boolean offHeapEligible = offHeap != null && key.closed(LocalDate.now());
+        rows = offHeapEligible ? readOffHeap(key) : null;
+        if (rows == null) {
+            rows = List.copyOf(query.get());
+            if (offHeapEligible) {
+                writeOffHeap(key, rows);
+            }
+        }
+
+        if (key instanceof PeriodKey period) {
+            // Indexado no mesmo compute da gravação: expireWrites() não remove um período recém-cacheado
+            List<AttendanceView> cached = rows;
+            periodsByEmployee.compute(period.employeeId(), (id, periods) -> {
+                Set<PeriodKey> indexed = periods != null ? periods : new HashSet<>();
+                indexed.add(period);
+                cache.put(key, cached);
+                return indexed;
+            });
+        } else {
+            cache.put(key, rows);
+        }
+        // Escrita concorrente: o resultado pode ser anterior ao commit dela
+        if (writtenSince(key, startedAt)) {
+            invalidate(key);
+        }
+        return rows;
+    }
+
+    private boolean writtenSince(Key key, long stamp) {
+        if (key instanceof PeriodKey period) {
+            return clockOf(lastWriteByEmployee.get(period.employeeId())) > stamp;
+        }
+        return clockOf(lastWriteByDate.get(((DateKey) key).date())) > stamp || lastEmployeeChange > stamp;
+    }
+
+    private static long clockOf(WriteStamp write) {
+        return write != null ? write.clock() : 0L;
+    }
+
+    private List<AttendanceView> readOffHeap(Key key) {
+        byte[] json = offHeap.get(key);
+        if (json == null) {
+            offHeapMisses.increment();
+            return null;
+        }
+        try {
+            List<AttendanceView> rows = List.copyOf(objectMapper.readValue(json, VIEW_LIST));
+            offHeapHits.increment();
+            return rows;
+        } catch (IOException e) {
+            logger.warn("[QUERY-CACHE] Entrada off-heap ilegível ({}): {}", key, e.getMessage());
+            offHeap.remove(key);
+            offHeapMisses.increment();
+            return null;
+        }
+    }
+
+    private void writeOffHeap(Key key, List<AttendanceView> rows) {
+        try {
+            offHeap.put(key, objectMapper.writeValueAsBytes(rows));
+        } catch (IOException e) {
+            logger.warn("[QUERY-CACHE] Falha ao serializar {} para a camada off-heap: {}", key, e.getMessage());
+        }
+    }
+
+    private void afterCommit(Write write) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(Set.of(write));
+            return;
+        }
+        // Uma sincronização por transação acumula todas as escritas dela
+        @SuppressWarnings("unchecked")
+        Set<Write> pending = (Set<Write>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<Write> writes = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, writes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(writes);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AttendanceQueryCache.this);
+                }
+            });
+            pending = writes;
+        }
+        pending.add(write);
+    }
+
+    private void apply(Set<Write> writes) {
+        WriteStamp stamp = new WriteStamp(writeClock.incrementAndGet(), System.nanoTime());
+        for (Write write : writes) {
+            lastWriteByDate.put(write.date(), stamp);
+            lastWriteByEmployee.put(write.employeeId(), stamp);
+        }
+        for (Write write : writes) {
+            invalidate(new DateKey(write.date()));
+            invalidatePeriods(write.employeeId(), period -> period.contains(write.date()));
+        }
+    }
+
+    private void invalidatePeriods(Long employeeId, Predicate<PeriodKey> filter) {
+        periodsByEmployee.computeIfPresent(employeeId, (id, periods) -> {
+            periods.removeIf(period -> {
+                if (!filter.test(period)) {
+                    return false;
+                }
+                invalidate(period);
+                return true;
+            });
+            return periods.isEmpty() ? null : periods;
+        });
+    }
+
+    private void invalidate(Key key) {
+        cache.invalidate(key);
+        if (offHeap != null) {
+            offHeap.remove(key);
+        }
+    }
+
+    private record Write(Long employeeId, LocalDate date) {
+    }
+
+    /**
+     * Última escrita de uma data ou funcionário: relógio lógico e System.nanoTime.
+     */
+    private record WriteStamp(long clock, long writtenAt) {
+    }
+
+    /**
+     * Períodos encerrados expiram após closed-ttl; os que incluem hoje, após open-ttl.
+     */
+    private final class ClosedPeriodExpiry implements Expiry<Key, List<AttendanceView>> {
+
+        @Override
+        public long expireAfterCreate(Key key, List<AttendanceView> rows, long currentTime) {
+            return key.closed(LocalDate.now()) ? closedTtl.toNanos() : openTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(Key key, List<AttendanceView> rows, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, rows, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Key key, List<AttendanceView> rows, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * Chave de uma consulta cacheada.
+     */
+    sealed interface Key permits DateKey, PeriodKey {
+
+        /**
+         * @return Último dia coberto pela consulta
+         */
+        LocalDate lastDay();
+
+        /**
+         * @return true se a consulta só cobre dias anteriores a hoje
+         */
+        default boolean closed(LocalDate today) {
+            return lastDay().isBefore(today);
+        }
+    }
+
+    record DateKey(LocalDate date) implements Key {
+
+        @Override
+        public LocalDate lastDay() {
+            return date;
+        }
+    }
+
+    record PeriodKey(Long employeeId, LocalDate startDate, LocalDate endDate) implements Key {
+
+        @Override
+        public LocalDate lastDay() {
+            return endDate;
+        }
+
+        boolean contains(LocalDate date) {
+            return !date.isBefore(startDate) && !date.isAfter(endDate);
+        }
+    }
+}
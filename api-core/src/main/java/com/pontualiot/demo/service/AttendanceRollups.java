@@ -0,0 +1,223 @@
+package com.pontualiot.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Agregações do log attendance_events para relatórios de longo período.
+ *
+ * Com TimescaleDB (attendance_events como hypertable):
+ * - continuous aggregates por dispositivo/hora e por funcionário/dia
+ *   (db/attendance-rollups-timescale.sql), com políticas de refresh
+ * - políticas de compressão e retenção dos chunks brutos
+ * As consultas leem as views agregadas, não a hypertable.
+ *
+ * Sem TimescaleDB as mesmas consultas são calculadas com GROUP BY sobre
+ * o log bruto (mesmo formato de resposta).
+ *
+ * As políticas são recriadas a cada inicialização, então mudanças no
+ * application.yml valem no próximo deploy.
+ */
+@Component
+public class AttendanceRollups {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttendanceRollups.class);
+
+    static final String HOURLY_BY_DEVICE = "attendance_events_hourly_by_device";
+    static final String DAILY_BY_EMPLOYEE = "attendance_events_daily_by_employee";
+
+    private static final String HOURLY_FROM_VIEW =
+            "SELECT bucket, device_id, events, check_ins, check_outs FROM " + HOURLY_BY_DEVICE
+            + " WHERE bucket >= ? AND bucket < ?";
+
+    private static final String HOURLY_FROM_LOG =
+            "SELECT DATE_TRUNC('HOUR', event_time) AS bucket, device_id, COUNT(*) AS events, "
+            + "SUM(CASE WHEN event_type = 'CHECK_IN' THEN 1 ELSE 0 END) AS check_ins, "
+            + "SUM(CASE WHEN event_type = 'CHECK_OUT' THEN 1 ELSE 0 END) AS check_outs "
+            + "FROM attendance_events WHERE event_time >= ? AND event_time < ?";
+
+    private static final String DAILY_FROM_VIEW =
+            "SELECT bucket, employee_id, events, check_ins, check_outs, first_check_in, last_check_out FROM "
+            + DAILY_BY_EMPLOYEE + " WHERE bucket >= ? AND bucket < ?";
+
+    private static final String DAILY_FROM_LOG =
+            "SELECT DATE_TRUNC('DAY', event_time) AS bucket, employee_id, COUNT(*) AS events, "
+            + "SUM(CASE WHEN event_type = 'CHECK_IN' THEN 1 ELSE 0 END) AS check_ins, "
+            + "SUM(CASE WHEN event_type = 'CHECK_OUT' THEN 1 ELSE 0 END) AS check_outs, "
+            + "MIN(CASE WHEN event_type = 'CHECK_IN' THEN event_time END) AS first_check_in, "
+            + "MAX(CASE WHEN event_type = 'CHECK_OUT' THEN event_time END) AS last_check_out "
+            + "FROM attendance_events WHERE employee_id IS NOT NULL AND event_time >= ? AND event_time < ?";
+
+    private static final RowMapper<HourlyDeviceRollup> HOURLY_MAPPER = (rs, rowNum) -> new HourlyDeviceRollup(
+            rs.getTimestamp("bucket").toLocalDateTime(),
+            rs.getString("device_id"),
+            rs.getLong("events"),
+            rs.getLong("check_ins"),
+            rs.getLong("check_outs"));
+
+    private static final RowMapper<DailyEmployeeRollup> DAILY_MAPPER = (rs, rowNum) -> new DailyEmployeeRollup(
+            rs.getTimestamp("bucket").toLocalDateTime().toLocalDate(),
+            rs.getLong("employee_id"),
+            rs.getLong("events"),
+            rs.getLong("check_ins"),
+            rs.getLong("check_outs"),
+            toLocalDateTime(rs.getTimestamp("first_check_in")),
+            toLocalDateTime(rs.getTimestamp("last_check_out")));
+
+    @Autowired
+    private AttendanceEventStore eventStore; // Cria o log (e a hypertable) antes das agregações
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${pontualiot.event-store.timescale.refresh-lookback:7d}")
+    private Duration refreshLookback;
+
+    @Value("${pontualiot.event-store.timescale.hourly-refresh-interval:30m}")
+    private Duration hourlyRefreshInterval;
+
+    @Value("${pontualiot.event-store.timescale.daily-refresh-interval:1h}")
+    private Duration dailyRefreshInterval;
+
+    @Value("${pontualiot.event-store.timescale.compress-after:30d}")
+    private Duration compressAfter;
+
+    @Value("${pontualiot.event-store.timescale.retain-for:}")
+    private Duration retainFor;
+
+    private boolean continuousAggregates;
+
+    @PostConstruct
+    void init() {
+        if (!eventStore.isHypertable()) {
+            logger.info("[ROLLUPS] Sem TimescaleDB - relatórios agregados calculados sobre o log bruto");
+            return;
+        }
+        new ResourceDatabasePopulator(new ClassPathResource("db/attendance-rollups-timescale.sql")).execute(dataSource);
+        continuousAggregates = true;
+
+        // Janela de refresh: de refresh-lookback atrás até 1 hora atrás (o restante é lido em tempo real)
+        refreshPolicy(HOURLY_BY_DEVICE, hourlyRefreshInterval);
+        refreshPolicy(DAILY_BY_EMPLOYEE, dailyRefreshInterval);
+        compressionPolicy();
+        retentionPolicy();
+    }
+
+    /**
+     * @return true se as consultas leem continuous aggregates
+     */
+    public boolean usesContinuousAggregates() {
+        return continuousAggregates;
+    }
+
+    /**
+     * @param from Início do período (inclusivo)
+     * @param to Fim do período (exclusivo)
+     * @param deviceId Filtra um dispositivo; null para todos
+     * @return Batidas por dispositivo e hora, ordenadas por hora e dispositivo
+     */
+    public List<HourlyDeviceRollup> hourlyByDevice(LocalDateTime from, LocalDateTime to, String deviceId) {
+        List<Object> params = new ArrayList<>(List.of(Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        StringBuilder sql = new StringBuilder(continuousAggregates ? HOURLY_FROM_VIEW : HOURLY_FROM_LOG);
+        if (deviceId != null) {
+            sql.append(" AND device_id = ?");
+            params.add(deviceId);
+        }
+        if (!continuousAggregates) {
+            sql.append(" GROUP BY DATE_TRUNC('HOUR', event_time), device_id");
+        }
+        sql.append(" ORDER BY bucket, device_id");
+        return jdbcTemplate.query(sql.toString(), HOURLY_MAPPER, params.toArray());
+    }
+
+    /**
+     * @param from Primeiro dia (inclusivo)
+     * @param to Último dia (inclusivo)
+     * @param employeeId Filtra um funcionário; null para todos
+     * @return Batidas por funcionário e dia, ordenadas por dia e funcionário
+     */
+    public List<DailyEmployeeRollup> dailyByEmployee(LocalDate from, LocalDate to, Long employeeId) {
+        List<Object> params = new ArrayList<>(List.of(
+                Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.plusDays(1).atStartOfDay())));
+        StringBuilder sql = new StringBuilder(continuousAggregates ? DAILY_FROM_VIEW : DAILY_FROM_LOG);
+        if (employeeId != null) {
+            sql.append(" AND employee_id = ?");
+            params.add(employeeId);
+        }
+        if (!continuousAggregates) {
+            sql.append(" GROUP BY DATE_TRUNC('DAY', event_time), employee_id");
+        }
+        sql.append(" ORDER BY bucket, employee_id");
+        return jdbcTemplate.query(sql.toString(), DAILY_MAPPER, params.toArray());
+    }
+
+    private void refreshPolicy(String view, Duration scheduleInterval) {
+        jdbcTemplate.execute("SELECT remove_continuous_aggregate_policy('" + view + "', if_exists => TRUE)");
+        jdbcTemplate.queryForList("SELECT add_continuous_aggregate_policy('" + view + "', "
+                + "start_offset => CAST(? AS INTERVAL), end_offset => INTERVAL '1 hour', "
+                + "schedule_interval => CAST(? AS INTERVAL))",
+                interval(refreshLookback), interval(scheduleInterval));
+        logger.info("[ROLLUPS] {} - refresh a cada {} (janela: {})", view, scheduleInterval, refreshLookback);
+    }
+
+    private void compressionPolicy() {
+        jdbcTemplate.execute("SELECT remove_compression_policy('attendance_events', if_exists => TRUE)");
+        if (compressAfter == null) {
+            logger.info("[ROLLUPS] Compressão de attendance_events desligada");
+            return;
+        }
+        Boolean enabled = jdbcTemplate.queryForObject("SELECT compression_enabled FROM timescaledb_information.hypertables "
+                + "WHERE hypertable_name = 'attendance_events'", Boolean.class);
+        if (!Boolean.TRUE.equals(enabled)) {
+            // Só pode ser alterado antes de existir chunk comprimido
+            jdbcTemplate.execute("ALTER TABLE attendance_events SET (timescaledb.compress, "
+                    + "timescaledb.compress_segmentby = 'device_id', timescaledb.compress_orderby = 'event_time DESC, id')");
+        }
+        jdbcTemplate.queryForList("SELECT add_compression_policy('attendance_events', "
+                + "compress_after => CAST(? AS INTERVAL))", interval(compressAfter));
+        logger.info("[ROLLUPS] Chunks de attendance_events comprimidos após {}", compressAfter);
+    }
+
+    private void retentionPolicy() {
+        jdbcTemplate.execute("SELECT remove_retention_policy('attendance_events', if_exists => TRUE)");
+        if (retainFor == null) {
+            return; // Padrão: log bruto mantido para sempre
+        }
+        if (retainFor.compareTo(refreshLookback) <= 0) {
+            // Apagar chunks dentro da janela de refresh apagaria também as agregações
+            logger.warn("[ROLLUPS] retain-for ({}) deve ser maior que refresh-lookback ({}) - retenção ignorada",
+                    retainFor, refreshLookback);
+            return;
+        }
+        jdbcTemplate.queryForList("SELECT add_retention_policy('attendance_events', "
+                + "drop_after => CAST(? AS INTERVAL))", interval(retainFor));
+        logger.info("[ROLLUPS] Chunks de attendance_events removidos após {}", retainFor);
+    }
+
+    private static String interval(Duration duration) {
+        return duration.toSeconds() + " seconds";
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -24,6 +24,9 @@ public class AttendanceService {
     @Autowired
     private Counter attendanceRecordsCounter;
 
+    @Autowired
+    private OpenShiftIndex openShiftIndex;
+
     public Attendance createCheckIn(Long employeeId) {
         Employee employee = employeeRepository.findById(employeeId)
                 .orElseThrow(() -> new RuntimeException("Employee not found"));
@@ -42,12 +45,8 @@ public class AttendanceService {
         Employee employee = employeeRepository.findById(employeeId)
                 .orElseThrow(() -> new RuntimeException("Employee not found"));
 
-        List<Attendance> todayAttendances = attendanceRepository
-                .findByEmployeeAndDate(employee, LocalDate.now());
-
-        Attendance attendance = todayAttendances.stream()
-                .filter(a -> a.getCheckOut() == null)
-                .findFirst()
+        Attendance attendance = openShiftIndex.find(employee.getId(), LocalDate.now())
+                .flatMap(shift -> attendanceRepository.findById(shift.attendanceId()))
                 .orElseThrow(() -> new RuntimeException("No check-in found for today"));
 
         attendance.setCheckOut(LocalDateTime.now());
@@ -55,11 +54,11 @@ public class AttendanceService {
         return attendanceRepository.save(attendance);
     }
 
-    public List<Attendance> getEmployeeAttendances(Long employeeId) {
-        return attendanceRepository.findByEmployeeId(employeeId);
+    public List<AttendanceView> getEmployeeAttendances(Long employeeId) {
+        return attendanceRepository.findViewsByEmployeeId(employeeId);
     }
 
-    public List<Attendance> getAttendancesByDate(LocalDate date) {
-        return attendanceRepository.findByDate(date);
+    public List<AttendanceView> getAttendancesByDate(LocalDate date) {
+        return attendanceRepository.findViewsByDate(date);
     }
 }
\ No newline at end of file
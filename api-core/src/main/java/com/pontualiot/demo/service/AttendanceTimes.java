@@ -0,0 +1,13 @@
+package com.pontualiot.demo.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Horários de um registro de ponto, sem o funcionário.
+ *
+ * @param attendanceId ID do registro
+ * @param checkIn Horário de entrada
+ * @param checkOut Horário de saída (null se ainda trabalhando)
+ */
+public record AttendanceTimes(Long attendanceId, LocalDateTime checkIn, LocalDateTime checkOut) {
+}
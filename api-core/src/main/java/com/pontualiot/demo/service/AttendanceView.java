@@ -0,0 +1,52 @@
+package com.pontualiot.demo.service;
+
+import com.pontualiot.demo.entity.Attendance;
+import com.pontualiot.demo.entity.Employee;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Registro de ponto para listagens e relatórios (somente leitura).
+ *
+ * Montado direto na consulta (SELECT new ... com JOIN em employees): não
+ * passa pelo contexto de persistência e carrega do funcionário apenas
+ * ID e nome. O JSON mantém o formato da entidade, com "employee" aninhado.
+ *
+ * @param id ID do registro
+ * @param employee Funcionário (ID e nome)
+ * @param checkIn Horário de entrada
+ * @param checkOut Horário de saída (null se ainda trabalhando)
+ * @param date Data do registro
+ * @param createdAt Quando o registro foi criado
+ */
+public record AttendanceView(Long id, EmployeeRef employee, LocalDateTime checkIn, LocalDateTime checkOut,
+                             LocalDate date, LocalDateTime createdAt) {
+
+    /**
+     * Construtor usado pelas consultas JPQL (colunas planas).
+     */
+    public AttendanceView(Long id, Long employeeId, String employeeName, LocalDateTime checkIn,
+                          LocalDateTime checkOut, LocalDate date, LocalDateTime createdAt) {
+        this(id, new EmployeeRef(employeeId, employeeName), checkIn, checkOut, date, createdAt);
+    }
+
+    /**
+     * @param attendance Registro recém-gravado
+     * @param employee Funcionário já carregado (a associação da entidade é LAZY)
+     * @return Visão do registro
+     */
+    public static AttendanceView of(Attendance attendance, Employee employee) {
+        return new AttendanceView(attendance.getId(), employee.getId(), employee.getName(), attendance.getCheckIn(),
+                attendance.getCheckOut(), attendance.getDate(), attendance.getCreatedAt());
+    }
+
+    /**
+     * Funcionário de um registro.
+     *
+     * @param id ID do funcionário
+     * @param name Nome do funcionário
+     */
+    public record EmployeeRef(Long id, String name) {
+    }
+}
@@ -0,0 +1,459 @@
+package com.pontualiot.demo.service;
+
+import com.pontualiot.demo.mqtt.MqttAttendanceMessage;
+import com.pontualiot.demo.mqtt.MqttPayloadParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Importação em lote de batidas acumuladas por dispositivos que ficaram
+ * offline (NDJSON ou CSV).
+ *
+ * O corpo é lido linha a linha, sem nunca ser carregado inteiro em memória:
+ * 1. Cada linha passa pelas mesmas regras do MqttMessageValidator
+ *    (MqttPayloadParser); linhas inválidas são contadas e descartadas
+ * 2. Linhas válidas são acumuladas em blocos de chunk-rows
+ * 3. Cada bloco vai, em uma transação curta, para uma tabela temporária de
+ *    staging (no PostgreSQL via COPY, nos demais bancos via JDBC batch) e
+ *    um INSERT ... SELECT move o staging para o log attendance_events,
+ *    resolvendo employee_id por JOIN; RFIDs desconhecidos são rejeitados
+ *
+ * A conexão só é usada durante a gravação de um bloco, nunca enquanto o
+ * cliente envia o corpo, e nenhum ID do log fica reservado por mais que
+ * uma transação curta. Se a importação falhar no meio, os blocos já
+ * gravados permanecem; reenviar o arquivo é seguro porque a projeção
+ * mantém a entrada mais cedo e a saída mais tarde de cada dia.
+ * A tabela attendances é derivada do log pela projeção, como nas demais
+ * batidas.
+ */
+@Component
+public class BulkAttendanceImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkAttendanceImporter.class);
+
+    private static final String CREATE_STAGING_POSTGRES =
+            "CREATE TEMPORARY TABLE attendance_events_staging ("
+            + "line_no BIGINT NOT NULL, device_id VARCHAR(100) NOT NULL, rfid_tag VARCHAR(100) NOT NULL, "
+            + "event_type VARCHAR(20) NOT NULL, event_time TIMESTAMP NOT NULL) ON COMMIT DROP";
+
+    // H2: TRANSACTIONAL evita que o CREATE faça commit da transação aberta
+    private static final String CREATE_STAGING_H2 =
+            "CREATE LOCAL TEMPORARY TABLE attendance_events_staging ("
+            + "line_no BIGINT NOT NULL, device_id VARCHAR(100) NOT NULL, rfid_tag VARCHAR(100) NOT NULL, "
+            + "event_type VARCHAR(20) NOT NULL, event_time TIMESTAMP NOT NULL) ON COMMIT DROP TRANSACTIONAL";
+
+    private static final String COPY_STAGING =
+            "COPY attendance_events_staging (line_no, device_id, rfid_tag, event_type, event_time) "
+            + "FROM STDIN WITH (FORMAT csv)";
+
+    private static final String INSERT_STAGING =
+            "INSERT INTO attendance_events_staging (line_no, device_id, rfid_tag, event_type, event_time) "
+            + "VALUES (?, ?, ?, ?, ?)";
+
+    // Ordem por event_time: dentro do bloco o backlog chega à projeção em ordem cronológica
+    private static final String MERGE_STAGING =
+            "INSERT INTO attendance_events "
+            + "(employee_id, rfid_tag, device_id, event_type, event_time, origin, received_at) "
+            + "SELECT e.id, s.rfid_tag, s.device_id, s.event_type, s.event_time, ?, ? "
+            + "FROM attendance_events_staging s JOIN employees e ON e.rfid_tag = s.rfid_tag "
+            + "ORDER BY s.event_time, s.line_no";
+
+    // Mesmo limite das colunas de attendance_events
+    private static final int MAX_FIELD_LENGTH = 100;
+
+    // Limita o corpo da resposta em uploads com muitas linhas ruins
+    private static final int MAX_REPORTED_ERRORS = 50;
+
+    private static final int BATCH_ROWS = 500;
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    // Nomes das colunas do CSV, na ordem padrão (sem cabeçalho)
+    private static final String[] CSV_COLUMNS = {"deviceId", "rfidTag", "eventType", "timestamp"};
+
+    @Autowired
+    private MqttPayloadParser payloadParser;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${pontualiot.event-store.bulk-chunk-rows:5000}")
+    private int chunkRows;
+
+    private TransactionTemplate transactionTemplate;
+    private boolean postgres;
+    private Counter acceptedCounter;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    void init() throws SQLException {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        try (Connection connection = dataSource.getConnection()) {
+            postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+        }
+
+        acceptedCounter = Counter.builder("attendance_bulk_events_total")
+                .description("Attendance events received through bulk import")
+                .tag("result", "accepted")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("attendance_bulk_events_total")
+                .description("Attendance events received through bulk import")
+                .tag("result", "rejected")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Importa batidas em NDJSON: um objeto JSON por linha, no mesmo formato
+     * da mensagem MQTT.
+     *
+     * @param body Corpo da requisição (UTF-8)
+     * @return Contagem de batidas aceitas e rejeitadas
+     */
+    public BulkImportResult importNdjson(InputStream body) {
+        return importLines(body, new NdjsonFormat());
+    }
+
+    /**
+     * Importa batidas em CSV com as colunas deviceId, rfidTag, eventType e
+     * timestamp. Se a primeira linha for um cabeçalho, as colunas são
+     * localizadas pelo nome; sem cabeçalho vale a ordem acima.
+     *
+     * @param body Corpo da requisição (UTF-8)
+     * @return Contagem de batidas aceitas e rejeitadas
+     */
+    public BulkImportResult importCsv(InputStream body) {
+        return importLines(body, new CsvFormat());
+    }
+
+    private BulkImportResult importLines(InputStream body, LineFormat format) {
+        int rowsPerChunk = Math.max(1, chunkRows);
+        List<String> errors = new ArrayList<>();
+        List<StagedRow> chunk = new ArrayList<>(rowsPerChunk);
+        long rejected = 0;
+        long staged = 0;
+        long accepted = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            MqttAttendanceMessage message = new MqttAttendanceMessage(); // Reaproveitada entre linhas
+            String line;
+            long lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    if (!format.parse(line, message)) {
+                        continue; // Cabeçalho
+                    }
+                    checkLength(message);
+                    chunk.add(StagedRow.of(lineNo, message));
+                    staged++;
+                } catch (IllegalArgumentException e) {
+                    rejected++;
+                    if (errors.size() < MAX_REPORTED_ERRORS) {
+                        errors.add("linha " + lineNo + ": " + e.getMessage());
+                    }
+                }
+                if (chunk.size() == rowsPerChunk) {
+                    accepted += writeChunk(chunk);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                accepted += writeChunk(chunk);
+            }
+        } catch (IOException e) {
+            logInterrupted(accepted);
+            throw new UncheckedIOException("Falha ao ler importação em lote", e);
+        } catch (RuntimeException e) {
+            logInterrupted(accepted);
+            throw e;
+        }
+
+        long unknown = staged - accepted;
+        if (unknown > 0) {
+            rejected += unknown;
+            errors.add(unknown + " batidas com RFID desconhecido");
+        }
+        BulkImportResult result = new BulkImportResult(accepted, rejected, errors);
+
+        acceptedCounter.increment(result.accepted());
+        rejectedCounter.increment(result.rejected());
+        logger.info("[BULK] Importação concluída - aceitas: {}, rejeitadas: {}", result.accepted(), result.rejected());
+        return result;
+    }
+
+    /**
+     * Grava um bloco no log em uma transação própria.
+     *
+     * @return Batidas aceitas (RFID cadastrado)
+     */
+    private long writeChunk(List<StagedRow> chunk) {
+        Integer accepted = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute(postgres ? CREATE_STAGING_POSTGRES : CREATE_STAGING_H2);
+            try (StagingWriter staging = postgres ? new CopyStagingWriter() : new BatchStagingWriter()) {
+                for (StagedRow row : chunk) {
+                    staging.add(row);
+                }
+            } catch (IOException | SQLException e) {
+                throw new IllegalStateException("Falha ao gravar staging da importação em lote", e);
+            }
+            return jdbcTemplate.update(MERGE_STAGING, EventOrigin.HTTP.name(), Timestamp.valueOf(LocalDateTime.now()));
+        });
+        return accepted == null ? 0 : accepted;
+    }
+
+    private static void logInterrupted(long accepted) {
+        if (accepted > 0) {
+            logger.warn("[BULK] Importação interrompida - {} batidas de blocos anteriores já gravadas no log", accepted);
+        }
+    }
+
+    private static void checkLength(MqttAttendanceMessage message) {
+        if (message.getDeviceId().length() > MAX_FIELD_LENGTH) {
+            throw new IllegalArgumentException("Device ID excede " + MAX_FIELD_LENGTH + " caracteres");
+        }
+        if (message.getRfidTag().length() > MAX_FIELD_LENGTH) {
+            throw new IllegalArgumentException("RFID tag excede " + MAX_FIELD_LENGTH + " caracteres");
+        }
+    }
+
+    /**
+     * Converte uma linha do corpo em mensagem validada.
+     */
+    private interface LineFormat {
+
+        /**
+         * @return false se a linha não for uma batida (cabeçalho)
+         * @throws IllegalArgumentException se a batida for inválida
+         */
+        boolean parse(String line, MqttAttendanceMessage target);
+    }
+
+    private final class NdjsonFormat implements LineFormat {
+
+        @Override
+        public boolean parse(String line, MqttAttendanceMessage target) {
+            payloadParser.parse(line.getBytes(StandardCharsets.UTF_8), target);
+            return true;
+        }
+    }
+
+    private final class CsvFormat implements LineFormat {
+
+        // Posição de deviceId, rfidTag, eventType e timestamp
+        private int[] columns = {0, 1, 2, 3};
+        private boolean first = true;
+
+        @Override
+        public boolean parse(String line, MqttAttendanceMessage target) {
+            List<String> fields = splitCsv(line);
+            if (first) {
+                first = false;
+                if (isHeader(fields)) {
+                    columns = headerColumns(fields);
+                    return false;
+                }
+            }
+            payloadParser.parseFields(field(fields, columns[0]), field(fields, columns[1]),
+                    field(fields, columns[2]), field(fields, columns[3]), target);
+            return true;
+        }
+
+        // Cabeçalho: algum campo é exatamente o nome de uma coluna
+        private boolean isHeader(List<String> fields) {
+            for (String field : fields) {
+                if (columnIndex(field) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int[] headerColumns(List<String> header) {
+            int[] positions = {-1, -1, -1, -1};
+            for (int i = 0; i < header.size(); i++) {
+                int column = columnIndex(header.get(i));
+                if (column >= 0) {
+                    positions[column] = i;
+                }
+            }
+            return positions;
+        }
+
+        private int columnIndex(String name) {
+            String trimmed = name.trim();
+            for (int n = 0; n < CSV_COLUMNS.length; n++) {
+                if (CSV_COLUMNS[n].equalsIgnoreCase(trimmed)) {
+                    return n;
+                }
+            }
+            return -1;
+        }
+
+        // null = coluna ausente, para o parser reportar "campo não encontrado"
+        private String field(List<String> fields, int column) {
+            return column >= 0 && column < fields.size() ? fields.get(column) : null;
+        }
+    }
+
+    /**
+     * Separa uma linha CSV (RFC 4180, sem quebras de linha dentro de campos).
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Batida validada aguardando a gravação do seu bloco.
+     */
+    private record StagedRow(long lineNo, String deviceId, String rfidTag, String eventType,
+                             LocalDateTime timestamp) {
+
+        static StagedRow of(long lineNo, MqttAttendanceMessage message) {
+            return new StagedRow(lineNo, message.getDeviceId(), message.getRfidTag(),
+                    message.getEventType().name(), message.getTimestamp());
+        }
+    }
+
+    /**
+     * Destino das linhas válidas: a tabela de staging da transação atual.
+     */
+    private interface StagingWriter extends AutoCloseable {
+
+        void add(StagedRow row) throws SQLException, IOException;
+
+        @Override
+        void close() throws SQLException, IOException;
+    }
+
+    /**
+     * PostgreSQL: COPY FROM STDIN na conexão da transação, com buffer fixo.
+     */
+    private final class CopyStagingWriter implements StagingWriter {
+
+        private final Writer writer;
+
+        private CopyStagingWriter() throws SQLException {
+            Connection connection = DataSourceUtils.getConnection(dataSource); // Conexão da transação atual
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            this.writer = new OutputStreamWriter(
+                    new PGCopyOutputStream(pgConnection, COPY_STAGING, COPY_BUFFER_BYTES), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void add(StagedRow row) throws IOException {
+            writer.write(Long.toString(row.lineNo()));
+            writer.write(',');
+            writeQuoted(row.deviceId());
+            writer.write(',');
+            writeQuoted(row.rfidTag());
+            writer.write(',');
+            writer.write(row.eventType());
+            writer.write(',');
+            writer.write(row.timestamp().toString());
+            writer.write('\n');
+        }
+
+        private void writeQuoted(String value) throws IOException {
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close(); // Finaliza o COPY
+        }
+    }
+
+    /**
+     * Demais bancos (H2): INSERTs em JDBC batch de BATCH_ROWS linhas.
+     */
+    private final class BatchStagingWriter implements StagingWriter {
+
+        private final List<Object[]> rows = new ArrayList<>(BATCH_ROWS);
+
+        @Override
+        public void add(StagedRow row) {
+            rows.add(new Object[] {row.lineNo(), row.deviceId(), row.rfidTag(),
+                    row.eventType(), Timestamp.valueOf(row.timestamp())});
+            if (rows.size() == BATCH_ROWS) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_STAGING, rows);
+                rows.clear();
+            }
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+}
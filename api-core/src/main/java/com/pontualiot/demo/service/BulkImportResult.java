@@ -0,0 +1,13 @@
+package com.pontualiot.demo.service;
+
+import java.util.List;
+
+/**
+ * Resultado de uma importação em lote de batidas.
+ *
+ * @param accepted Batidas gravadas no log attendance_events
+ * @param rejected Batidas descartadas (inválidas ou com RFID desconhecido)
+ * @param errors Primeiros erros encontrados, com o número da linha
+ */
+public record BulkImportResult(long accepted, long rejected, List<String> errors) {
+}
@@ -0,0 +1,314 @@
+package com.pontualiot.demo.service;
+
+import com.pontualiot.demo.entity.Attendance;
+import com.pontualiot.demo.repository.AttendanceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Agregado diário de presença mantido em memória.
+ *
+ * Cada dia é carregado na primeira consulta (apenas id e horários dos
+ * registros, sem Employee) e depois mantido a cada escrita:
+ * - escritas JPA chegam pelo OpenShiftEntityListener
+ * - escritas JDBC (AttendanceBatchWriter) chamam recordWrite() diretamente
+ *
+ * As escritas são aplicadas após o commit; o agregado guarda o estado
+ * atual de cada registro, então aplicar a mesma escrita duas vezes (ou
+ * uma escrita já incluída na carga) não altera as contagens. O resumo é
+ * lido do agregado sem consultar o banco. Dias com escritas de outras
+ * instâncias são recarregados pelo AttendanceChangeFeed (refresh()); uma
+ * reconciliação agendada recarrega todos os dias em memória.
+ *
+ * A consulta ao banco roda fora do mapa, sem segurar o bin do
+ * ConcurrentHashMap; escritas que chegam durante a carga ficam em
+ * PendingLoad e são reaplicadas no dia carregado antes de instalá-lo.
+ */
+@Component
+public class DailyAttendanceAggregates {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailyAttendanceAggregates.class);
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Value("${pontualiot.reports.daily.max-days:31}")
+    private int maxDays;
+
+    // Escrita e leitura de um dia são serializadas pelo computeIfPresent() do mapa
+    private final Map<LocalDate, Day> days = new ConcurrentHashMap<>();
+
+    // Cargas em andamento, com as escritas recebidas durante cada uma
+    private final Map<LocalDate, PendingLoad> loading = new ConcurrentHashMap<>();
+
+    /**
+     * @param date Data do resumo
+     * @return Resumo do dia (carregado do banco na primeira consulta)
+     */
+    public DailyAttendanceSummary summary(LocalDate date) {
+        DailyAttendanceSummary summary;
+        while ((summary = read(date)) == null) {
+            loadAndInstall(date, false);
+        }
+        evictOldest(date);
+        return summary;
+    }
+
+    /**
+     * Atualiza o agregado após inserir ou alterar um registro de ponto.
+     * Dentro de uma transação, só é aplicado no commit.
+     */
+    public void recordWrite(Long attendanceId, LocalDateTime checkIn, LocalDateTime checkOut, LocalDate date) {
+        if (attendanceId == null || date == null) {
+            return;
+        }
+        afterCommit(new Write(attendanceId, checkIn, checkOut, date, false));
+    }
+
+    /**
+     * Atualiza o agregado após remover um registro de ponto.
+     */
+    public void recordRemoval(Long attendanceId, LocalDate date) {
+        if (attendanceId == null || date == null) {
+            return;
+        }
+        afterCommit(new Write(attendanceId, null, null, date, true));
+    }
+
+    void recordWrite(Attendance attendance) {
+        recordWrite(attendance.getId(), attendance.getCheckIn(), attendance.getCheckOut(), attendance.getDate());
+    }
+
+    void recordRemoval(Attendance attendance) {
+        recordRemoval(attendance.getId(), attendance.getDate());
+    }
+
+    /**
+     * @return Número de dias em memória
+     */
+    public int size() {
+        return days.size();
+    }
+
+    /**
+     * Recarrega do banco os dias em memória.
+     */
+    @Scheduled(fixedDelayString = "${pontualiot.reports.daily.reconcile-interval:PT5M}",
+               initialDelayString = "${pontualiot.reports.daily.reconcile-interval:PT5M}")
+    void reconcile() {
+        try {
+            refresh(new ArrayList<>(days.keySet()));
+        } catch (Exception e) {
+            logger.error("[DAILY-REPORT] ❌ Falha na reconciliação: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recarrega do banco os dias informados que estão em memória.
+     *
+     * @param dates Datas com escritas (as que não estão em memória são ignoradas)
+     */
+    public void refresh(Collection<LocalDate> dates) {
+        for (LocalDate date : dates) {
+            if (days.containsKey(date)) {
+                loadAndInstall(date, true);
+            }
+        }
+    }
+
+    private DailyAttendanceSummary read(LocalDate date) {
+        DailyAttendanceSummary[] summary = new DailyAttendanceSummary[1];
+        days.computeIfPresent(date, (d, day) -> {
+            summary[0] = day.summary(d);
+            return day;
+        });
+        return summary[0];
+    }
+
+    /**
+     * Carrega o dia do banco fora do mapa e o instala com as escritas
+     * recebidas durante a carga.
+     *
+     * @param replace true = substitui o dia em memória (reconciliação);
+     *                false = instala só se o dia ainda não estiver carregado
+     */
+    private void loadAndInstall(LocalDate date, boolean replace) {
+        // Registrada antes da consulta: escrita commitada depois dela é guardada aqui
+        PendingLoad pending = loading.computeIfAbsent(date, d -> new PendingLoad());
+        Day loaded;
+        try {
+            loaded = load(date);
+        } catch (RuntimeException e) {
+            synchronized (pending) {
+                if (!pending.installed) { // Devolve as escritas guardadas ao dia em memória
+                    pending.installed = true;
+                    loading.remove(date, pending);
+                    apply(pending.writes);
+                }
+            }
+            throw e;
+        }
+        synchronized (pending) {
+            if (pending.installed) {
+                return; // Carga concorrente do mesmo dia já instalou
+            }
+            for (Write write : pending.writes) {
+                write.applyTo(loaded);
+            }
+            if (replace) {
+                days.computeIfPresent(date, (d, day) -> loaded);
+            } else {
+                days.putIfAbsent(date, loaded);
+            }
+            pending.installed = true;
+            loading.remove(date, pending);
+        }
+    }
+
+    private Day load(LocalDate date) {
+        Day day = new Day();
+        for (AttendanceTimes times : attendanceRepository.findTimesByDate(date)) {
+            day.apply(times.attendanceId(), times.checkIn(), times.checkOut());
+        }
+        return day;
+    }
+
+    private void evictOldest(LocalDate keep) {
+        while (days.size() > Math.max(1, maxDays)) {
+            LocalDate oldest = Collections.min(days.keySet());
+            if (oldest.equals(keep)) {
+                return;
+            }
+            days.remove(oldest);
+        }
+    }
+
+    private void afterCommit(Write write) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(List.of(write));
+            return;
+        }
+        // Uma sincronização por transação acumula todas as escritas dela
+        @SuppressWarnings("unchecked")
+        List<Write> pending = (List<Write>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<Write> writes = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, writes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(writes);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DailyAttendanceAggregates.this);
+                }
+            });
+            pending = writes;
+        }
+        pending.add(write);
+    }
+
+    private void apply(List<Write> writes) {
+        for (Write write : writes) {
+            PendingLoad pending = loading.get(write.date());
+            if (pending != null) {
+                synchronized (pending) {
+                    if (!pending.installed) {
+                        pending.writes.add(write); // Reaplicada no dia carregado
+                        continue;
+                    }
+                }
+            }
+            days.computeIfPresent(write.date(), (d, day) -> { // Dia não carregado: a carga já verá a escrita
+                write.applyTo(day);
+                return day;
+            });
+        }
+    }
+
+    private record Write(Long attendanceId, LocalDateTime checkIn, LocalDateTime checkOut, LocalDate date,
+                         boolean removed) {
+
+        private void applyTo(Day day) {
+            if (removed) {
+                day.remove(attendanceId);
+            } else {
+                day.apply(attendanceId, checkIn, checkOut);
+            }
+        }
+    }
+
+    /**
+     * Carga de um dia em andamento.
+     */
+    private static final class PendingLoad {
+        private final List<Write> writes = new ArrayList<>();
+        private boolean installed;
+    }
+
+    /**
+     * Contagens de um dia e a contribuição de cada registro para elas.
+     */
+    private static final class Day {
+
+        // attendanceId -> (hora do check-in + 1) | (hora do check-out + 1) << 8; 0 = ausente
+        private final Map<Long, Integer> rows = new HashMap<>();
+        private final int[] checkInsByHour = new int[24];
+        private final int[] checkOutsByHour = new int[24];
+        private long checkedIn;
+        private long checkedOut;
+
+        private void apply(Long attendanceId, LocalDateTime checkIn, LocalDateTime checkOut) {
+            int state = (checkIn != null ? checkIn.getHour() + 1 : 0)
+                    | (checkOut != null ? checkOut.getHour() + 1 : 0) << 8;
+            Integer previous = rows.put(attendanceId, state);
+            if (previous != null) {
+                count(previous, -1);
+            }
+            count(state, 1);
+        }
+
+        private void remove(Long attendanceId) {
+            Integer previous = rows.remove(attendanceId);
+            if (previous != null) {
+                count(previous, -1);
+            }
+        }
+
+        private void count(int state, int delta) {
+            int in = state & 0xFF;
+            int out = state >>> 8;
+            if (in > 0) {
+                checkedIn += delta;
+                checkInsByHour[in - 1] += delta;
+            }
+            if (out > 0) {
+                checkedOut += delta;
+                checkOutsByHour[out - 1] += delta;
+            }
+        }
+
+        private DailyAttendanceSummary summary(LocalDate date) {
+            return new DailyAttendanceSummary(date, rows.size(), checkedIn, checkedOut, checkedIn - checkedOut,
+                    checkInsByHour.clone(), checkOutsByHour.clone());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.pontualiot.demo.service;
+
+import java.time.LocalDate;
+
+/**
+ * Resumo de presença de um dia.
+ *
+ * @param date Data do resumo
+ * @param totalEmployees Registros de ponto no dia
+ * @param checkedIn Registros com check-in
+ * @param checkedOut Registros com check-out
+ * @param stillWorking Registros com check-in e sem check-out
+ * @param checkInsByHour Check-ins por hora do dia (índice 0-23)
+ * @param checkOutsByHour Check-outs por hora do dia (índice 0-23)
+ */
+public record DailyAttendanceSummary(LocalDate date, long totalEmployees, long checkedIn, long checkedOut,
+                                     long stillWorking, int[] checkInsByHour, int[] checkOutsByHour) {
+}
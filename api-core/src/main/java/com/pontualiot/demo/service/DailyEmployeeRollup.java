@@ -0,0 +1,19 @@
+package com.pontualiot.demo.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Batidas de um funcionário em um dia.
+ *
+ * @param day Dia
+ * @param employeeId Funcionário
+ * @param events Total de batidas
+ * @param checkIns Batidas de entrada
+ * @param checkOuts Batidas de saída
+ * @param firstCheckIn Primeira entrada do dia (null se não houver)
+ * @param lastCheckOut Última saída do dia (null se não houver)
+ */
+public record DailyEmployeeRollup(LocalDate day, Long employeeId, long events, long checkIns, long checkOuts,
+                                  LocalDateTime firstCheckIn, LocalDateTime lastCheckOut) {
+}
@@ -0,0 +1,289 @@
+package com.pontualiot.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro em memória dos dispositivos vistos recentemente.
+ *
+ * Para cada deviceId guarda o último contato, a taxa de mensagens numa
+ * janela deslizante e o último erro. Um dispositivo sem mensagens por
+ * mais que silence-window deixa de contar como ativo e é removido na
+ * manutenção agendada.
+ *
+ * Quando a tabela pontual.devices existe (esquema da plataforma), o
+ * last_seen de cada dispositivo (serial_number = deviceId) é gravado em
+ * lote a cada flush-interval, nunca por mensagem.
+ */
+@Component
+public class DeviceRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceRegistry.class);
+
+    private static final int RATE_BUCKETS = 12;
+
+    private static final String UPDATE_LAST_SEEN =
+            "UPDATE pontual.devices SET last_seen = ?, updated_at = CURRENT_TIMESTAMP "
+            + "WHERE serial_number = ? AND (last_seen IS NULL OR last_seen < ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${pontualiot.devices.silence-window:5m}")
+    private Duration silenceWindow;
+
+    @Value("${pontualiot.devices.rate-window:1m}")
+    private Duration rateWindow;
+
+    private Clock clock = Clock.systemDefaultZone();
+
+    private final Map<String, DeviceState> devices = new ConcurrentHashMap<>();
+    private boolean lastSeenTable;
+
+    @PostConstruct
+    void init() {
+        Integer tables = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.tables "
+                + "WHERE LOWER(table_schema) = 'pontual' AND LOWER(table_name) = 'devices'", Integer.class);
+        lastSeenTable = tables != null && tables > 0;
+        logger.info("[DEVICES] Registro iniciado - silêncio: {}, last_seen em pontual.devices: {}",
+                silenceWindow, lastSeenTable ? "sim" : "não");
+    }
+
+    /**
+     * Registra uma mensagem recebida do dispositivo.
+     *
+     * @param deviceId ID do dispositivo (ignorado se vazio)
+     */
+    public void recordMessage(String deviceId) {
+        if (deviceId == null || deviceId.isBlank()) {
+            return;
+        }
+        long now = clock.millis();
+        // compute: serializa com a expiração do mesmo dispositivo
+        devices.compute(deviceId, (id, state) -> {
+            DeviceState current = state != null ? state : new DeviceState(id, now);
+            current.hit(now, bucketMillis());
+            return current;
+        });
+    }
+
+    /**
+     * Registra o último erro de um dispositivo ativo. Não conta como
+     * contato: erros podem ser detectados bem depois da mensagem.
+     *
+     * @param deviceId ID do dispositivo
+     * @param error Descrição do erro
+     */
+    public void recordError(String deviceId, String error) {
+        if (deviceId == null) {
+            return;
+        }
+        DeviceState state = devices.get(deviceId);
+        if (state != null) {
+            state.error(error, clock.millis());
+        }
+    }
+
+    /**
+     * @return Dispositivos com mensagem dentro de silence-window
+     */
+    public int activeCount() {
+        long cutoff = clock.millis() - silenceWindow.toMillis();
+        int active = 0;
+        for (DeviceState state : devices.values()) {
+            if (state.lastSeen >= cutoff) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    /**
+     * @return Estatísticas dos dispositivos ativos, ordenadas por deviceId
+     */
+    public List<DeviceStats> list() {
+        long now = clock.millis();
+        List<DeviceStats> stats = new ArrayList<>();
+        for (DeviceState state : devices.values()) {
+            if (isActive(state, now)) {
+                stats.add(state.stats(now));
+            }
+        }
+        stats.sort(Comparator.comparing(DeviceStats::deviceId));
+        return stats;
+    }
+
+    /**
+     * @param deviceId ID do dispositivo
+     * @return Estatísticas do dispositivo, se estiver ativo
+     */
+    public Optional<DeviceStats> find(String deviceId) {
+        long now = clock.millis();
+        return Optional.ofNullable(devices.get(deviceId))
+                .filter(state -> isActive(state, now))
+                .map(state -> state.stats(now));
+    }
+
+    @Scheduled(fixedDelayString = "${pontualiot.devices.flush-interval:PT30S}",
+               initialDelayString = "${pontualiot.devices.flush-interval:PT30S}")
+    void scheduledMaintenance() {
+        try {
+            flushLastSeen();
+        } catch (Exception e) {
+            logger.error("[DEVICES] ❌ Falha ao gravar last_seen: {}", e.getMessage());
+        }
+        expireSilent();
+    }
+
+    /**
+     * Grava em lote o last_seen dos dispositivos com contato desde o
+     * último flush.
+     *
+     * @return Número de dispositivos enviados ao banco
+     */
+    int flushLastSeen() {
+        if (!lastSeenTable) {
+            return 0;
+        }
+        List<DeviceState> changed = new ArrayList<>();
+        List<Object[]> params = new ArrayList<>();
+        for (DeviceState state : devices.values()) {
+            long lastSeen = state.lastSeen;
+            if (lastSeen > state.flushedLastSeen) {
+                Timestamp timestamp = Timestamp.from(Instant.ofEpochMilli(lastSeen));
+                params.add(new Object[]{timestamp, state.deviceId, timestamp});
+                changed.add(state);
+                state.pendingFlush = lastSeen;
+            }
+        }
+        if (params.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_LAST_SEEN, params);
+        changed.forEach(state -> state.flushedLastSeen = state.pendingFlush);
+        logger.debug("[DEVICES] last_seen gravado para {} dispositivos", changed.size());
+        return changed.size();
+    }
+
+    /**
+     * Remove dispositivos silenciosos há mais que silence-window.
+     *
+     * @return Número de dispositivos removidos
+     */
+    int expireSilent() {
+        long now = clock.millis();
+        int expired = 0;
+        for (String deviceId : devices.keySet()) {
+            // Sem a tabela não há last_seen a preservar; com ela, espera o flush
+            boolean removed = devices.computeIfPresent(deviceId, (id, state) -> !isActive(state, now)
+                    && (!lastSeenTable || state.flushedLastSeen >= state.lastSeen) ? null : state) == null;
+            if (removed) {
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            logger.info("[DEVICES] {} dispositivos expirados por silêncio", expired);
+        }
+        return expired;
+    }
+
+    private boolean isActive(DeviceState state, long now) {
+        return now - state.lastSeen <= silenceWindow.toMillis();
+    }
+
+    private long bucketMillis() {
+        return Math.max(1, rateWindow.toMillis() / RATE_BUCKETS);
+    }
+
+    private LocalDateTime toLocal(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), clock.getZone());
+    }
+
+    /**
+     * Estado mutável de um dispositivo.
+     */
+    private final class DeviceState {
+
+        private final String deviceId;
+        private final long firstSeen;
+        private volatile long lastSeen;
+        private long messages;
+        private String lastError;
+        private long lastErrorAt;
+        private volatile long flushedLastSeen;
+        private long pendingFlush;
+
+        // Janela deslizante: contagem por intervalo de bucketMillis
+        private final long[] bucketIndex = new long[RATE_BUCKETS];
+        private final int[] bucketCount = new int[RATE_BUCKETS];
+
+        private DeviceState(String deviceId, long now) {
+            this.deviceId = deviceId;
+            this.firstSeen = now;
+        }
+
+        private synchronized void hit(long now, long bucketMillis) {
+            long index = now / bucketMillis;
+            int slot = (int) (index % RATE_BUCKETS);
+            if (bucketIndex[slot] != index) {
+                bucketIndex[slot] = index;
+                bucketCount[slot] = 0;
+            }
+            bucketCount[slot]++;
+            messages++;
+            lastSeen = Math.max(lastSeen, now);
+        }
+
+        private synchronized void error(String error, long now) {
+            lastError = error;
+            lastErrorAt = now;
+        }
+
+        private synchronized DeviceStats stats(long now) {
+            long bucketMillis = bucketMillis();
+            long current = now / bucketMillis;
+            long inWindow = 0;
+            for (int i = 0; i < RATE_BUCKETS; i++) {
+                if (current - bucketIndex[i] < RATE_BUCKETS) {
+                    inWindow += bucketCount[i];
+                }
+            }
+            double perMinute = inWindow * 60_000.0 / (bucketMillis * RATE_BUCKETS);
+            return new DeviceStats(deviceId, toLocal(firstSeen), toLocal(lastSeen), messages, perMinute,
+                    lastError, lastError == null ? null : toLocal(lastErrorAt));
+        }
+    }
+
+    /**
+     * Estatísticas de um dispositivo ativo.
+     *
+     * @param deviceId ID do dispositivo
+     * @param firstSeen Primeiro contato desde que ficou ativo
+     * @param lastSeen Último contato
+     * @param messages Mensagens desde que ficou ativo
+     * @param messagesPerMinute Taxa na janela deslizante (rate-window)
+     * @param lastError Último erro atribuído ao dispositivo, se houver
+     * @param lastErrorAt Quando o último erro ocorreu
+     */
+    public record DeviceStats(String deviceId, LocalDateTime firstSeen, LocalDateTime lastSeen, long messages,
+                              double messagesPerMinute, String lastError, LocalDateTime lastErrorAt) {
+    }
+}
@@ -0,0 +1,123 @@
+package com.pontualiot.demo.service;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.pontualiot.demo.entity.Employee;
+import com.pontualiot.demo.repository.EmployeeRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cache read-through de rfidTag -> funcionário usado no caminho quente da
+ * ingestão MQTT.
+ *
+ * Guarda apenas o necessário para registrar ponto (id, nome, ativo). Tags
+ * desconhecidas não são cacheadas, então um funcionário recém-cadastrado é
+ * encontrado na primeira leitura. EmployeeController invalida a entrada
+ * sempre que a tag ou o status ativo mudam.
+ *
+ * Métricas: cache_gets, cache_puts, cache_evictions e cache_size
+ * com tag cache=employee_rfid.
+ */
+@Component
+public class EmployeeLookupCache {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${pontualiot.cache.employee.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${pontualiot.cache.employee.expire-after-write:10m}")
+    private Duration expireAfterWrite;
+
+    private LoadingCache<String, CachedEmployee> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite) // Rede de segurança para alterações feitas fora da API
+                .recordStats()
+                .build(new Loader());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "employee_rfid");
+    }
+
+    /**
+     * @param rfidTag Tag RFID lida pelo dispositivo
+     * @return Funcionário cacheado ou vazio se a tag não estiver cadastrada
+     */
+    public Optional<CachedEmployee> find(String rfidTag) {
+        return Optional.ofNullable(cache.get(rfidTag));
+    }
+
+    /**
+     * Resolve várias tags de uma vez; as ausentes no cache são carregadas
+     * com uma única consulta.
+     *
+     * @param rfidTags Tags RFID de um lote
+     * @return Mapa tag -> funcionário (tags desconhecidas são omitidas)
+     */
+    public Map<String, CachedEmployee> findAll(Collection<String> rfidTags) {
+        return cache.getAll(rfidTags);
+    }
+
+    /**
+     * Remove a tag do cache. Chamado após criar, alterar ou remover um funcionário.
+     *
+     * @param rfidTag Tag RFID (ignorado se null)
+     */
+    public void invalidate(String rfidTag) {
+        if (rfidTag != null) {
+            cache.invalidate(rfidTag);
+        }
+    }
+
+    private final class Loader implements CacheLoader<String, CachedEmployee> {
+
+        @Override
+        public CachedEmployee load(String rfidTag) {
+            return employeeRepository.findByRfidTag(rfidTag)
+                    .map(CachedEmployee::of)
+                    .orElse(null); // null = não cacheia
+        }
+
+        @Override
+        public Map<String, CachedEmployee> loadAll(Set<? extends String> rfidTags) {
+            return employeeRepository.findByRfidTagIn(Set.copyOf(rfidTags)).stream()
+                    .map(CachedEmployee::of)
+                    .collect(Collectors.toMap(CachedEmployee::rfidTag, Function.identity()));
+        }
+    }
+
+    /**
+     * Dados do funcionário mantidos em cache.
+     *
+     * @param id ID do funcionário
+     * @param rfidTag Tag RFID
+     * @param name Nome (usado em mensagens de erro e logs)
+     * @param active Se pode registrar ponto
+     */
+    public record CachedEmployee(Long id, String rfidTag, String name, boolean active) {
+
+        static CachedEmployee of(Employee employee) {
+            return new CachedEmployee(employee.getId(), employee.getRfidTag(), employee.getName(), employee.isActive());
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.pontualiot.demo.service;
+
+/**
+ * Origem de uma batida gravada no log attendance_events.
+ */
+public enum EventOrigin {
+    MQTT,
+    HTTP
+}
@@ -0,0 +1,15 @@
+package com.pontualiot.demo.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Batidas de um dispositivo em uma hora.
+ *
+ * @param bucket Início da hora
+ * @param deviceId Dispositivo
+ * @param events Total de batidas
+ * @param checkIns Batidas de entrada
+ * @param checkOuts Batidas de saída
+ */
+public record HourlyDeviceRollup(LocalDateTime bucket, String deviceId, long events, long checkIns, long checkOuts) {
+}
@@ -0,0 +1,143 @@
+package com.pontualiot.demo.service;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Armazenamento de bytes fora do heap (ByteBuffer direto), com limite
+ * total em bytes e remoção do menos usado recentemente (LRU). Opcionalmente
+ * as entradas expiram após um tempo fixo desde a gravação.
+ *
+ * Usado como segunda camada de cache: valores grandes e imutáveis ficam
+ * fora do heap e não pesam no GC. O índice (chaves) fica no heap.
+ *
+ * @param <K> Tipo da chave (equals/hashCode estáveis)
+ */
+public class OffHeapByteStore<K> {
+
+    private final long maxBytes;
+    private final long timeToLiveNanos;
+
+    // accessOrder = true: iteração começa pela entrada menos usada
+    private final LinkedHashMap<K, Slot> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    /**
+     * @param maxBytes Limite total dos valores armazenados
+     */
+    public OffHeapByteStore(long maxBytes) {
+        this(maxBytes, null);
+    }
+
+    /**
+     * @param maxBytes Limite total dos valores armazenados
+     * @param timeToLive Validade de cada entrada desde a gravação (null = não expira)
+     */
+    public OffHeapByteStore(long maxBytes, Duration timeToLive) {
+        this.maxBytes = maxBytes;
+        this.timeToLiveNanos = timeToLive != null ? timeToLive.toNanos() : Long.MAX_VALUE;
+    }
+
+    /**
+     * @param key Chave
+     * @return Cópia do valor no heap, ou null se ausente ou expirado
+     */
+    public synchronized byte[] get(K key) {
+        Slot slot = live(key);
+        if (slot == null) {
+            return null;
+        }
+        byte[] value = new byte[slot.buffer().remaining()];
+        slot.buffer().duplicate().get(value);
+        return value;
+    }
+
+    /**
+     * @param key Chave
+     * @return true se há valor válido para a chave
+     */
+    public synchronized boolean contains(K key) {
+        return live(key) != null;
+    }
+
+    /**
+     * Grava o valor, removendo as entradas menos usadas até caber no limite.
+     *
+     * @param key Chave
+     * @param value Valor (copiado para fora do heap)
+     * @return false se o valor sozinho excede o limite (não é gravado)
+     */
+    public synchronized boolean put(K key, byte[] value) {
+        remove(key);
+        if (value.length > maxBytes) {
+            return false;
+        }
+        Iterator<Slot> eldest = entries.values().iterator();
+        while (usedBytes + value.length > maxBytes && eldest.hasNext()) {
+            usedBytes -= eldest.next().buffer().capacity();
+            eldest.remove();
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(value.length);
+        buffer.put(value).flip();
+        entries.put(key, new Slot(buffer, System.nanoTime()));
+        usedBytes += value.length;
+        return true;
+    }
+
+    /**
+     * @param key Chave a remover (ignorada se ausente)
+     */
+    public synchronized void remove(K key) {
+        Slot previous = entries.remove(key);
+        if (previous != null) {
+            usedBytes -= previous.buffer().capacity();
+        }
+    }
+
+    /**
+     * @param filter Remove as entradas cujas chaves satisfazem o filtro
+     */
+    public synchronized void removeIf(Predicate<? super K> filter) {
+        Iterator<Map.Entry<K, Slot>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<K, Slot> entry = iterator.next();
+            if (filter.test(entry.getKey())) {
+                usedBytes -= entry.getValue().buffer().capacity();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return Número de entradas
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Bytes ocupados fora do heap
+     */
+    public synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    private Slot live(K key) {
+        Slot slot = entries.get(key);
+        if (slot != null && System.nanoTime() - slot.storedAt() >= timeToLiveNanos) {
+            remove(key);
+            return null;
+        }
+        return slot;
+    }
+
+    /**
+     * Valor fora do heap e instante da gravação (System.nanoTime).
+     */
+    private record Slot(ByteBuffer buffer, long storedAt) {
+    }
+}
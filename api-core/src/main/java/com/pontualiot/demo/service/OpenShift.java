@@ -0,0 +1,15 @@
+package com.pontualiot.demo.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Jornada em aberto (check-in sem check-out) de um funcionário.
+ *
+ * @param employeeId ID do funcionário
+ * @param attendanceId ID do registro em aberto
+ * @param checkIn Horário de entrada
+ * @param date Data do registro
+ */
+public record OpenShift(Long employeeId, Long attendanceId, LocalDateTime checkIn, LocalDate date) {
+}
@@ -0,0 +1,70 @@
+package com.pontualiot.demo.service;
+
+import com.pontualiot.demo.entity.Attendance;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Listener JPA que mantém o OpenShiftIndex, o DailyAttendanceAggregates e
+ * o AttendanceQueryCache atualizados a cada escrita de Attendance feita
+ * via repositório.
+ *
+ * Instanciado pelo Hibernate através do container de beans do Spring.
+ * Em contextos sem esses beans (ex: @DataJpaTest) os callbacks não fazem nada.
+ */
+public class OpenShiftEntityListener {
+
+    @Autowired
+    private ObjectProvider<OpenShiftIndex> openShiftIndex;
+
+    @Autowired
+    private ObjectProvider<DailyAttendanceAggregates> dailyAggregates;
+
+    @Autowired
+    private ObjectProvider<AttendanceQueryCache> queryCache;
+
+    @PostPersist
+    @PostUpdate
+    void afterWrite(Attendance attendance) {
+        OpenShiftIndex index = index();
+        if (index != null) {
+            index.recordWrite(attendance);
+        }
+        DailyAttendanceAggregates aggregates = aggregates();
+        if (aggregates != null) {
+            aggregates.recordWrite(attendance);
+        }
+        invalidateQueries(attendance);
+    }
+
+    @PostRemove
+    void afterRemove(Attendance attendance) {
+        OpenShiftIndex index = index();
+        if (index != null) {
+            index.recordRemoval(attendance);
+        }
+        DailyAttendanceAggregates aggregates = aggregates();
+        if (aggregates != null) {
+            aggregates.recordRemoval(attendance);
+        }
+        invalidateQueries(attendance);
+    }
+
+    private void invalidateQueries(Attendance attendance) {
+        AttendanceQueryCache cache = queryCache != null ? queryCache.getIfAvailable() : null;
+        if (cache != null && attendance.getEmployee() != null) {
+            cache.recordWrite(attendance.getEmployee().getId(), attendance.getDate());
+        }
+    }
+
+    private OpenShiftIndex index() {
+        return openShiftIndex != null ? openShiftIndex.getIfAvailable() : null;
+    }
+
+    private DailyAttendanceAggregates aggregates() {
+        return dailyAggregates != null ? dailyAggregates.getIfAvailable() : null;
+    }
+}
@@ -0,0 +1,224 @@
+package com.pontualiot.demo.service;
+
+import com.pontualiot.demo.entity.Attendance;
+import com.pontualiot.demo.repository.AttendanceRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Índice em memória employeeId -> jornada em aberto.
+ *
+ * Permite decidir entre check-in e check-out sem consultar o banco.
+ * É aquecido na inicialização com uma única consulta sobre os registros
+ * com check_out nulo e mantido atualizado a cada escrita:
+ * - escritas JPA chegam pelo OpenShiftEntityListener
+ * - escritas JDBC (AttendanceBatchWriter) chamam recordWrite() diretamente
+ *
+ * Escritas dentro de uma transação são aplicadas imediatamente (a própria
+ * transação enxerga o novo estado) e desfeitas se houver rollback.
+ * Escritas de outras instâncias chegam pelo AttendanceChangeFeed
+ * (refresh()); uma reconciliação agendada corrige divergências restantes.
+ */
+@Component
+public class OpenShiftIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenShiftIndex.class);
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    private final Map<Long, OpenShift> shifts = new ConcurrentHashMap<>();
+
+    // Sequência da última escrita por funcionário, usada pela reconciliação
+    // para não sobrescrever escritas que aconteceram durante a consulta
+    private final Map<Long, Long> lastWrite = new ConcurrentHashMap<>();
+    private final AtomicLong writeSequence = new AtomicLong();
+
+    // Funcionários com escrita em transação ainda não finalizada
+    private final Map<Long, Integer> pending = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void warmUp() {
+        int loaded = reconcile();
+        logger.info("[OPEN-SHIFT] Índice aquecido - {} jornadas em aberto", loaded);
+    }
+
+    /**
+     * @param employeeId ID do funcionário
+     * @return Jornada em aberto mais recente do funcionário, se houver
+     */
+    public Optional<OpenShift> find(Long employeeId) {
+        return Optional.ofNullable(shifts.get(employeeId));
+    }
+
+    /**
+     * @param employeeId ID do funcionário
+     * @param date Data do registro
+     * @return Jornada em aberto do funcionário na data, se houver
+     */
+    public Optional<OpenShift> find(Long employeeId, LocalDate date) {
+        return find(employeeId).filter(shift -> shift.date().equals(date));
+    }
+
+    /**
+     * @return Número de jornadas em aberto no índice
+     */
+    public int size() {
+        return shifts.size();
+    }
+
+    /**
+     * Atualiza o índice após inserir ou alterar um registro de ponto.
+     *
+     * Registro sem check-out passa a ser a jornada em aberto do funcionário
+     * (se for o mais recente); registro com check-out fecha a jornada
+     * correspondente.
+     */
+    public void recordWrite(Long employeeId, Long attendanceId, LocalDateTime checkIn,
+                            LocalDateTime checkOut, LocalDate date) {
+        if (employeeId == null || attendanceId == null) {
+            return;
+        }
+        if (checkIn != null && checkOut == null) {
+            OpenShift shift = new OpenShift(employeeId, attendanceId, checkIn, date);
+            apply(employeeId, current -> current == null || current.attendanceId() <= attendanceId ? shift : current);
+        } else {
+            recordRemoval(employeeId, attendanceId);
+        }
+    }
+
+    /**
+     * Atualiza o índice após remover (ou fechar) um registro de ponto.
+     */
+    public void recordRemoval(Long employeeId, Long attendanceId) {
+        if (employeeId == null || attendanceId == null) {
+            return;
+        }
+        apply(employeeId, current -> current != null && current.attendanceId().equals(attendanceId) ? null : current);
+    }
+
+    void recordWrite(Attendance attendance) {
+        Long employeeId = attendance.getEmployee() != null ? attendance.getEmployee().getId() : null;
+        recordWrite(employeeId, attendance.getId(), attendance.getCheckIn(), attendance.getCheckOut(), attendance.getDate());
+    }
+
+    void recordRemoval(Attendance attendance) {
+        Long employeeId = attendance.getEmployee() != null ? attendance.getEmployee().getId() : null;
+        recordRemoval(employeeId, attendance.getId());
+    }
+
+    /**
+     * Reconcilia o índice com o banco.
+     *
+     * Funcionários escritos durante a consulta, ou com transação ainda em
+     * andamento, são ignorados: o índice já tem o estado mais novo para eles.
+     *
+     * @return Número de jornadas em aberto após a reconciliação
+     */
+    public int reconcile() {
+        long startedAt = writeSequence.get();
+        Map<Long, OpenShift> snapshot = snapshot(attendanceRepository.findOpenShifts());
+
+        Set<Long> employeeIds = new HashSet<>(shifts.keySet());
+        employeeIds.addAll(snapshot.keySet());
+
+        int corrected = correct(employeeIds, snapshot, startedAt);
+        if (corrected > 0) {
+            logger.info("[OPEN-SHIFT] Reconciliação corrigiu {} funcionários", corrected);
+        }
+        return shifts.size();
+    }
+
+    /**
+     * Relê do banco a jornada em aberto de alguns funcionários (escritas
+     * feitas por outras instâncias), com as mesmas regras de reconcile().
+     *
+     * @param employeeIds Funcionários a reler
+     * @return Número de funcionários corrigidos
+     */
+    public int refresh(Collection<Long> employeeIds) {
+        if (employeeIds.isEmpty()) {
+            return 0;
+        }
+        long startedAt = writeSequence.get();
+        Map<Long, OpenShift> snapshot = snapshot(attendanceRepository.findOpenShiftsByEmployeeIds(employeeIds));
+        return correct(employeeIds, snapshot, startedAt);
+    }
+
+    private static Map<Long, OpenShift> snapshot(Iterable<OpenShift> openShifts) {
+        Map<Long, OpenShift> snapshot = new HashMap<>();
+        for (OpenShift shift : openShifts) {
+            snapshot.put(shift.employeeId(), shift); // ORDER BY id: o mais recente prevalece
+        }
+        return snapshot;
+    }
+
+    private int correct(Collection<Long> employeeIds, Map<Long, OpenShift> snapshot, long startedAt) {
+        int corrected = 0;
+        for (Long employeeId : employeeIds) {
+            if (lastWrite.getOrDefault(employeeId, 0L) > startedAt || pending.containsKey(employeeId)) {
+                continue;
+            }
+            OpenShift expected = snapshot.get(employeeId);
+            OpenShift previous = expected == null ? shifts.remove(employeeId) : shifts.put(employeeId, expected);
+            if (!Objects.equals(previous, expected)) {
+                corrected++;
+            }
+        }
+        return corrected;
+    }
+
+    @Scheduled(fixedDelayString = "${pontualiot.open-shifts.reconcile-interval:PT5M}",
+               initialDelayString = "${pontualiot.open-shifts.reconcile-interval:PT5M}")
+    void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            logger.error("[OPEN-SHIFT] ❌ Falha na reconciliação: {}", e.getMessage());
+        }
+    }
+
+    private void apply(Long employeeId, UnaryOperator<OpenShift> change) {
+        OpenShift[] before = new OpenShift[1];
+        OpenShift after = shifts.compute(employeeId, (id, current) -> {
+            before[0] = current;
+            return change.apply(current);
+        });
+        lastWrite.put(employeeId, writeSequence.incrementAndGet());
+
+        if (!Objects.equals(before[0], after) && TransactionSynchronizationManager.isSynchronizationActive()) {
+            OpenShift previous = before[0];
+            pending.merge(employeeId, 1, Integer::sum);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    pending.computeIfPresent(employeeId, (id, count) -> count > 1 ? count - 1 : null);
+                    if (status == STATUS_ROLLED_BACK) {
+                        // Desfaz apenas se ninguém escreveu depois
+                        shifts.compute(employeeId, (id, current) -> Objects.equals(current, after) ? previous : current);
+                        lastWrite.put(employeeId, writeSequence.incrementAndGet());
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,36 @@
+-- Log append-only de batidas de ponto (MQTT e HTTP)
+-- Mesmo formato de pontual.attendance_events, mas ligado ao modelo da API:
+-- employee_id referencia employees.id (BIGINT) e device_id é o identificador
+-- publicado pelo dispositivo. A tabela attendances é derivada deste log.
+CREATE TABLE IF NOT EXISTS attendance_events (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    employee_id BIGINT,
+    rfid_tag VARCHAR(100) NOT NULL,
+    device_id VARCHAR(100) NOT NULL,
+    event_type VARCHAR(20) NOT NULL CHECK (event_type IN ('CHECK_IN', 'CHECK_OUT')),
+    event_time TIMESTAMP NOT NULL,
+    origin VARCHAR(10) NOT NULL CHECK (origin IN ('MQTT', 'HTTP')),
+    received_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_attendance_events_id ON attendance_events (id);
+CREATE INDEX IF NOT EXISTS idx_attendance_events_employee_time ON attendance_events (employee_id, event_time DESC);
+CREATE INDEX IF NOT EXISTS idx_attendance_events_device_time ON attendance_events (device_id, event_time DESC);
+-- Janela recente (reconstrução da deduplicação MQTT na partida)
+CREATE INDEX IF NOT EXISTS idx_attendance_events_received_at ON attendance_events (received_at);
+
+-- Posição de cada projeção derivada do log (último evento aplicado)
+CREATE TABLE IF NOT EXISTS attendance_event_projections (
+    name VARCHAR(50) PRIMARY KEY,
+    last_event_id BIGINT NOT NULL
+);
+
+-- Faixas de IDs que a projeção pulou depois de gap-timeout. Relidas até o
+-- evento aparecer (transação lenta) ou até gap-retention (rollback).
+CREATE TABLE IF NOT EXISTS attendance_event_gaps (
+    projection VARCHAR(50) NOT NULL,
+    first_id BIGINT NOT NULL,
+    last_id BIGINT NOT NULL,
+    skipped_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (projection, first_id)
+);
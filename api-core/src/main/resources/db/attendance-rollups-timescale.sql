@@ -0,0 +1,30 @@
+-- Continuous aggregates sobre o log attendance_events (somente com TimescaleDB)
+-- materialized_only = false: consultas combinam o materializado com os
+-- eventos ainda não agregados (tempo real)
+
+-- Batidas por dispositivo, por hora
+CREATE MATERIALIZED VIEW IF NOT EXISTS attendance_events_hourly_by_device
+WITH (timescaledb.continuous, timescaledb.materialized_only = false) AS
+SELECT time_bucket(INTERVAL '1 hour', event_time) AS bucket,
+       device_id,
+       COUNT(*) AS events,
+       SUM(CASE WHEN event_type = 'CHECK_IN' THEN 1 ELSE 0 END) AS check_ins,
+       SUM(CASE WHEN event_type = 'CHECK_OUT' THEN 1 ELSE 0 END) AS check_outs
+FROM attendance_events
+GROUP BY bucket, device_id
+WITH NO DATA;
+
+-- Batidas por funcionário, por dia
+CREATE MATERIALIZED VIEW IF NOT EXISTS attendance_events_daily_by_employee
+WITH (timescaledb.continuous, timescaledb.materialized_only = false) AS
+SELECT time_bucket(INTERVAL '1 day', event_time) AS bucket,
+       employee_id,
+       COUNT(*) AS events,
+       SUM(CASE WHEN event_type = 'CHECK_IN' THEN 1 ELSE 0 END) AS check_ins,
+       SUM(CASE WHEN event_type = 'CHECK_OUT' THEN 1 ELSE 0 END) AS check_outs,
+       MIN(CASE WHEN event_type = 'CHECK_IN' THEN event_time END) AS first_check_in,
+       MAX(CASE WHEN event_type = 'CHECK_OUT' THEN event_time END) AS last_check_out
+FROM attendance_events
+WHERE employee_id IS NOT NULL
+GROUP BY bucket, employee_id
+WITH NO DATA;
@@ -0,0 +1,54 @@
+package com.pontualiot.demo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.coyote.ProtocolHandler;
+import org.apache.coyote.http11.Http11NioProtocol;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionConfigTest {
+
+    @Test
+    void shouldMonitorTomcatVirtualThreadExecutor() throws InterruptedException {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory();
+        new ExecutionConfig().tomcatExecutorMetrics(meterRegistry).customize(factory);
+
+        // Executor que o Spring Boot instala com spring.threads.virtual.enabled
+        Http11NioProtocol protocol = new Http11NioProtocol();
+        VirtualThreadExecutor virtualThreads = new VirtualThreadExecutor("tomcat-handler-");
+        protocol.setExecutor(virtualThreads);
+        factory.getTomcatProtocolHandlerCustomizers().forEach(customizer -> customize(customizer, protocol));
+
+        assertNotSame(virtualThreads, protocol.getExecutor());
+        assertNotNull(meterRegistry.find("executor.execution").tag("name", "tomcat").tag("threads", "virtual").timer());
+
+        CountDownLatch done = new CountDownLatch(1);
+        protocol.getExecutor().execute(done::countDown); // Continua executando no executor original
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldKeepTomcatExecutorUnsetWhenNoneIsConfigured() {
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory();
+        new ExecutionConfig().tomcatExecutorMetrics(new SimpleMeterRegistry()).customize(factory);
+
+        Http11NioProtocol protocol = new Http11NioProtocol(); // Pool interno criado só no start
+        factory.getTomcatProtocolHandlerCustomizers().forEach(customizer -> customize(customizer, protocol));
+
+        assertNull(protocol.getExecutor());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void customize(TomcatProtocolHandlerCustomizer customizer, ProtocolHandler protocol) {
+        customizer.customize(protocol);
+    }
+}
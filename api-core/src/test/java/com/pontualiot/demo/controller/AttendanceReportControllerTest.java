@@ -1,8 +1,8 @@
 package com.pontualiot.demo.controller;
 
-import com.pontualiot.demo.entity.Attendance;
-import com.pontualiot.demo.entity.Employee;
 import com.pontualiot.demo.repository.AttendanceRepository;
+import com.pontualiot.demo.service.AttendanceTimes;
+import com.pontualiot.demo.service.AttendanceView;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -15,6 +15,8 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -32,26 +34,33 @@ class AttendanceReportControllerTest {
 
     @Test
     void shouldGetDailyReport() throws Exception {
-        Employee employee = Employee.builder()
-                .id(1L)
-                .name("Test Employee")
-                .build();
+        LocalDate date = LocalDate.now();
+        when(attendanceRepository.findTimesByDate(date))
+                .thenReturn(List.of(new AttendanceTimes(1L, date.atTime(8, 0), null)));
 
-        Attendance attendance = Attendance.builder()
-                .id(1L)
-                .employee(employee)
-                .checkIn(LocalDateTime.now())
-                .date(LocalDate.now())
-                .build();
+        mockMvc.perform(get("/api/reports/daily/" + date))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.date").value(date.toString()))
+                .andExpect(jsonPath("$.totalEmployees").value(1))
+                .andExpect(jsonPath("$.checkedIn").value(1))
+                .andExpect(jsonPath("$.stillWorking").value(1))
+                .andExpect(jsonPath("$.checkInsByHour[8]").value(1))
+                .andExpect(jsonPath("$.attendances").doesNotExist());
+    }
 
-        when(attendanceRepository.findByDate(LocalDate.now()))
+    @Test
+    void shouldGetDailyAttendancesPage() throws Exception {
+        AttendanceView attendance = new AttendanceView(1L, 1L, "Test Employee", LocalDateTime.now(), null,
+                LocalDate.now(), LocalDateTime.now());
+
+        when(attendanceRepository.findDayPage(eq(LocalDate.now()), eq(0L), any()))
                 .thenReturn(List.of(attendance));
 
-        mockMvc.perform(get("/api/reports/daily/" + LocalDate.now()))
+        mockMvc.perform(get("/api/reports/daily/" + LocalDate.now() + "/attendances"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.date").value(LocalDate.now().toString()))
-                .andExpect(jsonPath("$.totalEmployees").value(1))
-                .andExpect(jsonPath("$.checkedIn").value(1));
+                .andExpect(jsonPath("$.items[0].id").value(1))
+                .andExpect(jsonPath("$.items[0].employee.name").value("Test Employee"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
     }
 
     @Test
@@ -59,7 +68,7 @@ class AttendanceReportControllerTest {
         LocalDate startDate = LocalDate.now().minusDays(7);
         LocalDate endDate = LocalDate.now();
 
-        when(attendanceRepository.findByEmployeeIdAndDateBetween(1L, startDate, endDate))
+        when(attendanceRepository.findViewsByEmployeeIdAndDateBetween(1L, startDate, endDate))
                 .thenReturn(List.of());
 
         mockMvc.perform(get("/api/reports/employee/1/period")
@@ -1,6 +1,6 @@
 package com.pontualiot.demo.metrics;
 
-import com.pontualiot.demo.config.MetricsConfig;
+import com.pontualiot.demo.service.DeviceRegistry;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -22,7 +22,7 @@ class MetricsIntegrationTest {
     private Counter attendanceRecordsCounter;
 
     @Autowired
-    private MetricsConfig metricsConfig;
+    private DeviceRegistry deviceRegistry;
 
     @Test
     void shouldIncrementAttendanceCounter() {
@@ -35,13 +35,13 @@ class MetricsIntegrationTest {
 
     @Test
     void shouldTrackActiveDevices() {
-        metricsConfig.incrementActiveDevices();
+        deviceRegistry.recordMessage("METRICS_DEVICE");
+        deviceRegistry.recordMessage("METRICS_DEVICE");
         
         Gauge activeDevicesGauge = meterRegistry.find("iot_devices_active").gauge();
         assertNotNull(activeDevicesGauge);
         assertTrue(activeDevicesGauge.value() > 0);
-        
-        metricsConfig.decrementActiveDevices();
+        assertEquals(deviceRegistry.activeCount(), activeDevicesGauge.value());
     }
 
     @Test
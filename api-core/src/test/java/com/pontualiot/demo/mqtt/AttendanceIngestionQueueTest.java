@@ -0,0 +1,195 @@
+package com.pontualiot.demo.mqtt;
+
+import com.pontualiot.demo.service.AttendanceEventStore;
+import com.pontualiot.demo.service.EventOrigin;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AttendanceIngestionQueueTest {
+
+    @Mock
+    private AttendanceEventStore eventStore;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private AttendanceIngestionQueue ingestionQueue;
+
+    private final Map<String, List<AttendanceEventType>> writtenByTag = new ConcurrentHashMap<>();
+    private final Set<String> writerThreads = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ingestionQueue, "ingestionFlushTimer", Timer.builder("flush").register(meterRegistry));
+        ReflectionTestUtils.setField(ingestionQueue, "ingestionBatchSizeSummary",
+                DistributionSummary.builder("batch").register(meterRegistry));
+        ReflectionTestUtils.setField(ingestionQueue, "laneCount", 4);
+        ReflectionTestUtils.setField(ingestionQueue, "queueCapacity", 1000);
+        ReflectionTestUtils.setField(ingestionQueue, "batchSize", 10);
+        ReflectionTestUtils.setField(ingestionQueue, "lingerMs", 5L);
+
+        lenient().doAnswer(invocation -> {
+            writerThreads.add(Thread.currentThread().getName());
+            List<IngestionEvent> batch = invocation.getArgument(0);
+            for (IngestionEvent event : batch) {
+                writtenByTag.computeIfAbsent(event.rfidTag(), tag -> Collections.synchronizedList(new ArrayList<>()))
+                        .add(event.eventType());
+            }
+            return null;
+        }).when(eventStore).append(any(), eq(EventOrigin.MQTT));
+        ingestionQueue.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ingestionQueue.stop();
+    }
+
+    @Test
+    void shouldKeepEventsOfSameTagInOrder() throws InterruptedException {
+        for (int round = 0; round < 50; round++) {
+            for (int tag = 0; tag < 20; tag++) {
+                AttendanceEventType type = round % 2 == 0 ? AttendanceEventType.CHECK_IN : AttendanceEventType.CHECK_OUT;
+                ingestionQueue.submit(IngestionEvent.of("TAG" + tag, type, "DEVICE_001"));
+            }
+        }
+        ingestionQueue.stop();
+
+        assertEquals(20, writtenByTag.size());
+        for (List<AttendanceEventType> events : writtenByTag.values()) {
+            assertEquals(50, events.size());
+            for (int i = 0; i < events.size(); i++) {
+                assertEquals(i % 2 == 0 ? AttendanceEventType.CHECK_IN : AttendanceEventType.CHECK_OUT, events.get(i));
+            }
+        }
+        assertTrue(writerThreads.size() > 1, "Tags diferentes devem ser gravadas em raias diferentes");
+    }
+
+    @Test
+    void shouldRouteSameTagToSameLaneAndExposeLaneMetrics() {
+        assertEquals(ingestionQueue.laneIndex("TAG001"), ingestionQueue.laneIndex("TAG001"));
+        assertEquals(4, ingestionQueue.laneCount());
+        assertEquals(4, meterRegistry.find("mqtt_ingestion_lane_depth").gauges().size());
+        assertEquals(4, meterRegistry.find("mqtt_ingestion_lane_latency_seconds").timers().size());
+    }
+
+    @Test
+    void shouldWaitForLanesToWriteQueuedEventsOnStop() throws InterruptedException {
+        AtomicInteger written = new AtomicInteger();
+        doAnswer(invocation -> {
+            Thread.sleep(20); // Banco lento: lote ainda em gravação quando stop() é chamado
+            written.addAndGet(invocation.<List<IngestionEvent>>getArgument(0).size());
+            return null;
+        }).when(eventStore).append(any(), eq(EventOrigin.MQTT));
+
+        for (int i = 0; i < 200; i++) {
+            ingestionQueue.submit(IngestionEvent.of("TAG" + (i % 8), AttendanceEventType.CHECK_IN, "DEVICE_001"));
+        }
+        ingestionQueue.stop();
+
+        assertEquals(200, written.get());
+        assertEquals(0, ingestionQueue.depth());
+    }
+
+    @Test
+    void shouldAcknowledgeOnlyEventsWrittenToTheLog() throws InterruptedException {
+        AtomicInteger acked = new AtomicInteger();
+        doThrow(new IllegalStateException("banco indisponível")).when(eventStore).append(
+                argThat(batch -> batch.stream().anyMatch(event -> event.rfidTag().equals("BAD"))), eq(EventOrigin.MQTT));
+
+        ingestionQueue.submit(new IngestionEvent("TAG001", AttendanceEventType.CHECK_IN, "DEVICE_001",
+                LocalDateTime.now(), System.nanoTime(), acked::incrementAndGet));
+        ingestionQueue.submit(new IngestionEvent("BAD", AttendanceEventType.CHECK_IN, "DEVICE_001",
+                LocalDateTime.now(), System.nanoTime(), acked::incrementAndGet));
+        ingestionQueue.stop();
+
+        assertEquals(1, acked.get()); // Encerrando: sem ack, o broker reentrega após a desconexão
+        assertEquals(List.of(AttendanceEventType.CHECK_IN), writtenByTag.get("TAG001"));
+    }
+
+    @Test
+    void shouldRetryFailedWriteUntilWrittenWhenOnlyBrokerCanRedeliver() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch acked = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            if (attempts.incrementAndGet() <= 3) {
+                throw new IllegalStateException("banco indisponível");
+            }
+            return null;
+        }).when(eventStore).append(any(), eq(EventOrigin.MQTT));
+
+        ingestionQueue.submit(new IngestionEvent("TAG001", AttendanceEventType.CHECK_IN, "DEVICE_001",
+                LocalDateTime.now(), System.nanoTime(), acked::countDown));
+
+        // Ack ao broker só depois da gravação, sem depender de reconexão
+        assertTrue(acked.await(5, TimeUnit.SECONDS));
+        assertEquals(4, attempts.get());
+    }
+
+    @Test
+    void shouldFailWriteWhenSpoolKeepsTheEvent() throws InterruptedException {
+        CountDownLatch failed = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        doAnswer(invocation -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("banco indisponível");
+        }).when(eventStore).append(any(), eq(EventOrigin.MQTT));
+
+        ingestionQueue.submit(new IngestionEvent("TAG001", AttendanceEventType.CHECK_IN, "DEVICE_001",
+                LocalDateTime.now(), System.nanoTime(), new IngestionAck() {
+                    @Override
+                    public void acknowledge() {
+                        Assertions.fail("Evento não gravado não pode ser confirmado");
+                    }
+
+                    @Override
+                    public void reject() {
+                        Assertions.fail("Falha de gravação não é rejeição: conta como tentativa no spool");
+                    }
+
+                    @Override
+                    public void fail() {
+                        failed.countDown();
+                    }
+
+                    @Override
+                    public boolean retainedOnReject() {
+                        return true;
+                    }
+                }));
+
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertEquals(2, attempts.get()); // Lote + tentativa individual; o replayer cuida do resto
+    }
+}
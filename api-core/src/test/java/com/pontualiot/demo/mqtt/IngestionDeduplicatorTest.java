@@ -0,0 +1,101 @@
+package com.pontualiot.demo.mqtt;
+
+import com.pontualiot.demo.service.AttendanceEventStore;
+import com.pontualiot.demo.service.AttendanceEventStore.ReceivedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class IngestionDeduplicatorTest {
+
+    private static final Instant START = Instant.parse("2024-10-30T08:00:00Z");
+    private static final LocalDateTime SWIPE = LocalDateTime.of(2024, 10, 30, 8, 0);
+
+    private IngestionDeduplicator deduplicator;
+    private AttendanceEventStore eventStore;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        eventStore = mock(AttendanceEventStore.class);
+        meterRegistry = new SimpleMeterRegistry();
+        deduplicator = new IngestionDeduplicator();
+        ReflectionTestUtils.setField(deduplicator, "eventStore", eventStore);
+        ReflectionTestUtils.setField(deduplicator, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(deduplicator, "enabled", true);
+        ReflectionTestUtils.setField(deduplicator, "window", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(deduplicator, "bucketCount", 10);
+        ReflectionTestUtils.setField(deduplicator, "maxEntries", 1000);
+        at(START);
+    }
+
+    @Test
+    void shouldDropDuplicatesWithinWindowOnly() {
+        deduplicator.init();
+
+        assertNotNull(deduplicator.claim(message("TAG001", SWIPE, null)));
+        assertNull(deduplicator.claim(message("TAG001", SWIPE, null)));
+        assertNotNull(deduplicator.claim(message("TAG001", SWIPE.plusSeconds(1), null))); // Outra batida
+        assertNotNull(deduplicator.claim(message("TAG002", SWIPE, null)));
+
+        at(START.plus(Duration.ofMinutes(11)));
+        assertNotNull(deduplicator.claim(message("TAG001", SWIPE, null)));
+
+        assertEquals(1.0, meterRegistry.get("mqtt_dedup_checks_total").tag("result", "duplicate").counter().count());
+        assertEquals(4.0, meterRegistry.get("mqtt_dedup_checks_total").tag("result", "unique").counter().count());
+    }
+
+    @Test
+    void shouldMatchRetriesByMessageIdAndReleaseRejectedClaims() {
+        deduplicator.init();
+
+        IngestionDeduplicator.Claim claim = deduplicator.claim(message("TAG001", SWIPE, "m-1"));
+        assertNull(deduplicator.claim(message("TAG001", SWIPE.plusSeconds(5), "m-1"))); // Reenvio com novo horário
+
+        deduplicator.releaseOnReject(claim, null).reject();
+
+        assertNotNull(deduplicator.claim(message("TAG001", SWIPE, "m-1")));
+    }
+
+    @Test
+    void shouldRebuildWindowFromEventLog() {
+        doAnswer(invocation -> {
+            Consumer<ReceivedEvent> consumer = invocation.getArgument(1);
+            consumer.accept(new ReceivedEvent("TAG001", "DEVICE_001", AttendanceEventType.CHECK_IN, SWIPE,
+                    LocalDateTime.ofInstant(START.minusSeconds(30), ZoneOffset.UTC)));
+            return null;
+        }).when(eventStore).forEachReceivedSince(any(), any());
+
+        deduplicator.init();
+
+        assertEquals(1, deduplicator.size());
+        assertNull(deduplicator.claim(message("TAG001", SWIPE, null)));
+    }
+
+    private MqttAttendanceMessage message(String rfidTag, LocalDateTime timestamp, String messageId) {
+        return MqttAttendanceMessage.builder()
+                .deviceId("DEVICE_001")
+                .rfidTag(rfidTag)
+                .eventType(AttendanceEventType.CHECK_IN)
+                .timestamp(timestamp)
+                .messageId(messageId)
+                .build();
+    }
+
+    private void at(Instant instant) {
+        ReflectionTestUtils.setField(deduplicator, "clock", Clock.fixed(instant, ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,61 @@
+package com.pontualiot.demo.mqtt;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestionStageMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private IngestionStageMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        metrics = new IngestionStageMetrics();
+        ReflectionTestUtils.setField(metrics, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(metrics, "maxDeviceTags", 2);
+    }
+
+    @Test
+    void shouldTimeStagesByOutcomeAndCountByDeviceWithinDeviceLimit() {
+        metrics.record(IngestionStageMetrics.Stage.PARSE, "DEVICE001", IngestionStageMetrics.ACCEPTED, 1_000_000);
+        metrics.record(IngestionStageMetrics.Stage.PARSE, "DEVICE001", IngestionStageMetrics.ACCEPTED, 3_000_000);
+        metrics.record(IngestionStageMetrics.Stage.PARSE, "DEVICE002", IngestionStageMetrics.INVALID, 1_000_000);
+        metrics.record(IngestionStageMetrics.Stage.PARSE, "DEVICE003", IngestionStageMetrics.ACCEPTED, 1_000_000);
+        metrics.record(IngestionStageMetrics.Stage.PARSE, null, IngestionStageMetrics.INVALID, 1_000_000);
+
+        Timer accepted = meterRegistry.get("mqtt_ingestion_stage_seconds")
+                .tags("stage", "parse", "outcome", "accepted").timer();
+        assertEquals(3, accepted.count());
+        assertEquals(5.0, accepted.totalTime(TimeUnit.MILLISECONDS));
+        assertTrue(meterRegistry.find("mqtt_ingestion_stage_seconds").tagKeys("device_id").timers().isEmpty());
+
+        assertEquals(2.0, meterRegistry.get("mqtt_ingestion_device_events_total")
+                .tags("stage", "parse", "device_id", "DEVICE001", "outcome", "accepted").counter().count());
+        // Terceiro dispositivo excede o limite de tags
+        assertEquals(1.0, meterRegistry.get("mqtt_ingestion_device_events_total")
+                .tag("device_id", "other").counter().count());
+        assertEquals(1.0, meterRegistry.get("mqtt_ingestion_device_events_total")
+                .tag("device_id", "unknown").counter().count());
+    }
+
+    @Test
+    void shouldCountDeviceClockAheadInsteadOfNegativeLag() {
+        metrics.recordLag("DEVICE001", IngestionStageMetrics.ACCEPTED, LocalDateTime.now().minusSeconds(2));
+        metrics.recordLag("DEVICE001", IngestionStageMetrics.ACCEPTED, LocalDateTime.now().plusMinutes(5));
+
+        Timer lag = meterRegistry.get("attendance_end_to_end_lag_seconds").tag("outcome", "accepted").timer();
+        assertEquals(1, lag.count());
+        assertTrue(lag.totalTime(TimeUnit.SECONDS) >= 2.0);
+        assertEquals(1.0, meterRegistry.get("attendance_device_clock_skew_total")
+                .tag("device_id", "DEVICE001").counter().count());
+    }
+}
@@ -0,0 +1,47 @@
+package com.pontualiot.demo.mqtt;
+
+import org.eclipse.paho.mqttv5.client.MqttConnectionOptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MqttInboundAdaptersTest {
+
+    private MqttInboundAdapters adapters;
+
+    @BeforeEach
+    void setUp() {
+        adapters = new MqttInboundAdapters();
+        ReflectionTestUtils.setField(adapters, "urls", new String[]{"tcp://broker-a:1883", "tcp://broker-b:1883"});
+        ReflectionTestUtils.setField(adapters, "username", "");
+        ReflectionTestUtils.setField(adapters, "password", "");
+        ReflectionTestUtils.setField(adapters, "topics", new String[]{"attendance/+/+"});
+        ReflectionTestUtils.setField(adapters, "sharedGroup", "api-core");
+        ReflectionTestUtils.setField(adapters, "consumers", 3);
+        ReflectionTestUtils.setField(adapters, "maxInFlight", 50);
+        ReflectionTestUtils.setField(adapters, "sessionExpirySeconds", 600L);
+    }
+
+    @Test
+    void shouldSubscribeThroughSharedGroupWithSeveralConnections() {
+        assertArrayEquals(new String[]{"$share/api-core/attendance/+/+"}, adapters.subscriptions());
+        assertEquals(3, adapters.connections());
+
+        MqttConnectionOptions options = adapters.connectionOptions();
+        assertEquals(50, options.getReceiveMaximum());
+        assertFalse(options.isCleanStart()); // Sessão persistente: mensagens sem ack são reentregues
+        assertEquals(600L, options.getSessionExpiryInterval());
+        assertEquals(2, options.getServerURIs().length);
+        assertTrue(options.isAutomaticReconnect());
+    }
+
+    @Test
+    void shouldUseSingleConnectionWithoutSharedGroup() {
+        ReflectionTestUtils.setField(adapters, "sharedGroup", "");
+
+        assertArrayEquals(new String[]{"attendance/+/+"}, adapters.subscriptions());
+        assertEquals(1, adapters.connections()); // Senão cada conexão receberia todas as mensagens
+    }
+}
@@ -0,0 +1,116 @@
+package com.pontualiot.demo.mqtt;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MqttPayloadParserTest {
+
+    private final MqttPayloadParser parser = new MqttPayloadParser();
+
+    private static byte[] json(String payload) {
+        return payload.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void shouldParseValidPayload() {
+        MqttAttendanceMessage message = parser.parse(json("""
+            {"deviceId": " DEVICE_001 ", "rfidTag": "RFID_123", "eventType": "CHECK_OUT",
+             "timestamp": "2024-01-15T17:30:00", "metadata": "battery=90", "messageId": "m-42", "extra": {"a": [1, 2]}}
+            """));
+
+        assertEquals("DEVICE_001", message.getDeviceId());
+        assertEquals("RFID_123", message.getRfidTag());
+        assertEquals(AttendanceEventType.CHECK_OUT, message.getEventType());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 17, 30), message.getTimestamp());
+        assertEquals("battery=90", message.getMetadata());
+        assertEquals("m-42", message.getMessageId());
+        assertTrue(message.isCheckOut());
+    }
+
+    @Test
+    void shouldParseIsoTimestampVariants() {
+        String base = "{\"deviceId\": \"D\", \"rfidTag\": \"R\", \"eventType\": \"CHECK_IN\", \"timestamp\": \"%s\"}";
+
+        assertEquals(LocalDateTime.of(2024, 1, 15, 8, 30),
+                parser.parse(json(base.formatted("2024-01-15T08:30"))).getTimestamp());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 8, 30, 5, 123_000_000),
+                parser.parse(json(base.formatted("2024-01-15T08:30:05.123"))).getTimestamp());
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> parser.parse(json(base.formatted("2024-13-15T08:30:00"))));
+        assertEquals("Timestamp deve estar no formato ISO 8601 (ex: 2024-01-15T08:30:00): 2024-13-15T08:30:00",
+                e.getMessage());
+    }
+
+    @Test
+    void shouldReportSameErrorsAsValidator() {
+        assertError("Device ID é obrigatório (campo não encontrado)",
+                "{\"rfidTag\": \"R\", \"eventType\": \"CHECK_IN\", \"timestamp\": \"2024-01-15T08:30:00\"}");
+        assertError("RFID tag é obrigatório (campo é nulo)",
+                "{\"deviceId\": \"D\", \"rfidTag\": null, \"eventType\": \"CHECK_IN\", \"timestamp\": \"2024-01-15T08:30:00\"}");
+        assertError("RFID tag é obrigatório (campo vazio)",
+                "{\"deviceId\": \"D\", \"rfidTag\": \"  \", \"eventType\": \"CHECK_IN\", \"timestamp\": \"2024-01-15T08:30:00\"}");
+        assertError("Tipo de evento deve ser CHECK_IN ou CHECK_OUT",
+                "{\"deviceId\": \"D\", \"rfidTag\": \"R\", \"eventType\": \"INVALID_EVENT\", \"timestamp\": \"2024-01-15T08:30:00\"}");
+        assertError("Timestamp é obrigatório (campo não encontrado)",
+                "{\"deviceId\": \"D\", \"rfidTag\": \"R\", \"eventType\": \"CHECK_IN\"}");
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> parser.parse(json("{\"deviceId\": \"D\" \"rfidTag\": \"R\"}")));
+        assertTrue(e.getMessage().startsWith("Payload JSON malformado: "));
+    }
+
+    @Test
+    void shouldClearReusedMessage() {
+        MqttAttendanceMessage reused = new MqttAttendanceMessage();
+        parser.parse(json("""
+            {"deviceId": "D", "rfidTag": "R", "eventType": "CHECK_IN", "timestamp": "2024-01-15T08:30:00", "metadata": "m"}
+            """), reused);
+
+        MqttAttendanceMessage result = parser.parse(json("""
+            {"deviceId": "D2", "rfidTag": "R2", "eventType": "CHECK_OUT", "timestamp": "2024-01-15T17:30:00"}
+            """), reused);
+
+        assertSame(reused, result);
+        assertEquals("R2", result.getRfidTag());
+        assertEquals(AttendanceEventType.CHECK_OUT, result.getEventType());
+        assertNull(result.getMetadata());
+    }
+
+    @Test
+    void shouldApplySameRulesToSeparateFields() {
+        MqttAttendanceMessage message = parser.parseFields(" D ", "R", "CHECK_IN", "2024-01-15T08:30",
+                new MqttAttendanceMessage());
+
+        assertEquals("D", message.getDeviceId());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 8, 30), message.getTimestamp());
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> parser.parseFields("D", " ", "CHECK_IN", "2024-01-15T08:30", new MqttAttendanceMessage()));
+        assertEquals("RFID tag é obrigatório (campo vazio)", e.getMessage());
+        e = assertThrows(IllegalArgumentException.class,
+                () -> parser.parseFields("D", "R", "CHECK_IN", null, new MqttAttendanceMessage()));
+        assertEquals("Timestamp é obrigatório (campo não encontrado)", e.getMessage());
+        e = assertThrows(IllegalArgumentException.class,
+                () -> parser.parseFields("D", "R", "CHECK_IN", "15/01/2024", new MqttAttendanceMessage()));
+        assertEquals("Timestamp deve estar no formato ISO 8601 (ex: 2024-01-15T08:30:00): 15/01/2024", e.getMessage());
+    }
+
+    @Test
+    void shouldCheckRequiredFieldsPresence() {
+        assertTrue(parser.hasRequiredFields(json(
+                "{\"deviceId\": \"D\", \"rfidTag\": \"R\", \"eventType\": \"ANY\", \"timestamp\": \"x\"}")));
+        assertFalse(parser.hasRequiredFields(json(
+                "{\"deviceId\": \"D\", \"rfidTag\": null, \"eventType\": \"CHECK_IN\", \"timestamp\": \"x\"}")));
+        assertFalse(parser.hasRequiredFields(json("{\"deviceId\": \"D\",")));
+    }
+
+    private void assertError(String expected, String payload) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> parser.parse(json(payload)));
+        assertEquals(expected, e.getMessage());
+    }
+}
@@ -0,0 +1,91 @@
+package com.pontualiot.demo.mqtt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MqttReceiptPublisherTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Message<?>> sent = new ArrayList<>();
+    private MqttReceiptPublisher receipts;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        receipts = new MqttReceiptPublisher();
+        ReflectionTestUtils.setField(receipts, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(receipts, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(receipts, "beanFactory", new DefaultListableBeanFactory());
+        ReflectionTestUtils.setField(receipts, "topicPrefix", "receipts/attendance");
+        ReflectionTestUtils.setField(receipts, "handler", (MessageHandler) sent::add);
+        receipts.start();
+    }
+
+    @Test
+    void shouldPublishReceiptOnlyAfterAcknowledge() throws Exception {
+        AtomicInteger acked = new AtomicInteger();
+        MqttAttendanceMessage message = message("run-1-42");
+        IngestionAck ack = receipts.onPersisted(message, acked::incrementAndGet);
+        message.clear(); // Instância reutilizada pelo listener
+
+        assertTrue(sent.isEmpty());
+        ack.acknowledge();
+
+        assertEquals(1, acked.get());
+        assertEquals(1, sent.size());
+        assertEquals("receipts/attendance/DEVICE_001", sent.get(0).getHeaders().get(MqttHeaders.TOPIC));
+        JsonNode receipt = objectMapper.readTree((byte[]) sent.get(0).getPayload());
+        assertEquals("run-1-42", receipt.get("messageId").asText());
+        assertEquals("TAG001", receipt.get("rfidTag").asText());
+        assertNotNull(receipt.get("persistedAt"));
+        assertEquals(1.0, meterRegistry.get("mqtt_receipts_published_total").counter().count());
+    }
+
+    @Test
+    void shouldNotPublishReceiptWhenRejectedOrWithoutMessageId() {
+        receipts.onPersisted(message("run-1-43"), null).reject();
+        IngestionAck original = () -> { };
+
+        assertSame(original, receipts.onPersisted(message(null), original));
+        assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    void shouldCountFailedReceiptWithoutFailingAck() {
+        ReflectionTestUtils.setField(receipts, "handler", (MessageHandler) m -> {
+            throw new IllegalStateException("desconectado");
+        });
+        AtomicInteger acked = new AtomicInteger();
+
+        receipts.onPersisted(message("run-1-44"), acked::incrementAndGet).acknowledge();
+
+        assertEquals(1, acked.get());
+        assertEquals(1.0, meterRegistry.get("mqtt_receipts_failed_total").counter().count());
+    }
+
+    private MqttAttendanceMessage message(String messageId) {
+        return MqttAttendanceMessage.builder()
+                .deviceId("DEVICE_001")
+                .rfidTag("TAG001")
+                .eventType(AttendanceEventType.CHECK_IN)
+                .timestamp(LocalDateTime.of(2024, 10, 30, 8, 0))
+                .messageId(messageId)
+                .build();
+    }
+}
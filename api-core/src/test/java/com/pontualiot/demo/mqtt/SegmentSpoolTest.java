@@ -0,0 +1,116 @@
+package com.pontualiot.demo.mqtt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentSpoolTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldRotateSegmentsAndDeleteThemAfterCommit() throws Exception {
+        try (SegmentSpool spool = new SegmentSpool(dir, 64, false)) {
+            long first = spool.append(new byte[20]);
+            long second = spool.append(new byte[20]);
+            long third = spool.append(new byte[20]); // Não cabe no primeiro segmento
+
+            assertEquals(2, spool.segmentCount());
+            assertEquals(3, spool.pendingCount());
+            assertArrayEquals(new byte[20], spool.read(third));
+
+            spool.commit(first);
+            spool.commit(second);
+            spool.checkpoint();
+
+            assertEquals(1, spool.segmentCount());
+            assertEquals(1, segmentFiles());
+            assertEquals(List.of(), spool.parkedBefore(Long.MAX_VALUE, 10)); // Na fila, não estacionado
+        }
+    }
+
+    @Test
+    void shouldRecoverUncommittedRecordsAsParked() throws Exception {
+        long pending;
+        try (SegmentSpool spool = new SegmentSpool(dir, 1024, true)) {
+            long committed = spool.append("a".getBytes());
+            pending = spool.append("b".getBytes());
+            spool.commit(committed);
+            spool.checkpoint();
+        }
+
+        try (SegmentSpool spool = new SegmentSpool(dir, 1024, true)) {
+            assertEquals(List.of(pending), spool.parkedBefore(1, 10));
+            assertArrayEquals("b".getBytes(), spool.read(pending));
+
+            long next = spool.append("c".getBytes()); // Grava num segmento novo
+            assertTrue(next >= 1024);
+            assertEquals(0, spool.markQueued(pending));
+            assertEquals(0, spool.parkedCount());
+        }
+    }
+
+    @Test
+    void shouldCountOnlyFailedWrites() throws Exception {
+        try (SegmentSpool spool = new SegmentSpool(dir, 1024, false)) {
+            long sequence = spool.append("a".getBytes());
+
+            spool.park(sequence, 1); // Fila cheia: não conta
+            assertEquals(0, spool.markQueued(sequence));
+            spool.fail(sequence, 2);
+            assertEquals(List.of(sequence), spool.parkedBefore(3, 10));
+            assertEquals(1, spool.markQueued(sequence));
+        }
+    }
+
+    @Test
+    void shouldSkipCorruptRecordAndKeepScanning() throws Exception {
+        long last;
+        try (SegmentSpool spool = new SegmentSpool(dir, 1024, false)) {
+            spool.append("ok".getBytes());
+            spool.append("bad".getBytes());
+            last = spool.append("after".getBytes());
+        }
+        try (RandomAccessFile segment = new RandomAccessFile(dir.resolve("segment-%020d.spool".formatted(0)).toFile(), "rw")) {
+            segment.seek(10 + 8); // Conteúdo do segundo registro
+            segment.write('X');
+        }
+
+        try (SegmentSpool spool = new SegmentSpool(dir, 1024, false)) {
+            assertEquals(List.of(0L, last), spool.parkedBefore(1, 10));
+            assertEquals(1, spool.corruptCount());
+            assertArrayEquals("after".getBytes(), spool.read(last));
+        }
+    }
+
+    @Test
+    void shouldStopRecoveryAtRecordWithoutLength() throws Exception {
+        try (SegmentSpool spool = new SegmentSpool(dir, 1024, false)) {
+            spool.append("ok".getBytes());
+            spool.append("torn".getBytes());
+        }
+        try (RandomAccessFile segment = new RandomAccessFile(dir.resolve("segment-%020d.spool".formatted(0)).toFile(), "rw")) {
+            segment.seek(10); // Tamanho do segundo registro: escrita interrompida antes dele
+            segment.writeInt(0);
+        }
+
+        try (SegmentSpool spool = new SegmentSpool(dir, 1024, false)) {
+            assertEquals(List.of(0L), spool.parkedBefore(1, 10));
+            assertEquals(0, spool.corruptCount());
+        }
+    }
+
+    private long segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".spool")).count();
+        }
+    }
+}
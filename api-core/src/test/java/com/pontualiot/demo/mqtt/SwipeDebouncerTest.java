@@ -0,0 +1,85 @@
+package com.pontualiot.demo.mqtt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SwipeDebouncerTest {
+
+    private static final LocalDateTime SWIPE = LocalDateTime.of(2024, 10, 30, 8, 0);
+
+    private SwipeDebouncer debouncer;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        debouncer = new SwipeDebouncer();
+        ReflectionTestUtils.setField(debouncer, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(debouncer, "enabled", true);
+        ReflectionTestUtils.setField(debouncer, "window", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(debouncer, "overrides", new String[]{"SITE_A_=20s", "SITE_A_07=1s"});
+        ReflectionTestUtils.setField(debouncer, "minInterval", Duration.ofMinutes(1));
+        debouncer.init();
+    }
+
+    @Test
+    void shouldCollapseBurstsUsingDeviceOrSiteWindow() {
+        assertNotNull(debouncer.admit(swipe("DEVICE_001", AttendanceEventType.CHECK_IN, 0)));
+        assertNull(debouncer.admit(swipe("DEVICE_001", AttendanceEventType.CHECK_IN, 1)));
+        assertNull(debouncer.admit(swipe("DEVICE_002", AttendanceEventType.CHECK_IN, 4))); // Por tag, não por leitor
+        assertNotNull(debouncer.admit(swipe("DEVICE_001", AttendanceEventType.CHECK_IN, 6)));
+
+        assertEquals(20_000, debouncer.windowFor("SITE_A_03"));
+        assertEquals(1_000, debouncer.windowFor("SITE_A_07")); // Prefixo mais longo vence
+        assertEquals(5_000, debouncer.windowFor("SITE_B_01"));
+
+        assertEquals(2.0, meterRegistry.get("mqtt_swipe_filtered_total").tag("reason", "debounce").counter().count());
+    }
+
+    @Test
+    void shouldRejectOppositeEventBeforeAntiPassbackInterval() {
+        assertNotNull(debouncer.admit(swipe("DEVICE_001", AttendanceEventType.CHECK_IN, 0)));
+        assertNull(debouncer.admit(swipe("DEVICE_001", AttendanceEventType.CHECK_OUT, 30)));
+        assertNotNull(debouncer.admit(swipe("DEVICE_001", AttendanceEventType.CHECK_OUT, 61)));
+
+        assertEquals(1.0, meterRegistry.get("mqtt_swipe_filtered_total").tag("reason", "anti_passback").counter().count());
+    }
+
+    @Test
+    void shouldUndoAdmissionWhenEventIsRejected() {
+        SwipeDebouncer.Admission admission = debouncer.admit(swipe("DEVICE_001", AttendanceEventType.CHECK_IN, 0));
+
+        debouncer.releaseOnReject(admission, null).reject();
+
+        assertNotNull(debouncer.admit(swipe("DEVICE_001", AttendanceEventType.CHECK_IN, 0))); // Reentrega aceita
+    }
+
+    @Test
+    void shouldExpireIdleTags() {
+        debouncer.admit(swipe("DEVICE_001", AttendanceEventType.CHECK_IN, 0));
+        ReflectionTestUtils.setField(debouncer, "clock",
+                Clock.fixed(SWIPE.plusMinutes(2).toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+
+        assertEquals(1, debouncer.expireIdle());
+        assertEquals(0, debouncer.size());
+        assertNotNull(debouncer.admit(swipe("DEVICE_001", AttendanceEventType.CHECK_OUT, 1)));
+    }
+
+    private MqttAttendanceMessage swipe(String deviceId, AttendanceEventType eventType, int secondsAfter) {
+        return MqttAttendanceMessage.builder()
+                .deviceId(deviceId)
+                .rfidTag("TAG001")
+                .eventType(eventType)
+                .timestamp(SWIPE.plusSeconds(secondsAfter))
+                .build();
+    }
+}
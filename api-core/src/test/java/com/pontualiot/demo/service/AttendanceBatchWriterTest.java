@@ -0,0 +1,226 @@
+package com.pontualiot.demo.service;
+
+import com.pontualiot.demo.mqtt.AttendanceEventType;
+import com.pontualiot.demo.mqtt.IngestionEvent;
+import com.pontualiot.demo.mqtt.IngestionStageMetrics;
+import com.pontualiot.demo.mqtt.IngestionStageMetrics.Stage;
+import com.pontualiot.demo.service.EmployeeLookupCache.CachedEmployee;
+import io.micrometer.core.instrument.Counter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.notNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AttendanceBatchWriterTest {
+
+    @Mock
+    private EmployeeLookupCache employeeLookupCache;
+
+    @Mock
+    private Counter attendanceRecordsCounter;
+
+    @Mock
+    private DeviceRegistry deviceRegistry;
+
+    @Mock
+    private OpenShiftIndex openShiftIndex;
+
+    @Mock
+    private DailyAttendanceAggregates dailyAggregates;
+
+    @Mock
+    private AttendanceQueryCache queryCache;
+
+    @Mock
+    private IngestionStageMetrics stageMetrics;
+
+    @InjectMocks
+    private AttendanceBatchWriter batchWriter;
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;NON_KEYWORDS=DATE");
+        jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        jdbcTemplate.getJdbcOperations().execute(
+                "CREATE TABLE attendances (id BIGINT AUTO_INCREMENT PRIMARY KEY, employee_id BIGINT NOT NULL, "
+                + "check_in TIMESTAMP NOT NULL, check_out TIMESTAMP, date DATE NOT NULL, created_at TIMESTAMP)");
+        new ResourceDatabasePopulator(new ClassPathResource("db/attendance-events.sql")).execute(dataSource);
+        ReflectionTestUtils.setField(batchWriter, "jdbcTemplate", jdbcTemplate);
+
+        when(employeeLookupCache.findAll(any())).thenReturn(Map.of(
+                "TAG001", new CachedEmployee(1L, "TAG001", "Ana", true),
+                "TAG002", new CachedEmployee(2L, "TAG002", "Bruno", true)));
+    }
+
+    @Test
+    void shouldWriteWholeBatchWithOneRowPerEmployee() {
+        AttendanceBatchWriter.BatchResult result = batchWriter.writeBatch(List.of(
+                IngestionEvent.of("TAG001", AttendanceEventType.CHECK_IN, "DEVICE001"),
+                IngestionEvent.of("TAG002", AttendanceEventType.CHECK_IN, "DEVICE001"),
+                IngestionEvent.of("TAG001", AttendanceEventType.CHECK_OUT, "DEVICE002")));
+
+        assertEquals(3, result.accepted());
+        assertEquals(0, result.rejected());
+
+        List<Map<String, Object>> rows = jdbcTemplate.getJdbcOperations()
+                .queryForList("SELECT employee_id, check_out FROM attendances ORDER BY employee_id");
+        assertEquals(2, rows.size());
+        assertNotNull(rows.get(0).get("CHECK_OUT"));
+        assertNull(rows.get(1).get("CHECK_OUT"));
+
+        verify(attendanceRecordsCounter).increment(3);
+
+        // Índice recebe os IDs gerados: funcionário 2 fica em aberto, 1 é fechado
+        verify(openShiftIndex).recordWrite(eq(2L), notNull(), notNull(), isNull(), eq(LocalDate.now()));
+        verify(openShiftIndex).recordWrite(eq(1L), notNull(), notNull(), notNull(), eq(LocalDate.now()));
+        verify(queryCache).recordWrite(2L, LocalDate.now());
+        verify(queryCache).recordWrite(1L, LocalDate.now());
+    }
+
+    @Test
+    void shouldUpdateExistingRowFromPreviousBatch() {
+        batchWriter.writeBatch(List.of(IngestionEvent.of("TAG001", AttendanceEventType.CHECK_IN, "DEVICE001")));
+        batchWriter.writeBatch(List.of(IngestionEvent.of("TAG001", AttendanceEventType.CHECK_OUT, "DEVICE001")));
+
+        List<Map<String, Object>> rows = jdbcTemplate.getJdbcOperations()
+                .queryForList("SELECT check_out FROM attendances");
+        assertEquals(1, rows.size());
+        assertNotNull(rows.get(0).get("CHECK_OUT"));
+    }
+
+    @Test
+    void shouldKeepEarliestCheckInAndLatestCheckOutWhenOlderEventsArriveLater() {
+        LocalDateTime day = LocalDate.now().atTime(8, 0);
+        batchWriter.writeBatch(List.of(
+                IngestionEvent.of("TAG001", AttendanceEventType.CHECK_IN, "DEVICE001", day),
+                IngestionEvent.of("TAG001", AttendanceEventType.CHECK_OUT, "DEVICE001", day.plusHours(9))));
+
+        // Backlog importado depois: entrada mais tarde e saída mais cedo que as reais
+        AttendanceBatchWriter.BatchResult result = batchWriter.writeBatch(List.of(
+                IngestionEvent.of("TAG001", AttendanceEventType.CHECK_IN, "DEVICE002", day.plusMinutes(5)),
+                IngestionEvent.of("TAG001", AttendanceEventType.CHECK_OUT, "DEVICE002", day.plusHours(4))));
+        assertEquals(2, result.accepted());
+
+        Map<String, Object> row = jdbcTemplate.getJdbcOperations()
+                .queryForMap("SELECT check_in, check_out FROM attendances");
+        assertEquals(Timestamp.valueOf(day), row.get("CHECK_IN"));
+        assertEquals(Timestamp.valueOf(day.plusHours(9)), row.get("CHECK_OUT"));
+
+        // Batida mais antiga que a entrada registrada corrige o registro
+        batchWriter.writeBatch(List.of(
+                IngestionEvent.of("TAG001", AttendanceEventType.CHECK_IN, "DEVICE002", day.minusMinutes(10))));
+        assertEquals(Timestamp.valueOf(day.minusMinutes(10)), jdbcTemplate.getJdbcOperations()
+                .queryForObject("SELECT check_in FROM attendances", Timestamp.class));
+    }
+
+    @Test
+    void shouldRejectUnknownTagsAndCheckOutWithoutCheckIn() {
+        AttendanceBatchWriter.BatchResult result = batchWriter.writeBatch(List.of(
+                IngestionEvent.of("UNKNOWN", AttendanceEventType.CHECK_IN, "DEVICE001"),
+                IngestionEvent.of("TAG002", AttendanceEventType.CHECK_OUT, "DEVICE001"),
+                IngestionEvent.of("TAG001", AttendanceEventType.CHECK_IN, "DEVICE001")));
+
+        assertEquals(1, result.accepted());
+        assertEquals(2, result.rejected());
+        assertEquals(1, jdbcTemplate.getJdbcOperations()
+                .queryForObject("SELECT COUNT(*) FROM attendances", Integer.class));
+        verify(deviceRegistry, times(2)).recordError(eq("DEVICE001"), any());
+
+        // Cada batida registra as etapas do lote com o próprio resultado
+        verify(stageMetrics, times(2)).record(eq(Stage.SAVE), eq("DEVICE001"), eq(IngestionStageMetrics.REJECTED), anyLong());
+        verify(stageMetrics).record(eq(Stage.SAVE), eq("DEVICE001"), eq(IngestionStageMetrics.ACCEPTED), anyLong());
+        verify(stageMetrics, times(3)).record(eq(Stage.EMPLOYEE_LOOKUP), eq("DEVICE001"), any(), anyLong());
+        verify(stageMetrics).recordLag(eq("DEVICE001"), eq(IngestionStageMetrics.ACCEPTED), notNull());
+    }
+
+    @Test
+    void shouldApplyLoggedCheckOutWhenLateCheckInArrives() {
+        LocalDateTime day = LocalDate.now().atTime(8, 0);
+        // Entrada presa no leitor A (offline); saída no leitor B, online
+        logEvent(1L, AttendanceEventType.CHECK_OUT, "DEVICE_B", day.plusHours(9));
+        AttendanceBatchWriter.BatchResult early = batchWriter.writeBatch(List.of(
+                IngestionEvent.of("TAG001", AttendanceEventType.CHECK_OUT, "DEVICE_B", day.plusHours(9))));
+        assertEquals(1, early.rejected());
+        assertEquals(0, jdbcTemplate.getJdbcOperations()
+                .queryForObject("SELECT COUNT(*) FROM attendances", Integer.class));
+
+        // Leitor A volta e descarrega a entrada
+        logEvent(1L, AttendanceEventType.CHECK_IN, "DEVICE_A", day);
+        AttendanceBatchWriter.BatchResult late = batchWriter.writeBatch(List.of(
+                IngestionEvent.of("TAG001", AttendanceEventType.CHECK_IN, "DEVICE_A", day)));
+        assertEquals(1, late.accepted());
+
+        Map<String, Object> row = jdbcTemplate.getJdbcOperations()
+                .queryForMap("SELECT check_in, check_out FROM attendances");
+        assertEquals(Timestamp.valueOf(day), row.get("CHECK_IN"));
+        assertEquals(Timestamp.valueOf(day.plusHours(9)), row.get("CHECK_OUT"));
+        verify(openShiftIndex).recordWrite(eq(1L), notNull(), eq(day), eq(day.plusHours(9)), eq(day.toLocalDate()));
+    }
+
+    @Test
+    void shouldRejectInactiveEmployees() {
+        when(employeeLookupCache.findAll(any())).thenReturn(Map.of(
+                "TAG003", new CachedEmployee(3L, "TAG003", "Carla", false)));
+
+        AttendanceBatchWriter.BatchResult result = batchWriter.writeBatch(List.of(
+                IngestionEvent.of("TAG003", AttendanceEventType.CHECK_IN, "DEVICE001")));
+
+        assertEquals(0, result.accepted());
+        assertEquals(1, result.rejected());
+        assertEquals(0, jdbcTemplate.getJdbcOperations()
+                .queryForObject("SELECT COUNT(*) FROM attendances", Integer.class));
+        verify(deviceRegistry).recordError("DEVICE001", "Funcionário inativo: Carla");
+    }
+
+    @Test
+    void shouldRecordCommitAndLagOnlyWhenTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            batchWriter.writeBatch(List.of(IngestionEvent.of("TAG001", AttendanceEventType.CHECK_IN, "DEVICE001")));
+            verify(stageMetrics, never()).recordLag(any(), any(), any());
+
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.forEach(s -> s.beforeCommit(false));
+            synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(stageMetrics).record(eq(Stage.COMMIT), eq("DEVICE001"), eq(IngestionStageMetrics.ACCEPTED), anyLong());
+        verify(stageMetrics).recordLag(eq("DEVICE001"), eq(IngestionStageMetrics.ACCEPTED), notNull());
+    }
+
+    private void logEvent(long employeeId, AttendanceEventType type, String deviceId, LocalDateTime time) {
+        jdbcTemplate.getJdbcOperations().update("INSERT INTO attendance_events "
+                + "(employee_id, rfid_tag, device_id, event_type, event_time, origin, received_at) "
+                + "VALUES (?, 'TAG001', ?, ?, ?, 'MQTT', ?)", employeeId, deviceId, type.name(), time, time);
+    }
+}
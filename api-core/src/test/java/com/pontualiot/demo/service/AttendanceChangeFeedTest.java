@@ -0,0 +1,80 @@
+package com.pontualiot.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AttendanceChangeFeedTest {
+
+    private static final LocalDateTime MORNING = LocalDateTime.of(2024, 1, 15, 8, 0);
+
+    @Mock
+    private AttendanceQueryCache queryCache;
+
+    @Mock
+    private DailyAttendanceAggregates dailyAggregates;
+
+    @Mock
+    private OpenShiftIndex openShiftIndex;
+
+    @InjectMocks
+    private AttendanceChangeFeed feed;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        new ResourceDatabasePopulator(new ClassPathResource("db/attendance-events.sql")).execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO attendance_event_projections (name, last_event_id) VALUES (?, 0)",
+                AttendanceEventProjector.PROJECTION);
+        ReflectionTestUtils.setField(feed, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @Test
+    void shouldPropagateEventsAppliedByAnotherInstance() {
+        insertEvent(1, 1L, MORNING);
+        feed.init(); // Evento 1 já aplicado antes da partida
+
+        insertEvent(2, 1L, MORNING.plusHours(9));
+        insertEvent(3, 2L, MORNING.plusDays(1));
+        insertEvent(4, null, MORNING.plusDays(1)); // Tag desconhecida: sem registro
+        insertEvent(5, 3L, MORNING.plusDays(2)); // Ainda não projetado
+        jdbcTemplate.update("UPDATE attendance_event_projections SET last_event_id = 4");
+
+        assertEquals(2, feed.poll());
+        assertEquals(4L, feed.position());
+        verify(queryCache).recordWrite(1L, MORNING.toLocalDate());
+        verify(queryCache).recordWrite(2L, MORNING.toLocalDate().plusDays(1));
+        verifyNoMoreInteractions(queryCache);
+        verify(dailyAggregates).refresh(Set.of(MORNING.toLocalDate(), MORNING.toLocalDate().plusDays(1)));
+        verify(openShiftIndex).refresh(Set.of(1L, 2L));
+
+        assertEquals(0, feed.poll()); // Posição não avançou
+        verifyNoMoreInteractions(queryCache, dailyAggregates, openShiftIndex);
+    }
+
+    private void insertEvent(long id, Long employeeId, LocalDateTime time) {
+        jdbcTemplate.update("INSERT INTO attendance_events "
+                + "(id, employee_id, rfid_tag, device_id, event_type, event_time, origin, received_at) "
+                + "VALUES (?, ?, 'TAG', 'D', 'CHECK_IN', ?, 'MQTT', ?)", id, employeeId, time, time);
+    }
+}
@@ -0,0 +1,153 @@
+package com.pontualiot.demo.service;
+
+import com.pontualiot.demo.mqtt.AttendanceEventType;
+import com.pontualiot.demo.mqtt.IngestionEvent;
+import com.pontualiot.demo.service.EmployeeLookupCache.CachedEmployee;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AttendanceEventProjectorTest {
+
+    @Mock
+    private AttendanceBatchWriter batchWriter;
+
+    @Mock
+    private EmployeeLookupCache employeeLookupCache;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private AttendanceEventProjector projector;
+
+    private AttendanceEventStore eventStore;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        eventStore = new AttendanceEventStore();
+        ReflectionTestUtils.setField(eventStore, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(eventStore, "dataSource", dataSource);
+        ReflectionTestUtils.setField(eventStore, "employeeLookupCache", employeeLookupCache);
+        ReflectionTestUtils.setField(eventStore, "meterRegistry", meterRegistry);
+        eventStore.init();
+
+        ReflectionTestUtils.setField(projector, "eventStore", eventStore);
+        ReflectionTestUtils.setField(projector, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(projector, "transactionManager", new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(projector, "batchSize", 100);
+        ReflectionTestUtils.setField(projector, "gapTimeout", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(projector, "gapRetention", Duration.ofHours(1));
+        projector.init();
+
+        // Nem todo teste grava pelo eventStore (alguns inserem direto no log)
+        lenient().when(employeeLookupCache.findAll(any())).thenReturn(Map.of(
+                "TAG001", new CachedEmployee(1L, "TAG001", "Ana", true)));
+    }
+
+    @Test
+    void shouldAppendEventsAndProjectThemInOrder() {
+        LocalDateTime checkIn = LocalDateTime.of(2024, 1, 15, 8, 0);
+        eventStore.append(List.of(
+                IngestionEvent.of("TAG001", AttendanceEventType.CHECK_IN, "DEVICE_001", checkIn),
+                IngestionEvent.of("UNKNOWN", AttendanceEventType.CHECK_IN, "DEVICE_001", checkIn),
+                IngestionEvent.of("TAG001", AttendanceEventType.CHECK_OUT, "DEVICE_001", checkIn.plusHours(9))
+        ), EventOrigin.MQTT);
+
+        assertEquals(Long.valueOf(1L), jdbcTemplate.queryForObject(
+                "SELECT employee_id FROM attendance_events WHERE rfid_tag = 'TAG001' AND event_type = 'CHECK_IN'",
+                Long.class));
+
+        assertEquals(3, projector.projectBatch());
+        assertEquals(0, projector.projectBatch());
+        assertEquals(3L, projector.position());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<IngestionEvent>> batch = ArgumentCaptor.forClass(List.class);
+        verify(batchWriter, times(1)).writeBatch(batch.capture());
+        List<IngestionEvent> projected = batch.getValue();
+        assertEquals(List.of(AttendanceEventType.CHECK_IN, AttendanceEventType.CHECK_IN, AttendanceEventType.CHECK_OUT),
+                projected.stream().map(IngestionEvent::eventType).toList());
+        assertEquals(checkIn.plusHours(9), projected.get(2).occurredAt());
+    }
+
+    @Test
+    void shouldWaitForMissingIdsUntilGapTimeout() {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 15, 8, 0);
+        eventStore.append(List.of(IngestionEvent.of("TAG001", AttendanceEventType.CHECK_IN, "D", now)), EventOrigin.HTTP);
+        // ID 2 ainda não commitado (ou perdido): evento 3 não pode passar na frente
+        jdbcTemplate.update("INSERT INTO attendance_events (id, rfid_tag, device_id, event_type, event_time, origin, received_at) "
+                + "VALUES (3, 'TAG001', 'D', 'CHECK_OUT', ?, 'HTTP', ?)", now.plusHours(1), now);
+
+        assertEquals(1, projector.projectBatch());
+        assertEquals(0, projector.projectBatch());
+        assertEquals(1L, projector.position());
+
+        ReflectionTestUtils.setField(projector, "gapTimeout", Duration.ZERO);
+        assertEquals(1, projector.projectBatch());
+        assertEquals(3L, projector.position());
+    }
+
+    @Test
+    void shouldApplyEventsCommittedAfterTheirGapWasSkipped() {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 15, 8, 0);
+        insertEvent(1, "CHECK_IN", now);
+        insertEvent(5, "CHECK_OUT", now.plusHours(9));
+        ReflectionTestUtils.setField(projector, "gapTimeout", Duration.ZERO);
+        projector.projectBatch(); // Observa o buraco 2..4
+        assertEquals(1, projector.projectBatch());
+        assertEquals(5L, projector.position());
+        assertEquals(0, projector.recoverGaps());
+
+        // Transação lenta commita os IDs 2 e 4 depois do timeout; 3 foi rollback
+        insertEvent(2, "CHECK_IN", now.plusMinutes(1));
+        insertEvent(4, "CHECK_OUT", now.plusHours(8));
+        clearInvocations(batchWriter);
+
+        assertEquals(2, projector.recoverGaps());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<IngestionEvent>> batch = ArgumentCaptor.forClass(List.class);
+        verify(batchWriter).writeBatch(batch.capture());
+        assertEquals(List.of(AttendanceEventType.CHECK_IN, AttendanceEventType.CHECK_OUT),
+                batch.getValue().stream().map(IngestionEvent::eventType).toList());
+
+        // Só o ID 3 continua pendente, e é esquecido depois de gap-retention
+        assertEquals(List.of(3L), jdbcTemplate.queryForList("SELECT first_id FROM attendance_event_gaps", Long.class));
+        assertEquals(0, projector.recoverGaps());
+        ReflectionTestUtils.setField(projector, "gapRetention", Duration.ofSeconds(-1));
+        projector.recoverGaps();
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM attendance_event_gaps", Integer.class));
+    }
+
+    private void insertEvent(long id, String type, LocalDateTime time) {
+        jdbcTemplate.update("INSERT INTO attendance_events (id, rfid_tag, device_id, event_type, event_time, origin, received_at) "
+                + "VALUES (?, 'TAG001', 'D', ?, ?, 'HTTP', ?)", id, type, time, time);
+    }
+}
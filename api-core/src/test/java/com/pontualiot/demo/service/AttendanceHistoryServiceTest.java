@@ -0,0 +1,129 @@
+package com.pontualiot.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.pontualiot.demo.repository.AttendanceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AttendanceHistoryServiceTest {
+
+    @Mock
+    private AttendanceRepository attendanceRepository;
+
+    private AttendanceHistoryService service;
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json() // Mesmo padrão do Spring Boot
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;NON_KEYWORDS=DATE");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE employees (id BIGINT PRIMARY KEY, name VARCHAR(100), email VARCHAR(100), "
+                + "rfid_tag VARCHAR(100), active BOOLEAN, created_at TIMESTAMP, updated_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE attendances (id BIGINT PRIMARY KEY, employee_id BIGINT, "
+                + "check_in TIMESTAMP, check_out TIMESTAMP, date DATE, created_at TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO employees VALUES (1, 'Ana', 'ana@x.com', 'RFID_1', TRUE, "
+                + "TIMESTAMP '2024-01-01 09:00:00', TIMESTAMP '2024-01-01 09:00:00')");
+        jdbcTemplate.update("INSERT INTO attendances VALUES "
+                + "(3, 1, TIMESTAMP '2024-01-16 08:00:00', NULL, DATE '2024-01-16', TIMESTAMP '2024-01-16 08:00:00'), "
+                + "(2, 1, TIMESTAMP '2024-01-15 08:00:00', TIMESTAMP '2024-01-15 17:00:00', DATE '2024-01-15', "
+                + "TIMESTAMP '2024-01-15 08:00:00'), "
+                + "(1, 1, TIMESTAMP '2024-01-16 07:00:00', NULL, DATE '2024-01-16', TIMESTAMP '2024-01-16 07:00:00')");
+
+        service = new AttendanceHistoryService();
+        ReflectionTestUtils.setField(service, "attendanceRepository", attendanceRepository);
+        ReflectionTestUtils.setField(service, "dataSource", dataSource);
+        ReflectionTestUtils.setField(service, "transactionManager", new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(service, "defaultPageSize", 2);
+        ReflectionTestUtils.setField(service, "maxPageSize", 10);
+        ReflectionTestUtils.setField(service, "streamFetchSize", 1);
+        service.init();
+    }
+
+    @Test
+    void shouldReturnNextCursorOnlyWhenThereIsAnotherPage() {
+        when(attendanceRepository.findPage(Limit.of(3))).thenReturn(attendances(1, 2, 3));
+        when(attendanceRepository.findPageAfter(LocalDate.of(2024, 1, 16), 2L, Limit.of(3)))
+                .thenReturn(attendances(3));
+
+        AttendancePage first = service.findPage(null, null);
+        assertEquals(2, first.items().size());
+        assertEquals("2024-01-16_2", first.nextCursor());
+
+        AttendancePage last = service.findPage(AttendanceCursor.parse(first.nextCursor()), null);
+        assertEquals(1, last.items().size());
+        assertNull(last.nextCursor());
+    }
+
+    @Test
+    void shouldClampPageSize() {
+        when(attendanceRepository.findPage(any())).thenReturn(List.of());
+
+        service.findPage(null, 5000);
+
+        verify(attendanceRepository).findPage(Limit.of(11));
+    }
+
+    @Test
+    void shouldStreamRowsInKeysetOrderWithViewJsonShape() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(3, service.stream(null, out));
+
+        JsonNode rows = objectMapper.readTree(out.toByteArray());
+        assertEquals(List.of(2L, 1L, 3L), List.of(rows.get(0).get("id").asLong(),
+                rows.get(1).get("id").asLong(), rows.get(2).get("id").asLong()));
+        assertEquals("2024-01-15T17:00:00", rows.get(0).get("checkOut").asText());
+        assertEquals("2024-01-15", rows.get(0).get("date").asText());
+        assertTrue(rows.get(1).get("checkOut").isNull());
+        assertEquals("Ana", rows.get(0).get("employee").get("name").asText());
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(new AttendanceView(2L, 1L, "Ana",
+                LocalDate.of(2024, 1, 15).atTime(8, 0), LocalDate.of(2024, 1, 15).atTime(17, 0),
+                LocalDate.of(2024, 1, 15), LocalDate.of(2024, 1, 15).atTime(8, 0)))), rows.get(0));
+    }
+
+    @Test
+    void shouldStreamFromCursor() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(1, service.stream(AttendanceCursor.parse("2024-01-16_1"), out));
+
+        assertEquals(3, objectMapper.readTree(out.toByteArray()).get(0).get("id").asLong());
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() {
+        assertThrows(IllegalArgumentException.class, () -> AttendanceCursor.parse("2024-01-16"));
+        assertThrows(IllegalArgumentException.class, () -> AttendanceCursor.parse("ontem_1"));
+    }
+
+    private static List<AttendanceView> attendances(long... ids) {
+        return LongStream.of(ids)
+                .mapToObj(id -> new AttendanceView(id, 1L, "Ana", null, null, LocalDate.of(2024, 1, 14).plusDays(id), null))
+                .toList();
+    }
+}
@@ -0,0 +1,171 @@
+package com.pontualiot.demo.service;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.pontualiot.demo.repository.AttendanceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AttendanceQueryCacheTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final LocalDate PAST = TODAY.minusDays(10);
+
+    @Mock
+    private AttendanceRepository attendanceRepository;
+
+    private AttendanceQueryCache cache;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new AttendanceQueryCache();
+        ReflectionTestUtils.setField(cache, "attendanceRepository", attendanceRepository);
+        ReflectionTestUtils.setField(cache, "objectMapper", Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build());
+        ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(cache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(cache, "openTtl", Duration.ZERO); // Hoje: sempre relido
+        ReflectionTestUtils.setField(cache, "closedTtl", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(cache, "offHeapMaxSize", DataSize.ofKilobytes(64));
+    }
+
+    @Test
+    void shouldKeepClosedDatesAndExpireToday() {
+        cache.init();
+        when(attendanceRepository.findViewsByDate(PAST)).thenReturn(List.of(view(1L, 1L, PAST)));
+        when(attendanceRepository.findViewsByDate(TODAY)).thenReturn(List.of(view(2L, 1L, TODAY)));
+
+        assertEquals(cache.byDate(PAST), cache.byDate(PAST));
+        cache.byDate(TODAY);
+        cache.byDate(TODAY);
+
+        verify(attendanceRepository, times(1)).findViewsByDate(PAST);
+        verify(attendanceRepository, times(2)).findViewsByDate(TODAY);
+    }
+
+    @Test
+    void shouldInvalidateOnlyEntriesCoveringTheWriteAfterCommit() {
+        cache.init();
+        when(attendanceRepository.findViewsByDate(PAST)).thenReturn(List.of(view(1L, 1L, PAST)));
+        when(attendanceRepository.findViewsByEmployeeIdAndDateBetween(1L, PAST.minusDays(5), PAST))
+                .thenReturn(List.of(view(1L, 1L, PAST)));
+        when(attendanceRepository.findViewsByEmployeeIdAndDateBetween(2L, PAST.minusDays(5), PAST))
+                .thenReturn(List.of());
+        cache.byDate(PAST);
+        cache.employeePeriod(1L, PAST.minusDays(5), PAST);
+        cache.employeePeriod(2L, PAST.minusDays(5), PAST);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.recordWrite(1L, PAST); // Backlog offline gravado em data encerrada
+            assertEquals(3, cache.size());
+
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+            synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(1, cache.size()); // Só o período do funcionário 2 continua
+        cache.byDate(PAST);
+        cache.employeePeriod(1L, PAST.minusDays(5), PAST);
+        cache.employeePeriod(2L, PAST.minusDays(5), PAST);
+        verify(attendanceRepository, times(2)).findViewsByDate(PAST);
+        verify(attendanceRepository, times(2)).findViewsByEmployeeIdAndDateBetween(1L, PAST.minusDays(5), PAST);
+        verify(attendanceRepository, times(1)).findViewsByEmployeeIdAndDateBetween(2L, PAST.minusDays(5), PAST);
+    }
+
+    @Test
+    void shouldNotKeepResultOfQueryThatRacedWithWrite() {
+        cache.init();
+        when(attendanceRepository.findViewsByDate(PAST)).thenAnswer(invocation -> {
+            cache.recordWrite(1L, PAST); // Commit durante a consulta
+            return List.of(view(1L, 1L, PAST));
+        });
+
+        cache.byDate(PAST);
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void shouldServeEvictedClosedEntriesFromOffHeapTier() {
+        ReflectionTestUtils.setField(cache, "maximumSize", 1L);
+        ReflectionTestUtils.setField(cache, "offHeapEnabled", true);
+        cache.init();
+        List<AttendanceView> past = List.of(view(1L, 1L, PAST), view(2L, 2L, PAST));
+        when(attendanceRepository.findViewsByDate(PAST)).thenReturn(past);
+        when(attendanceRepository.findViewsByDate(PAST.plusDays(1))).thenReturn(List.of());
+
+        cache.byDate(PAST);
+        cache.byDate(PAST.plusDays(1)); // Camada 1 comporta uma entrada: PAST sai do heap
+        cache.size();
+
+        assertEquals(past, cache.byDate(PAST));
+        verify(attendanceRepository, times(1)).findViewsByDate(PAST);
+        assertEquals(1.0, meterRegistry.get("attendance_query_cache_off_heap_requests_total")
+                .tag("result", "hit").counter().count());
+
+        cache.recordWrite(2L, PAST); // Remove das duas camadas
+        cache.byDate(PAST.plusDays(1));
+        cache.size();
+        cache.byDate(PAST);
+        verify(attendanceRepository, times(2)).findViewsByDate(PAST);
+    }
+
+    private static AttendanceView view(Long id, Long employeeId, LocalDate date) {
+        return new AttendanceView(id, employeeId, "Funcionário " + employeeId, date.atTime(8, 0), date.atTime(17, 0),
+                date, date.atTime(8, 0));
+    }
+
+    @Test
+    void shouldExpireClosedDatesAfterClosedTtl() {
+        ReflectionTestUtils.setField(cache, "closedTtl", Duration.ZERO); // Escrita de outra instância sem aviso
+        ReflectionTestUtils.setField(cache, "offHeapEnabled", true);
+        cache.init();
+        when(attendanceRepository.findViewsByDate(PAST)).thenReturn(List.of(view(1L, 1L, PAST)));
+
+        cache.byDate(PAST);
+        cache.byDate(PAST);
+
+        verify(attendanceRepository, times(2)).findViewsByDate(PAST);
+    }
+
+    @Test
+    void shouldForgetOldWritesAndEvictedPeriods() {
+        ReflectionTestUtils.setField(cache, "closedTtl", Duration.ZERO); // O período expira logo depois de lido
+        cache.init();
+        when(attendanceRepository.findViewsByEmployeeIdAndDateBetween(1L, PAST.minusDays(5), PAST))
+                .thenReturn(List.of(view(1L, 1L, PAST)));
+        cache.employeePeriod(1L, PAST.minusDays(5), PAST);
+        cache.recordWrite(2L, PAST.plusDays(1));
+
+        cache.expireWrites(); // open-ttl zero: toda escrita já é antiga
+
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(cache, "lastWriteByDate")).isEmpty());
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(cache, "lastWriteByEmployee")).isEmpty());
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(cache, "periodsByEmployee")).isEmpty());
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,91 @@
+package com.pontualiot.demo.service;
+
+import com.pontualiot.demo.mqtt.AttendanceEventType;
+import com.pontualiot.demo.mqtt.IngestionEvent;
+import com.pontualiot.demo.service.EmployeeLookupCache.CachedEmployee;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AttendanceRollupsTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 1, 15);
+
+    private AttendanceEventStore eventStore;
+    private AttendanceRollups rollups;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        EmployeeLookupCache employeeLookupCache = mock(EmployeeLookupCache.class);
+        when(employeeLookupCache.findAll(any())).thenReturn(Map.of(
+                "RFID_1", new CachedEmployee(1L, "RFID_1", "Ana", true),
+                "RFID_2", new CachedEmployee(2L, "RFID_2", "Bruno", true)));
+
+        eventStore = new AttendanceEventStore();
+        ReflectionTestUtils.setField(eventStore, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(eventStore, "dataSource", dataSource);
+        ReflectionTestUtils.setField(eventStore, "employeeLookupCache", employeeLookupCache);
+        ReflectionTestUtils.setField(eventStore, "meterRegistry", new SimpleMeterRegistry());
+        eventStore.init();
+
+        rollups = new AttendanceRollups();
+        ReflectionTestUtils.setField(rollups, "eventStore", eventStore);
+        ReflectionTestUtils.setField(rollups, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(rollups, "dataSource", dataSource);
+        rollups.init(); // H2: sem TimescaleDB
+
+        eventStore.append(List.of(
+                event("RFID_1", AttendanceEventType.CHECK_IN, "DEV_A", DAY.atTime(8, 5)),
+                event("RFID_2", AttendanceEventType.CHECK_IN, "DEV_A", DAY.atTime(8, 40)),
+                event("RFID_1", AttendanceEventType.CHECK_OUT, "DEV_B", DAY.atTime(17, 10)),
+                event("RFID_1", AttendanceEventType.CHECK_IN, "DEV_A", DAY.plusDays(1).atTime(8, 0)),
+                event("UNKNOWN", AttendanceEventType.CHECK_IN, "DEV_A", DAY.atTime(8, 50))), EventOrigin.MQTT);
+    }
+
+    private static IngestionEvent event(String rfidTag, AttendanceEventType type, String deviceId, LocalDateTime at) {
+        return IngestionEvent.of(rfidTag, type, deviceId, at);
+    }
+
+    @Test
+    void shouldFallBackToRawLogWithoutTimescale() {
+        assertFalse(rollups.usesContinuousAggregates());
+    }
+
+    @Test
+    void shouldAggregatePerDeviceAndHour() {
+        List<HourlyDeviceRollup> hourly = rollups.hourlyByDevice(DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay(), null);
+
+        assertEquals(List.of(
+                new HourlyDeviceRollup(DAY.atTime(8, 0), "DEV_A", 3, 3, 0),
+                new HourlyDeviceRollup(DAY.atTime(17, 0), "DEV_B", 1, 0, 1)), hourly);
+        assertEquals(1, rollups.hourlyByDevice(DAY.atStartOfDay(), DAY.plusDays(2).atStartOfDay(), "DEV_B").size());
+    }
+
+    @Test
+    void shouldAggregatePerEmployeeAndDaySkippingUnknownTags() {
+        List<DailyEmployeeRollup> daily = rollups.dailyByEmployee(DAY, DAY.plusDays(1), null);
+
+        assertEquals(3, daily.size());
+        assertEquals(new DailyEmployeeRollup(DAY, 1L, 2, 1, 1, DAY.atTime(8, 5), DAY.atTime(17, 10)), daily.get(0));
+        assertNull(daily.get(1).lastCheckOut());
+        assertEquals(List.of(DAY.plusDays(1)), rollups.dailyByEmployee(DAY.plusDays(1), DAY.plusDays(1), 1L).stream()
+                .map(DailyEmployeeRollup::day).toList());
+    }
+}
@@ -33,6 +33,9 @@ class AttendanceServiceTest {
     @Mock
     private Counter attendanceRecordsCounter;
 
+    @Mock
+    private OpenShiftIndex openShiftIndex;
+
     @InjectMocks
     private AttendanceService attendanceService;
 
@@ -73,8 +76,9 @@ class AttendanceServiceTest {
                 .build();
 
         when(employeeRepository.findById(1L)).thenReturn(Optional.of(testEmployee));
-        when(attendanceRepository.findByEmployeeAndDate(testEmployee, LocalDate.now()))
-                .thenReturn(List.of(existingAttendance));
+        when(openShiftIndex.find(1L, LocalDate.now()))
+                .thenReturn(Optional.of(new OpenShift(1L, 1L, existingAttendance.getCheckIn(), LocalDate.now())));
+        when(attendanceRepository.findById(1L)).thenReturn(Optional.of(existingAttendance));
         when(attendanceRepository.save(any(Attendance.class))).thenAnswer(i -> i.getArgument(0));
 
         Attendance result = attendanceService.createCheckOut(1L);
@@ -92,12 +96,12 @@ class AttendanceServiceTest {
 
     @Test
     void shouldGetEmployeeAttendances() {
-        List<Attendance> expectedAttendances = List.of(
-                Attendance.builder().employee(testEmployee).build()
+        List<AttendanceView> expectedAttendances = List.of(
+                new AttendanceView(1L, 1L, "Test Employee", LocalDateTime.now(), null, LocalDate.now(), null)
         );
-        when(attendanceRepository.findByEmployeeId(1L)).thenReturn(expectedAttendances);
+        when(attendanceRepository.findViewsByEmployeeId(1L)).thenReturn(expectedAttendances);
 
-        List<Attendance> result = attendanceService.getEmployeeAttendances(1L);
+        List<AttendanceView> result = attendanceService.getEmployeeAttendances(1L);
 
         assertEquals(expectedAttendances, result);
     }
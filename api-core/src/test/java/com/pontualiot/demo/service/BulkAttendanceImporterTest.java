@@ -0,0 +1,126 @@
+package com.pontualiot.demo.service;
+
+import com.pontualiot.demo.mqtt.MqttPayloadParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkAttendanceImporterTest {
+
+    private BulkAttendanceImporter importer;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE employees (id BIGINT PRIMARY KEY, rfid_tag VARCHAR(100) NOT NULL)");
+        jdbcTemplate.update("INSERT INTO employees (id, rfid_tag) VALUES (1, 'RFID_1'), (2, 'RFID_2')");
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AttendanceEventStore eventStore = new AttendanceEventStore();
+        ReflectionTestUtils.setField(eventStore, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(eventStore, "dataSource", dataSource);
+        ReflectionTestUtils.setField(eventStore, "meterRegistry", meterRegistry);
+        eventStore.init(); // Cria attendance_events
+
+        importer = new BulkAttendanceImporter();
+        ReflectionTestUtils.setField(importer, "payloadParser", new MqttPayloadParser());
+        ReflectionTestUtils.setField(importer, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(importer, "dataSource", dataSource);
+        ReflectionTestUtils.setField(importer, "transactionManager", new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(importer, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(importer, "chunkRows", 500);
+        importer.init();
+    }
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldImportNdjsonAndReportRejectedLines() {
+        BulkImportResult result = importer.importNdjson(body("""
+            {"deviceId": "D1", "rfidTag": "RFID_1", "eventType": "CHECK_OUT", "timestamp": "2024-01-15T17:30:00"}
+            {"deviceId": "D1", "rfidTag": "RFID_1", "eventType": "CHECK_IN", "timestamp": "2024-01-15T08:30:00"}
+
+            {"deviceId": "D1", "rfidTag": "RFID_2", "eventType": "LUNCH", "timestamp": "2024-01-15T12:00:00"}
+            {"deviceId": "D1", "rfidTag": "UNKNOWN", "eventType": "CHECK_IN", "timestamp": "2024-01-15T08:00:00"}
+            not json
+            """));
+
+        assertEquals(2, result.accepted());
+        assertEquals(3, result.rejected());
+        assertEquals("linha 4: Tipo de evento deve ser CHECK_IN ou CHECK_OUT", result.errors().get(0));
+        assertTrue(result.errors().get(1).startsWith("linha 6: Payload JSON malformado"));
+        assertEquals("1 batidas com RFID desconhecido", result.errors().get(2));
+
+        // Log recebe o backlog em ordem cronológica, com origem HTTP e employee_id resolvido
+        List<Map<String, Object>> events = jdbcTemplate.queryForList(
+                "SELECT employee_id, event_type, origin FROM attendance_events ORDER BY id");
+        assertEquals(2, events.size());
+        assertEquals("CHECK_IN", events.get(0).get("EVENT_TYPE"));
+        assertEquals("CHECK_OUT", events.get(1).get("EVENT_TYPE"));
+        assertEquals(1L, ((Number) events.get(0).get("EMPLOYEE_ID")).longValue());
+        assertEquals("HTTP", events.get(0).get("ORIGIN"));
+    }
+
+    @Test
+    void shouldImportCsvWithHeaderInAnyColumnOrder() {
+        BulkImportResult result = importer.importCsv(body("""
+            timestamp,rfidTag,eventType,deviceId
+            2024-01-15T08:30:00,RFID_1,CHECK_IN,"DEV,01"
+            2024-01-15T08:31:00,RFID_2,CHECK_IN,
+            2024-01-15T08:32:00,RFID_2,CHECK_IN
+            """));
+
+        assertEquals(1, result.accepted());
+        assertEquals(List.of(
+                "linha 3: Device ID é obrigatório (campo vazio)",
+                "linha 4: Device ID é obrigatório (campo não encontrado)"), result.errors());
+        assertEquals("DEV,01", jdbcTemplate.queryForObject("SELECT device_id FROM attendance_events", String.class));
+    }
+
+    @Test
+    void shouldImportCsvWithoutHeaderInDefaultOrder() {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 1200; i++) { // Três blocos, cada um em sua transação
+            csv.append("D1,RFID_").append(i % 2 + 1).append(",CHECK_IN,2024-01-15T08:30:00\n");
+        }
+
+        BulkImportResult result = importer.importCsv(body(csv.toString()));
+
+        assertEquals(1200, result.accepted());
+        assertEquals(0, result.rejected());
+        assertTrue(result.errors().isEmpty());
+    }
+
+    @Test
+    void shouldOnlyTreatExactColumnNamesAsHeader() {
+        BulkImportResult result = importer.importCsv(body("""
+            RFIDTAG-READER-01,RFID_1,CHECK_IN,2024-01-15T08:30:00
+            """));
+
+        assertEquals(1, result.accepted());
+        assertEquals("RFIDTAG-READER-01", jdbcTemplate.queryForObject("SELECT device_id FROM attendance_events", String.class));
+    }
+
+    @Test
+    void shouldSplitQuotedCsvFields() {
+        assertEquals(List.of("a", "b \"x\", c", ""), BulkAttendanceImporter.splitCsv("a,\"b \"\"x\"\", c\","));
+    }
+}
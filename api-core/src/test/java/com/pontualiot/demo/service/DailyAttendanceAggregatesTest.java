@@ -0,0 +1,119 @@
+package com.pontualiot.demo.service;
+
+import com.pontualiot.demo.repository.AttendanceRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DailyAttendanceAggregatesTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 1, 15);
+
+    @Mock
+    private AttendanceRepository attendanceRepository;
+
+    @InjectMocks
+    private DailyAttendanceAggregates aggregates;
+
+    @Test
+    void shouldLoadDayOnceAndApplyWritesIncrementally() {
+        when(attendanceRepository.findTimesByDate(DAY)).thenReturn(List.of(
+                new AttendanceTimes(1L, DAY.atTime(8, 0), DAY.atTime(17, 0)),
+                new AttendanceTimes(2L, DAY.atTime(9, 30), null)));
+
+        DailyAttendanceSummary loaded = aggregates.summary(DAY);
+        assertEquals(2, loaded.totalEmployees());
+        assertEquals(1, loaded.stillWorking());
+
+        aggregates.recordWrite(3L, DAY.atTime(8, 15), null, DAY);         // Novo check-in
+        aggregates.recordWrite(2L, DAY.atTime(9, 30), DAY.atTime(18, 0), DAY); // Check-out
+        aggregates.recordWrite(2L, DAY.atTime(9, 30), DAY.atTime(18, 0), DAY); // Repetida: idempotente
+
+        DailyAttendanceSummary summary = aggregates.summary(DAY);
+        assertEquals(3, summary.totalEmployees());
+        assertEquals(3, summary.checkedIn());
+        assertEquals(2, summary.checkedOut());
+        assertEquals(1, summary.stillWorking());
+        assertEquals(2, summary.checkInsByHour()[8]);
+        assertEquals(1, summary.checkOutsByHour()[18]);
+        verify(attendanceRepository, times(1)).findTimesByDate(DAY);
+    }
+
+    @Test
+    void shouldApplyWritesOnlyAfterCommit() {
+        when(attendanceRepository.findTimesByDate(DAY)).thenReturn(List.of());
+        aggregates.summary(DAY);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            aggregates.recordWrite(1L, DAY.atTime(8, 0), null, DAY);
+            aggregates.recordWrite(2L, DAY.atTime(8, 0), null, DAY);
+            assertEquals(0, aggregates.summary(DAY).totalEmployees());
+
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            assertEquals(1, synchronizations.size()); // Uma por transação
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+            synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(2, aggregates.summary(DAY).totalEmployees());
+    }
+
+    @Test
+    void shouldKeepWritesCommittedWhileTheDayIsLoading() {
+        when(attendanceRepository.findTimesByDate(DAY)).thenAnswer(invocation -> {
+            // Commit concorrente depois da leitura do banco; também prova que a carga não segura o mapa
+            aggregates.recordWrite(2L, DAY.atTime(9, 0), null, DAY);
+            return List.of(new AttendanceTimes(1L, DAY.atTime(8, 0), null));
+        });
+
+        DailyAttendanceSummary summary = aggregates.summary(DAY);
+
+        assertEquals(2, summary.totalEmployees());
+        assertEquals(1, summary.checkInsByHour()[9]);
+    }
+
+    @Test
+    void shouldIgnoreWritesForDaysNotLoadedAndRemoveRows() {
+        aggregates.recordWrite(1L, DAY.atTime(8, 0), null, DAY);
+        assertEquals(0, aggregates.size());
+
+        when(attendanceRepository.findTimesByDate(DAY)).thenReturn(List.of(new AttendanceTimes(1L, DAY.atTime(8, 0), null)));
+        assertEquals(1, aggregates.summary(DAY).checkedIn());
+
+        aggregates.recordRemoval(1L, DAY);
+        assertEquals(0, aggregates.summary(DAY).checkedIn());
+        assertEquals(0, aggregates.summary(DAY).checkInsByHour()[8]);
+    }
+
+    @Test
+    void shouldEvictOldestDayAndReconcileLoadedDays() {
+        ReflectionTestUtils.setField(aggregates, "maxDays", 2);
+        when(attendanceRepository.findTimesByDate(any())).thenReturn(List.of());
+
+        aggregates.summary(DAY);
+        aggregates.summary(DAY.plusDays(1));
+        aggregates.summary(DAY.plusDays(2));
+        assertEquals(2, aggregates.size());
+
+        when(attendanceRepository.findTimesByDate(DAY.plusDays(2)))
+                .thenReturn(List.of(new AttendanceTimes(9L, DAY.plusDays(2).atTime(7, 0), null)));
+        aggregates.reconcile();
+
+        assertEquals(1, aggregates.summary(DAY.plusDays(2)).totalEmployees());
+    }
+}
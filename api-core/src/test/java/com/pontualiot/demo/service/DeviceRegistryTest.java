@@ -0,0 +1,97 @@
+package com.pontualiot.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceRegistryTest {
+
+    private static final Instant START = Instant.parse("2024-10-30T08:00:00Z");
+
+    private DeviceRegistry registry;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+        registry = new DeviceRegistry();
+        ReflectionTestUtils.setField(registry, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(registry, "silenceWindow", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(registry, "rateWindow", Duration.ofMinutes(1));
+        at(START);
+    }
+
+    @Test
+    void shouldExpireDevicesAfterSilenceWindow() {
+        registry.init();
+        registry.recordMessage("DEVICE001");
+        registry.recordMessage("DEVICE001");
+        registry.recordMessage("DEVICE002");
+        assertEquals(2, registry.activeCount()); // Duas mensagens do mesmo dispositivo contam uma vez
+
+        at(START.plus(Duration.ofMinutes(4)));
+        registry.recordMessage("DEVICE002");
+        registry.recordError("DEVICE002", "Validação falhou");
+        at(START.plus(Duration.ofMinutes(6)));
+
+        assertEquals(1, registry.activeCount());
+        assertTrue(registry.find("DEVICE001").isEmpty());
+        assertEquals("Validação falhou", registry.find("DEVICE002").orElseThrow().lastError());
+
+        assertEquals(1, registry.expireSilent());
+        registry.recordMessage("DEVICE001"); // Volta como novo contato
+        assertEquals(1, registry.find("DEVICE001").orElseThrow().messages());
+    }
+
+    @Test
+    void shouldReportRateOverSlidingWindow() {
+        registry.init();
+        for (int i = 0; i < 30; i++) {
+            at(START.plusSeconds(i));
+            registry.recordMessage("DEVICE001");
+        }
+        assertEquals(30.0, registry.list().get(0).messagesPerMinute(), 0.001);
+
+        at(START.plusSeconds(90)); // Mensagens já fora da janela de 1 minuto
+        registry.recordMessage("DEVICE001");
+        DeviceRegistry.DeviceStats stats = registry.list().get(0);
+        assertEquals(1.0, stats.messagesPerMinute(), 0.001);
+        assertEquals(31, stats.messages());
+    }
+
+    @Test
+    void shouldBatchLastSeenIntoPlatformDevicesTable() {
+        jdbcTemplate.execute("CREATE SCHEMA pontual");
+        jdbcTemplate.execute("CREATE TABLE pontual.devices (serial_number VARCHAR(100) PRIMARY KEY, "
+                + "last_seen TIMESTAMP WITH TIME ZONE, updated_at TIMESTAMP WITH TIME ZONE)");
+        jdbcTemplate.update("INSERT INTO pontual.devices (serial_number) VALUES ('DEVICE001')");
+        registry.init();
+
+        registry.recordMessage("DEVICE001");
+        registry.recordMessage("DEVICE001");
+        registry.recordMessage("DEVICE999"); // Sem cadastro na plataforma
+
+        assertEquals(2, registry.flushLastSeen());
+        assertEquals(0, registry.flushLastSeen()); // Nada novo desde o último flush
+        assertEquals(START, jdbcTemplate.queryForObject(
+                "SELECT last_seen FROM pontual.devices WHERE serial_number = 'DEVICE001'", Instant.class));
+
+        at(START.plus(Duration.ofMinutes(10)));
+        assertEquals(2, registry.expireSilent()); // last_seen já gravado: pode expirar
+    }
+
+    private void at(Instant instant) {
+        ReflectionTestUtils.setField(registry, "clock", Clock.fixed(instant, ZoneOffset.UTC));
+    }
+}
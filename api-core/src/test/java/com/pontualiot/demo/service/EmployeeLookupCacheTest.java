@@ -0,0 +1,91 @@
+package com.pontualiot.demo.service;
+
+import com.pontualiot.demo.entity.Employee;
+import com.pontualiot.demo.repository.EmployeeRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmployeeLookupCacheTest {
+
+    @Mock
+    private EmployeeRepository employeeRepository;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private EmployeeLookupCache cache;
+
+    private Employee employee;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(cache, "expireAfterWrite", Duration.ofMinutes(10));
+        cache.init();
+
+        employee = Employee.builder().id(1L).name("Ana").rfidTag("TAG001").build();
+    }
+
+    @Test
+    void shouldHitDatabaseOnlyOnFirstLookup() {
+        when(employeeRepository.findByRfidTag("TAG001")).thenReturn(Optional.of(employee));
+
+        assertEquals(1L, cache.find("TAG001").orElseThrow().id());
+        assertEquals(1L, cache.find("TAG001").orElseThrow().id());
+
+        verify(employeeRepository, times(1)).findByRfidTag("TAG001");
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "employee_rfid").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void shouldNotCacheUnknownTags() {
+        when(employeeRepository.findByRfidTag("NEW001"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(Employee.builder().id(2L).name("Bruno").rfidTag("NEW001").build()));
+
+        assertTrue(cache.find("NEW001").isEmpty());
+        assertTrue(cache.find("NEW001").isPresent());
+    }
+
+    @Test
+    void shouldReloadAfterInvalidation() {
+        when(employeeRepository.findByRfidTag("TAG001"))
+                .thenReturn(Optional.of(employee))
+                .thenReturn(Optional.of(Employee.builder().id(1L).name("Ana").rfidTag("TAG001").active(false).build()));
+
+        assertTrue(cache.find("TAG001").orElseThrow().active());
+        cache.invalidate("TAG001");
+        assertFalse(cache.find("TAG001").orElseThrow().active());
+    }
+
+    @Test
+    void shouldLoadMissingTagsInOneQuery() {
+        when(employeeRepository.findByRfidTagIn(any())).thenReturn(List.of(employee));
+
+        Map<String, EmployeeLookupCache.CachedEmployee> found = cache.findAll(List.of("TAG001", "UNKNOWN"));
+
+        assertEquals(1, found.size());
+        assertTrue(found.containsKey("TAG001"));
+        verify(employeeRepository, times(1)).findByRfidTagIn(any());
+    }
+}
@@ -0,0 +1,54 @@
+package com.pontualiot.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapByteStoreTest {
+
+    @Test
+    void shouldEvictLeastRecentlyUsedToStayWithinLimit() {
+        OffHeapByteStore<String> store = new OffHeapByteStore<>(10);
+        store.put("a", new byte[]{1, 2, 3, 4});
+        store.put("b", new byte[]{5, 6, 7, 8});
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, store.get("a")); // "b" passa a ser o menos usado
+
+        store.put("c", new byte[]{9, 9, 9, 9});
+
+        assertNull(store.get("b"));
+        assertNotNull(store.get("a"));
+        assertEquals(8, store.usedBytes());
+        assertFalse(store.put("d", new byte[11])); // Maior que o limite
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void shouldReplaceAndRemoveByFilter() {
+        OffHeapByteStore<String> store = new OffHeapByteStore<>(100);
+        store.put("a", new byte[]{1});
+        store.put("a", new byte[]{1, 2});
+        store.put("b", new byte[]{3});
+
+        store.removeIf(key -> key.equals("a"));
+
+        assertEquals(1, store.size());
+        assertEquals(1, store.usedBytes());
+        assertArrayEquals(new byte[]{3}, store.get("b"));
+    }
+
+    @Test
+    void shouldExpireEntriesAfterTimeToLive() {
+        OffHeapByteStore<String> expiring = new OffHeapByteStore<>(100, Duration.ZERO);
+        expiring.put("a", new byte[]{1, 2});
+
+        assertFalse(expiring.contains("a"));
+        assertNull(expiring.get("a"));
+        assertEquals(0, expiring.usedBytes());
+
+        OffHeapByteStore<String> lasting = new OffHeapByteStore<>(100, Duration.ofHours(1));
+        lasting.put("a", new byte[]{1, 2});
+        assertTrue(lasting.contains("a"));
+    }
+}
@@ -0,0 +1,97 @@
+package com.pontualiot.demo.service;
+
+import com.pontualiot.demo.repository.AttendanceRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OpenShiftIndexTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final LocalDateTime NOW = LocalDateTime.now();
+
+    @Mock
+    private AttendanceRepository attendanceRepository;
+
+    @InjectMocks
+    private OpenShiftIndex index;
+
+    @Test
+    void shouldTrackOpenAndClosedShifts() {
+        index.recordWrite(1L, 10L, NOW, null, TODAY);
+
+        assertEquals(10L, index.find(1L, TODAY).orElseThrow().attendanceId());
+        assertTrue(index.find(1L, TODAY.minusDays(1)).isEmpty());
+
+        index.recordWrite(1L, 10L, NOW, NOW.plusHours(8), TODAY);
+
+        assertTrue(index.find(1L).isEmpty());
+    }
+
+    @Test
+    void shouldKeepMostRecentOpenShift() {
+        index.recordWrite(1L, 20L, NOW, null, TODAY);
+        index.recordWrite(1L, 10L, NOW.minusDays(1), null, TODAY.minusDays(1));
+
+        assertEquals(20L, index.find(1L).orElseThrow().attendanceId());
+
+        // Fechar o registro antigo não afeta a jornada atual
+        index.recordWrite(1L, 10L, NOW.minusDays(1), NOW, TODAY.minusDays(1));
+        assertEquals(20L, index.find(1L).orElseThrow().attendanceId());
+    }
+
+    @Test
+    void shouldRevertWriteOnRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.recordWrite(1L, 10L, NOW, null, TODAY);
+            assertTrue(index.find(1L).isPresent());
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(index.find(1L).isEmpty());
+    }
+
+    @Test
+    void shouldReconcileWithDatabase() {
+        index.recordWrite(1L, 10L, NOW, null, TODAY);
+        when(attendanceRepository.findOpenShifts()).thenReturn(List.of(
+                new OpenShift(2L, 11L, NOW, TODAY),
+                new OpenShift(2L, 12L, NOW, TODAY)));
+
+        assertEquals(1, index.reconcile());
+        assertTrue(index.find(1L).isEmpty());
+        assertEquals(12L, index.find(2L).orElseThrow().attendanceId());
+    }
+
+    @Test
+    void shouldRefreshOnlyGivenEmployees() {
+        index.recordWrite(1L, 10L, NOW, null, TODAY);
+        index.recordWrite(3L, 30L, NOW, null, TODAY);
+        when(attendanceRepository.findOpenShiftsByEmployeeIds(List.of(1L, 2L))).thenReturn(List.of(
+                new OpenShift(2L, 21L, NOW, TODAY)));
+
+        assertEquals(2, index.refresh(List.of(1L, 2L))); // Fechado e aberto em outra instância
+
+        assertTrue(index.find(1L).isEmpty());
+        assertEquals(21L, index.find(2L).orElseThrow().attendanceId());
+        assertEquals(30L, index.find(3L).orElseThrow().attendanceId());
+        verify(attendanceRepository, never()).findOpenShifts();
+    }
+}
@@ -69,10 +69,17 @@ describe('PontualIoT - Integration E2E Tests', () => {
     expect(checkoutResponse.data.message).toContain('Check-out');
     
     // 4. Verificar attendance criada
-    const attendanceResponse = await axios.get(`${API_BASE}/attendances`);
-    expect(attendanceResponse.status).toBe(200);
+    // GET /attendances é paginado por cursor: { items, nextCursor }
+    const attendances = [];
+    let cursor;
+    do {
+      const attendanceResponse = await axios.get(`${API_BASE}/attendances`, { params: { cursor } });
+      expect(attendanceResponse.status).toBe(200);
+      attendances.push(...attendanceResponse.data.items);
+      cursor = attendanceResponse.data.nextCursor;
+    } while (cursor);
     
-    const userAttendance = attendanceResponse.data.find(att => att.employeeId === employeeId);
+    const userAttendance = attendances.find(att => att.employee.id === employeeId);
     expect(userAttendance).toBeDefined();
     expect(userAttendance.checkIn).toBeDefined();
     expect(userAttendance.checkOut).toBeDefined();
@@ -116,7 +116,7 @@ class CompleteIntegrationTest {
             .when().get("/attendances")
             .then()
                 .statusCode(200)
-                .body("size()", greaterThan(0));
+                .body("items.size()", greaterThan(0));
         
         // Check-out
         given()
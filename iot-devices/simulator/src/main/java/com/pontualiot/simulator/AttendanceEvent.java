@@ -1,5 +1,6 @@
 package com.pontualiot.simulator;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 
 public class AttendanceEvent {
@@ -7,12 +8,33 @@ public class AttendanceEvent {
     private final String rfidTag;
     private final String eventType;
     private final LocalDateTime timestamp;
+    private final String messageId;
+    private final Instant sentAt;
 
     public AttendanceEvent(String deviceId, String rfidTag, String eventType) {
+        this(deviceId, rfidTag, eventType, LocalDateTime.now());
+    }
+
+    public AttendanceEvent(String deviceId, String rfidTag, String eventType, LocalDateTime timestamp) {
+        this(deviceId, rfidTag, eventType, timestamp, null, null);
+    }
+
+    private AttendanceEvent(String deviceId, String rfidTag, String eventType, LocalDateTime timestamp,
+                            String messageId, Instant sentAt) {
         this.deviceId = deviceId;
         this.rfidTag = rfidTag;
         this.eventType = eventType;
-        this.timestamp = LocalDateTime.now();
+        this.timestamp = timestamp;
+        this.messageId = messageId;
+        this.sentAt = sentAt;
+    }
+
+    /**
+     * Cópia rastreável: messageId (runId-sequência) e instante de envio em
+     * UTC com nanossegundos; ausentes do payload quando null.
+     */
+    public AttendanceEvent tracked(String messageId, Instant sentAt) {
+        return new AttendanceEvent(deviceId, rfidTag, eventType, timestamp, messageId, sentAt);
     }
 
     public String getDeviceId() {
@@ -30,4 +52,12 @@ public class AttendanceEvent {
     public LocalDateTime getTimestamp() {
         return timestamp;
     }
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    public Instant getSentAt() {
+        return sentAt;
+    }
 }
\ No newline at end of file
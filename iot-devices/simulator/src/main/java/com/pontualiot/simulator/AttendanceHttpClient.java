@@ -1,23 +1,215 @@
 package com.pontualiot.simulator;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
 /**
  * Cliente HTTP para enviar dados para API
+ *
+ * TRANSPORTE: java.net.http.HttpClient compartilhado por todas as
+ * instâncias (pool de conexões único). HTTP/2 por padrão: em texto claro o
+ * cliente negocia h2c por upgrade e as requisições seguintes são
+ * multiplexadas na mesma conexão (API com server.http2.enabled); servidor
+ * só HTTP/1.1 cai para o pool de conexões keep-alive.
+ *
+ * ENDPOINTS ({apiUrl}/api):
+ * - POST /attendance-events: uma batida (202 Accepted)
+ * - POST /attendance-events/bulk: lote NDJSON (HttpEventBatcher)
+ * - POST /employees: cadastro (201 Created)
+ *
+ * maxInflight limita as requisições pendentes desta instância; acima dele
+ * publishAsync falha com InflightFullException sem enviar.
  */
-public class AttendanceHttpClient {
-    private String apiUrl;
+public class AttendanceHttpClient implements EventPublisher {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final String NDJSON = "application/x-ndjson";
+
+    private static final HttpClient SHARED_CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final String apiUrl;
+    private final HttpClient httpClient;
+    private final Semaphore inflight;
 
     public AttendanceHttpClient(String apiUrl) {
-        this.apiUrl = apiUrl;
+        this(apiUrl, SHARED_CLIENT, Integer.MAX_VALUE);
+    }
+
+    public AttendanceHttpClient(String apiUrl, int maxInflight) {
+        this(apiUrl, SHARED_CLIENT, maxInflight);
+    }
+
+    AttendanceHttpClient(String apiUrl, HttpClient httpClient, int maxInflight) {
+        this.apiUrl = apiUrl.endsWith("/") ? apiUrl.substring(0, apiUrl.length() - 1) : apiUrl;
+        this.httpClient = httpClient;
+        this.inflight = new Semaphore(maxInflight);
+    }
+
+    /**
+     * Abre a conexão antes da carga: o upgrade h2c acontece num GET sem
+     * corpo e os POSTs já seguem multiplexados.
+     */
+    @Override
+    public boolean connect() {
+        try {
+            HttpResponse<Void> response = httpClient.send(request("/api/actuator/health").GET().build(),
+                    HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() < 500;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
     public boolean sendAttendanceEvent(AttendanceEvent event) {
-        // TODO: Implementar envio HTTP real
-        return true; // Implementação mínima para fazer teste passar
+        try {
+            publishAsync(event).join();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return Completa com 202; falha com HttpStatusException em outro status
+     */
+    @Override
+    public CompletableFuture<Void> publishAsync(AttendanceEvent event) {
+        try {
+            return send(request("/api/attendance-events")
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(EventJson.toBytes(event)))
+                    .build())
+                    .thenApply(body -> null);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
     }
 
+    /**
+     * Envia várias batidas numa única requisição NDJSON.
+     *
+     * @return Batidas aceitas e rejeitadas pela API (RFID desconhecido, inválidas)
+     */
+    public CompletableFuture<BulkResult> sendBatchAsync(List<AttendanceEvent> events) {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(events.size() * 160);
+            for (AttendanceEvent event : events) {
+                body.write(EventJson.toBytes(event));
+                body.write('\n');
+            }
+            return send(request("/api/attendance-events/bulk")
+                    .header("Content-Type", NDJSON)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                    .build())
+                    .thenApply(AttendanceHttpClient::parseBulkResult);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * @return Funcionário com o ID gerado pela API, ou null se a criação falhou
+     */
     public Employee createEmployee(Employee employee) {
-        // TODO: Implementar criação HTTP real
-        employee.setId(1L); // Simula ID retornado pela API
-        return employee;
+        try {
+            return createEmployeeAsync(employee).join();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public CompletableFuture<Employee> createEmployeeAsync(Employee employee) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("name", employee.getName());
+        body.put("email", employee.getEmail());
+        body.put("rfidTag", employee.getRfidTag());
+        body.put("active", true);
+        try {
+            return send(request("/api/employees")
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(EventJson.toBytes(body)))
+                    .build())
+                    .thenApply(response -> {
+                        employee.setId(readJson(response).path("id").asLong());
+                        return employee;
+                    });
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public void disconnect() {
+        // Pool compartilhado: conexões ociosas são fechadas pelo próprio HttpClient
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(apiUrl + path)).timeout(REQUEST_TIMEOUT);
+    }
+
+    private CompletableFuture<byte[]> send(HttpRequest request) {
+        if (!inflight.tryAcquire()) {
+            return CompletableFuture.failedFuture(new InflightFullException());
+        }
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .whenComplete((response, error) -> inflight.release())
+                .thenApply(response -> {
+                    if (response.statusCode() / 100 != 2) {
+                        throw new HttpStatusException(response.statusCode(), request.uri());
+                    }
+                    return response.body();
+                });
+    }
+
+    private static BulkResult parseBulkResult(byte[] body) {
+        JsonNode result = readJson(body);
+        return new BulkResult(result.path("accepted").asLong(), result.path("rejected").asLong());
+    }
+
+    private static JsonNode readJson(byte[] body) {
+        try {
+            return EventJson.MAPPER.readTree(body);
+        } catch (IOException e) {
+            throw new IllegalStateException("Invalid JSON response", e);
+        }
+    }
+
+    /**
+     * Resposta da importação em lote (BulkImportResult da API).
+     */
+    public record BulkResult(long accepted, long rejected) {
+    }
+
+    /**
+     * Resposta fora de 2xx.
+     */
+    public static class HttpStatusException extends RuntimeException {
+        private final int statusCode;
+
+        public HttpStatusException(int statusCode, URI uri) {
+            super("HTTP " + statusCode + " from " + uri);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
     }
-}
\ No newline at end of file
+}
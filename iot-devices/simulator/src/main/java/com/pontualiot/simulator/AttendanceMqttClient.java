@@ -1,35 +1,235 @@
 package com.pontualiot.simulator;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.eclipse.paho.client.mqttv3.DisconnectedBufferOptions;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Cliente MQTT para enviar dados via MQTT
+ *
+ * Baseado no MqttAsyncClient: publishAsync() não espera o PUBACK e até
+ * maxInflight mensagens QoS 1 ficam em trânsito na conexão. A janela é
+ * controlada aqui (semáforo): o Paho só conta uma mensagem como em
+ * trânsito quando a thread de envio a escreve, e enfileira sem limite o
+ * que chega antes disso.
+ *
+ * QUEDA DO BROKER: reconexão automática; enquanto desconectado as
+ * publicações vão para um buffer em memória de bufferSize mensagens,
+ * enviadas na reconexão (o futuro completa no PUBACK). Sessão persistente
+ * (cleanSession=false): mensagens em trânsito na queda são reenviadas.
+ *
+ * PAYLOAD: publishAsync(event) serializa por evento; publishAsync(topic,
+ * bytes) envia bytes já prontos (ex: replay de trace), sem Jackson no
+ * caminho quente.
+ *
+ * Janela ou buffer cheio: o futuro falha na hora com InflightFullException.
  */
-public class AttendanceMqttClient {
-    private String brokerUrl;
-    private String clientId;
-    private boolean connected = false;
+public class AttendanceMqttClient implements EventPublisher {
+    private static final long CONNECT_TIMEOUT_MS = 10_000;
+    private static final long PUBLISH_TIMEOUT_MS = 10_000;
+
+    private final String brokerUrl;
+    private final String clientId;
+    private final int maxInflight;
+    private final int bufferSize;
+    private final Semaphore window;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private MqttAsyncClient client;
 
     public AttendanceMqttClient(String brokerUrl, String clientId) {
+        this(brokerUrl, clientId, 1000, 10_000);
+    }
+
+    /**
+     * @param maxInflight Mensagens QoS 1 sem PUBACK na conexão
+     * @param bufferSize Mensagens guardadas enquanto desconectado (0 = sem buffer)
+     */
+    public AttendanceMqttClient(String brokerUrl, String clientId, int maxInflight, int bufferSize) {
         this.brokerUrl = brokerUrl;
         this.clientId = clientId;
+        this.maxInflight = maxInflight;
+        this.bufferSize = bufferSize;
+        this.window = new Semaphore(maxInflight);
     }
 
+    @Override
     public boolean connect() {
-        // TODO: Implementar conexão MQTT real
-        connected = true; // Implementação mínima
-        return true;
+        try {
+            client = new MqttAsyncClient(brokerUrl, clientId, new MemoryPersistence());
+            MqttConnectOptions options = new MqttConnectOptions();
+            options.setCleanSession(false);
+            options.setAutomaticReconnect(true);
+            options.setMaxReconnectDelay(5_000);
+            options.setMaxInflight(maxInflight);
+            client.connect(options).waitForCompletion(CONNECT_TIMEOUT_MS);
+            if (bufferSize > 0) {
+                DisconnectedBufferOptions buffer = new DisconnectedBufferOptions();
+                buffer.setBufferEnabled(true);
+                buffer.setBufferSize(bufferSize);
+                buffer.setPersistBuffer(false);
+                buffer.setDeleteOldestMessages(false);
+                client.setBufferOpts(buffer);
+            }
+            return true;
+        } catch (MqttException e) {
+            close();
+            return false;
+        }
     }
 
     public boolean isConnected() {
-        return connected;
+        return client != null && client.isConnected();
     }
 
+    /**
+     * Publica e espera o PUBACK (até 10s; com o broker fora, o tempo de
+     * reconexão conta).
+     */
     public boolean publishAttendanceEvent(AttendanceEvent event) {
-        // TODO: Implementar publicação MQTT real
-        return connected; // Só publica se conectado
+        if (client == null) return false;
+
+        try {
+            publishAsync(event).get(PUBLISH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> publishAsync(AttendanceEvent event) {
+        try {
+            return publishAsync(topicFor(event), toPayload(event));
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
     }
 
+    /**
+     * Publica um payload já serializado, QoS 1.
+     *
+     * @return Completa no PUBACK; falha com MqttException (desconectado sem
+     *         buffer, conexão perdida) ou InflightFullException
+     */
+    public CompletableFuture<Void> publishAsync(String topic, byte[] payload) {
+        CompletableFuture<Void> ack = new CompletableFuture<>();
+        if (client == null) {
+            return CompletableFuture.failedFuture(new MqttException(MqttException.REASON_CODE_CLIENT_NOT_CONNECTED));
+        }
+        // Desconectado: vai para o buffer offline, limitado por bufferSize e não pela janela
+        boolean windowed = client.isConnected();
+        if (windowed && !window.tryAcquire()) {
+            return CompletableFuture.failedFuture(new InflightFullException());
+        }
+        try {
+            MqttMessage message = new MqttMessage(payload);
+            message.setQos(1);
+            client.publish(topic, message, null, new IMqttActionListener() {
+                @Override
+                public void onSuccess(IMqttToken token) {
+                    release(windowed);
+                    acked.increment();
+                    ack.complete(null);
+                }
+
+                @Override
+                public void onFailure(IMqttToken token, Throwable exception) {
+                    release(windowed);
+                    failed.increment();
+                    ack.completeExceptionally(exception);
+                }
+            });
+            published.increment();
+        } catch (MqttException e) {
+            release(windowed);
+            boolean full = e.getReasonCode() == MqttException.REASON_CODE_MAX_INFLIGHT
+                    || e.getReasonCode() == MqttException.REASON_CODE_DISCONNECTED_BUFFER_FULL;
+            ack.completeExceptionally(full ? new InflightFullException() : e);
+        }
+        return ack;
+    }
+
+    @Override
     public void disconnect() {
-        // TODO: Implementar desconexão MQTT real
-        connected = false;
+        try {
+            if (client != null && client.isConnected()) {
+                client.disconnect().waitForCompletion(CONNECT_TIMEOUT_MS);
+            }
+        } catch (MqttException e) {
+            // Ignore disconnect errors
+        }
+        close();
+    }
+
+    /**
+     * @return Publicações aceitas pelo cliente (enviadas ou no buffer)
+     */
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    /**
+     * @return Publicações confirmadas pelo broker (PUBACK)
+     */
+    public long getAckedCount() {
+        return acked.sum();
+    }
+
+    /**
+     * @return Publicações que falharam depois de aceitas (ex: sessão perdida)
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * @return Mensagens no buffer offline aguardando reconexão
+     */
+    public int getBufferedCount() {
+        return client != null && bufferSize > 0 ? client.getBufferedMessageCount() : 0;
+    }
+
+    /**
+     * @return Mensagens da janela aguardando PUBACK (enviadas ou na fila de envio)
+     */
+    public int getInflightCount() {
+        return maxInflight - window.availablePermits();
+    }
+
+    private void release(boolean windowed) {
+        if (windowed) {
+            window.release();
+        }
+    }
+
+    private void close() {
+        try {
+            if (client != null) {
+                client.close(true);
+            }
+        } catch (MqttException e) {
+            // Ignore close errors
+        }
+    }
+
+    static String topicFor(AttendanceEvent event) {
+        return "attendance/" + event.getDeviceId() + "/" + event.getEventType();
+    }
+
+    static byte[] toPayload(AttendanceEvent event) throws JsonProcessingException {
+        return EventJson.toBytes(event);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,127 @@
+package com.pontualiot.simulator;
+
+import java.util.Random;
+
+/**
+ * Funcionários de uma conexão do gerador de carga.
+ *
+ * Cada funcionário pertence a um turno (funcionário % número de turnos) e
+ * bate sempre no mesmo leitor ("leitor de casa"), como na portaria de uma
+ * fábrica. Na troca de turno c entram os funcionários do turno c e saem os
+ * do turno c - 1 que entraram durante a execução: um CHECK_IN e um
+ * CHECK_OUT por funcionário e turno. Quem já entrou não entra de novo até
+ * sair e o turno voltar (execução com mais de um dia simulado).
+ *
+ * A ordem de entrada é uma permutação embaralhada; a saída segue a mesma
+ * ordem. Sem funcionário pendente na troca atual, next() devolve null: a
+ * taxa alvo passou do que a população gera (aumente --employees).
+ *
+ * Partições disjuntas por conexão mantêm a ordem de cada tag numa única
+ * conexão MQTT. Não é thread-safe: uma instância por thread de publicação.
+ */
+public class EmployeeRoster {
+    private final int size;
+    private final int[][] employeesByShift;
+    private final int[][] homeDeviceByShift;
+    private final int[] arrived;
+    private final int[] departed;
+    private int change = -1;
+    private boolean departureTurn;
+
+    /**
+     * @param partition Índice desta conexão
+     * @param partitions Número de conexões
+     * @param employees Total de funcionários (divididos entre as conexões)
+     * @param devices Total de dispositivos
+     * @param shifts Número de turnos (trocas de turno por dia)
+     */
+    public EmployeeRoster(int partition, int partitions, int employees, int devices, int shifts, long seed) {
+        if (shifts < 1) {
+            throw new IllegalArgumentException("É preciso ao menos um turno");
+        }
+        size = employees / partitions + (partition < employees % partitions ? 1 : 0);
+        Random random = new Random(seed + partition);
+        int[] members = new int[size];
+        int[] homeDevice = new int[size];
+        for (int i = 0; i < size; i++) {
+            members[i] = partition + i * partitions;
+            homeDevice[i] = random.nextInt(devices);
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = members[i];
+            members[i] = members[j];
+            members[j] = swap;
+            swap = homeDevice[i];
+            homeDevice[i] = homeDevice[j];
+            homeDevice[j] = swap;
+        }
+
+        int[] perShift = new int[shifts];
+        for (int employee : members) {
+            perShift[employee % shifts]++;
+        }
+        employeesByShift = new int[shifts][];
+        homeDeviceByShift = new int[shifts][];
+        for (int shift = 0; shift < shifts; shift++) {
+            employeesByShift[shift] = new int[perShift[shift]];
+            homeDeviceByShift[shift] = new int[perShift[shift]];
+        }
+        int[] filled = new int[shifts];
+        for (int i = 0; i < size; i++) {
+            int shift = members[i] % shifts;
+            employeesByShift[shift][filled[shift]] = members[i];
+            homeDeviceByShift[shift][filled[shift]++] = homeDevice[i];
+        }
+        arrived = new int[shifts];
+        departed = new int[shifts];
+    }
+
+    /**
+     * @param change Índice da troca de turno em andamento (ShiftCurve.changeAt)
+     * @return Próxima batida da troca (saídas e entradas alternadas), ou null
+     *         se todos os funcionários da troca já bateram
+     */
+    public AttendanceEvent next(int change) {
+        int shifts = employeesByShift.length;
+        if (change != this.change) {
+            // Turno voltando (outro dia simulado): quem já saiu pode entrar de novo
+            if (departed[change] == arrived[change]) {
+                arrived[change] = 0;
+                departed[change] = 0;
+            }
+            this.change = change;
+        }
+        int leaving = (change + shifts - 1) % shifts;
+        boolean canLeave = leaving != change && departed[leaving] < arrived[leaving];
+        boolean canArrive = arrived[change] < employeesByShift[change].length;
+
+        departureTurn = !departureTurn;
+        if (canLeave && (departureTurn || !canArrive)) {
+            int slot = departed[leaving]++;
+            return event(leaving, slot, "CHECK_OUT");
+        }
+        if (canArrive) {
+            int slot = arrived[change]++;
+            return event(change, slot, "CHECK_IN");
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private AttendanceEvent event(int shift, int slot, String eventType) {
+        return new AttendanceEvent(deviceId(homeDeviceByShift[shift][slot]), rfidTag(employeesByShift[shift][slot]),
+                eventType);
+    }
+
+    static String deviceId(int index) {
+        return String.format("LOAD-DEV-%04d", index);
+    }
+
+    static String rfidTag(int index) {
+        return String.format("LOAD-EMP-%06d", index);
+    }
+}
@@ -0,0 +1,30 @@
+package com.pontualiot.simulator;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transporte usado pelo gerador de carga (MQTT, HTTP ou HTTP em lote).
+ */
+public interface EventPublisher {
+
+    boolean connect();
+
+    /**
+     * Envia sem bloquear.
+     *
+     * @return Completa quando o destino confirma; falha imediatamente com
+     *         InflightFullException se a janela de envios pendentes está cheia
+     */
+    CompletableFuture<Void> publishAsync(AttendanceEvent event);
+
+    void disconnect();
+
+    /**
+     * Janela de envios pendentes cheia: o evento não foi enviado.
+     */
+    class InflightFullException extends RuntimeException {
+        public InflightFullException() {
+            super("Max in-flight reached", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.pontualiot.simulator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Agrupa batidas em requisições NDJSON para POST /attendance-events/bulk.
+ *
+ * O lote é enviado ao atingir maxBatch eventos ou quando o evento mais
+ * antigo espera linger. Cada publishAsync completa quando a requisição do
+ * seu lote responde; a API devolve apenas contagens, então linhas
+ * rejeitadas (RFID desconhecido) aparecem em rejected(), não no futuro.
+ *
+ * maxInflight limita os eventos pendentes (no lote aberto + em requisições
+ * sem resposta); acima dele publishAsync falha com InflightFullException.
+ */
+public class HttpEventBatcher implements EventPublisher {
+    private final AttendanceHttpClient client;
+    private final int maxBatch;
+    private final long lingerNanos;
+    private final Semaphore inflight;
+    private final ScheduledExecutorService flusher;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private List<AttendanceEvent> events = new ArrayList<>();
+    private List<CompletableFuture<Void>> futures = new ArrayList<>();
+    private long openedAt;
+
+    public HttpEventBatcher(AttendanceHttpClient client, int maxBatch, Duration linger, int maxInflight) {
+        this.client = client;
+        this.maxBatch = maxBatch;
+        this.lingerNanos = linger.toNanos();
+        this.inflight = new Semaphore(maxInflight);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "http-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tick = Math.max(1, lingerNanos / 2);
+        flusher.scheduleAtFixedRate(this::flushIfLingered, tick, tick, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public boolean connect() {
+        return client.connect();
+    }
+
+    @Override
+    public CompletableFuture<Void> publishAsync(AttendanceEvent event) {
+        if (!inflight.tryAcquire()) {
+            return CompletableFuture.failedFuture(new InflightFullException());
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        List<AttendanceEvent> full = null;
+        List<CompletableFuture<Void>> fullFutures = null;
+        synchronized (this) {
+            if (events.isEmpty()) {
+                openedAt = System.nanoTime();
+            }
+            events.add(event);
+            futures.add(future);
+            if (events.size() >= maxBatch) {
+                full = events;
+                fullFutures = futures;
+                events = new ArrayList<>(maxBatch);
+                futures = new ArrayList<>(maxBatch);
+            }
+        }
+        if (full != null) {
+            send(full, fullFutures);
+        }
+        return future;
+    }
+
+    /**
+     * Envia o lote aberto, se houver.
+     */
+    public void flush() {
+        List<AttendanceEvent> batch;
+        List<CompletableFuture<Void>> batchFutures;
+        synchronized (this) {
+            if (events.isEmpty()) {
+                return;
+            }
+            batch = events;
+            batchFutures = futures;
+            events = new ArrayList<>(maxBatch);
+            futures = new ArrayList<>(maxBatch);
+        }
+        send(batch, batchFutures);
+    }
+
+    @Override
+    public void disconnect() {
+        flush();
+        flusher.shutdownNow();
+    }
+
+    public long accepted() {
+        return accepted.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    private void flushIfLingered() {
+        boolean due;
+        synchronized (this) {
+            due = !events.isEmpty() && System.nanoTime() - openedAt >= lingerNanos;
+        }
+        if (due) {
+            flush();
+        }
+    }
+
+    private void send(List<AttendanceEvent> batch, List<CompletableFuture<Void>> batchFutures) {
+        client.sendBatchAsync(batch).whenComplete((result, error) -> {
+            inflight.release(batch.size());
+            if (error != null) {
+                batchFutures.forEach(future -> future.completeExceptionally(error));
+                return;
+            }
+            accepted.add(result.accepted());
+            rejected.add(result.rejected());
+            batchFutures.forEach(future -> future.complete(null));
+        });
+    }
+}
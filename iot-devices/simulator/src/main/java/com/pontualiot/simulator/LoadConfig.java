@@ -0,0 +1,99 @@
+package com.pontualiot.simulator;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parâmetros do modo de carga (--mode=load), lidos de argumentos --chave=valor.
+ *
+ * @param brokerUrl Broker MQTT
+ * @param devices Dispositivos simulados (deviceId LOAD-DEV-0000...)
+ * @param employees Funcionários simulados (rfidTag LOAD-EMP-000000...)
+ * @param rate Taxa alvo em eventos/s (no pico da curva)
+ * @param duration Duração da execução
+ * @param connections Conexões MQTT paralelas
+ * @param maxInflight Mensagens QoS 1 sem PUBACK por conexão
+ * @param curve "flat" (taxa constante) ou "shifts" (picos nas trocas de turno)
+ * @param shifts Horários das trocas de turno
+ * @param peakWidth Desvio padrão de cada pico
+ * @param simStart Horário simulado no início da execução
+ * @param simSpan Intervalo do dia percorrido durante a execução
+ * @param confirm Mede a latência de ponta a ponta pelos recibos da API (ReceiptTracker)
+ * @param receiptTopic Prefixo dos recibos (pontualiot.mqtt.receipts.topic-prefix)
+ * @param confirmTimeout Espera pelos recibos pendentes ao fim da execução
+ * @param transport "mqtt", "http" ou "http-bulk"
+ * @param apiUrl API para os transportes HTTP (sem /api)
+ * @param batchSize Batidas por requisição em http-bulk
+ * @param linger Espera máxima para completar um lote em http-bulk
+ * @param bufferSize Mensagens MQTT guardadas por conexão com o broker fora
+ */
+public record LoadConfig(String brokerUrl, int devices, int employees, double rate, Duration duration,
+                         int connections, int maxInflight, String curve, List<LocalTime> shifts,
+                         Duration peakWidth, LocalTime simStart, Duration simSpan,
+                         boolean confirm, String receiptTopic, Duration confirmTimeout,
+                         String transport, String apiUrl, int batchSize, Duration linger, int bufferSize) {
+
+    public static LoadConfig parse(String[] args) {
+        Map<String, String> options = options(args);
+        return new LoadConfig(
+                options.getOrDefault("broker", "tcp://localhost:1883"),
+                Integer.parseInt(options.getOrDefault("devices", "1000")),
+                Integer.parseInt(options.getOrDefault("employees", "20000")),
+                Double.parseDouble(options.getOrDefault("rate", "1000")),
+                duration(options.getOrDefault("duration", "60s")),
+                Integer.parseInt(options.getOrDefault("connections", "4")),
+                Integer.parseInt(options.getOrDefault("max-inflight", "1000")),
+                options.getOrDefault("curve", "shifts"),
+                Arrays.stream(options.getOrDefault("shifts", "06:00,14:00,22:00").split(","))
+                        .map(String::trim).map(LocalTime::parse).toList(),
+                duration(options.getOrDefault("peak-width", "15m")),
+                LocalTime.parse(options.getOrDefault("sim-start", "05:00")),
+                duration(options.getOrDefault("sim-span", "2h")),
+                Boolean.parseBoolean(options.getOrDefault("confirm", "false")),
+                options.getOrDefault("receipt-topic", "receipts/attendance"),
+                duration(options.getOrDefault("confirm-timeout", "30s")),
+                options.getOrDefault("transport", "mqtt"),
+                options.getOrDefault("api", "http://localhost:8080"),
+                Integer.parseInt(options.getOrDefault("batch-size", "500")),
+                duration(options.getOrDefault("linger", "20ms")),
+                Integer.parseInt(options.getOrDefault("buffer", "100000"))
+        );
+    }
+
+    /**
+     * @return Argumentos --chave=valor (demais argumentos ignorados)
+     */
+    static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int separator = arg.indexOf('=');
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Aceita ISO-8601 (PT30S) ou número com sufixo ms, s, m ou h.
+     */
+    static Duration duration(String value) {
+        if (value.startsWith("P") || value.startsWith("p")) {
+            return Duration.parse(value);
+        }
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException("Duração inválida: " + value);
+        };
+    }
+}
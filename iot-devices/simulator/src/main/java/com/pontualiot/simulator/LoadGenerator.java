@@ -0,0 +1,318 @@
+package com.pontualiot.simulator;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.eclipse.paho.client.mqttv3.MqttException;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Modo de carga: milhares de dispositivos publicando em paralelo.
+ *
+ * Uma thread por conexão, cada uma com sua partição de funcionários
+ * e sua fatia da taxa alvo. A taxa segue a ShiftCurve: a duração da
+ * execução é mapeada sobre [sim-start, sim-start + sim-span] do dia.
+ * Cada funcionário bate uma entrada e uma saída por turno
+ * (EmployeeRoster); crédito sem funcionário pendente é descartado e
+ * contado como "idle" no resumo.
+ *
+ * RITMO: crédito acumulado pelo tempo decorrido, sem sleep fixo; o crédito
+ * acumulado é limitado a 100ms de eventos para que um atraso (GC, broker
+ * lento) não vire uma rajada. Janela de maxInflight cheia = publicação
+ * recusada pelo cliente, contada e repetida: a taxa obtida mostra o limite
+ * do broker.
+ *
+ * TRANSPORTE (--transport): mqtt (AttendanceMqttClient, com reconexão e
+ * buffer offline), http (uma requisição por batida) ou
+ * http-bulk (lotes NDJSON), com a mesma carga para comparação.
+ *
+ * LATÊNCIA: publish → PUBACK (ou resposta HTTP) por mensagem, em HdrHistogram (ns). Com
+ * --confirm=true também envio → gravação no log, pelos recibos da API
+ * (ReceiptTracker), com relatório de perdas e duplicatas.
+ */
+public class LoadGenerator {
+    private static final long MAX_BACKLOG_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long REPORT_INTERVAL_MS = 1000;
+    private static final long DRAIN_TIMEOUT_MS = 10_000;
+
+    private final LoadConfig config;
+    private final ShiftCurve curve;
+    private final Recorder latency = new Recorder(TimeUnit.MINUTES.toNanos(1), 3);
+    private final Histogram totalLatency = new Histogram(TimeUnit.MINUTES.toNanos(1), 3);
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder idle = new LongAdder();
+    private volatile boolean running;
+    private long startNanos;
+    private ReceiptTracker tracker;
+
+    public LoadGenerator(LoadConfig config) {
+        this.config = config;
+        this.curve = new ShiftCurve(config.curve(), config.shifts(), config.peakWidth());
+    }
+
+    /**
+     * Conecta, publica durante config.duration() e espera os PUBACKs pendentes.
+     *
+     * @return Resumo da execução
+     */
+    public LoadReport run() throws InterruptedException {
+        if (config.confirm() && !"mqtt".equals(config.transport())) {
+            System.out.println("⚠️  --confirm ignored for " + config.transport()
+                    + ": the HTTP response already confirms the append to the event log");
+        } else if (config.confirm()) {
+            String runId = Long.toString(System.currentTimeMillis(), 36);
+            tracker = new ReceiptTracker(config.brokerUrl(), config.receiptTopic(), runId);
+            try {
+                tracker.start();
+            } catch (MqttException e) {
+                tracker.stop();
+                throw new IllegalStateException("Failed to subscribe to " + config.receiptTopic() + ": " + e.getMessage());
+            }
+        }
+        List<EventPublisher> publishers = new ArrayList<>();
+        for (int i = 0; i < config.connections(); i++) {
+            EventPublisher publisher = openPublisher(i);
+            if (!publisher.connect()) {
+                publishers.forEach(EventPublisher::disconnect);
+                if (tracker != null) {
+                    tracker.stop();
+                }
+                throw new IllegalStateException("Failed to connect load-gen-" + i + " to "
+                        + ("mqtt".equals(config.transport()) ? config.brokerUrl() : config.apiUrl()));
+            }
+            publishers.add(publisher);
+        }
+
+        running = true;
+        startNanos = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < publishers.size(); i++) {
+            EmployeeRoster roster = new EmployeeRoster(i, config.connections(), config.employees(), config.devices(),
+                    curve.shiftCount(), 42);
+            EventPublisher publisher = publishers.get(i);
+            threads.add(Thread.ofPlatform().name("load-gen-" + i).start(() -> publishLoop(publisher, roster)));
+        }
+
+        long endNanos = startNanos + config.duration().toNanos();
+        long lastSent = 0;
+        long lastAcked = 0;
+        long lastConfirmed = 0;
+        while (System.nanoTime() < endNanos) {
+            Thread.sleep(REPORT_INTERVAL_MS);
+            long nowSent = sent.sum();
+            long nowAcked = acked.sum();
+            printInterval(nowSent - lastSent, nowAcked - lastAcked, buffered(publishers));
+            lastSent = nowSent;
+            lastAcked = nowAcked;
+            if (tracker != null) {
+                long nowConfirmed = tracker.confirmed();
+                printConfirmed(nowConfirmed - lastConfirmed);
+                lastConfirmed = nowConfirmed;
+            }
+        }
+        running = false;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long drainDeadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+        while (acked.sum() + failed.sum() < sent.sum() && System.currentTimeMillis() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        publishers.forEach(EventPublisher::disconnect);
+        printBulkLines(publishers);
+
+        ReceiptTracker.ReceiptReport receipts = null;
+        if (tracker != null) {
+            System.out.println("⏳ Waiting up to " + config.confirmTimeout() + " for persistence receipts...");
+            tracker.awaitReceipts(acked.sum(), config.confirmTimeout());
+            tracker.stop();
+            receipts = tracker.report();
+        }
+
+        synchronized (totalLatency) {
+            totalLatency.add(latency.getIntervalHistogram());
+            return new LoadReport(sent.sum(), acked.sum(), failed.sum(), rejected.sum(), idle.sum(),
+                    elapsedSeconds, totalLatency.copy(), receipts);
+        }
+    }
+
+    /**
+     * Fração da taxa de pico no instante da execução.
+     */
+    double multiplierAt(long elapsedNanos) {
+        return curve.multiplier(simulatedTime(elapsedNanos));
+    }
+
+    LocalTime simulatedTime(long elapsedNanos) {
+        double progress = (double) elapsedNanos / config.duration().toNanos();
+        return config.simStart().plusNanos((long) (progress * config.simSpan().toNanos()));
+    }
+
+    /**
+     * mqtt: uma conexão MQTT por thread; http e http-bulk: pool HTTP/2
+     * compartilhado, com a janela de pendentes por thread.
+     */
+    private EventPublisher openPublisher(int index) {
+        return switch (config.transport()) {
+            case "mqtt" -> new AttendanceMqttClient(config.brokerUrl(), "load-gen-" + index,
+                    config.maxInflight(), config.bufferSize());
+            case "http" -> new AttendanceHttpClient(config.apiUrl(), config.maxInflight());
+            case "http-bulk" -> new HttpEventBatcher(new AttendanceHttpClient(config.apiUrl()),
+                    config.batchSize(), config.linger(), config.maxInflight());
+            default -> throw new IllegalStateException("Unknown transport: " + config.transport());
+        };
+    }
+
+    private void publishLoop(EventPublisher publisher, EmployeeRoster roster) {
+        double peakRatePerNano = config.rate() / config.connections() / 1e9;
+        double credit = 0;
+        long last = System.nanoTime();
+        AttendanceEvent pending = null;
+
+        while (running) {
+            long now = System.nanoTime();
+            double ratePerNano = peakRatePerNano * multiplierAt(now - startNanos);
+            credit = Math.min(credit + (now - last) * ratePerNano, Math.max(1, MAX_BACKLOG_NANOS * ratePerNano));
+            last = now;
+
+            while (credit >= 1 && running) {
+                AttendanceEvent event = pending != null ? pending : next(roster, now - startNanos);
+                if (event == null) {
+                    idle.add((long) credit); // Todos da troca já bateram: não acumula rajada
+                    credit = 0;
+                    break;
+                }
+                long sentAt = System.nanoTime();
+                CompletableFuture<Void> ack = publisher.publishAsync(event);
+                if (ack.isCompletedExceptionally() && isInflightFull(ack)) {
+                    rejected.increment();
+                    pending = event; // Reenvia o mesmo evento: mantém a alternância da tag
+                    break;
+                }
+                pending = null;
+                credit--;
+                sent.increment();
+                ack.whenComplete((ignored, error) -> {
+                    if (error == null) {
+                        acked.increment();
+                        latency.recordValue(Math.min(System.nanoTime() - sentAt, totalLatency.getHighestTrackableValue()));
+                    } else {
+                        failed.increment();
+                    }
+                });
+            }
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    private AttendanceEvent next(EmployeeRoster roster, long elapsedNanos) {
+        AttendanceEvent event = roster.next(curve.changeAt(simulatedTime(elapsedNanos)));
+        if (event == null) {
+            return null;
+        }
+        return tracker != null ? tracker.stamp(event) : event;
+    }
+
+    private static boolean isInflightFull(CompletableFuture<Void> ack) {
+        try {
+            ack.join();
+            return false;
+        } catch (CompletionException e) {
+            return e.getCause() instanceof EventPublisher.InflightFullException;
+        }
+    }
+
+    private static int buffered(List<EventPublisher> publishers) {
+        int buffered = 0;
+        for (EventPublisher publisher : publishers) {
+            if (publisher instanceof AttendanceMqttClient mqtt) {
+                buffered += mqtt.getBufferedCount();
+            }
+        }
+        return buffered;
+    }
+
+    private void printInterval(long sentDelta, long ackedDelta, int buffered) {
+        long elapsed = System.nanoTime() - startNanos;
+        Histogram interval = latency.getIntervalHistogram();
+        synchronized (totalLatency) {
+            totalLatency.add(interval);
+        }
+        System.out.printf("⏱️  %4ds | sim %s | target %7.0f/s | sent %7d/s | acked %7d/s | in-flight %6d | buffered %6d | "
+                        + "p50 %6.2fms p99 %6.2fms p99.9 %6.2fms%n",
+                TimeUnit.NANOSECONDS.toSeconds(elapsed), simulatedTime(elapsed).withNano(0),
+                config.rate() * multiplierAt(elapsed), sentDelta, ackedDelta,
+                sent.sum() - acked.sum() - failed.sum(), buffered,
+                millis(interval.getValueAtPercentile(50)), millis(interval.getValueAtPercentile(99)),
+                millis(interval.getValueAtPercentile(99.9)));
+    }
+
+    private static void printBulkLines(List<EventPublisher> publishers) {
+        long accepted = 0;
+        long rejected = 0;
+        for (EventPublisher publisher : publishers) {
+            if (publisher instanceof HttpEventBatcher batcher) {
+                accepted += batcher.accepted();
+                rejected += batcher.rejected();
+            }
+        }
+        if (accepted + rejected > 0) {
+            System.out.println("📦 Bulk lines accepted: " + accepted + ", rejected by the API: " + rejected);
+        }
+    }
+
+    private void printConfirmed(long confirmedDelta) {
+        Histogram interval = tracker.intervalLatency();
+        System.out.printf("🔁         | confirmed %7d/s | e2e p50 %6.2fms p99 %6.2fms p99.9 %6.2fms%n",
+                confirmedDelta, millis(interval.getValueAtPercentile(50)),
+                millis(interval.getValueAtPercentile(99)), millis(interval.getValueAtPercentile(99.9)));
+    }
+
+    static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * Resumo de uma execução; latências publish → PUBACK em ns.
+     *
+     * @param idle Batidas da taxa alvo sem funcionário pendente na troca de turno
+     * @param receipts Medição de ponta a ponta (null sem --confirm)
+     */
+    public record LoadReport(long sent, long acked, long failed, long rejected, long idle,
+                             double elapsedSeconds, Histogram latency, ReceiptTracker.ReceiptReport receipts) {
+
+        public double achievedRate() {
+            return elapsedSeconds > 0 ? acked / elapsedSeconds : 0;
+        }
+
+        public void print() {
+            System.out.println("📈 Load test summary");
+            System.out.printf("   Sent: %d | Acked: %d | Failed: %d | In-flight rejections: %d%n",
+                    sent, acked, failed, rejected);
+            System.out.printf("   Achieved rate: %.0f events/s over %.1fs%n", achievedRate(), elapsedSeconds);
+            if (idle > 0) {
+                System.out.printf("   Idle: %d events of the target rate had no employee left to swipe "
+                        + "(one check-in/check-out per shift; raise --employees)%n", idle);
+            }
+            System.out.printf("   Publish→PUBACK latency: p50 %.2fms | p90 %.2fms | p99 %.2fms | p99.9 %.2fms | max %.2fms%n",
+                    millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+                    millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+                    millis(latency.getMaxValue()));
+            if (receipts != null) {
+                receipts.print();
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.pontualiot.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Medição em malha fechada: envio do simulador → gravação no log da API.
+ *
+ * Cada evento recebe messageId "{runId}-{sequência}" e sentAt (UTC, em
+ * nanossegundos). A API publica um recibo em {receipt-topic}/{deviceId}
+ * depois do INSERT em attendance_events (pontualiot.mqtt.receipts.enabled);
+ * a latência é medida no relógio monotônico do simulador, sem depender
+ * do relógio do servidor.
+ *
+ * LEDGER: instante de envio e número de recibos por sequência, em blocos
+ * de arrays alocados sob demanda (sem mapa nem objeto por evento).
+ *
+ * RELATÓRIO: confirmados, ausentes (sem recibo até o fim da espera),
+ * duplicados (mais de um recibo = batida gravada mais de uma vez) e
+ * recibos de outras execuções.
+ *
+ * Reenvio após janela de in-flight cheia mantém o instante do primeiro
+ * envio: a espera entra na latência (sem omissão coordenada).
+ */
+public class ReceiptTracker {
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MAX_CHUNKS = 1 << 14;
+    private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toNanos(5);
+    private static final int MISSING_SAMPLES = 10;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String brokerUrl;
+    private final String receiptTopic;
+    private final String runId;
+    private final String prefix;
+    // Âncora do relógio de parede: sentAt com nanossegundos derivado do nanoTime
+    private final Instant originInstant = Instant.now();
+    private final long originNanos = System.nanoTime();
+
+    private final AtomicReferenceArray<Chunk> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final LongAdder confirmed = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder foreign = new LongAdder();
+    private final Recorder latency = new Recorder(HIGHEST_LATENCY, 3);
+    private final Histogram totalLatency = new Histogram(HIGHEST_LATENCY, 3);
+    private MqttAsyncClient client;
+
+    public ReceiptTracker(String brokerUrl, String receiptTopic, String runId) {
+        this.brokerUrl = brokerUrl;
+        this.receiptTopic = receiptTopic;
+        this.runId = runId;
+        this.prefix = runId + "-";
+    }
+
+    /**
+     * Assina os recibos antes do primeiro envio.
+     */
+    public void start() throws MqttException {
+        client = new MqttAsyncClient(brokerUrl, "load-gen-receipts-" + runId, new MemoryPersistence());
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setCleanSession(true);
+        client.connect(options).waitForCompletion(10_000);
+        client.subscribe(receiptTopic + "/+", 1, (topic, message) -> onReceipt(message.getPayload(), System.nanoTime()))
+                .waitForCompletion(10_000);
+    }
+
+    public void stop() {
+        try {
+            if (client != null && client.isConnected()) {
+                client.disconnect().waitForCompletion(10_000);
+            }
+            if (client != null) {
+                client.close();
+            }
+        } catch (MqttException e) {
+            // Ignore disconnect errors
+        }
+    }
+
+    /**
+     * Atribui a próxima sequência e registra o instante de envio.
+     */
+    public AttendanceEvent stamp(AttendanceEvent event) {
+        long sequence = nextSequence.getAndIncrement();
+        long now = System.nanoTime();
+        chunk(sequence, true).sentAt.set(offset(sequence), now - originNanos + 1); // 0 = não enviado
+        return event.tracked(prefix + sequence, originInstant.plusNanos(now - originNanos));
+    }
+
+    void onReceipt(byte[] payload, long receivedNanos) {
+        String messageId;
+        try {
+            JsonNode messageIdNode = objectMapper.readTree(payload).get("messageId");
+            messageId = messageIdNode != null ? messageIdNode.asText() : "";
+        } catch (Exception e) {
+            foreign.increment();
+            return;
+        }
+        long sequence = sequenceOf(messageId);
+        Chunk chunk = sequence >= 0 && sequence < nextSequence.get() ? chunk(sequence, false) : null;
+        if (chunk == null) {
+            foreign.increment();
+            return;
+        }
+        int index = offset(sequence);
+        if (chunk.receipts.incrementAndGet(index) > 1) {
+            duplicates.increment();
+            return;
+        }
+        confirmed.increment();
+        long sentAt = chunk.sentAt.get(index) - 1 + originNanos;
+        latency.recordValue(Math.max(0, Math.min(receivedNanos - sentAt, HIGHEST_LATENCY)));
+    }
+
+    /**
+     * Espera recibos até todos os envios serem confirmados ou o prazo acabar.
+     */
+    public void awaitReceipts(long expected, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (confirmed.sum() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    public long confirmed() {
+        return confirmed.sum();
+    }
+
+    /**
+     * @return Latências registradas desde a última chamada (também somadas ao total)
+     */
+    public Histogram intervalLatency() {
+        Histogram interval = latency.getIntervalHistogram();
+        synchronized (totalLatency) {
+            totalLatency.add(interval);
+        }
+        return interval;
+    }
+
+    public ReceiptReport report() {
+        intervalLatency();
+        long sent = nextSequence.get();
+        long missing = 0;
+        List<String> missingSamples = new ArrayList<>();
+        for (long sequence = 0; sequence < sent; sequence++) {
+            Chunk chunk = chunk(sequence, false);
+            if (chunk.receipts.get(offset(sequence)) == 0) {
+                missing++;
+                if (missingSamples.size() < MISSING_SAMPLES) {
+                    missingSamples.add(prefix + sequence);
+                }
+            }
+        }
+        synchronized (totalLatency) {
+            return new ReceiptReport(sent, confirmed.sum(), missing, duplicates.sum(), foreign.sum(),
+                    missingSamples, totalLatency.copy());
+        }
+    }
+
+    long sequenceOf(String messageId) {
+        if (!messageId.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(messageId, prefix.length(), messageId.length(), 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private Chunk chunk(long sequence, boolean create) {
+        int index = (int) (sequence >>> CHUNK_BITS);
+        if (index >= MAX_CHUNKS) {
+            throw new IllegalStateException("Too many tracked events: " + sequence);
+        }
+        Chunk chunk = chunks.get(index);
+        if (chunk == null && create) {
+            chunks.compareAndSet(index, null, new Chunk());
+            chunk = chunks.get(index);
+        }
+        return chunk;
+    }
+
+    private static int offset(long sequence) {
+        return (int) (sequence & (CHUNK_SIZE - 1));
+    }
+
+    private static final class Chunk {
+        private final AtomicLongArray sentAt = new AtomicLongArray(CHUNK_SIZE);
+        private final AtomicIntegerArray receipts = new AtomicIntegerArray(CHUNK_SIZE);
+    }
+
+    /**
+     * Resultado da medição; latências envio → recibo em ns.
+     */
+    public record ReceiptReport(long sent, long confirmed, long missing, long duplicates, long foreign,
+                                List<String> missingSamples, Histogram latency) {
+
+        public void print() {
+            System.out.println("🔁 End-to-end (publish → persisted receipt)");
+            System.out.printf("   Tracked: %d | Confirmed: %d | Missing: %d (%.3f%%) | Duplicate receipts: %d | Foreign: %d%n",
+                    sent, confirmed, missing, sent > 0 ? 100.0 * missing / sent : 0, duplicates, foreign);
+            System.out.printf("   Latency: p50 %.2fms | p90 %.2fms | p99 %.2fms | p99.9 %.2fms | max %.2fms%n",
+                    LoadGenerator.millis(latency.getValueAtPercentile(50)),
+                    LoadGenerator.millis(latency.getValueAtPercentile(90)),
+                    LoadGenerator.millis(latency.getValueAtPercentile(99)),
+                    LoadGenerator.millis(latency.getValueAtPercentile(99.9)),
+                    LoadGenerator.millis(latency.getMaxValue()));
+            if (!missingSamples.isEmpty()) {
+                System.out.println("   Missing (sample): " + String.join(", ", missingSamples));
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.pontualiot.simulator;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Parâmetros dos modos de trace (--mode=replay e --mode=record).
+ *
+ * @param trace Arquivo do trace (.ndjson/.jsonl = NDJSON, demais = binário)
+ * @param brokerUrl Broker MQTT
+ * @param speed Multiplicador de velocidade (1x, 10x...); 0 = o mais rápido possível ("max")
+ * @param connections Conexões MQTT (cada dispositivo sempre na mesma)
+ * @param maxInflight Mensagens QoS 1 sem PUBACK por conexão
+ * @param retime Troca o timestamp do payload pelo horário do replay
+ * @param topics Assinaturas gravadas no modo record
+ * @param duration Duração da gravação (zero = até Ctrl+C)
+ */
+public record ReplayConfig(String trace, String brokerUrl, double speed, int connections, int maxInflight,
+                           boolean retime, String[] topics, Duration duration) {
+
+    public static ReplayConfig parse(String[] args) {
+        Map<String, String> options = LoadConfig.options(args);
+        String trace = options.get("trace");
+        if (trace == null) {
+            throw new IllegalArgumentException("--trace=<file> is required");
+        }
+        return new ReplayConfig(
+                trace,
+                options.getOrDefault("broker", "tcp://localhost:1883"),
+                speed(options.getOrDefault("speed", "1x")),
+                Integer.parseInt(options.getOrDefault("connections", "4")),
+                Integer.parseInt(options.getOrDefault("max-inflight", "1000")),
+                Boolean.parseBoolean(options.getOrDefault("retime", "false")),
+                options.getOrDefault("topics", "attendance/+/+").split(","),
+                LoadConfig.duration(options.getOrDefault("duration", "0s"))
+        );
+    }
+
+    /**
+     * "max" = 0 (sem espera), "10x" ou "10" = 10 vezes mais rápido.
+     */
+    static double speed(String value) {
+        if ("max".equalsIgnoreCase(value)) {
+            return 0;
+        }
+        double speed = Double.parseDouble(value.endsWith("x") ? value.substring(0, value.length() - 1) : value);
+        if (speed <= 0) {
+            throw new IllegalArgumentException("Invalid speed: " + value);
+        }
+        return speed;
+    }
+}
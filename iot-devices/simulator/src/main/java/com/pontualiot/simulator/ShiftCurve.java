@@ -0,0 +1,68 @@
+package com.pontualiot.simulator;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Curva de chegadas ao longo do dia: fração da taxa de pico (0..1).
+ *
+ * Em "shifts", cada troca de turno é um pico gaussiano (entradas e saídas
+ * ao mesmo tempo) sobre um movimento de fundo de BASELINE; fora dos picos
+ * sobram batidas esparsas (intervalos, horas extras). Em "flat" a taxa é
+ * sempre a de pico.
+ *
+ * changeAt() indica a troca de turno mais próxima de um horário (turnos em
+ * ordem de horário), usada pelo EmployeeRoster nas duas curvas.
+ */
+public class ShiftCurve {
+    static final double BASELINE = 0.05;
+    private static final double MINUTES_PER_DAY = 24 * 60;
+
+    private final boolean flat;
+    private final List<LocalTime> shifts;
+    private final double sigmaMinutes;
+
+    public ShiftCurve(String curve, List<LocalTime> shifts, Duration peakWidth) {
+        this.flat = "flat".equals(curve);
+        this.shifts = shifts.stream().sorted().toList();
+        this.sigmaMinutes = Math.max(1, peakWidth.toSeconds() / 60.0);
+    }
+
+    public double multiplier(LocalTime time) {
+        if (flat || shifts.isEmpty()) {
+            return 1.0;
+        }
+        double peak = 0;
+        for (LocalTime shift : shifts) {
+            double z = distanceMinutes(time, shift) / sigmaMinutes;
+            peak = Math.max(peak, Math.exp(-0.5 * z * z));
+        }
+        return BASELINE + (1 - BASELINE) * peak;
+    }
+
+    /**
+     * @return Índice da troca de turno mais próxima (0 sem turnos)
+     */
+    public int changeAt(LocalTime time) {
+        int nearest = 0;
+        for (int i = 1; i < shifts.size(); i++) {
+            if (distanceMinutes(time, shifts.get(i)) < distanceMinutes(time, shifts.get(nearest))) {
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * @return Número de turnos (ao menos 1)
+     */
+    public int shiftCount() {
+        return Math.max(1, shifts.size());
+    }
+
+    private static double distanceMinutes(LocalTime time, LocalTime shift) {
+        double distance = Math.abs(time.toSecondOfDay() / 60.0 - shift.toSecondOfDay() / 60.0);
+        return Math.min(distance, MINUTES_PER_DAY - distance); // 23:50 está perto de 00:00
+    }
+}
@@ -1,7 +1,31 @@
 package com.pontualiot.simulator;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
 public class SimulatorApplication {
     public static void main(String[] args) {
+        if (Arrays.asList(args).contains("--mode=load")) {
+            runLoad(LoadConfig.parse(args));
+            return;
+        }
+        if (Arrays.asList(args).contains("--mode=seed")) {
+            runSeed(LoadConfig.parse(args));
+            return;
+        }
+        if (Arrays.asList(args).contains("--mode=replay")) {
+            runReplay(ReplayConfig.parse(args));
+            return;
+        }
+        if (Arrays.asList(args).contains("--mode=record")) {
+            runRecord(ReplayConfig.parse(args));
+            return;
+        }
+
         String brokerUrl = args.length > 0 ? args[0] : "tcp://localhost:1883";
         
         SimulatorService service = new SimulatorService(brokerUrl);
@@ -30,4 +54,103 @@ public class SimulatorApplication {
             System.exit(1);
         }
     }
-}
\ No newline at end of file
+
+    private static void runLoad(LoadConfig config) {
+        System.out.println("🚀 Starting IoT Simulator in load mode...");
+        System.out.println(("mqtt".equals(config.transport()) ? "📡 MQTT Broker: " + config.brokerUrl()
+                : "🌐 API (" + config.transport() + "): " + config.apiUrl())
+                + " (" + config.connections() + " connections, max in-flight " + config.maxInflight() + ")");
+        System.out.println("📊 " + config.devices() + " devices, " + config.employees() + " employees, peak "
+                + (long) config.rate() + " events/s, curve " + config.curve() + ", " + config.duration());
+        if (config.confirm()) {
+            System.out.println("🔁 Confirming persistence via " + config.receiptTopic() + "/+ (API needs MQTT_RECEIPTS_ENABLED=true)");
+        }
+
+        try {
+            new LoadGenerator(config).run().print();
+        } catch (IllegalStateException e) {
+            System.err.println("❌ " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Cadastra na API os funcionários usados pelo modo de carga (LOAD-EMP-*).
+     */
+    private static void runSeed(LoadConfig config) {
+        System.out.println("🌱 Seeding " + config.employees() + " load-test employees into " + config.apiUrl());
+        AttendanceHttpClient client = new AttendanceHttpClient(config.apiUrl());
+        Semaphore permits = new Semaphore(Math.min(config.maxInflight(), 256));
+        LongAdder created = new LongAdder();
+        LongAdder failed = new LongAdder();
+        try {
+            for (int i = 0; i < config.employees(); i++) {
+                String tag = EmployeeRoster.rfidTag(i);
+                permits.acquire();
+                client.createEmployeeAsync(new Employee("Load " + tag, tag.toLowerCase() + "@load.test", tag))
+                        .whenComplete((employee, error) -> {
+                            (error == null ? created : failed).increment();
+                            permits.release();
+                        });
+            }
+            permits.acquire(Math.min(config.maxInflight(), 256));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("✅ Employees created: " + created.sum() + ", failed (already registered?): " + failed.sum());
+    }
+
+    private static void runReplay(ReplayConfig config) {
+        System.out.println("🚀 Replaying trace " + config.trace() + " at "
+                + (config.speed() == 0 ? "max speed" : config.speed() + "x") + (config.retime() ? " (retimed)" : ""));
+        System.out.println("📡 MQTT Broker: " + config.brokerUrl() + " (" + config.connections()
+                + " connections, max in-flight " + config.maxInflight() + ")");
+
+        try {
+            new TraceReplayer(config).run().print();
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("❌ " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Grava o tráfego do broker até a duração pedida ou Ctrl+C.
+     */
+    private static void runRecord(ReplayConfig config) {
+        System.out.println("🎙️ Recording " + String.join(",", config.topics()) + " from " + config.brokerUrl()
+                + " into " + config.trace());
+        CountDownLatch stopped = new CountDownLatch(1);
+        try {
+            TraceRecorder recorder = new TraceRecorder(config.brokerUrl(), config.topics(), Path.of(config.trace()));
+            recorder.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                stop(recorder);
+                stopped.countDown();
+            }));
+            if (config.duration().isZero()) {
+                System.out.println("Press Ctrl+C to stop");
+                stopped.await();
+            } else {
+                Thread.sleep(config.duration().toMillis());
+                System.exit(0); // Encerra pelo shutdown hook
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Failed to record trace: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void stop(TraceRecorder recorder) {
+        try {
+            recorder.stop();
+            System.out.println("\n📈 Messages recorded: " + recorder.recorded() + ", skipped: " + recorder.skipped());
+        } catch (IOException e) {
+            System.err.println("❌ Trace write failed: " + e.getMessage());
+        }
+    }
+}
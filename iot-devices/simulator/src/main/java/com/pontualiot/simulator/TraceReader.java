@@ -0,0 +1,167 @@
+package com.pontualiot.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Lê um trace (binário ou NDJSON) por mapeamento em memória.
+ *
+ * O arquivo é mapeado em janelas de até windowSize bytes, remapeadas
+ * conforme a leitura avança: traces maiores que 2GB são lidos sem
+ * carregar o arquivo no heap. O formato é detectado pelo cabeçalho
+ * binário (TraceWriter.MAGIC).
+ *
+ * NDJSON aceita também linhas com o payload puro da batida (formato do
+ * POST /attendance-events/bulk): o tópico vem de deviceId/eventType e o
+ * instante relativo do campo timestamp.
+ *
+ * Registro binário cortado no fim (gravação interrompida) encerra a
+ * leitura. Não é thread-safe.
+ */
+public class TraceReader implements AutoCloseable {
+    private static final long DEFAULT_WINDOW = 256L << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private final boolean binary;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+    private LocalDateTime firstTimestamp;
+
+    public TraceReader(Path file) throws IOException {
+        this(file, DEFAULT_WINDOW);
+    }
+
+    TraceReader(Path file, long windowSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        this.binary = size >= Integer.BYTES + Short.BYTES && ensure(Integer.BYTES + Short.BYTES)
+                && window.getInt(0) == TraceWriter.MAGIC;
+        if (binary) {
+            short version = window.getShort(Integer.BYTES);
+            if (version != TraceWriter.VERSION) {
+                throw new IOException("Unsupported trace version: " + version);
+            }
+            position = Integer.BYTES + Short.BYTES;
+        }
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * @return Próxima mensagem, ou null no fim do trace
+     */
+    public TraceRecord next() throws IOException {
+        return binary ? nextBinary() : nextLine();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private TraceRecord nextBinary() throws IOException {
+        if (!ensure(TraceWriter.RECORD_HEADER)) {
+            return null;
+        }
+        int at = (int) (position - windowStart);
+        long offsetNanos = window.getLong(at);
+        int topicLength = Short.toUnsignedInt(window.getShort(at + Long.BYTES));
+        int payloadLength = window.getInt(at + Long.BYTES + Short.BYTES);
+        if (payloadLength < 0 || !ensure(TraceWriter.RECORD_HEADER + topicLength + payloadLength)) {
+            return null;
+        }
+        at = (int) (position - windowStart) + TraceWriter.RECORD_HEADER;
+        byte[] topic = new byte[topicLength];
+        byte[] payload = new byte[payloadLength];
+        window.get(at, topic);
+        window.get(at + topicLength, payload);
+        position += TraceWriter.RECORD_HEADER + topicLength + payloadLength;
+        return new TraceRecord(offsetNanos, new String(topic, StandardCharsets.UTF_8), payload);
+    }
+
+    private TraceRecord nextLine() throws IOException {
+        while (position < size) {
+            byte[] line = readLine();
+            if (isBlank(line)) {
+                continue;
+            }
+            JsonNode node = EventJson.MAPPER.readTree(line);
+            if (node.has("topic") && node.has("payload")) {
+                return new TraceRecord(node.path("t").asLong(), node.get("topic").asText(),
+                        EventJson.MAPPER.writeValueAsBytes(node.get("payload")));
+            }
+            // Payload puro: tópico e instante derivados da própria batida
+            LocalDateTime timestamp = LocalDateTime.parse(node.path("timestamp").asText());
+            if (firstTimestamp == null) {
+                firstTimestamp = timestamp;
+            }
+            return new TraceRecord(Duration.between(firstTimestamp, timestamp).toNanos(),
+                    "attendance/" + node.path("deviceId").asText() + "/" + node.path("eventType").asText(), line);
+        }
+        return null;
+    }
+
+    private byte[] readLine() throws IOException {
+        long length = 0;
+        while (true) {
+            ensure(Math.min(size - position, Math.max(length * 2, length + 1)));
+            int at = (int) (position - windowStart);
+            int limit = window.limit();
+            int end = at + (int) length;
+            while (end < limit && window.get(end) != '\n') {
+                end++;
+            }
+            length = end - at;
+            if (end < limit || windowStart + limit >= size) {
+                byte[] line = new byte[(int) length];
+                window.get(at, line);
+                position += Math.min(length + 1, size - position); // Consome o \n
+                return line;
+            }
+            // Linha atravessa o fim da janela: remapeia a partir do início dela
+        }
+    }
+
+    /**
+     * Garante [position, position + bytes) mapeado.
+     *
+     * @return false se o arquivo termina antes
+     */
+    private boolean ensure(long bytes) throws IOException {
+        if (position + bytes > size) {
+            return false;
+        }
+        if (window == null || position < windowStart || position + bytes > windowStart + window.limit()) {
+            long length = Math.min(Math.max(windowSize, bytes), size - position);
+            if (length > Integer.MAX_VALUE) {
+                length = Integer.MAX_VALUE;
+            }
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            windowStart = position;
+        }
+        return true;
+    }
+
+    private static boolean isBlank(byte[] line) {
+        for (byte b : line) {
+            if (!Character.isWhitespace(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,20 @@
+package com.pontualiot.simulator;
+
+/**
+ * Mensagem gravada num trace.
+ *
+ * @param offsetNanos Instante relativo ao início do trace
+ * @param topic Tópico MQTT original (attendance/{deviceId}/{eventType})
+ * @param payload Payload publicado como está (sem passar pelo Jackson no replay)
+ */
+public record TraceRecord(long offsetNanos, String topic, byte[] payload) {
+
+    /**
+     * @return Segundo nível do tópico, ou o tópico inteiro fora do padrão
+     */
+    public String deviceId() {
+        int start = topic.indexOf('/') + 1;
+        int end = topic.indexOf('/', start);
+        return start > 0 && end > start ? topic.substring(start, end) : topic;
+    }
+}
@@ -0,0 +1,104 @@
+package com.pontualiot.simulator;
+
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttCallback;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Grava o tráfego do broker num trace (--mode=record), no mesmo formato
+ * lido pelo TraceReplayer.
+ *
+ * Assina os tópicos (attendance/+/+ por padrão) e grava cada mensagem
+ * com o instante relativo à primeira, pelo relógio monotônico. Para
+ * capturar sem competir com a API, o recorder usa uma assinatura comum
+ * (fora do $share da API).
+ */
+public class TraceRecorder {
+    private final String brokerUrl;
+    private final String[] topics;
+    private final TraceWriter writer;
+    private MqttAsyncClient client;
+    private volatile long firstNanos = -1;
+    private volatile IOException writeError;
+
+    public TraceRecorder(String brokerUrl, String[] topics, Path file) throws IOException {
+        this.brokerUrl = brokerUrl;
+        this.topics = topics;
+        this.writer = new TraceWriter(file);
+    }
+
+    public void start() throws MqttException {
+        client = new MqttAsyncClient(brokerUrl, "trace-recorder-" + ProcessHandle.current().pid(), new MemoryPersistence());
+        client.setCallback(new MqttCallback() {
+            @Override
+            public void connectionLost(Throwable cause) {
+                System.err.println("⚠️ Recorder connection lost: " + cause.getMessage());
+            }
+
+            @Override
+            public void messageArrived(String topic, MqttMessage message) {
+                record(topic, message.getPayload(), System.nanoTime());
+            }
+
+            @Override
+            public void deliveryComplete(IMqttDeliveryToken token) {
+            }
+        });
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setCleanSession(true);
+        options.setAutomaticReconnect(true);
+        client.connect(options).waitForCompletion(10_000);
+        int[] qos = new int[topics.length];
+        Arrays.fill(qos, 1);
+        client.subscribe(topics, qos).waitForCompletion(10_000);
+    }
+
+    void record(String topic, byte[] payload, long receivedNanos) {
+        if (firstNanos < 0) {
+            firstNanos = receivedNanos; // Só a thread de callback do Paho grava
+        }
+        try {
+            writer.write(new TraceRecord(receivedNanos - firstNanos, topic, payload));
+        } catch (IOException e) {
+            writeError = e;
+        }
+    }
+
+    public long recorded() {
+        return writer.written();
+    }
+
+    public long skipped() {
+        return writer.skipped();
+    }
+
+    /**
+     * Encerra a assinatura e fecha o arquivo.
+     *
+     * @throws IOException Primeira falha de gravação, se houve
+     */
+    public void stop() throws IOException {
+        try {
+            if (client != null && client.isConnected()) {
+                client.disconnect().waitForCompletion(10_000);
+            }
+            if (client != null) {
+                client.close();
+            }
+        } catch (MqttException e) {
+            // Ignore disconnect errors
+        }
+        writer.close();
+        if (writeError != null) {
+            throw writeError;
+        }
+    }
+}
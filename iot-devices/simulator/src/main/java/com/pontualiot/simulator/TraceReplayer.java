@@ -0,0 +1,217 @@
+package com.pontualiot.simulator;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reproduz um trace gravado no broker (--mode=replay).
+ *
+ * A thread principal lê o trace (TraceReader) e distribui cada mensagem
+ * para uma raia pelo hash do deviceId; cada raia tem sua conexão MQTT e
+ * publica em ordem de chegada. Mensagens de um dispositivo nunca mudam
+ * de raia nem se ultrapassam (janela cheia = reenvia a mesma antes da
+ * próxima).
+ *
+ * TEMPO: a mensagem com offset t é publicada em início + t / speed; o
+ * relógio é único, então o espaçamento entre dispositivos também é
+ * preservado. speed = 0 publica sem esperar. O atraso em relação ao
+ * horário previsto (lag) é medido em HdrHistogram: lag alto = o
+ * simulador ou o broker não acompanha a velocidade pedida.
+ *
+ * Payloads binários são publicados como estão (publishAsync com bytes);
+ * com retime o timestamp é trocado pelo horário do replay (evita que o
+ * deduplicador e o anti-passback da API descartem um trace repetido).
+ */
+public class TraceReplayer {
+    private static final int LANE_CAPACITY = 10_000;
+    private static final long DRAIN_TIMEOUT_MS = 10_000;
+    private static final long HIGHEST_TRACKABLE = TimeUnit.MINUTES.toNanos(1);
+    private static final TraceRecord END = new TraceRecord(-1, "", new byte[0]);
+
+    private final ReplayConfig config;
+    private final Recorder lag = new Recorder(HIGHEST_TRACKABLE, 3);
+    private final Recorder latency = new Recorder(HIGHEST_TRACKABLE, 3);
+    private final Histogram totalLag = new Histogram(HIGHEST_TRACKABLE, 3);
+    private final Histogram totalLatency = new Histogram(HIGHEST_TRACKABLE, 3);
+    private final LongAdder published = new LongAdder();
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private long startNanos;
+
+    public TraceReplayer(ReplayConfig config) {
+        this.config = config;
+    }
+
+    public ReplayReport run() throws IOException, InterruptedException {
+        List<AttendanceMqttClient> clients = new ArrayList<>();
+        for (int i = 0; i < config.connections(); i++) {
+            AttendanceMqttClient client = new AttendanceMqttClient(config.brokerUrl(), "trace-replay-" + i,
+                    config.maxInflight(), config.maxInflight());
+            if (!client.connect()) {
+                clients.forEach(AttendanceMqttClient::disconnect);
+                throw new IllegalStateException("Failed to connect trace-replay-" + i + " to " + config.brokerUrl());
+            }
+            clients.add(client);
+        }
+
+        List<BlockingQueue<TraceRecord>> lanes = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        long records = 0;
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trace-replay-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (TraceReader reader = new TraceReader(Path.of(config.trace()))) {
+            startNanos = System.nanoTime();
+            for (AttendanceMqttClient client : clients) {
+                BlockingQueue<TraceRecord> lane = new ArrayBlockingQueue<>(LANE_CAPACITY);
+                lanes.add(lane);
+                threads.add(Thread.ofPlatform().name("trace-replay-" + threads.size()).start(() -> replayLane(lane, client)));
+            }
+            reporter.scheduleAtFixedRate(this::printInterval, 1, 1, TimeUnit.SECONDS);
+
+            TraceRecord record;
+            while ((record = reader.next()) != null) {
+                lanes.get(Math.floorMod(record.deviceId().hashCode(), lanes.size())).put(record);
+                records++;
+            }
+        } finally {
+            for (BlockingQueue<TraceRecord> lane : lanes) {
+                lane.put(END);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            reporter.shutdownNow();
+        }
+
+        long drainDeadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+        while (acked.sum() + failed.sum() < published.sum() && System.currentTimeMillis() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        clients.forEach(AttendanceMqttClient::disconnect);
+
+        synchronized (totalLag) {
+            totalLag.add(lag.getIntervalHistogram());
+            totalLatency.add(latency.getIntervalHistogram());
+            return new ReplayReport(records, published.sum(), acked.sum(), failed.sum(), rejected.sum(),
+                    elapsedSeconds, totalLag.copy(), totalLatency.copy());
+        }
+    }
+
+    private void replayLane(BlockingQueue<TraceRecord> lane, AttendanceMqttClient client) {
+        try {
+            TraceRecord record;
+            while ((record = lane.take()) != END) {
+                if (config.speed() > 0) {
+                    long due = startNanos + (long) (record.offsetNanos() / config.speed());
+                    long wait;
+                    while ((wait = due - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    lag.recordValue(Math.min(System.nanoTime() - due, HIGHEST_TRACKABLE));
+                }
+                byte[] payload = config.retime() ? retime(record.payload()) : record.payload();
+                publish(client, record.topic(), payload);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publish(AttendanceMqttClient client, String topic, byte[] payload) {
+        while (true) {
+            long sentAt = System.nanoTime();
+            CompletableFuture<Void> ack = client.publishAsync(topic, payload);
+            if (ack.isCompletedExceptionally() && isInflightFull(ack)) {
+                rejected.increment();
+                LockSupport.parkNanos(100_000); // Mesma mensagem de novo: preserva a ordem do dispositivo
+                continue;
+            }
+            published.increment();
+            ack.whenComplete((ignored, error) -> {
+                if (error == null) {
+                    acked.increment();
+                    latency.recordValue(Math.min(System.nanoTime() - sentAt, HIGHEST_TRACKABLE));
+                } else {
+                    failed.increment();
+                }
+            });
+            return;
+        }
+    }
+
+    static byte[] retime(byte[] payload) {
+        try {
+            ObjectNode event = (ObjectNode) EventJson.MAPPER.readTree(payload);
+            event.put("timestamp", LocalDateTime.now().toString());
+            return EventJson.MAPPER.writeValueAsBytes(event);
+        } catch (IOException | ClassCastException e) {
+            return payload; // Não é uma batida JSON: publica como gravado
+        }
+    }
+
+    private static boolean isInflightFull(CompletableFuture<Void> ack) {
+        try {
+            ack.join();
+            return false;
+        } catch (CompletionException e) {
+            return e.getCause() instanceof EventPublisher.InflightFullException;
+        }
+    }
+
+    private void printInterval() {
+        Histogram intervalLag = lag.getIntervalHistogram();
+        Histogram intervalLatency = latency.getIntervalHistogram();
+        synchronized (totalLag) {
+            totalLag.add(intervalLag);
+            totalLatency.add(intervalLatency);
+        }
+        System.out.printf("⏱️  %4ds | published %9d | acked %9d | lag p99 %7.2fms | PUBACK p99 %7.2fms%n",
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos), published.sum(), acked.sum(),
+                LoadGenerator.millis(intervalLag.getValueAtPercentile(99)),
+                LoadGenerator.millis(intervalLatency.getValueAtPercentile(99)));
+    }
+
+    /**
+     * Resumo do replay; lag = atraso sobre o horário previsto, latency =
+     * publish → PUBACK, ambos em ns.
+     */
+    public record ReplayReport(long records, long published, long acked, long failed, long rejected,
+                               double elapsedSeconds, Histogram lag, Histogram latency) {
+
+        public void print() {
+            System.out.println("📈 Trace replay summary");
+            System.out.printf("   Records: %d | Published: %d | Acked: %d | Failed: %d | In-flight rejections: %d%n",
+                    records, published, acked, failed, rejected);
+            System.out.printf("   Rate: %.0f msg/s over %.1fs%n", elapsedSeconds > 0 ? acked / elapsedSeconds : 0,
+                    elapsedSeconds);
+            System.out.printf("   Schedule lag: p50 %.2fms | p99 %.2fms | max %.2fms%n",
+                    LoadGenerator.millis(lag.getValueAtPercentile(50)), LoadGenerator.millis(lag.getValueAtPercentile(99)),
+                    LoadGenerator.millis(lag.getMaxValue()));
+            System.out.printf("   Publish→PUBACK latency: p50 %.2fms | p99 %.2fms | p99.9 %.2fms%n",
+                    LoadGenerator.millis(latency.getValueAtPercentile(50)),
+                    LoadGenerator.millis(latency.getValueAtPercentile(99)),
+                    LoadGenerator.millis(latency.getValueAtPercentile(99.9)));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.pontualiot.simulator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Grava traces no formato binário ou NDJSON (pela extensão do arquivo).
+ *
+ * BINÁRIO: cabeçalho [int "PTRC"][short versão] e, por mensagem,
+ * [long offsetNanos][short tamanho do tópico][int tamanho do payload]
+ * [tópico UTF-8][payload], big-endian.
+ *
+ * NDJSON (.ndjson, .jsonl): {"t":offsetNanos,"topic":"...","payload":{...}}
+ * com o payload JSON embutido sem alteração; payload que não é objeto
+ * JSON é descartado (contado em skipped()).
+ */
+public class TraceWriter implements AutoCloseable {
+    static final int MAGIC = 0x50545243; // "PTRC"
+    static final short VERSION = 1;
+    static final int RECORD_HEADER = Long.BYTES + Short.BYTES + Integer.BYTES;
+
+    private final DataOutputStream out;
+    private final boolean ndjson;
+    private long written;
+    private long skipped;
+
+    public TraceWriter(Path file) throws IOException {
+        this.ndjson = isNdjson(file);
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        if (!ndjson) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+        }
+    }
+
+    public synchronized void write(TraceRecord record) throws IOException {
+        byte[] topic = record.topic().getBytes(StandardCharsets.UTF_8);
+        if (ndjson) {
+            if (!isJsonObject(record.payload())) {
+                skipped++;
+                return;
+            }
+            try (JsonGenerator generator = EventJson.MAPPER.getFactory().createGenerator((OutputStream) out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartObject();
+                generator.writeNumberField("t", record.offsetNanos());
+                generator.writeStringField("topic", record.topic());
+                generator.writeFieldName("payload");
+                generator.writeRawValue(new String(record.payload(), StandardCharsets.UTF_8));
+                generator.writeEndObject();
+            }
+            out.write('\n');
+        } else {
+            out.writeLong(record.offsetNanos());
+            out.writeShort(topic.length);
+            out.writeInt(record.payload().length);
+            out.write(topic);
+            out.write(record.payload());
+        }
+        written++;
+    }
+
+    public synchronized long written() {
+        return written;
+    }
+
+    public synchronized long skipped() {
+        return skipped;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    static boolean isNdjson(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl");
+    }
+
+    private static boolean isJsonObject(byte[] payload) {
+        for (byte b : payload) {
+            if (!Character.isWhitespace(b)) {
+                return b == '{';
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,213 @@
+package com.pontualiot.simulator;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Broker MQTT 3.1.1 mínimo para testes: CONNECT, PUBLISH (QoS 0/1),
+ * SUBSCRIBE, PINGREQ e DISCONNECT. Com withholdAcks os PUBACKs não são
+ * enviados. Assinantes recebem as publicações em QoS 0.
+ */
+class FakeMqttBroker implements AutoCloseable {
+
+    final List<String> topics = new CopyOnWriteArrayList<>();
+    final List<byte[]> payloads = new CopyOnWriteArrayList<>();
+    volatile boolean withholdAcks;
+
+    private final List<Socket> connections = new CopyOnWriteArrayList<>();
+    private final Map<OutputStream, List<String>> subscriptions = new ConcurrentHashMap<>();
+    private ServerSocket server;
+    private int port;
+
+    FakeMqttBroker start() throws IOException {
+        server = new ServerSocket();
+        server.setReuseAddress(true);
+        server.bind(new InetSocketAddress("localhost", port));
+        port = server.getLocalPort();
+        Thread.ofPlatform().daemon().start(this::acceptLoop);
+        return this;
+    }
+
+    String url() {
+        return "tcp://localhost:" + port;
+    }
+
+    /**
+     * Derruba o broker e todas as conexões (start() volta na mesma porta).
+     */
+    void stop() throws IOException {
+        server.close();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+        connections.clear();
+        subscriptions.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        stop();
+    }
+
+    private void acceptLoop() {
+        ServerSocket listening = server;
+        while (!listening.isClosed()) {
+            try {
+                Socket socket = listening.accept();
+                connections.add(socket);
+                Thread.ofPlatform().daemon().start(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            while (true) {
+                int header = in.readUnsignedByte();
+                byte[] body = new byte[remainingLength(in)];
+                in.readFully(body);
+                switch (header >> 4) {
+                    case 1 -> write(out, 0x20, 0x02, 0x00, 0x00); // CONNACK
+                    case 3 -> publish(out, header, body);
+                    case 8 -> subscribe(out, body);
+                    case 12 -> write(out, 0xD0, 0x00); // PINGRESP
+                    case 14 -> {
+                        return; // DISCONNECT
+                    }
+                    default -> {
+                    }
+                }
+            }
+        } catch (EOFException e) {
+            // Cliente fechou a conexão
+        } catch (IOException e) {
+            // Broker derrubado
+        } finally {
+            try {
+                subscriptions.remove(socket.getOutputStream());
+            } catch (IOException e) {
+                // Socket já fechado
+            }
+        }
+    }
+
+    private void publish(OutputStream out, int header, byte[] body) throws IOException {
+        int qos = (header >> 1) & 0x03;
+        int topicLength = ((body[0] & 0xFF) << 8) | (body[1] & 0xFF);
+        int offset = 2 + topicLength;
+        int packetId = 0;
+        if (qos > 0) {
+            packetId = ((body[offset] & 0xFF) << 8) | (body[offset + 1] & 0xFF);
+            offset += 2;
+        }
+        String topic = new String(body, 2, topicLength, StandardCharsets.UTF_8);
+        byte[] payload = Arrays.copyOfRange(body, offset, body.length);
+        topics.add(topic);
+        payloads.add(payload);
+        if (qos == 1 && !withholdAcks) {
+            write(out, 0x40, 0x02, packetId >> 8, packetId & 0xFF); // PUBACK
+        }
+        forward(topic, payload);
+    }
+
+    private void subscribe(OutputStream out, byte[] body) throws IOException {
+        int packetId = ((body[0] & 0xFF) << 8) | (body[1] & 0xFF);
+        List<String> filters = subscriptions.computeIfAbsent(out, key -> new CopyOnWriteArrayList<>());
+        int granted = 0;
+        int offset = 2;
+        while (offset < body.length) {
+            int length = ((body[offset] & 0xFF) << 8) | (body[offset + 1] & 0xFF);
+            filters.add(new String(body, offset + 2, length, StandardCharsets.UTF_8));
+            offset += 2 + length + 1; // Filtro + QoS pedido
+            granted++;
+        }
+        int[] suback = new int[4 + granted];
+        suback[0] = 0x90;
+        suback[1] = 2 + granted;
+        suback[2] = packetId >> 8;
+        suback[3] = packetId & 0xFF; // QoS concedido 0 para todos
+        write(out, suback);
+    }
+
+    private void forward(String topic, byte[] payload) {
+        byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        int length = 2 + topicBytes.length + payload.length;
+        for (Map.Entry<OutputStream, List<String>> subscriber : subscriptions.entrySet()) {
+            if (subscriber.getValue().stream().noneMatch(filter -> matches(filter, topic))) {
+                continue;
+            }
+            int[] packet = new int[1 + 4 + length];
+            int index = 0;
+            packet[index++] = 0x30; // PUBLISH QoS 0
+            int remaining = length;
+            do {
+                int digit = remaining % 128;
+                remaining /= 128;
+                packet[index++] = remaining > 0 ? digit | 0x80 : digit;
+            } while (remaining > 0);
+            packet[index++] = topicBytes.length >> 8;
+            packet[index++] = topicBytes.length & 0xFF;
+            for (byte b : topicBytes) {
+                packet[index++] = b & 0xFF;
+            }
+            for (byte b : payload) {
+                packet[index++] = b & 0xFF;
+            }
+            try {
+                write(subscriber.getKey(), Arrays.copyOf(packet, index));
+            } catch (IOException e) {
+                subscriptions.remove(subscriber.getKey());
+            }
+        }
+    }
+
+    static boolean matches(String filter, String topic) {
+        String[] filterLevels = filter.split("/");
+        String[] topicLevels = topic.split("/");
+        for (int i = 0; i < filterLevels.length; i++) {
+            if (filterLevels[i].equals("#")) {
+                return true;
+            }
+            if (i >= topicLevels.length || !(filterLevels[i].equals("+") || filterLevels[i].equals(topicLevels[i]))) {
+                return false;
+            }
+        }
+        return filterLevels.length == topicLevels.length;
+    }
+
+    private static int remainingLength(DataInputStream in) throws IOException {
+        int value = 0;
+        int multiplier = 1;
+        int digit;
+        do {
+            digit = in.readUnsignedByte();
+            value += (digit & 0x7F) * multiplier;
+            multiplier *= 128;
+        } while ((digit & 0x80) != 0);
+        return value;
+    }
+
+    private static synchronized void write(OutputStream out, int... bytes) throws IOException {
+        byte[] packet = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            packet[i] = (byte) bytes[i];
+        }
+        out.write(packet);
+        out.flush();
+    }
+}
@@ -1,21 +1,66 @@
 package com.pontualiot.simulator;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * TDD Test para HttpClient
  * 
- * Testa envio de dados via HTTP para API
+ * Testa envio de dados via HTTP para API (servidor HTTP local simulando a API)
  */
 class HttpClientTest {
 
+    private HttpServer server;
     private AttendanceHttpClient httpClient;
+    private final List<String> bulkBodies = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
 
     @BeforeEach
-    void setUp() {
-        httpClient = new AttendanceHttpClient("http://localhost:8082");
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/attendance-events", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            if (exchange.getRequestURI().getPath().endsWith("/bulk")) {
+                bulkBodies.add(body);
+                long lines = body.lines().count();
+                respond(exchange, 202, "{\"accepted\":" + (lines - 1) + ",\"rejected\":1,\"errors\":[]}");
+            } else if (body.contains("SLOW")) {
+                awaitRelease();
+                respond(exchange, 202, "{\"status\":\"accepted\"}");
+            } else {
+                respond(exchange, body.contains("\"timestamp\":\"") ? 202 : 400, "{\"status\":\"accepted\"}");
+            }
+        });
+        server.createContext("/api/employees", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            respond(exchange, 201, body.replaceFirst("\\{", "{\"id\":7,"));
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        httpClient = new AttendanceHttpClient("http://localhost:" + server.getAddress().getPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
     }
 
     /**
@@ -57,4 +102,57 @@ class HttpClientTest {
         assertNotNull(created.getId());
         assertEquals("João Silva", created.getName());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldFailWhenApiIsDown() {
+        server.stop(0);
+
+        assertFalse(httpClient.sendAttendanceEvent(new AttendanceEvent("DEVICE_001", "RFID_123456", "CHECK_IN")));
+    }
+
+    @Test
+    void shouldRejectSendsBeyondMaxInflight() {
+        AttendanceHttpClient limited = new AttendanceHttpClient("http://localhost:" + server.getAddress().getPort(), 1);
+        CompletableFuture<Void> slow = limited.publishAsync(new AttendanceEvent("DEVICE_001", "SLOW", "CHECK_IN"));
+
+        CompletableFuture<Void> rejected = limited.publishAsync(new AttendanceEvent("DEVICE_001", "RFID_1", "CHECK_IN"));
+
+        assertTrue(rejected.isCompletedExceptionally());
+        release.countDown();
+        slow.join();
+        assertTrue(limited.sendAttendanceEvent(new AttendanceEvent("DEVICE_001", "RFID_1", "CHECK_IN")));
+    }
+
+    @Test
+    void shouldCoalesceEventsIntoBulkRequests() throws Exception {
+        HttpEventBatcher batcher = new HttpEventBatcher(httpClient, 3, Duration.ofMillis(50), 100);
+
+        List<CompletableFuture<Void>> sent = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            sent.add(batcher.publishAsync(new AttendanceEvent("DEVICE_001", "RFID_" + i, "CHECK_IN")));
+        }
+        CompletableFuture.allOf(sent.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS); // Último lote pelo linger
+        batcher.disconnect();
+
+        assertEquals(2, bulkBodies.size());
+        assertEquals(3, bulkBodies.get(0).lines().count());
+        assertEquals(1, bulkBodies.get(1).lines().count());
+        assertEquals(2, batcher.accepted());
+        assertEquals(2, batcher.rejected());
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
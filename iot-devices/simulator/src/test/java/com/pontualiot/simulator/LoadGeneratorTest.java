@@ -0,0 +1,125 @@
+package com.pontualiot.simulator;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadGeneratorTest {
+
+    @Test
+    void shouldParseLoadOptions() {
+        LoadConfig config = LoadConfig.parse(new String[]{
+                "--mode=load", "--broker=tcp://broker:1883", "--devices=2000", "--rate=5000",
+                "--duration=5m", "--shifts=07:00,19:00", "--sim-span=PT30M"});
+
+        assertEquals("tcp://broker:1883", config.brokerUrl());
+        assertEquals(2000, config.devices());
+        assertEquals(20000, config.employees());
+        assertEquals(5000, config.rate());
+        assertEquals(Duration.ofMinutes(5), config.duration());
+        assertEquals(List.of(LocalTime.of(7, 0), LocalTime.of(19, 0)), config.shifts());
+        assertEquals(Duration.ofMinutes(30), config.simSpan());
+    }
+
+    @Test
+    void shouldPeakAtShiftChanges() {
+        ShiftCurve curve = new ShiftCurve("shifts", List.of(LocalTime.of(6, 0), LocalTime.of(22, 0)), Duration.ofMinutes(15));
+
+        assertEquals(1.0, curve.multiplier(LocalTime.of(6, 0)), 1e-9);
+        assertTrue(curve.multiplier(LocalTime.of(6, 15)) < 1.0);
+        assertTrue(curve.multiplier(LocalTime.of(6, 15)) > curve.multiplier(LocalTime.of(6, 45)));
+        assertEquals(ShiftCurve.BASELINE, curve.multiplier(LocalTime.of(14, 0)), 1e-6);
+        assertTrue(curve.multiplier(LocalTime.of(22, 5)) > 0.9);
+        assertEquals(1.0, new ShiftCurve("flat", List.of(), Duration.ofMinutes(15)).multiplier(LocalTime.NOON));
+    }
+
+    @Test
+    void shouldPickNearestShiftChange() {
+        ShiftCurve curve = new ShiftCurve("shifts", List.of(LocalTime.of(22, 0), LocalTime.of(6, 0), LocalTime.of(14, 0)),
+                Duration.ofMinutes(15));
+
+        assertEquals(3, curve.shiftCount());
+        assertEquals(0, curve.changeAt(LocalTime.of(5, 50))); // Turnos ordenados: 06:00, 14:00, 22:00
+        assertEquals(1, curve.changeAt(LocalTime.of(13, 0)));
+        assertEquals(2, curve.changeAt(LocalTime.of(23, 59)));
+        assertEquals(0, curve.changeAt(LocalTime.of(2, 30))); // 06:00 mais perto que 22:00
+        assertEquals(1, new ShiftCurve("flat", List.of(), Duration.ofMinutes(15)).shiftCount());
+    }
+
+    @Test
+    void shouldSwipeOncePerShiftOnHomeDevice() {
+        EmployeeRoster roster = new EmployeeRoster(0, 1, 6, 3, 2, 42); // Turno 0: 0, 2, 4; turno 1: 1, 3, 5
+        Map<String, String> device = new HashMap<>();
+
+        assertEquals(6, roster.size());
+        Map<String, String> morning = drain(roster, 0, device);
+        assertEquals(Map.of("LOAD-EMP-000000", "CHECK_IN", "LOAD-EMP-000002", "CHECK_IN", "LOAD-EMP-000004", "CHECK_IN"),
+                morning);
+        assertNull(roster.next(0)); // Ninguém entra duas vezes no mesmo turno
+
+        Map<String, String> evening = drain(roster, 1, device);
+        assertEquals(Map.of("LOAD-EMP-000000", "CHECK_OUT", "LOAD-EMP-000002", "CHECK_OUT", "LOAD-EMP-000004", "CHECK_OUT",
+                "LOAD-EMP-000001", "CHECK_IN", "LOAD-EMP-000003", "CHECK_IN", "LOAD-EMP-000005", "CHECK_IN"), evening);
+
+        Map<String, String> nextMorning = drain(roster, 0, device); // Outro dia simulado
+        assertEquals(Map.of("LOAD-EMP-000001", "CHECK_OUT", "LOAD-EMP-000003", "CHECK_OUT", "LOAD-EMP-000005", "CHECK_OUT",
+                "LOAD-EMP-000000", "CHECK_IN", "LOAD-EMP-000002", "CHECK_IN", "LOAD-EMP-000004", "CHECK_IN"), nextMorning);
+    }
+
+    @Test
+    void shouldPartitionEmployeesAcrossConnections() {
+        Set<String> tags = new HashSet<>();
+        for (int partition = 0; partition < 3; partition++) {
+            EmployeeRoster roster = new EmployeeRoster(partition, 3, 10, 5, 2, 42);
+            for (int change = 0; change < 2; change++) {
+                for (AttendanceEvent event = roster.next(change); event != null; event = roster.next(change)) {
+                    if ("CHECK_IN".equals(event.getEventType())) {
+                        assertTrue(tags.add(event.getRfidTag()));
+                    }
+                }
+            }
+        }
+        assertEquals(10, tags.size());
+    }
+
+    /**
+     * @return Tipo da batida por funcionário na troca (falha se alguém bater duas vezes)
+     */
+    private static Map<String, String> drain(EmployeeRoster roster, int change, Map<String, String> device) {
+        Map<String, String> swipes = new HashMap<>();
+        for (AttendanceEvent event = roster.next(change); event != null; event = roster.next(change)) {
+            assertNull(swipes.put(event.getRfidTag(), event.getEventType()));
+            device.putIfAbsent(event.getRfidTag(), event.getDeviceId());
+            assertEquals(device.get(event.getRfidTag()), event.getDeviceId());
+        }
+        return swipes;
+    }
+
+    @Test
+    void shouldMapRunOntoSimulatedDay() {
+        LoadGenerator generator = new LoadGenerator(LoadConfig.parse(new String[]{
+                "--duration=60s", "--sim-start=05:00", "--sim-span=2h"}));
+
+        assertEquals(LocalTime.of(5, 0), generator.simulatedTime(0));
+        assertEquals(LocalTime.of(6, 0), generator.simulatedTime(Duration.ofSeconds(30).toNanos()));
+        assertEquals(1.0, generator.multiplierAt(Duration.ofSeconds(30).toNanos()), 1e-9);
+    }
+
+    @Test
+    void shouldPayloadSerializeTimestampAsIsoString() throws Exception {
+        AttendanceEvent event = new AttendanceEvent("LOAD-DEV-0001", "LOAD-EMP-000001", "CHECK_IN",
+                LocalDateTime.of(2024, 1, 15, 8, 30));
+
+        assertEquals("attendance/LOAD-DEV-0001/CHECK_IN", MqttPublisher.topicFor(event));
+        assertTrue(new String(MqttPublisher.toPayload(event)).contains("\"timestamp\":\"2024-01-15T08:30:00\""));
+    }
+}
@@ -1,21 +1,38 @@
 package com.pontualiot.simulator;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * TDD Test para MqttClient
  * 
- * Testa envio de dados via MQTT
+ * Testa envio de dados via MQTT (broker MQTT local de teste)
  */
 class MqttClientTest {
 
+    private FakeMqttBroker broker;
     private AttendanceMqttClient mqttClient;
 
     @BeforeEach
-    void setUp() {
-        mqttClient = new AttendanceMqttClient("tcp://localhost:1883", "simulator-001");
+    void setUp() throws IOException {
+        broker = new FakeMqttBroker().start();
+        mqttClient = new AttendanceMqttClient(broker.url(), "simulator-001");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        mqttClient.disconnect();
+        broker.close();
     }
 
     /**
@@ -50,6 +67,8 @@ class MqttClientTest {
         
         // Then - Deve publicar com sucesso
         assertTrue(published);
+        assertEquals("attendance/DEVICE_001/CHECK_IN", broker.topics.get(0));
+        assertEquals(1, mqttClient.getAckedCount());
     }
 
     /**
@@ -66,4 +85,49 @@ class MqttClientTest {
         // Then - Deve desconectar
         assertFalse(mqttClient.isConnected());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldRejectPublishesBeyondInflightWindow() throws Exception {
+        AttendanceMqttClient client = new AttendanceMqttClient(broker.url(), "simulator-002", 2, 0);
+        client.connect();
+        broker.withholdAcks = true;
+
+        client.publishAsync("attendance/DEVICE_001/CHECK_IN", "{}".getBytes(StandardCharsets.UTF_8));
+        client.publishAsync("attendance/DEVICE_001/CHECK_IN", "{}".getBytes(StandardCharsets.UTF_8));
+        CompletableFuture<Void> third = client.publishAsync("attendance/DEVICE_001/CHECK_IN", "{}".getBytes(StandardCharsets.UTF_8));
+
+        ExecutionException rejected = assertThrows(ExecutionException.class, third::get);
+        assertInstanceOf(EventPublisher.InflightFullException.class, rejected.getCause());
+        assertEquals(2, client.getPublishedCount());
+        assertEquals(2, client.getInflightCount());
+        broker.stop(); // Sem esperar os PUBACKs retidos no disconnect
+        client.disconnect();
+    }
+
+    @Test
+    void shouldBufferWhileBrokerIsDownAndDeliverAfterReconnect() throws Exception {
+        mqttClient.connect();
+        broker.stop();
+        waitUntil(() -> !mqttClient.isConnected());
+
+        CompletableFuture<Void> buffered = mqttClient.publishAsync(
+                new AttendanceEvent("DEVICE_001", "RFID_123456", "CHECK_OUT"));
+        assertEquals(1, mqttClient.getBufferedCount());
+        assertFalse(buffered.isDone());
+
+        broker.start();
+        buffered.get(15, TimeUnit.SECONDS); // Reconexão automática + envio do buffer
+
+        assertEquals(0, mqttClient.getBufferedCount());
+        assertEquals(1, mqttClient.getAckedCount());
+        assertEquals("attendance/DEVICE_001/CHECK_OUT", broker.topics.get(0));
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
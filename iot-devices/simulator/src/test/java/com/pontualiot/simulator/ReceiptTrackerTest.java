@@ -0,0 +1,54 @@
+package com.pontualiot.simulator;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReceiptTrackerTest {
+
+    private final ReceiptTracker tracker = new ReceiptTracker("tcp://localhost:1883", "receipts/attendance", "run1");
+
+    @Test
+    void shouldStampEventsWithSequenceAndSendTime() throws Exception {
+        AttendanceEvent first = tracker.stamp(new AttendanceEvent("LOAD-DEV-0001", "LOAD-EMP-000001", "CHECK_IN"));
+        AttendanceEvent second = tracker.stamp(new AttendanceEvent("LOAD-DEV-0001", "LOAD-EMP-000002", "CHECK_IN"));
+
+        assertEquals("run1-0", first.getMessageId());
+        assertEquals("run1-1", second.getMessageId());
+        assertFalse(second.getSentAt().isBefore(first.getSentAt()));
+        String payload = new String(MqttPublisher.toPayload(first), StandardCharsets.UTF_8);
+        assertTrue(payload.contains("\"messageId\":\"run1-0\""));
+        assertTrue(payload.contains("\"sentAt\":\""));
+    }
+
+    @Test
+    void shouldReportLatencyLossAndDuplicates() {
+        for (int i = 0; i < 4; i++) {
+            tracker.stamp(new AttendanceEvent("LOAD-DEV-0001", "LOAD-EMP-00000" + i, "CHECK_IN"));
+        }
+        long now = System.nanoTime();
+
+        tracker.onReceipt(receipt("run1-0"), now);
+        tracker.onReceipt(receipt("run1-1"), now);
+        tracker.onReceipt(receipt("run1-1"), now); // Gravada duas vezes
+        tracker.onReceipt(receipt("run0-2"), now); // Outra execução
+        tracker.onReceipt(receipt("run1-99"), now); // Nunca enviada
+        tracker.onReceipt("not json".getBytes(StandardCharsets.UTF_8), now);
+
+        ReceiptTracker.ReceiptReport report = tracker.report();
+        assertEquals(4, report.sent());
+        assertEquals(2, report.confirmed());
+        assertEquals(2, report.missing());
+        assertEquals(1, report.duplicates());
+        assertEquals(3, report.foreign());
+        assertEquals(List.of("run1-2", "run1-3"), report.missingSamples());
+        assertEquals(2, report.latency().getTotalCount());
+    }
+
+    private static byte[] receipt(String messageId) {
+        return ("{\"messageId\":\"" + messageId + "\",\"deviceId\":\"LOAD-DEV-0001\"}").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,208 @@
+package com.pontualiot.simulator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testa gravação, leitura e replay de traces (broker MQTT local de teste)
+ */
+class TraceReplayTest {
+
+    @TempDir
+    Path dir;
+
+    private FakeMqttBroker broker;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        broker = new FakeMqttBroker().start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        broker.close();
+    }
+
+    @Test
+    void shouldRoundTripBinaryTraceAcrossWindows() throws IOException {
+        // Given - Trace binário maior que a janela de leitura
+        Path file = dir.resolve("trace.bin");
+        List<TraceRecord> records = records(200, 3, 1_000_000);
+        write(file, records);
+
+        // When - Lê com janela de 64 bytes (força remapeamentos)
+        List<TraceRecord> read = readAll(new TraceReader(file, 64));
+
+        // Then - Mesmas mensagens, na mesma ordem
+        assertEquals(records.size(), read.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(records.get(i).offsetNanos(), read.get(i).offsetNanos());
+            assertEquals(records.get(i).topic(), read.get(i).topic());
+            assertArrayEquals(records.get(i).payload(), read.get(i).payload());
+        }
+    }
+
+    @Test
+    void shouldRoundTripNdjsonTrace() throws IOException {
+        // Given - Trace NDJSON
+        Path file = dir.resolve("trace.ndjson");
+        List<TraceRecord> records = records(50, 2, 1_000_000);
+        write(file, records);
+
+        // When - Lê com janela pequena
+        TraceReader reader = new TraceReader(file, 32);
+        assertFalse(reader.isBinary());
+        List<TraceRecord> read = readAll(reader);
+
+        // Then - Tópico e instante preservados
+        assertEquals(records.size(), read.size());
+        assertEquals(records.get(49).topic(), read.get(49).topic());
+        assertEquals(records.get(49).offsetNanos(), read.get(49).offsetNanos());
+        assertEquals("DEV-1", read.get(49).deviceId());
+    }
+
+    @Test
+    void shouldReadPlainEventLines() throws IOException {
+        // Given - NDJSON com batidas puras (formato do bulk da API)
+        Path file = dir.resolve("events.ndjson");
+        Files.writeString(file, """
+                {"deviceId":"DEV-A","rfidTag":"RFID-1","eventType":"CHECK_IN","timestamp":"2026-01-05T08:00:00"}
+
+                {"deviceId":"DEV-B","rfidTag":"RFID-2","eventType":"CHECK_OUT","timestamp":"2026-01-05T08:00:02.5"}
+                """);
+
+        // When
+        List<TraceRecord> read = readAll(new TraceReader(file));
+
+        // Then - Tópico vem do evento e o instante é relativo à primeira linha
+        assertEquals(2, read.size());
+        assertEquals("attendance/DEV-A/CHECK_IN", read.get(0).topic());
+        assertEquals(0, read.get(0).offsetNanos());
+        assertEquals("attendance/DEV-B/CHECK_OUT", read.get(1).topic());
+        assertEquals(2_500_000_000L, read.get(1).offsetNanos());
+    }
+
+    @Test
+    void shouldReplayAtMaxSpeedPreservingDeviceOrder() throws Exception {
+        // Given - 300 mensagens de 5 dispositivos
+        Path file = dir.resolve("trace.bin");
+        write(file, records(300, 5, 1_000_000_000));
+
+        // When - Replay sem espera em 3 conexões
+        TraceReplayer.ReplayReport report = new TraceReplayer(config(file, 0, false)).run();
+
+        // Then - Tudo publicado e, por dispositivo, na ordem gravada
+        assertEquals(300, report.records());
+        assertEquals(300, report.acked());
+        assertEquals(300, broker.payloads.size());
+        Map<String, Integer> lastSequence = new HashMap<>();
+        for (int i = 0; i < broker.topics.size(); i++) {
+            String device = broker.topics.get(i).split("/")[1];
+            int sequence = Integer.parseInt(new String(broker.payloads.get(i), StandardCharsets.UTF_8)
+                    .replaceAll("\\D+", " ").trim().split(" ")[1]);
+            assertTrue(sequence > lastSequence.getOrDefault(device, -1), "Out of order for " + device);
+            lastSequence.put(device, sequence);
+        }
+    }
+
+    @Test
+    void shouldHonourSpeedMultiplier() throws Exception {
+        // Given - Trace de 2s
+        Path file = dir.resolve("trace.bin");
+        write(file, List.of(record(0, 0, 0), record(1, 1, TimeUnit.SECONDS.toNanos(2))));
+
+        // When - Replay a 10x
+        long start = System.nanoTime();
+        TraceReplayer.ReplayReport report = new TraceReplayer(config(file, 10, true)).run();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then - ~200ms, com timestamp trocado pelo do replay
+        assertEquals(2, report.acked());
+        assertTrue(elapsedMs >= 190, "Replay too fast: " + elapsedMs + "ms");
+        assertTrue(elapsedMs < 2_000, "Replay too slow: " + elapsedMs + "ms");
+        String payload = new String(broker.payloads.get(0), StandardCharsets.UTF_8);
+        assertFalse(payload.contains("2026-01-05"), payload);
+    }
+
+    @Test
+    void shouldRecordBrokerTrafficForReplay() throws Exception {
+        // Given - Recorder assinando attendance/+/+
+        Path file = dir.resolve("recorded.bin");
+        TraceRecorder recorder = new TraceRecorder(broker.url(), new String[]{"attendance/+/+"}, file);
+        recorder.start();
+        AttendanceMqttClient device = new AttendanceMqttClient(broker.url(), "device-under-record");
+        device.connect();
+
+        // When - Dispositivo publica 3 batidas
+        for (int i = 0; i < 3; i++) {
+            assertTrue(device.publishAttendanceEvent(new AttendanceEvent("DEV-REC", "RFID-" + i, "CHECK_IN")));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (recorder.recorded() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        device.disconnect();
+        recorder.stop();
+
+        // Then - Trace legível, na ordem publicada
+        List<TraceRecord> read = readAll(new TraceReader(file));
+        assertEquals(3, read.size());
+        assertEquals("attendance/DEV-REC/CHECK_IN", read.get(0).topic());
+        assertEquals(0, read.get(0).offsetNanos());
+        assertTrue(new String(read.get(2).payload(), StandardCharsets.UTF_8).contains("RFID-2"));
+    }
+
+    private ReplayConfig config(Path file, double speed, boolean retime) {
+        return new ReplayConfig(file.toString(), broker.url(), speed, 3, 50, retime,
+                new String[]{"attendance/+/+"}, Duration.ZERO);
+    }
+
+    private static List<TraceRecord> records(int count, int devices, long spacingNanos) {
+        List<TraceRecord> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            records.add(record(i, i % devices, i * spacingNanos));
+        }
+        return records;
+    }
+
+    private static TraceRecord record(int sequence, int device, long offsetNanos) {
+        String payload = "{\"deviceId\":\"DEV-" + device + "\",\"rfidTag\":\"RFID-" + sequence
+                + "\",\"eventType\":\"CHECK_IN\",\"timestamp\":\"2026-01-05T08:00:00\"}";
+        return new TraceRecord(offsetNanos, "attendance/DEV-" + device + "/CHECK_IN",
+                payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void write(Path file, List<TraceRecord> records) throws IOException {
+        try (TraceWriter writer = new TraceWriter(file)) {
+            for (TraceRecord record : records) {
+                writer.write(record);
+            }
+        }
+    }
+
+    private static List<TraceRecord> readAll(TraceReader reader) throws IOException {
+        List<TraceRecord> read = new ArrayList<>();
+        try (reader) {
+            TraceRecord record;
+            while ((record = reader.next()) != null) {
+                read.add(record);
+            }
+        }
+        return read;
+    }
+}
@@ -69,7 +69,7 @@ describe('AttendanceService TDD', () => {
         { id: 1, employeeId: 1, checkIn: '08:00', checkOut: '17:00', date: '2024-01-15' }
       ];
 
-      mockedAxios.get.mockResolvedValueOnce({ data: mockHistory });
+      mockedAxios.get.mockResolvedValueOnce({ data: { items: mockHistory, nextCursor: null } });
 
       const filters = { employeeId: 1, startDate: '2024-01-01', endDate: '2024-01-31' };
       const result = await AttendanceService.getAttendanceHistory(filters);
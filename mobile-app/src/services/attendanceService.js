@@ -38,10 +38,11 @@ class AttendanceService {
     }
   }
 
+  // GET /attendances é paginado por cursor: { items, nextCursor }
   async getAttendanceHistory(filters = {}) {
     try {
       const response = await api.get('/attendances', { params: filters });
-      return response.data;
+      return response.data.items;
     } catch (error) {
       console.error('Error fetching attendance history:', error);
       throw error;
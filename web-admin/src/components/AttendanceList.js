@@ -3,15 +3,18 @@ import { getAttendances } from '../services/api';
 
 const AttendanceList = () => {
   const [attendances, setAttendances] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [error, setError] = useState(null);
 
   useEffect(() => {
     const fetchAttendances = async () => {
       try {
         setLoading(true);
-        const data = await getAttendances();
-        setAttendances(data);
+        const page = await getAttendances();
+        setAttendances(page.items);
+        setNextCursor(page.nextCursor);
       } catch (err) {
         setError('Erro ao carregar registros');
       } finally {
@@ -22,6 +25,19 @@ const AttendanceList = () => {
     fetchAttendances();
   }, []);
 
+  const loadMore = async () => {
+    try {
+      setLoadingMore(true);
+      const page = await getAttendances({ cursor: nextCursor });
+      setAttendances(prev => [...prev, ...page.items]);
+      setNextCursor(page.nextCursor);
+    } catch (err) {
+      setError('Erro ao carregar registros');
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   if (loading) return <div>Carregando registros...</div>;
   if (error) return <div>{error}</div>;
 
@@ -48,6 +64,11 @@ const AttendanceList = () => {
           ))}
         </tbody>
       </table>
+      {nextCursor && (
+        <button onClick={loadMore} disabled={loadingMore}>
+          {loadingMore ? 'Carregando...' : 'Carregar mais'}
+        </button>
+      )}
     </div>
   );
 };
@@ -1,4 +1,4 @@
-import { render, screen, waitFor } from '@testing-library/react';
+import { render, screen, waitFor, fireEvent } from '@testing-library/react';
 import AttendanceList from './AttendanceList';
 import * as api from '../services/api';
 
@@ -29,7 +29,7 @@ describe('AttendanceList TDD', () => {
       }
     ];
     
-    api.getAttendances.mockResolvedValue(mockAttendances);
+    api.getAttendances.mockResolvedValue({ items: mockAttendances, nextCursor: null });
     
     render(<AttendanceList />);
     
@@ -38,6 +38,30 @@ describe('AttendanceList TDD', () => {
       expect(screen.getByText('08:00')).toBeInTheDocument();
       expect(screen.getByText('17:00')).toBeInTheDocument();
     });
+    expect(screen.queryByText('Carregar mais')).not.toBeInTheDocument();
+  });
+
+  test('should load next page using the cursor', async () => {
+    api.getAttendances
+      .mockResolvedValueOnce({
+        items: [{ id: 1, employee: { name: 'João' }, date: '2024-01-15' }],
+        nextCursor: '2024-01-15_1'
+      })
+      .mockResolvedValueOnce({
+        items: [{ id: 2, employee: { name: 'Maria' }, date: '2024-01-16' }],
+        nextCursor: null
+      });
+    
+    render(<AttendanceList />);
+    
+    fireEvent.click(await screen.findByText('Carregar mais'));
+    
+    await waitFor(() => {
+      expect(screen.getByText('Maria')).toBeInTheDocument();
+    });
+    expect(screen.getByText('João')).toBeInTheDocument();
+    expect(api.getAttendances).toHaveBeenLastCalledWith({ cursor: '2024-01-15_1' });
+    expect(screen.queryByText('Carregar mais')).not.toBeInTheDocument();
   });
 
   test('should handle API error gracefully', async () => {
@@ -56,7 +80,7 @@ describe('AttendanceList TDD', () => {
       { id: 2, employee: { name: 'Maria' }, date: '2024-01-16' }
     ];
     
-    api.getAttendances.mockResolvedValue(mockAttendances);
+    api.getAttendances.mockResolvedValue({ items: mockAttendances, nextCursor: null });
     
     render(<AttendanceList />);
     
@@ -26,6 +26,7 @@ export const deleteEmployee = async (id) => {
   await api.delete(`/employees/${id}`);
 };
 
+// Paginado por cursor: { items, nextCursor } (nextCursor null na última página)
 export const getAttendances = async (filters = {}) => {
   const response = await api.get('/attendances', { params: filters });
   return response.data;